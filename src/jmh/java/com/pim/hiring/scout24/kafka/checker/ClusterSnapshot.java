@@ -0,0 +1,49 @@
+package com.pim.hiring.scout24.kafka.checker;
+
+import org.apache.kafka.common.TopicPartition;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+
+/**
+ * Synthetic cluster used by the benchmarks: every group commits offsets for a few random topics, and a small share of
+ * the groups skips one partition of each topic, like a manually assigned consumer.
+ */
+class ClusterSnapshot {
+
+    // group -> committed offset of each topic partition, as returned by the admin client
+    final List<String> groups = new ArrayList<>();
+    final List<Map<TopicPartition, Object>> groupOffsets = new ArrayList<>();
+
+
+    ClusterSnapshot(int groups, int topics, int partitions, int topicsPerGroup, double missingRatio, long seed) {
+        Random random = new Random(seed);
+
+        for (int group = 0; group < groups; group++) {
+            boolean missing = random.nextDouble() < missingRatio;
+            Map<TopicPartition, Object> offsets = new HashMap<>();
+
+            for (int i = 0; i < topicsPerGroup; i++) {
+                String topic = topicName(random.nextInt(topics));
+                int skipped = missing ? random.nextInt(partitions) : -1;
+
+                for (int partition = 0; partition < partitions; partition++) {
+                    if (partition != skipped) {
+                        offsets.put(new TopicPartition(topic, partition), (long) random.nextInt(1000000));
+                    }
+                }
+            }
+            this.groups.add("group-" + group);
+            this.groupOffsets.add(offsets);
+        }
+    }
+
+
+    static String topicName(int topic) {
+        return "topic-" + topic;
+    }
+}
@@ -0,0 +1,95 @@
+package com.pim.hiring.scout24.kafka.checker;
+
+import com.pim.hiring.scout24.kafka.index.PartitionAssignmentIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.BitSet;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Cost of building the bitset index of a scan, comparing every pair against the topic partitions, and running the
+ * incremental check of a scan without changes.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class IndexBenchmark {
+
+    @Param({"1000", "10000"})
+    public int groups;
+
+    @Param({"500"})
+    public int topics;
+
+    @Param({"64"})
+    public int partitions;
+
+    @Param({"4"})
+    public int topicsPerGroup;
+
+    private static final IncrementalChecker.TransitionListener NO_LISTENER = new IncrementalChecker.TransitionListener() {
+        @Override
+        public void onUnassigned(String group, String topic, BitSet partitions) {
+        }
+
+        @Override
+        public void onRecovered(String group, String topic, BitSet partitions) {
+        }
+    };
+
+    private ClusterSnapshot snapshot;
+    private PartitionAssignmentIndex index;
+    private IncrementalChecker incrementalChecker;
+
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        snapshot = new ClusterSnapshot(groups, topics, partitions, topicsPerGroup, 0.01, 42L);
+        index = buildIndex();
+
+        // the previous scan is the same snapshot, so nothing has changed
+        incrementalChecker = new IncrementalChecker();
+        incrementalChecker.check(fillIndex(incrementalChecker.newIndex()), topicId -> partitions, NO_LISTENER);
+    }
+
+
+    @Benchmark
+    public PartitionAssignmentIndex buildIndex() {
+        return fillIndex(new PartitionAssignmentIndex());
+    }
+
+    @Benchmark
+    public void fullComparison(Blackhole blackhole) {
+        index.forEach((groupId, topicId, assignment) ->
+                blackhole.consume(index.getMissingPartitions(groupId, topicId, partitions)));
+    }
+
+    @Benchmark
+    public IncrementalChecker.ScanDelta incrementalCheck() {
+        return incrementalChecker.check(fillIndex(incrementalChecker.newIndex()), topicId -> partitions, NO_LISTENER);
+    }
+
+
+    private PartitionAssignmentIndex fillIndex(PartitionAssignmentIndex emptyIndex) {
+        for (int group = 0; group < snapshot.groups.size(); group++) {
+            emptyIndex.addGroup(snapshot.groups.get(group), snapshot.groupOffsets.get(group));
+        }
+        return emptyIndex;
+    }
+}
@@ -0,0 +1,90 @@
+package com.pim.hiring.scout24.kafka.checker;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Cost of the topic#group map built by getTopicAndPartitionsForAllConsumerGroups (addNewPartition for every
+ * partition) and of comparing every entry with comparePartitionLists.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class LegacyMapBenchmark {
+
+    @Param({"1000", "10000"})
+    public int groups;
+
+    @Param({"500"})
+    public int topics;
+
+    @Param({"64"})
+    public int partitions;
+
+    @Param({"4"})
+    public int topicsPerGroup;
+
+    private ClusterSnapshot snapshot;
+    private UnassignedTopicPartitions checker;
+    private Map<String, Map<String, List<Integer>>> topicConsumergroupConsumerPartitions;
+    private Map<String, List<Integer>> topicPartitionsList;
+
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        snapshot = new ClusterSnapshot(groups, topics, partitions, topicsPerGroup, 0.01, 42L);
+        checker = new UnassignedTopicPartitions();
+        topicConsumergroupConsumerPartitions = buildMap();
+
+        List<Integer> partitionsList = new ArrayList<>();
+        for (int partition = 0; partition < partitions; partition++) {
+            partitionsList.add(partition);
+        }
+        topicPartitionsList = new HashMap<>();
+        for (int topic = 0; topic < topics; topic++) {
+            topicPartitionsList.put(ClusterSnapshot.topicName(topic), partitionsList);
+        }
+    }
+
+
+    @Benchmark
+    public Map<String, Map<String, List<Integer>>> buildMap() {
+        Map<String, Map<String, List<Integer>>> map = new HashMap<>();
+        for (int group = 0; group < snapshot.groups.size(); group++) {
+            checker.addGroupPartitions(map, snapshot.groups.get(group), snapshot.groupOffsets.get(group).keySet());
+        }
+        return map;
+    }
+
+    @Benchmark
+    public void fullComparison(Blackhole blackhole) {
+        for (Map.Entry<String, Map<String, List<Integer>>> entry : topicConsumergroupConsumerPartitions.entrySet()) {
+            String topic = entry.getValue().keySet().iterator().next();
+            Map<String, List<Integer>> topicPartitions = new HashMap<>();
+            topicPartitions.put(topic, topicPartitionsList.get(topic));
+
+            blackhole.consume(checker.comparePartitionLists(topicPartitions, entry));
+        }
+    }
+}
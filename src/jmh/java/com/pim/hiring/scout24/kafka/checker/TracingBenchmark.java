@@ -0,0 +1,145 @@
+package com.pim.hiring.scout24.kafka.checker;
+
+import com.pim.hiring.scout24.kafka.index.PartitionAssignmentIndex;
+import com.pim.hiring.scout24.kafka.metrics.CheckerMetrics;
+import com.pim.hiring.scout24.kafka.trace.JfrEvents;
+import com.pim.hiring.scout24.kafka.trace.ScanTracer;
+import org.apache.kafka.common.Node;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.BitSet;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Cost of the tracing of a scan without changes: the incremental check plus a traced response per consumer group,
+ * and the tracing of the responses alone. The tracing is off, on without any JFR recording, or on with a recording
+ * that has the checker events enabled.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class TracingBenchmark {
+
+    @Param({"10000"})
+    public int groups;
+
+    @Param({"500"})
+    public int topics;
+
+    @Param({"64"})
+    public int partitions;
+
+    @Param({"4"})
+    public int topicsPerGroup;
+
+    @Param({"off", "on", "recording"})
+    public String tracing;
+
+    private static final IncrementalChecker.TransitionListener NO_LISTENER = new IncrementalChecker.TransitionListener() {
+        @Override
+        public void onUnassigned(String group, String topic, BitSet partitions) {
+        }
+
+        @Override
+        public void onRecovered(String group, String topic, BitSet partitions) {
+        }
+    };
+
+    private static final Node COORDINATOR = new Node(0, "localhost", 9092);
+
+    private ClusterSnapshot snapshot;
+    private IncrementalChecker incrementalChecker;
+    private ScanTracer tracer;
+    private Object recording;
+
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        snapshot = new ClusterSnapshot(groups, topics, partitions, topicsPerGroup, 0.01, 42L);
+        incrementalChecker = new IncrementalChecker();
+        incrementalChecker.check(fillIndex(), topicId -> partitions, NO_LISTENER);
+
+        if (!tracing.equals("off")) {
+            tracer = new ScanTracer(16, 10, Long.MAX_VALUE, JfrEvents.create());
+        }
+        if (tracing.equals("recording")) {
+            // by reflection, like JfrEvents, so the benchmarks compile on a JDK without JFR
+            Class<?> recordingClass = Class.forName("jdk.jfr.Recording");
+            recording = recordingClass.newInstance();
+            recordingClass.getMethod("enable", String.class).invoke(recording, "checker.ScanPhase");
+            recordingClass.getMethod("enable", String.class).invoke(recording, "checker.GroupResponse");
+            recordingClass.getMethod("start").invoke(recording);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        if (recording != null) {
+            recording.getClass().getMethod("close").invoke(recording);
+        }
+    }
+
+
+    @Benchmark
+    public IncrementalChecker.ScanDelta scan() {
+        long start = System.nanoTime();
+        if (tracer != null) {
+            tracer.beginCycle("full");
+        }
+
+        PartitionAssignmentIndex index = incrementalChecker.newIndex();
+        for (int group = 0; group < snapshot.groups.size(); group++) {
+            index.addGroup(snapshot.groups.get(group), snapshot.groupOffsets.get(group));
+            if (tracer != null) {
+                tracer.groupResponse(snapshot.groups.get(group), COORDINATOR, group);
+            }
+        }
+        if (tracer != null) {
+            tracer.phase(CheckerMetrics.Phase.OFFSET_FETCH, System.nanoTime() - start);
+        }
+
+        IncrementalChecker.ScanDelta delta = incrementalChecker.check(index, topicId -> partitions, NO_LISTENER);
+        if (tracer != null) {
+            tracer.phase(CheckerMetrics.Phase.COMPARE, System.nanoTime() - start);
+            tracer.endCycle(System.nanoTime() - start, false);
+        }
+        return delta;
+    }
+
+    @Benchmark
+    public void traceResponses() {
+        if (tracer == null) {
+            return;
+        }
+        tracer.beginCycle("full");
+        for (int group = 0; group < snapshot.groups.size(); group++) {
+            tracer.groupResponse(snapshot.groups.get(group), COORDINATOR, group);
+        }
+        tracer.endCycle(snapshot.groups.size(), false);
+    }
+
+
+    private PartitionAssignmentIndex fillIndex() {
+        PartitionAssignmentIndex index = incrementalChecker.newIndex();
+        for (int group = 0; group < snapshot.groups.size(); group++) {
+            index.addGroup(snapshot.groups.get(group), snapshot.groupOffsets.get(group));
+        }
+        return index;
+    }
+}
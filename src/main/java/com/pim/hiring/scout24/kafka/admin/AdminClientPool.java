@@ -0,0 +1,321 @@
+package com.pim.hiring.scout24.kafka.admin;
+
+import kafka.admin.AdminClient;
+import org.apache.kafka.clients.CommonClientConfigs;
+import org.apache.kafka.common.Node;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Keeps a bounded set of long-lived Kafka {@link AdminClient} instances that are shared between the checker runs.
+ * The Scala admin client is not thread safe, so every client is lent to one caller at a time.
+ * Clients are rebuilt when they fail or when the set of brokers in the cluster changes, and all of them are closed
+ * when the pool is closed.
+ */
+public class AdminClientPool implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AdminClientPool.class);
+
+    // a waiting borrower checks the free capacity at least this often
+    private static final long WAIT_SLICE_MS = 100;
+
+    private final String bootstrapServers;
+    private final int maxSize;
+    private final long borrowTimeoutMs;
+
+    // idle clients ready to be lent
+    private final BlockingQueue<AdminClient> idleClients;
+    // generation of every client created by the pool
+    private final Map<AdminClient, Long> clientGenerations = new IdentityHashMap<>();
+
+    private long generation = 0;
+    private String clusterFingerprint;
+    private boolean closed = false;
+
+    // connection reuse metrics
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong closedClients = new AtomicLong();
+    private final AtomicLong borrowed = new AtomicLong();
+    private final AtomicLong reused = new AtomicLong();
+    private final AtomicLong reconnects = new AtomicLong();
+
+
+    /**
+     * Callback executed with a client lent by the pool
+     * @param <T> The callback result type
+     */
+    public interface AdminClientCallback<T> {
+        T doWithAdminClient(AdminClient adminClient);
+    }
+
+
+    /**
+     * @param bootstrapServers Configured Kafka servers in the application.yml file
+     * @param maxSize Maximum number of clients opened at the same time
+     * @param borrowTimeoutMs Maximum time to wait for a free client
+     */
+    public AdminClientPool(String bootstrapServers, int maxSize, long borrowTimeoutMs) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("The admin client pool size must be greater than 0");
+        }
+        this.bootstrapServers = bootstrapServers;
+        this.maxSize = maxSize;
+        this.borrowTimeoutMs = borrowTimeoutMs;
+        this.idleClients = new ArrayBlockingQueue<>(maxSize);
+    }
+
+
+    /**
+     * Run the callback with a pooled client. The client is invalidated if the callback fails.
+     * @param callback The code to execute
+     * @param <T> The callback result type
+     * @return The callback result
+     */
+    public <T> T execute(AdminClientCallback<T> callback) {
+        AdminClient adminClient = borrow();
+        try {
+            T result = callback.doWithAdminClient(adminClient);
+            release(adminClient);
+            return result;
+        } catch (RuntimeException e) {
+            invalidate(adminClient);
+            throw e;
+        }
+    }
+
+    /**
+     * Lend a client. It has to be given back with {@link #release(AdminClient)} or {@link #invalidate(AdminClient)}
+     * @return {@link AdminClient}
+     */
+    public AdminClient borrow() {
+        AdminClient adminClient = idleClients.poll();
+
+        // skip the idle clients created before a cluster change
+        while (adminClient != null && !isCurrent(adminClient)) {
+            discard(adminClient);
+            adminClient = idleClients.poll();
+        }
+
+        if (adminClient != null) {
+            reused.incrementAndGet();
+        } else {
+            adminClient = createClientIfFree();
+            if (adminClient == null) {
+                adminClient = waitForIdleClient();
+            }
+        }
+        borrowed.incrementAndGet();
+
+        return adminClient;
+    }
+
+    /**
+     * Give back a lent client. Clients created before a cluster change are closed instead of reused
+     * @param adminClient The lent client
+     */
+    public void release(AdminClient adminClient) {
+        if (!isCurrent(adminClient) || !idleClients.offer(adminClient)) {
+            discard(adminClient);
+        }
+    }
+
+    /**
+     * Close a lent client that is not usable any more, e.g. after a network error
+     * @param adminClient The lent client
+     */
+    public void invalidate(AdminClient adminClient) {
+        LOGGER.warn("Discarding a failed Kafka admin client");
+        reconnects.incrementAndGet();
+        discard(adminClient);
+    }
+
+    /**
+     * Compare the brokers seen by the last request with the previous ones and rebuild the clients if they changed
+     * @param brokers The brokers of the cluster
+     */
+    public void updateClusterNodes(Collection<Node> brokers) {
+        List<String> nodes = new ArrayList<>();
+        for (Node broker : brokers) {
+            nodes.add(broker.id() + "@" + broker.host() + ":" + broker.port());
+        }
+        Collections.sort(nodes);
+        String fingerprint = nodes.toString();
+
+        synchronized (this) {
+            if (clusterFingerprint != null && !clusterFingerprint.equals(fingerprint)) {
+                LOGGER.info("Kafka cluster changed from " + clusterFingerprint + " to " + fingerprint
+                        + ", the admin clients will reconnect");
+                generation++;
+                reconnects.incrementAndGet();
+            }
+            clusterFingerprint = fingerprint;
+        }
+
+        // idle clients of an old generation are closed right away
+        List<AdminClient> idle = new ArrayList<>();
+        idleClients.drainTo(idle);
+        for (AdminClient adminClient : idle) {
+            release(adminClient);
+        }
+    }
+
+    @Override
+    public void close() {
+        List<AdminClient> clients;
+        synchronized (this) {
+            closed = true;
+            clients = new ArrayList<>(clientGenerations.keySet());
+            clientGenerations.clear();
+        }
+        idleClients.clear();
+
+        for (AdminClient adminClient : clients) {
+            closeQuietly(adminClient);
+        }
+        LOGGER.info("Kafka admin client pool closed. " + this);
+    }
+
+
+    public String getBootstrapServers() {
+        return bootstrapServers;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getCreatedCount() {
+        return created.get();
+    }
+
+    public long getClosedCount() {
+        return closedClients.get();
+    }
+
+    public long getBorrowedCount() {
+        return borrowed.get();
+    }
+
+    public long getReusedCount() {
+        return reused.get();
+    }
+
+    public long getReconnectCount() {
+        return reconnects.get();
+    }
+
+    public synchronized int getOpenCount() {
+        return clientGenerations.size();
+    }
+
+    @Override
+    public String toString() {
+        return "AdminClientPool{open=" + getOpenCount() + ", created=" + created + ", closed=" + closedClients +
+                ", borrowed=" + borrowed + ", reused=" + reused + ", reconnects=" + reconnects + "}";
+    }
+
+
+    /**
+     * Create a Kafka admin client
+     * @param bootstrapServers Configured Kafka servers in the application.yml file
+     * @return {@link AdminClient}
+     */
+    public static AdminClient createKafkaAdminClient(String bootstrapServers) {
+        Properties props = new Properties();
+        props.put(CommonClientConfigs.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+
+        return AdminClient.create(props);
+    }
+
+
+    private AdminClient createClient() {
+        AdminClient adminClient = createKafkaAdminClient(bootstrapServers);
+        clientGenerations.put(adminClient, generation);
+        created.incrementAndGet();
+        LOGGER.debug("Created Kafka admin client for " + bootstrapServers);
+
+        return adminClient;
+    }
+
+    private synchronized AdminClient createClientIfFree() {
+        checkOpen();
+        return clientGenerations.size() < maxSize ? createClient() : null;
+    }
+
+    /**
+     * Wait for an idle client of the current generation, or for a free slot left by a discarded client
+     */
+    private AdminClient waitForIdleClient() {
+        long deadline = System.currentTimeMillis() + borrowTimeoutMs;
+        try {
+            while (true) {
+                long remainingMs = deadline - System.currentTimeMillis();
+                if (remainingMs <= 0) {
+                    throw new IllegalStateException("No Kafka admin client available after " + borrowTimeoutMs
+                            + " ms");
+                }
+                AdminClient adminClient = idleClients.poll(Math.min(remainingMs, WAIT_SLICE_MS),
+                        TimeUnit.MILLISECONDS);
+                if (adminClient != null) {
+                    if (isCurrent(adminClient)) {
+                        reused.incrementAndGet();
+                        return adminClient;
+                    }
+                    discard(adminClient);
+                }
+
+                // clients released after a cluster change or invalidated are closed and leave their slot free
+                adminClient = createClientIfFree();
+                if (adminClient != null) {
+                    return adminClient;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a Kafka admin client", e);
+        }
+    }
+
+    private synchronized boolean isCurrent(AdminClient adminClient) {
+        Long clientGeneration = clientGenerations.get(adminClient);
+        return !closed && clientGeneration != null && clientGeneration == generation;
+    }
+
+    private void discard(AdminClient adminClient) {
+        boolean owned;
+        synchronized (this) {
+            owned = clientGenerations.remove(adminClient) != null;
+        }
+        if (owned) {
+            closeQuietly(adminClient);
+        }
+    }
+
+    private void closeQuietly(AdminClient adminClient) {
+        try {
+            adminClient.close();
+            closedClients.incrementAndGet();
+        } catch (RuntimeException e) {
+            LOGGER.warn("Error closing the Kafka admin client", e);
+        }
+    }
+
+    private synchronized void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("The Kafka admin client pool is closed");
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.pim.hiring.scout24.kafka.admin;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Created on 17/10/2026.
+ */
+@Configuration
+public class AdminConfig {
+
+    @Value("${spring.kafka.bootstrap-servers}")
+    private String bootstrapServers;
+
+    @Value("${checker.admin.pool-size:4}")
+    private int poolSize;
+
+    @Value("${checker.admin.borrow-timeout-ms:30000}")
+    private long borrowTimeoutMs;
+
+    @Value("${checker.admin.discovery:protocol}")
+    private String discovery;
+
+    @Value("${checker.fetch.threads:4}")
+    private int fetchThreads;
+
+    @Value("${checker.fetch.max-in-flight:8}")
+    private int fetchMaxInFlight;
+
+    @Value("${checker.fetch.batch-size:50}")
+    private int fetchBatchSize;
+
+    // closed together with the Spring context
+    @Bean(destroyMethod = "close")
+    public AdminClientPool adminClientPool() {
+        return new AdminClientPool(bootstrapServers, poolSize, borrowTimeoutMs);
+    }
+
+    @Bean
+    public GroupDiscovery groupDiscovery() {
+        switch (discovery.trim()) {
+            case "protocol":
+                return new ProtocolGroupDiscovery();
+            case "scala":
+                return new ScalaGroupDiscovery();
+            default:
+                throw new IllegalArgumentException("Unknown consumer group discovery: " + discovery);
+        }
+    }
+
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService offsetsFetcherExecutor() {
+        // the in-flight limit of the fetcher keeps the queue bounded
+        return new ThreadPoolExecutor(fetchThreads, fetchThreads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(fetchMaxInFlight), new CustomizableThreadFactory("offsets-fetcher-"));
+    }
+
+    @Bean
+    public ConsumerGroupOffsetsFetcher consumerGroupOffsetsFetcher() {
+        return new ConsumerGroupOffsetsFetcher(adminClientPool(), offsetsFetcherExecutor(),
+                fetchMaxInFlight, fetchBatchSize, groupDiscovery());
+    }
+}
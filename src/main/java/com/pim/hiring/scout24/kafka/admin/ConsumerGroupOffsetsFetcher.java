@@ -0,0 +1,237 @@
+package com.pim.hiring.scout24.kafka.admin;
+
+import kafka.coordinator.GroupOverview;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+
+/**
+ * Fetches the committed offsets of many consumer groups in parallel.
+ * The groups are split in batches per group coordinator, every batch runs in the executor with its own pooled
+ * {@link kafka.admin.AdminClient}, and the number of batches in flight is limited so the brokers are not flooded.
+ * The offsets of a batch are fetched by the {@link GroupDiscovery} strategy. When only some partitions are monitored,
+ * the offset requests ask for those partitions only, or for the ones of every group when they are given per group.
+ */
+public class ConsumerGroupOffsetsFetcher {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConsumerGroupOffsetsFetcher.class);
+
+    private final AdminClientPool adminClientPool;
+    private final ExecutorService executor;
+    private final Semaphore inFlight;
+    private final int batchSize;
+    private final GroupDiscovery groupDiscovery;
+
+
+    /**
+     * Receives the offsets of every group. It is called from the fetcher threads, one call per group, and the offsets
+     * may be a view of the response that is only valid during the call
+     */
+    public interface GroupOffsetsHandler {
+        void onGroupOffsets(String groupId, Map<TopicPartition, Object> groupOffsets);
+
+        /**
+         * Receives the response time of every group, failed ones included
+         */
+        default void onGroupResponse(String groupId, Node coordinator, long latencyNanos) {
+        }
+
+        /**
+         * Receives every group whose offsets couldn't be fetched
+         */
+        default void onGroupFailed(String groupId) {
+        }
+    }
+
+
+    /**
+     * @param adminClientPool The pool that lends the admin clients
+     * @param executor The bounded executor that runs the batches
+     * @param maxInFlight Maximum number of batches running or queued at the same time
+     * @param batchSize Maximum number of groups fetched by a batch
+     */
+    public ConsumerGroupOffsetsFetcher(AdminClientPool adminClientPool, ExecutorService executor,
+                                       int maxInFlight, int batchSize) {
+        this(adminClientPool, executor, maxInFlight, batchSize, new ProtocolGroupDiscovery());
+    }
+
+    /**
+     * @param adminClientPool The pool that lends the admin clients
+     * @param executor The bounded executor that runs the batches
+     * @param maxInFlight Maximum number of batches running or queued at the same time
+     * @param batchSize Maximum number of groups fetched by a batch
+     * @param groupDiscovery Fetches the offsets of every batch
+     */
+    public ConsumerGroupOffsetsFetcher(AdminClientPool adminClientPool, ExecutorService executor,
+                                       int maxInFlight, int batchSize, GroupDiscovery groupDiscovery) {
+        this.adminClientPool = adminClientPool;
+        this.executor = executor;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.batchSize = batchSize;
+        this.groupDiscovery = groupDiscovery;
+    }
+
+
+    /**
+     * Fetch the offsets of every group and wait until all of them are done.
+     * A group that can't be fetched is logged and skipped
+     * @param groupsByCoordinator The groups of each coordinator broker
+     * @param handler Receives the offsets of each group
+     * @return The number of groups that couldn't be fetched
+     */
+    public int fetch(Map<Node, List<GroupOverview>> groupsByCoordinator, GroupOffsetsHandler handler) {
+        return fetch(groupsByCoordinator, null, handler);
+    }
+
+    /**
+     * Fetch the offsets of some partitions of every group and wait until all of them are done.
+     * The partitions without committed offsets are left out, and a group without any of them is not handled
+     * @param groupsByCoordinator The groups of each coordinator broker
+     * @param partitions The partitions to fetch or {@code null} to fetch all of them
+     * @param handler Receives the offsets of each group
+     * @return The number of groups that couldn't be fetched
+     */
+    public int fetch(Map<Node, List<GroupOverview>> groupsByCoordinator, List<TopicPartition> partitions,
+                     GroupOffsetsHandler handler) {
+        if (partitions != null && partitions.isEmpty()) {
+            // none of the monitored topics exists
+            return 0;
+        }
+        return fetch(groupsByCoordinator, partitions, null, handler);
+    }
+
+    /**
+     * Fetch the offsets of some partitions of every group, different for each group, and wait until all of them are
+     * done. The partitions without committed offsets are left out, and a group without any of them is not handled
+     * @param groupsByCoordinator The groups of each coordinator broker
+     * @param partitionsOfGroup Gives the partitions to fetch of a group, or {@code null} to fetch all of them
+     * @param handler Receives the offsets of each group
+     * @return The number of groups that couldn't be fetched
+     */
+    public int fetchPerGroup(Map<Node, List<GroupOverview>> groupsByCoordinator,
+                             Function<String, List<TopicPartition>> partitionsOfGroup, GroupOffsetsHandler handler) {
+        return fetch(groupsByCoordinator, null, partitionsOfGroup, handler);
+    }
+
+
+    /**
+     * @param partitions The partitions of all the groups, used when the partitions are not given per group
+     * @param partitionsOfGroup The partitions of every group or {@code null}
+     */
+    private int fetch(Map<Node, List<GroupOverview>> groupsByCoordinator, List<TopicPartition> partitions,
+                      Function<String, List<TopicPartition>> partitionsOfGroup, GroupOffsetsHandler handler) {
+        AtomicInteger failures = new AtomicInteger();
+        List<Future<?>> batches = new ArrayList<>();
+
+        try {
+            for (Map.Entry<Node, List<GroupOverview>> coordinatorGroups : groupsByCoordinator.entrySet()) {
+                Node coordinator = coordinatorGroups.getKey();
+                List<GroupOverview> groups = coordinatorGroups.getValue();
+
+                for (int from = 0; from < groups.size(); from += batchSize) {
+                    List<GroupOverview> batch = groups.subList(from, Math.min(from + batchSize, groups.size()));
+
+                    // wait until a batch finishes if the in-flight limit is reached
+                    inFlight.acquire();
+                    try {
+                        batches.add(executor.submit(() -> {
+                            try {
+                                fetchBatch(coordinator, batch, partitions, partitionsOfGroup, handler, failures);
+                            } finally {
+                                inFlight.release();
+                            }
+                        }));
+                    } catch (RuntimeException e) {
+                        inFlight.release();
+                        throw e;
+                    }
+                }
+            }
+            for (Future<?> batch : batches) {
+                batch.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancel(batches);
+            throw new IllegalStateException("Interrupted while fetching the consumer group offsets", e);
+        } catch (ExecutionException e) {
+            cancel(batches);
+            throw new IllegalStateException("Error fetching the consumer group offsets", e.getCause());
+        }
+        return failures.get();
+    }
+
+    private void fetchBatch(Node coordinator, List<GroupOverview> batch, List<TopicPartition> partitions,
+                            Function<String, List<TopicPartition>> partitionsOfGroup, GroupOffsetsHandler handler,
+                            AtomicInteger failures) {
+        // every group is handed over as soon as it's read, so only one group of the batch is held at a time. A group
+        // is settled once it's fetched or failed, a response alone doesn't settle it because it may be retried
+        Set<String> settled = new HashSet<>();
+        GroupDiscovery.ResponseListener listener = new GroupDiscovery.ResponseListener() {
+            @Override
+            public void onGroupResponse(String groupId, Node groupCoordinator, long latencyNanos) {
+                handler.onGroupResponse(groupId, groupCoordinator, latencyNanos);
+            }
+
+            @Override
+            public void onGroupFailed(String groupId) {
+                settled.add(groupId);
+                handler.onGroupFailed(groupId);
+            }
+
+            @Override
+            public void onGroupFetched(String groupId) {
+                settled.add(groupId);
+            }
+        };
+        RuntimeException error = null;
+        try {
+            adminClientPool.execute(adminClient -> {
+                if (partitionsOfGroup == null) {
+                    groupDiscovery.fetchOffsets(adminClient, coordinator, batch, partitions, failures, listener,
+                            handler::onGroupOffsets);
+                } else {
+                    groupDiscovery.fetchGroupOffsets(adminClient, coordinator, batch, partitionsOfGroup, failures,
+                            listener, handler::onGroupOffsets);
+                }
+                return null;
+            });
+        } catch (RuntimeException e) {
+            error = e;
+        }
+
+        // the groups already settled are kept, the rest failed, e.g. they were waiting for a retry when the batch
+        // was aborted or interrupted
+        int skipped = 0;
+        for (GroupOverview group : batch) {
+            if (!settled.contains(group.groupId())) {
+                handler.onGroupFailed(group.groupId());
+                skipped++;
+            }
+        }
+        if (skipped > 0) {
+            LOGGER.warn("Unable to fetch the offsets of " + skipped + " consumer groups from " + coordinator, error);
+            failures.addAndGet(skipped);
+        }
+    }
+
+    private static void cancel(List<Future<?>> batches) {
+        for (Future<?> batch : batches) {
+            batch.cancel(true);
+        }
+    }
+}
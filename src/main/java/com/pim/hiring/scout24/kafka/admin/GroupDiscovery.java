@@ -0,0 +1,133 @@
+package com.pim.hiring.scout24.kafka.admin;
+
+import kafka.admin.AdminClient;
+import kafka.coordinator.GroupOverview;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.TopicPartition;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+
+/**
+ * Strategy that finds the consumer groups of the cluster and their committed offsets with a lent {@link AdminClient}
+ */
+public interface GroupDiscovery {
+
+    /**
+     * Receives the time until the offsets of every consumer group were received
+     */
+    interface ResponseListener {
+        ResponseListener NONE = (groupId, coordinator, latencyNanos) -> { };
+
+        void onGroupResponse(String groupId, Node coordinator, long latencyNanos);
+
+        /**
+         * The offsets of the group couldn't be fetched, called after its response time
+         */
+        default void onGroupFailed(String groupId) {
+        }
+
+        /**
+         * The offsets of the group were fetched, called after they are handed over or when it has none
+         */
+        default void onGroupFetched(String groupId) {
+        }
+    }
+
+    /**
+     * Receives the committed offsets of every consumer group as soon as its response is read
+     */
+    interface OffsetsSink {
+        void onGroupOffsets(String groupId, Map<TopicPartition, Object> groupOffsets);
+    }
+
+    /**
+     * @param adminClient The admin client, only used by the calling thread
+     * @return The consumer groups of the cluster grouped by their coordinator broker
+     */
+    Map<Node, List<GroupOverview>> listGroups(AdminClient adminClient);
+
+    /**
+     * Fetch the committed offsets of some consumer groups of the same coordinator. The partitions without committed
+     * offsets are left out, and a group without any of them is not returned
+     * @param adminClient The admin client, only used by the calling thread
+     * @param coordinator The coordinator broker of the groups
+     * @param groups The consumer groups
+     * @param partitions The partitions to fetch or {@code null} to fetch all of them
+     * @param failures Incremented for every group that couldn't be fetched
+     * @return The committed offset of each topic partition by consumer group
+     */
+    default Map<String, Map<TopicPartition, Object>> fetchOffsets(AdminClient adminClient, Node coordinator,
+                                                                  List<GroupOverview> groups,
+                                                                  List<TopicPartition> partitions,
+                                                                  AtomicInteger failures) {
+        return fetchOffsets(adminClient, coordinator, groups, partitions, failures, ResponseListener.NONE);
+    }
+
+    /**
+     * Fetch the committed offsets of some consumer groups of the same coordinator, timing the response of every group
+     * @param adminClient The admin client, only used by the calling thread
+     * @param coordinator The coordinator broker of the groups
+     * @param groups The consumer groups
+     * @param partitions The partitions to fetch or {@code null} to fetch all of them
+     * @param failures Incremented for every group that couldn't be fetched
+     * @param listener Receives the response time of every group, failed ones included
+     * @return The committed offset of each topic partition by consumer group
+     */
+    default Map<String, Map<TopicPartition, Object>> fetchOffsets(AdminClient adminClient, Node coordinator,
+                                                                  List<GroupOverview> groups,
+                                                                  List<TopicPartition> partitions,
+                                                                  AtomicInteger failures, ResponseListener listener) {
+        Map<String, Map<TopicPartition, Object>> batchOffsets = new HashMap<>();
+        fetchOffsets(adminClient, coordinator, groups, partitions, failures, listener, batchOffsets::put);
+        return batchOffsets;
+    }
+
+    /**
+     * Fetch the committed offsets of some consumer groups of the same coordinator and hand them over one group at a
+     * time, so the offsets of a group can be released before the next one is read
+     * @param adminClient The admin client, only used by the calling thread
+     * @param coordinator The coordinator broker of the groups
+     * @param groups The consumer groups
+     * @param partitions The partitions to fetch or {@code null} to fetch all of them
+     * @param failures Incremented for every group that couldn't be fetched
+     * @param listener Receives the response time of every group, failed ones included, and the failed groups
+     * @param sink Receives the committed offsets of every group with some of them, only valid during the call
+     */
+    void fetchOffsets(AdminClient adminClient, Node coordinator, List<GroupOverview> groups,
+                      List<TopicPartition> partitions, AtomicInteger failures, ResponseListener listener,
+                      OffsetsSink sink);
+
+    /**
+     * Fetch the committed offsets of some consumer groups of the same coordinator, asking every group for its own
+     * partitions, and hand them over one group at a time
+     * @param adminClient The admin client, only used by the calling thread
+     * @param coordinator The coordinator broker of the groups
+     * @param groups The consumer groups
+     * @param partitionsOfGroup Gives the partitions to fetch of a group, or {@code null} to fetch all of them
+     * @param failures Incremented for every group that couldn't be fetched
+     * @param listener Receives the response time of every group, failed ones included, and the failed groups
+     * @param sink Receives the committed offsets of every group with some of them, only valid during the call
+     */
+    void fetchGroupOffsets(AdminClient adminClient, Node coordinator, List<GroupOverview> groups,
+                           Function<String, List<TopicPartition>> partitionsOfGroup, AtomicInteger failures,
+                           ResponseListener listener, OffsetsSink sink);
+
+    /**
+     * Get the partitions assigned to the live members of the consumer groups.
+     * The groups being rebalanced and the groups that never joined (offsets committed by consumers with manual
+     * assignment) are left out, and a consumer group without members has no partitions
+     * @param adminClient The admin client, only used by the calling thread
+     * @param groupsByCoordinator The consumer groups grouped by their coordinator broker
+     * @param failures Incremented for every group that couldn't be described
+     * @return The assigned partitions by consumer group
+     */
+    Map<String, Set<TopicPartition>> describeAssignments(AdminClient adminClient,
+                                                         Map<Node, List<GroupOverview>> groupsByCoordinator,
+                                                         AtomicInteger failures);
+}
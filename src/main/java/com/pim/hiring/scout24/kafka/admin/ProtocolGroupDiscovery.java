@@ -0,0 +1,402 @@
+package com.pim.hiring.scout24.kafka.admin;
+
+import kafka.admin.AdminClient;
+import kafka.coordinator.GroupOverview;
+import org.apache.kafka.clients.ClientResponse;
+import org.apache.kafka.clients.consumer.internals.ConsumerNetworkClient;
+import org.apache.kafka.clients.consumer.internals.ConsumerProtocol;
+import org.apache.kafka.clients.consumer.internals.RequestFuture;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.DisconnectException;
+import org.apache.kafka.common.errors.GroupCoordinatorNotAvailableException;
+import org.apache.kafka.common.errors.NotCoordinatorForGroupException;
+import org.apache.kafka.common.errors.RetriableException;
+import org.apache.kafka.common.errors.TimeoutException;
+import org.apache.kafka.common.protocol.Errors;
+import org.apache.kafka.common.requests.DescribeGroupsRequest;
+import org.apache.kafka.common.requests.DescribeGroupsResponse;
+import org.apache.kafka.common.requests.ListGroupsRequest;
+import org.apache.kafka.common.requests.ListGroupsResponse;
+import org.apache.kafka.common.requests.MetadataRequest;
+import org.apache.kafka.common.requests.MetadataResponse;
+import org.apache.kafka.common.requests.OffsetFetchRequest;
+import org.apache.kafka.common.requests.OffsetFetchResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+
+/**
+ * Talks the group protocol directly through the network client of the {@link AdminClient}.
+ * The ListGroups requests of all the brokers are sent together, and the offset requests of a batch go straight to the
+ * coordinator returned by the listing and are sent together before waiting for the responses, so a batch costs a
+ * single round trip instead of a coordinator lookup and an offset request per group.
+ */
+public class ProtocolGroupDiscovery implements GroupDiscovery {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProtocolGroupDiscovery.class);
+
+    private static final long RETRY_BACKOFF_MS = 100;
+
+    // group states with a settled assignment
+    static final String STABLE = "Stable";
+    static final String EMPTY = "Empty";
+
+
+    /**
+     * List the groups of every broker. Unlike {@link AdminClient#listAllGroups()}, a broker that can't be listed
+     * fails the call instead of returning no groups, so its groups are never taken as removed
+     */
+    @Override
+    public Map<Node, List<GroupOverview>> listGroups(AdminClient adminClient) {
+        ConsumerNetworkClient client = adminClient.client();
+        long deadline = System.currentTimeMillis() + adminClient.requestTimeoutMs();
+
+        Map<Node, List<GroupOverview>> groupsByBroker = new HashMap<>();
+        List<Node> pending = new ArrayList<>(findBrokers(adminClient));
+        while (!pending.isEmpty()) {
+            Map<Node, RequestFuture<ClientResponse>> requests = new LinkedHashMap<>();
+            for (Node broker : pending) {
+                requests.put(broker, client.send(broker, new ListGroupsRequest.Builder()));
+            }
+
+            List<Node> retries = new ArrayList<>();
+            for (Map.Entry<Node, RequestFuture<ClientResponse>> request : requests.entrySet()) {
+                Node broker = request.getKey();
+                RuntimeException error = poll(client, request.getValue(), deadline);
+                if (error == null) {
+                    ListGroupsResponse response = (ListGroupsResponse) request.getValue().value().responseBody();
+                    error = Errors.forCode(response.errorCode()).exception();
+                    if (error == null) {
+                        List<GroupOverview> groups = new ArrayList<>(response.groups().size());
+                        for (ListGroupsResponse.Group group : response.groups()) {
+                            groups.add(new GroupOverview(group.groupId(), group.protocolType()));
+                        }
+                        groupsByBroker.put(broker, groups);
+                        continue;
+                    }
+                }
+                // a coordinator that is still loading its groups answers with a retriable error
+                if (error instanceof RetriableException && System.currentTimeMillis() + RETRY_BACKOFF_MS < deadline) {
+                    retries.add(broker);
+                } else {
+                    throw new IllegalStateException("Unable to list the consumer groups of " + broker, error);
+                }
+            }
+            pending = retries;
+            if (!pending.isEmpty()) {
+                sleep(RETRY_BACKOFF_MS);
+            }
+        }
+        return groupsByBroker;
+    }
+
+    /**
+     * The responses are read in the order of the requests, and every group is handed over and dropped before the
+     * next one is read. The groups with a retriable error, e.g. a coordinator that is loading or moving them, are
+     * requested again, from their new coordinator if it moved, until the request timeout
+     */
+    @Override
+    public void fetchOffsets(AdminClient adminClient, Node coordinator, List<GroupOverview> groups,
+                             List<TopicPartition> partitions, AtomicInteger failures, ResponseListener listener,
+                             OffsetsSink sink) {
+        fetchGroupOffsets(adminClient, coordinator, groups, groupId -> partitions, failures, listener, sink);
+    }
+
+    /**
+     * Like {@link #fetchOffsets(AdminClient, Node, List, List, AtomicInteger, ResponseListener, OffsetsSink)}, with
+     * the partitions of every group in its own request
+     */
+    @Override
+    public void fetchGroupOffsets(AdminClient adminClient, Node coordinator, List<GroupOverview> groups,
+                                  Function<String, List<TopicPartition>> partitionsOfGroup, AtomicInteger failures,
+                                  ResponseListener listener, OffsetsSink sink) {
+        ConsumerNetworkClient client = adminClient.client();
+        long deadline = System.currentTimeMillis() + adminClient.requestTimeoutMs();
+
+        // group -> coordinator of the next request
+        Map<String, Node> pending = new LinkedHashMap<>();
+        for (GroupOverview group : groups) {
+            pending.put(group.groupId(), coordinator);
+        }
+        while (!pending.isEmpty()) {
+            // every request is sent before waiting for the first response
+            long sentAt = System.nanoTime();
+            Map<String, RequestFuture<ClientResponse>> requests = new LinkedHashMap<>();
+            for (Map.Entry<String, Node> group : pending.entrySet()) {
+                List<TopicPartition> partitions = partitionsOfGroup.apply(group.getKey());
+                OffsetFetchRequest.Builder request = partitions == null
+                        ? OffsetFetchRequest.Builder.allTopicPartitions(group.getKey())
+                        : new OffsetFetchRequest.Builder(group.getKey(), partitions);
+                requests.put(group.getKey(), client.send(group.getValue(), request));
+            }
+
+            Map<String, Node> retries = new LinkedHashMap<>();
+            Iterator<Map.Entry<String, RequestFuture<ClientResponse>>> responses = requests.entrySet().iterator();
+            while (responses.hasNext()) {
+                Map.Entry<String, RequestFuture<ClientResponse>> request = responses.next();
+                String groupId = request.getKey();
+                RequestFuture<ClientResponse> future = request.getValue();
+                Node groupCoordinator = pending.get(groupId);
+                responses.remove();
+
+                boolean received = client.poll(future, adminClient.requestTimeoutMs());
+                listener.onGroupResponse(groupId, groupCoordinator, System.nanoTime() - sentAt);
+                RuntimeException error = !received ? new TimeoutException("No response after the request timeout")
+                        : future.failed() ? future.exception() : null;
+                OffsetFetchResponse response = null;
+                if (error == null) {
+                    response = (OffsetFetchResponse) future.value().responseBody();
+                    error = response.hasError() ? response.error().exception() : null;
+                }
+                if (error == null) {
+                    // the partitions without committed offsets are never added
+                    CommittedOffsets groupOffsets = new CommittedOffsets(response.responseData());
+                    if (!groupOffsets.isEmpty()) {
+                        sink.onGroupOffsets(groupId, groupOffsets);
+                    }
+                    listener.onGroupFetched(groupId);
+                    continue;
+                }
+
+                if (error instanceof RetriableException && System.currentTimeMillis() + RETRY_BACKOFF_MS < deadline) {
+                    retries.put(groupId, coordinatorMoved(error)
+                            ? findCoordinator(adminClient, groupId, groupCoordinator) : groupCoordinator);
+                } else {
+                    LOGGER.warn("Unable to fetch the offsets of the consumer group " + groupId, error);
+                    failures.incrementAndGet();
+                    listener.onGroupFailed(groupId);
+                }
+            }
+            pending = retries;
+            if (!pending.isEmpty()) {
+                sleep(RETRY_BACKOFF_MS);
+            }
+        }
+    }
+
+    /**
+     * Describe the groups with a single DescribeGroups request per coordinator, all of them sent together
+     */
+    @Override
+    public Map<String, Set<TopicPartition>> describeAssignments(AdminClient adminClient,
+                                                                Map<Node, List<GroupOverview>> groupsByCoordinator,
+                                                                AtomicInteger failures) {
+        ConsumerNetworkClient client = adminClient.client();
+
+        Map<Node, List<String>> describedGroups = new LinkedHashMap<>();
+        Map<Node, RequestFuture<ClientResponse>> requests = new LinkedHashMap<>();
+        for (Map.Entry<Node, List<GroupOverview>> coordinatorGroups : groupsByCoordinator.entrySet()) {
+            List<String> groupIds = new ArrayList<>();
+            for (GroupOverview group : coordinatorGroups.getValue()) {
+                // the groups of consumers with manual assignment have no members
+                if (ConsumerProtocol.PROTOCOL_TYPE.equals(group.protocolType())) {
+                    groupIds.add(group.groupId());
+                }
+            }
+            if (!groupIds.isEmpty()) {
+                describedGroups.put(coordinatorGroups.getKey(), groupIds);
+                requests.put(coordinatorGroups.getKey(),
+                        client.send(coordinatorGroups.getKey(), new DescribeGroupsRequest.Builder(groupIds)));
+            }
+        }
+
+        Map<String, Set<TopicPartition>> assignments = new HashMap<>();
+        long deadline = System.currentTimeMillis() + adminClient.requestTimeoutMs();
+        for (Map.Entry<Node, RequestFuture<ClientResponse>> request : requests.entrySet()) {
+            RuntimeException error = poll(client, request.getValue(), deadline);
+            if (error != null) {
+                LOGGER.warn("Unable to describe the consumer groups of " + request.getKey(), error);
+                failures.addAndGet(describedGroups.get(request.getKey()).size());
+                continue;
+            }
+            DescribeGroupsResponse response = (DescribeGroupsResponse) request.getValue().value().responseBody();
+            for (Map.Entry<String, DescribeGroupsResponse.GroupMetadata> group : response.groups().entrySet()) {
+                DescribeGroupsResponse.GroupMetadata metadata = group.getValue();
+                if (metadata.errorCode() != Errors.NONE.code()) {
+                    LOGGER.warn("Unable to describe the consumer group " + group.getKey() + ": " +
+                            Errors.forCode(metadata.errorCode()));
+                    failures.incrementAndGet();
+                    continue;
+                }
+                if (!STABLE.equals(metadata.state()) && !EMPTY.equals(metadata.state())) {
+                    // the assignment is changing
+                    continue;
+                }
+                Set<TopicPartition> assigned = new HashSet<>();
+                for (DescribeGroupsResponse.GroupMember member : metadata.members()) {
+                    ByteBuffer assignment = member.memberAssignment();
+                    if (assignment != null && assignment.hasRemaining()) {
+                        assigned.addAll(ConsumerProtocol.deserializeAssignment(assignment.duplicate()).partitions());
+                    }
+                }
+                assignments.put(group.getKey(), assigned);
+            }
+        }
+        return assignments;
+    }
+
+
+    /**
+     * @return The brokers of the cluster, from a metadata request without topics
+     */
+    private static Collection<Node> findBrokers(AdminClient adminClient) {
+        ConsumerNetworkClient client = adminClient.client();
+        Node node = client.leastLoadedNode();
+        if (node == null) {
+            throw new IllegalStateException("No Kafka broker available");
+        }
+
+        RequestFuture<ClientResponse> future = client.send(node,
+                new MetadataRequest.Builder(Collections.<String>emptyList()));
+        RuntimeException error = poll(client, future, System.currentTimeMillis() + adminClient.requestTimeoutMs());
+        if (error != null) {
+            throw new IllegalStateException("Unable to fetch the brokers of the cluster", error);
+        }
+        return ((MetadataResponse) future.value().responseBody()).brokers();
+    }
+
+    /**
+     * @return <tt>true</tt> if the coordinator of the group has to be found again before the retry
+     */
+    private static boolean coordinatorMoved(RuntimeException error) {
+        return error instanceof NotCoordinatorForGroupException
+                || error instanceof GroupCoordinatorNotAvailableException || error instanceof DisconnectException;
+    }
+
+    /**
+     * @return The current coordinator of the group, or the previous one if it can't be found
+     */
+    private static Node findCoordinator(AdminClient adminClient, String groupId, Node previous) {
+        try {
+            return adminClient.findCoordinator(groupId);
+        } catch (RuntimeException e) {
+            LOGGER.debug("Unable to find the coordinator of the consumer group " + groupId, e);
+            return previous;
+        }
+    }
+
+    /**
+     * @return The error of the request or {@code null} if it succeeded before the deadline
+     */
+    private static RuntimeException poll(ConsumerNetworkClient client, RequestFuture<ClientResponse> future,
+                                         long deadline) {
+        long remaining = Math.max(0, deadline - System.currentTimeMillis());
+        if (!client.poll(future, remaining)) {
+            return new TimeoutException("No response after the request timeout");
+        }
+        return future.failed() ? future.exception() : null;
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting to retry a request", e);
+        }
+    }
+
+
+    /**
+     * The committed offsets of an OffsetFetch response, read from its partition data without copying them.
+     * The partitions with errors or without an offset are left out
+     */
+    private static final class CommittedOffsets extends AbstractMap<TopicPartition, Object> {
+
+        private final Map<TopicPartition, OffsetFetchResponse.PartitionData> responseData;
+        private final int size;
+
+        private CommittedOffsets(Map<TopicPartition, OffsetFetchResponse.PartitionData> responseData) {
+            this.responseData = responseData;
+            int committed = 0;
+            for (OffsetFetchResponse.PartitionData partitionData : responseData.values()) {
+                if (isCommitted(partitionData)) {
+                    committed++;
+                }
+            }
+            this.size = committed;
+        }
+
+        @Override
+        public Object get(Object key) {
+            OffsetFetchResponse.PartitionData partitionData = responseData.get(key);
+            return partitionData != null && isCommitted(partitionData) ? partitionData.offset : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public Set<Entry<TopicPartition, Object>> entrySet() {
+            return new AbstractSet<Entry<TopicPartition, Object>>() {
+                @Override
+                public Iterator<Entry<TopicPartition, Object>> iterator() {
+                    Iterator<Entry<TopicPartition, OffsetFetchResponse.PartitionData>> partitions =
+                            responseData.entrySet().iterator();
+                    return new Iterator<Entry<TopicPartition, Object>>() {
+                        private Entry<TopicPartition, Object> next = advance();
+
+                        @Override
+                        public boolean hasNext() {
+                            return next != null;
+                        }
+
+                        @Override
+                        public Entry<TopicPartition, Object> next() {
+                            if (next == null) {
+                                throw new NoSuchElementException();
+                            }
+                            Entry<TopicPartition, Object> current = next;
+                            next = advance();
+                            return current;
+                        }
+
+                        private Entry<TopicPartition, Object> advance() {
+                            while (partitions.hasNext()) {
+                                Entry<TopicPartition, OffsetFetchResponse.PartitionData> partition = partitions.next();
+                                if (isCommitted(partition.getValue())) {
+                                    return new SimpleImmutableEntry<>(partition.getKey(), partition.getValue().offset);
+                                }
+                            }
+                            return null;
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+            };
+        }
+
+        private static boolean isCommitted(OffsetFetchResponse.PartitionData partitionData) {
+            return !partitionData.hasError() && partitionData.offset != OffsetFetchResponse.INVALID_OFFSET;
+        }
+    }
+}
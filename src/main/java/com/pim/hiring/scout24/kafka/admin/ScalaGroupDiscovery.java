@@ -0,0 +1,122 @@
+package com.pim.hiring.scout24.kafka.admin;
+
+import kafka.admin.AdminClient;
+import kafka.coordinator.GroupOverview;
+import org.apache.kafka.clients.consumer.internals.ConsumerProtocol;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import scala.collection.JavaConversions;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+
+/**
+ * Uses the high level calls of the Scala {@link AdminClient}: the brokers are listed one after the other and every
+ * group needs a coordinator lookup and an offset request.
+ * The Scala client can't fetch only some partitions, so those requests are sent by {@link ProtocolGroupDiscovery}
+ */
+public class ScalaGroupDiscovery implements GroupDiscovery {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScalaGroupDiscovery.class);
+
+    private final ProtocolGroupDiscovery protocolGroupDiscovery = new ProtocolGroupDiscovery();
+
+
+    @Override
+    public Map<Node, List<GroupOverview>> listGroups(AdminClient adminClient) {
+        // listAllConsumerGroups() skips the groups with manual assignment because their protocol type is empty
+        Map<Node, scala.collection.immutable.List<GroupOverview>> groupsByBroker = JavaConversions.mapAsJavaMap(
+                adminClient.listAllGroups()
+        );
+
+        Map<Node, List<GroupOverview>> groups = new HashMap<>();
+        for (Map.Entry<Node, scala.collection.immutable.List<GroupOverview>> brokerGroups : groupsByBroker.entrySet()) {
+            groups.put(brokerGroups.getKey(), JavaConversions.seqAsJavaList(brokerGroups.getValue()));
+        }
+        return groups;
+    }
+
+    @Override
+    public void fetchOffsets(AdminClient adminClient, Node coordinator, List<GroupOverview> groups,
+                             List<TopicPartition> partitions, AtomicInteger failures, ResponseListener listener,
+                             OffsetsSink sink) {
+        if (partitions != null) {
+            protocolGroupDiscovery.fetchOffsets(adminClient, coordinator, groups, partitions, failures, listener,
+                    sink);
+            return;
+        }
+
+        for (GroupOverview group : groups) {
+            if (Thread.currentThread().isInterrupted()) {
+                break;
+            }
+            Map<TopicPartition, Object> groupOffsets;
+            long start = System.nanoTime();
+            try {
+                // a view of the Scala map, not a copy
+                groupOffsets = JavaConversions.mapAsJavaMap( adminClient.listGroupOffsets(group.groupId()) );
+            } catch (RuntimeException e) {
+                listener.onGroupResponse(group.groupId(), coordinator, System.nanoTime() - start);
+                LOGGER.warn("Unable to fetch the offsets of the consumer group " + group.groupId(), e);
+                failures.incrementAndGet();
+                listener.onGroupFailed(group.groupId());
+                continue;
+            }
+            listener.onGroupResponse(group.groupId(), coordinator, System.nanoTime() - start);
+            if (!groupOffsets.isEmpty()) {
+                sink.onGroupOffsets(group.groupId(), groupOffsets);
+            }
+            listener.onGroupFetched(group.groupId());
+        }
+    }
+
+    @Override
+    public void fetchGroupOffsets(AdminClient adminClient, Node coordinator, List<GroupOverview> groups,
+                                  Function<String, List<TopicPartition>> partitionsOfGroup, AtomicInteger failures,
+                                  ResponseListener listener, OffsetsSink sink) {
+        protocolGroupDiscovery.fetchGroupOffsets(adminClient, coordinator, groups, partitionsOfGroup, failures,
+                listener, sink);
+    }
+
+    @Override
+    public Map<String, Set<TopicPartition>> describeAssignments(AdminClient adminClient,
+                                                                Map<Node, List<GroupOverview>> groupsByCoordinator,
+                                                                AtomicInteger failures) {
+        Map<String, Set<TopicPartition>> assignments = new HashMap<>();
+        for (List<GroupOverview> groups : groupsByCoordinator.values()) {
+            for (GroupOverview group : groups) {
+                if (!ConsumerProtocol.PROTOCOL_TYPE.equals(group.protocolType())) {
+                    continue;
+                }
+                AdminClient.ConsumerGroupSummary summary;
+                try {
+                    summary = adminClient.describeConsumerGroup(group.groupId());
+                } catch (RuntimeException e) {
+                    LOGGER.warn("Unable to describe the consumer group " + group.groupId(), e);
+                    failures.incrementAndGet();
+                    continue;
+                }
+                if (!ProtocolGroupDiscovery.STABLE.equals(summary.state())
+                        && !ProtocolGroupDiscovery.EMPTY.equals(summary.state())) {
+                    continue;
+                }
+                Set<TopicPartition> assigned = new HashSet<>();
+                if (summary.consumers().isDefined()) {
+                    for (AdminClient.ConsumerSummary consumer : JavaConversions.seqAsJavaList(summary.consumers().get())) {
+                        assigned.addAll(JavaConversions.seqAsJavaList(consumer.assignment()));
+                    }
+                }
+                assignments.put(group.groupId(), assigned);
+            }
+        }
+        return assignments;
+    }
+}
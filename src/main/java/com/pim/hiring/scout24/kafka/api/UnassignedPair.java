@@ -0,0 +1,39 @@
+package com.pim.hiring.scout24.kafka.api;
+
+
+/**
+ * The unassigned partitions of a (consumer group, topic) pair in a {@link UnassignedState}
+ */
+public final class UnassignedPair {
+
+    private final String group;
+    private final String topic;
+    private final int[] partitions;
+    // the first time the pair had unassigned partitions in the current period
+    private final long since;
+
+
+    public UnassignedPair(String group, String topic, int[] partitions, long since) {
+        this.group = group;
+        this.topic = topic;
+        this.partitions = partitions;
+        this.since = since;
+    }
+
+
+    public String getGroup() {
+        return group;
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    public int[] getPartitions() {
+        return partitions.clone();
+    }
+
+    public long getSince() {
+        return since;
+    }
+}
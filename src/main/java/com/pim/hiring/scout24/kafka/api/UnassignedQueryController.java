@@ -0,0 +1,95 @@
+package com.pim.hiring.scout24.kafka.api;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+
+/**
+ * Read-only HTTP API over the unassigned partitions of the last completed scan.
+ * The responses are served from memory with the epoch of the view and the state version as ETag, so a poller sending
+ * it back in If-None-Match gets a 304 until the next scan with changes, and a 200 after a restart of the checker.
+ */
+@RestController
+public class UnassignedQueryController {
+
+    @Autowired
+    private UnassignedStateView unassignedStateView;
+
+    @GetMapping("/unassigned")
+    public ResponseEntity<List<UnassignedPair>> unassigned(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        UnassignedState state = unassignedStateView.current();
+        return respond(unassignedStateView.getEpoch(), state, ifNoneMatch, state.getPairs());
+    }
+
+    // group ids and topic names can contain dots
+    @GetMapping("/groups/{id:.+}")
+    public ResponseEntity<List<UnassignedPair>> group(@PathVariable("id") String group,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        UnassignedState state = unassignedStateView.current();
+        return respond(unassignedStateView.getEpoch(), state, ifNoneMatch, state.getGroup(group));
+    }
+
+    @GetMapping("/topics/{name:.+}")
+    public ResponseEntity<List<UnassignedPair>> topic(@PathVariable("name") String topic,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        UnassignedState state = unassignedStateView.current();
+        return respond(unassignedStateView.getEpoch(), state, ifNoneMatch, state.getTopic(topic));
+    }
+
+
+    private static ResponseEntity<List<UnassignedPair>> respond(String epoch, UnassignedState state,
+                                                                String ifNoneMatch, List<UnassignedPair> body) {
+        String etag = "\"" + epoch + "-" + state.getVersion() + "\"";
+        if (ifNoneMatch != null && matches(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        return ResponseEntity.ok().eTag(etag).body(body);
+    }
+
+    /**
+     * Weak comparison of the If-None-Match header (RFC 7232, section 3.2): <tt>*</tt> or a comma separated list of
+     * entity tags, any of them weak
+     * @param ifNoneMatch The If-None-Match header
+     * @param etag The strong entity tag of the response, quotes included
+     * @return <tt>true</tt> if the header matches the entity tag
+     */
+    static boolean matches(String ifNoneMatch, String etag) {
+        int i = 0;
+        while (i < ifNoneMatch.length()) {
+            char c = ifNoneMatch.charAt(i);
+            if (c == ',' || Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '*') {
+                return true;
+            } else {
+                // the weakness is ignored by the weak comparison
+                if (ifNoneMatch.startsWith("W/", i)) {
+                    i += 2;
+                }
+                if (i >= ifNoneMatch.length() || ifNoneMatch.charAt(i) != '"') {
+                    // malformed, nothing after it can be trusted
+                    return false;
+                }
+                // the opaque tag can contain commas, so it ends at the closing quote
+                int end = ifNoneMatch.indexOf('"', i + 1);
+                if (end < 0) {
+                    return false;
+                }
+                if (ifNoneMatch.regionMatches(i, etag, 0, etag.length()) && end + 1 == i + etag.length()) {
+                    return true;
+                }
+                i = end + 1;
+            }
+        }
+        return false;
+    }
+}
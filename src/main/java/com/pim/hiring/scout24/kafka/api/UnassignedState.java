@@ -0,0 +1,78 @@
+package com.pim.hiring.scout24.kafka.api;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Immutable view of the unassigned partitions after a completed scan, indexed by consumer group and by topic.
+ * The version changes only when the unassigned partitions change, so it's used as the ETag of the query API.
+ */
+public final class UnassignedState {
+
+    public static final UnassignedState EMPTY = new UnassignedState(0, 0, Collections.emptyList());
+
+    private final long version;
+    private final long timestamp;
+    private final List<UnassignedPair> pairs;
+    private final Map<String, List<UnassignedPair>> byGroup;
+    private final Map<String, List<UnassignedPair>> byTopic;
+
+
+    /**
+     * @param version The version of the state
+     * @param timestamp The time of the scan
+     * @param pairs The pairs with unassigned partitions
+     */
+    public UnassignedState(long version, long timestamp, List<UnassignedPair> pairs) {
+        this.version = version;
+        this.timestamp = timestamp;
+        this.pairs = Collections.unmodifiableList(new ArrayList<>(pairs));
+        Map<String, List<UnassignedPair>> groups = new HashMap<>();
+        Map<String, List<UnassignedPair>> topics = new HashMap<>();
+        for (UnassignedPair pair : pairs) {
+            groups.computeIfAbsent(pair.getGroup(), group -> new ArrayList<>()).add(pair);
+            topics.computeIfAbsent(pair.getTopic(), topic -> new ArrayList<>()).add(pair);
+        }
+        this.byGroup = unmodifiable(groups);
+        this.byTopic = unmodifiable(topics);
+    }
+
+
+    public long getVersion() {
+        return version;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public List<UnassignedPair> getPairs() {
+        return pairs;
+    }
+
+    /**
+     * @return The pairs of a consumer group, empty if it has no unassigned partitions
+     */
+    public List<UnassignedPair> getGroup(String group) {
+        return byGroup.getOrDefault(group, Collections.emptyList());
+    }
+
+    /**
+     * @return The pairs of a topic, empty if no consumer group misses its partitions
+     */
+    public List<UnassignedPair> getTopic(String topic) {
+        return byTopic.getOrDefault(topic, Collections.emptyList());
+    }
+
+
+    private static Map<String, List<UnassignedPair>> unmodifiable(Map<String, List<UnassignedPair>> map) {
+        for (Map.Entry<String, List<UnassignedPair>> entry : map.entrySet()) {
+            entry.setValue(Collections.unmodifiableList(entry.getValue()));
+        }
+        return Collections.unmodifiableMap(map);
+    }
+}
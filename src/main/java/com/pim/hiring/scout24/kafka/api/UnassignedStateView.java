@@ -0,0 +1,96 @@
+package com.pim.hiring.scout24.kafka.api;
+
+import com.pim.hiring.scout24.kafka.checker.IncrementalChecker;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+
+/**
+ * Builds the {@link UnassignedState} served by the query API from the transitions of the scans.
+ * The transitions update a private working copy; a new immutable state is published when a full scan completes
+ * with changes, so the readers never wait for the scanner and always see a complete scan.
+ */
+public class UnassignedStateView implements IncrementalChecker.TransitionListener {
+
+    private final AtomicReference<UnassignedState> state = new AtomicReference<>(UnassignedState.EMPTY);
+    // the versions start again from 0 on every restart, the epoch tells them apart
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+
+    // topic#group -> unassigned partitions, only used by the scanning thread
+    private final Map<String, WorkingPair> working = new HashMap<>();
+    private boolean changed;
+
+
+    private static class WorkingPair {
+        private final String group;
+        private final String topic;
+        private final BitSet partitions = new BitSet();
+        private final long since = System.currentTimeMillis();
+
+        private WorkingPair(String group, String topic) {
+            this.group = group;
+            this.topic = topic;
+        }
+    }
+
+
+    @Override
+    public synchronized void onUnassigned(String group, String topic, BitSet partitions) {
+        working.computeIfAbsent(topic + "#" + group, key -> new WorkingPair(group, topic)).partitions.or(partitions);
+        changed = true;
+    }
+
+    @Override
+    public synchronized void onRecovered(String group, String topic, BitSet partitions) {
+        String key = topic + "#" + group;
+        WorkingPair pair = working.get(key);
+        if (pair == null) {
+            return;
+        }
+        pair.partitions.andNot(partitions);
+        if (pair.partitions.isEmpty()) {
+            working.remove(key);
+        }
+        changed = true;
+    }
+
+    @Override
+    public synchronized void onCleared(String group, String topic, BitSet partitions) {
+        if (working.remove(topic + "#" + group) != null) {
+            changed = true;
+        }
+    }
+
+    @Override
+    public synchronized void onScanCompleted() {
+        UnassignedState previous = state.get();
+        if (!changed && previous != UnassignedState.EMPTY) {
+            return;
+        }
+        List<UnassignedPair> pairs = new ArrayList<>(working.size());
+        for (WorkingPair pair : working.values()) {
+            pairs.add(new UnassignedPair(pair.group, pair.topic, pair.partitions.stream().toArray(), pair.since));
+        }
+        state.set(new UnassignedState(previous.getVersion() + 1, System.currentTimeMillis(), pairs));
+        changed = false;
+    }
+
+    /**
+     * @return The state of the last completed scan, never blocks
+     */
+    public UnassignedState current() {
+        return state.get();
+    }
+
+    /**
+     * @return The identifier of this view, different on every start of the process
+     */
+    public String getEpoch() {
+        return epoch;
+    }
+}
@@ -0,0 +1,207 @@
+package com.pim.hiring.scout24.kafka.boot;
+
+import com.pim.hiring.scout24.kafka.metrics.CheckerMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Runs the {@link Daemon} scans in a single thread with fixed delay semantics, so a slow scan delays the next one
+ * instead of piling up runs.
+ * The delay between full scans comes from the {@link ScanCadence}. While some consumer groups have unassigned
+ * partitions, or when the topic expansions are watched, only the affected groups are checked again every recheck
+ * interval between the full scans.
+ * When several clusters are monitored their schedulers share the timer threads and every cluster runs its scans in
+ * its own thread, which is released while the cluster waits for the next scan, so a slow cluster only delays itself.
+ */
+public class AdaptiveScheduler implements SmartLifecycle {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AdaptiveScheduler.class);
+
+    // the scan thread of a cluster is released after this idle time
+    private static final long SCAN_THREAD_KEEP_ALIVE_MS = 60000;
+
+    private final Daemon daemon;
+    private final ScanCadence cadence;
+    private final long recheckIntervalMs;
+    private final CheckerMetrics checkerMetrics;
+    private final boolean autoStartup;
+    private final ScheduledExecutorService sharedTimer;
+    private final String scanThreadPrefix;
+
+    private ScheduledExecutorService timer;
+    // null when the scans run in the timer thread
+    private ExecutorService scanExecutor;
+    private ScheduledFuture<?> nextRun;
+    private boolean running;
+    // only used by the thread running the scans
+    private long nextFullScanAt;
+
+
+    /**
+     * @param daemon Runs the scans
+     * @param cadence Decides the delay between full scans
+     * @param recheckIntervalMs The delay between the checks of the groups with unassigned partitions
+     * @param checkerMetrics Publishes the next run and the skipped runs
+     * @param autoStartup <tt>false</tt> to start it manually
+     */
+    public AdaptiveScheduler(Daemon daemon, ScanCadence cadence, long recheckIntervalMs, CheckerMetrics checkerMetrics,
+                             boolean autoStartup) {
+        this(daemon, cadence, recheckIntervalMs, checkerMetrics, autoStartup, null, null);
+    }
+
+    /**
+     * @param daemon Runs the scans
+     * @param cadence Decides the delay between full scans
+     * @param recheckIntervalMs The delay between the checks of the groups with unassigned partitions
+     * @param checkerMetrics Publishes the next run and the skipped runs
+     * @param autoStartup <tt>false</tt> to start it manually
+     * @param sharedTimer The timer shared with the schedulers of the other clusters, not closed by this scheduler, or
+     *                    {@code null} to run the scans in an own timer thread
+     * @param scanThreadPrefix The name prefix of the scan thread when the timer is shared
+     */
+    public AdaptiveScheduler(Daemon daemon, ScanCadence cadence, long recheckIntervalMs, CheckerMetrics checkerMetrics,
+                             boolean autoStartup, ScheduledExecutorService sharedTimer, String scanThreadPrefix) {
+        this.daemon = daemon;
+        this.cadence = cadence;
+        this.recheckIntervalMs = recheckIntervalMs;
+        this.checkerMetrics = checkerMetrics;
+        this.autoStartup = autoStartup;
+        this.sharedTimer = sharedTimer;
+        this.scanThreadPrefix = scanThreadPrefix;
+    }
+
+
+    @Override
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        if (sharedTimer == null) {
+            timer = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("checker-scheduler-"));
+        } else {
+            timer = sharedTimer;
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, SCAN_THREAD_KEEP_ALIVE_MS,
+                    TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), new CustomizableThreadFactory(scanThreadPrefix));
+            executor.allowCoreThreadTimeOut(true);
+            scanExecutor = executor;
+        }
+        running = true;
+        nextFullScanAt = System.currentTimeMillis();
+        schedule(0);
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        nextRun.cancel(false);
+        if (sharedTimer == null) {
+            timer.shutdownNow();
+        } else {
+            scanExecutor.shutdownNow();
+        }
+        timer = null;
+        scanExecutor = null;
+    }
+
+    @Override
+    public void stop(Runnable callback) {
+        stop();
+        callback.run();
+    }
+
+    @Override
+    public synchronized boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public boolean isAutoStartup() {
+        return autoStartup;
+    }
+
+    @Override
+    public int getPhase() {
+        return Integer.MAX_VALUE;
+    }
+
+
+    private void run() {
+        long start = System.nanoTime();
+        try {
+            if (System.currentTimeMillis() >= nextFullScanAt) {
+                checkerMetrics.scheduledRun(CheckerMetrics.RunType.FULL);
+                scheduleFullScan(daemon.init());
+            } else {
+                checkerMetrics.scheduledRun(CheckerMetrics.RunType.RECHECK);
+                if (!daemon.recheck()) {
+                    checkerMetrics.skippedRun();
+                }
+            }
+        } catch (RuntimeException e) {
+            LOGGER.error("Unexpected error in the scheduled scan", e);
+            scheduleFullScan(ScanOutcome.failed(System.nanoTime() - start));
+        } finally {
+            scheduleNext();
+        }
+    }
+
+    private void scheduleFullScan(ScanOutcome outcome) {
+        long delayMs;
+        if (outcome == null) {
+            // another scan was running, try again after the base delay
+            checkerMetrics.skippedRun();
+            delayMs = cadence.getBaseDelayMs();
+        } else {
+            delayMs = cadence.nextDelayMs(outcome);
+            LOGGER.info(outcome + ", next scan in " + delayMs + " ms");
+        }
+        nextFullScanAt = System.currentTimeMillis() + delayMs;
+        checkerMetrics.fullScanDelay(delayMs, cadence.getLevel());
+    }
+
+    private synchronized void scheduleNext() {
+        if (!running) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long nextRunAt = nextFullScanAt;
+        if (daemon.needsRecheck()) {
+            nextRunAt = Math.min(nextRunAt, now + recheckIntervalMs);
+        }
+        checkerMetrics.nextRun(nextRunAt);
+        schedule(Math.max(0, nextRunAt - now));
+    }
+
+    private void schedule(long delayMs) {
+        nextRun = timer.schedule(scanExecutor == null ? this::run : this::submitRun, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Hand the run over to the scan thread, so the shared timer thread is never blocked by a scan
+     */
+    private synchronized void submitRun() {
+        if (!running) {
+            return;
+        }
+        try {
+            scanExecutor.execute(this::run);
+        } catch (RejectedExecutionException e) {
+            LOGGER.debug("The scheduler was stopped before the run started", e);
+        }
+    }
+}
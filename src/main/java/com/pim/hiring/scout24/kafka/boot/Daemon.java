@@ -1,23 +1,55 @@
 package com.pim.hiring.scout24.kafka.boot;
 
+import com.pim.hiring.scout24.kafka.admin.AdminClientPool;
+import com.pim.hiring.scout24.kafka.api.UnassignedStateView;
+import com.pim.hiring.scout24.kafka.checker.ConsumerLagChecker;
+import com.pim.hiring.scout24.kafka.checker.GroupFilter;
+import com.pim.hiring.scout24.kafka.checker.IncrementalChecker;
+import com.pim.hiring.scout24.kafka.checker.LiveAssignmentCheck;
+import com.pim.hiring.scout24.kafka.checker.OffsetFetchPlanner;
+import com.pim.hiring.scout24.kafka.checker.ScanEvaluator;
+import com.pim.hiring.scout24.kafka.checker.TopicMetadataCache;
 import com.pim.hiring.scout24.kafka.checker.UnassignedTopicPartitions;
-import kafka.admin.AdminClient;
+import com.pim.hiring.scout24.kafka.index.PartitionAssignmentIndex;
+import com.pim.hiring.scout24.kafka.metrics.CheckerMetrics;
+import com.pim.hiring.scout24.kafka.metrics.ConsumerLagGauges;
+import com.pim.hiring.scout24.kafka.metrics.UnassignedPartitionsGauges;
+import com.pim.hiring.scout24.kafka.report.ReportPipeline;
+import com.pim.hiring.scout24.kafka.rules.RuleEngine;
+import com.pim.hiring.scout24.kafka.snapshot.ClusterSnapshot;
+import com.pim.hiring.scout24.kafka.snapshot.SnapshotStore;
+import com.pim.hiring.scout24.kafka.trace.ScanTracer;
+import kafka.coordinator.GroupOverview;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.TopicPartition;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.kafka.core.KafkaTemplate;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.util.Arrays;
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Created on 01/09/2017.
  */
 @Service
+@ConditionalOnProperty(name = "checker.mode", havingValue = "polling", matchIfMissing = true)
 public class Daemon {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(Daemon.class);
@@ -26,45 +58,402 @@ public class Daemon {
     private UnassignedTopicPartitions checker;
 
     @Autowired
-    private KafkaTemplate<String, String> kafkaTemplate;
+    private AdminClientPool adminClientPool;
+
+    @Autowired
+    private TopicMetadataCache topicMetadataCache;
 
     @Autowired
     private Map<String, Object> consumerConfigs;
 
-    @Value("${spring.kafka.bootstrap-servers}")
-    private String bootstrapServers;
+    @Autowired
+    private ScanEvaluator scanEvaluator;
+
+    @Autowired
+    private CheckerMetrics checkerMetrics;
+
+    @Value("${checker.schedule.phase-budget-ms:30000}")
+    private long phaseBudgetMs;
 
-    @Value("${spring.kafka.topics-to-check}")
-    String[] topicsToCheck;
+    @Value("${checker.fetch.topic-first:true}")
+    private boolean topicFirst;
 
-    //executes each xxx ms
-    @Scheduled(fixedRate = 60000)
-    public void init() {
+    @Value("${checker.fetch.full-sweep-every:10}")
+    private int fullSweepEvery;
 
-        checker = new UnassignedTopicPartitions();
-        AdminClient adminClient = checker.createKafkaAdminClient(bootstrapServers);
+    @Value("${checker.assignment.live:false}")
+    private boolean liveAssignments;
 
-        Map<String, Map<String, List<Integer>>> topicConsumergroupConsumerPartitions =
-                checker.getTopicAndPartitionsForAllConsumerGroups(adminClient);
+    @Value("${checker.lag.enabled:true}")
+    private boolean lagEnabled;
 
-        // iterate over each consumer group
-        for(Map.Entry<String, Map<String, List<Integer>>> entry : topicConsumergroupConsumerPartitions.entrySet()) {
+    @Value("${checker.metadata.watch-expansions:true}")
+    private boolean watchExpansions;
 
-            String topic = entry.getValue().keySet().iterator().next();
+    @Autowired
+    private ReportPipeline reportPipeline;
+
+    @Autowired
+    private ConsumerLagGauges consumerLagGauges;
 
-            if( Arrays.asList(topicsToCheck).contains(topic) || topicsToCheck.length==0 ) {
-                LOGGER.info("Checking consumer group " + entry.getKey() + " and topic " + topic);
+    @Autowired
+    private UnassignedPartitionsGauges unassignedPartitionsGauges;
 
-                // TODO: Create a topic-partition cache to reduce the calls to this method
-                // Get the partitions for each topic
-                Map<String, List<Integer>> topicPartitionsList =
-                        checker.getTopicPartitionsInfo(kafkaTemplate, topic);
+    @Autowired
+    private RuleEngine ruleEngine;
 
-                // compare consumer-partitions Vs topic-partitions
-                checker.comparePartitionLists(topicPartitionsList, entry);
-            } else {
-                LOGGER.warn("Skipping topic " + topic + " because it isn't in the topics-to-check list.");
+    @Autowired
+    private UnassignedStateView unassignedStateView;
+
+    @Autowired(required = false)
+    private SnapshotStore snapshotStore;
+
+    @Autowired(required = false)
+    private ScanTracer scanTracer;
+
+    @Autowired(required = false)
+    private GroupFilter groupFilter = GroupFilter.ALL;
+
+    // keeps the previous run to report only the changes
+    private final IncrementalChecker incrementalChecker = new IncrementalChecker();
+    private final LiveAssignmentCheck liveAssignmentCheck = new LiveAssignmentCheck();
+    private final ConsumerLagChecker consumerLagChecker = new ConsumerLagChecker();
+    private OffsetFetchPlanner offsetFetchPlanner;
+
+    // a scan is never started while another one is running
+    private final AtomicBoolean scanning = new AtomicBoolean(false);
+
+    // the groups and monitored partitions of the last full scan, used to check again the flagged groups
+    private volatile Map<Node, List<GroupOverview>> lastGroupsByCoordinator;
+    private volatile List<TopicPartition> lastMonitoredPartitions;
+    // the generation of the accepted groups in the last full scan, only used while scanning
+    private long checkedGeneration = GroupFilter.ALL.getGeneration();
+
+
+    @PostConstruct
+    public void createPlanner() {
+        offsetFetchPlanner = new OffsetFetchPlanner(fullSweepEvery);
+    }
+
+    /**
+     * Continue from the last snapshot of the previous run, so the first scan only reports the changes since it
+     */
+    @PostConstruct
+    public void restoreSnapshot() {
+        ClusterSnapshot snapshot = snapshotStore == null ? null : snapshotStore.latest();
+        if (snapshot == null) {
+            return;
+        }
+        PartitionAssignmentIndex index = incrementalChecker.newIndex();
+        snapshot.restoreInto(index);
+        // only the gauges, the rules and the query API are restored, the partitions were already reported by the
+        // previous run
+        incrementalChecker.restore(index, snapshot.getPartitionCounts(), new IncrementalChecker.TransitionListener() {
+            @Override
+            public void onUnassigned(String group, String topic, BitSet partitions) {
+                unassignedPartitionsGauges.onUnassigned(group, topic, partitions);
+                ruleEngine.restoreReported(group, topic, partitions);
+                unassignedStateView.onUnassigned(group, topic, partitions);
             }
+
+            @Override
+            public void onRecovered(String group, String topic, BitSet partitions) {
+            }
+        });
+        LOGGER.info("Restored the scan of " + new Date(snapshot.getTimestamp()) + " with " + snapshot.size() +
+                " (consumer group, topic) pairs");
+    }
+
+    /**
+     * Full scan of the consumer groups, executed by the {@link AdaptiveScheduler}
+     * @return {@link ScanOutcome} or {@code null} if another scan was running or the groups of this instance are not
+     * known yet
+     */
+    public ScanOutcome init() {
+        if (!groupFilter.isReady()) {
+            LOGGER.info("Holding the scan until the consumer groups of this instance are assigned");
+            return null;
+        }
+        if (!scanning.compareAndSet(false, true)) {
+            LOGGER.warn("Skipping the scan because the previous one is still running");
+            return null;
+        }
+        try {
+            if (scanTracer == null) {
+                return scan();
+            }
+            scanTracer.beginCycle("full");
+            ScanOutcome outcome = scan();
+            scanTracer.endCycle(outcome.getDurationNanos(), outcome.isFailed());
+            return outcome;
+        } finally {
+            scanning.set(false);
+        }
+    }
+
+    /**
+     * Check again only the consumer groups with unassigned partitions in the last scan and, when the topic expansions
+     * are watched, the groups consuming the topics that gained partitions since they were last evaluated
+     * @return <tt>false</tt> if another scan was running
+     */
+    public boolean recheck() {
+        if (!scanning.compareAndSet(false, true)) {
+            return false;
+        }
+        long recheckStart = System.nanoTime();
+        try {
+            Map<Node, List<GroupOverview>> groupsByCoordinator = lastGroupsByCoordinator;
+            if (groupsByCoordinator == null) {
+                return true;
+            }
+            // the groups of the last full scan are not the ones of this instance any more, wait for the next one
+            if (!groupFilter.isReady() || groupFilter.getGeneration() != checkedGeneration) {
+                return true;
+            }
+            Set<String> recheckedGroups = new HashSet<>(incrementalChecker.getFlaggedGroups());
+            if (watchExpansions) {
+                recheckedGroups.addAll(findExpandedTopicGroups());
+            }
+            if (recheckedGroups.isEmpty()) {
+                return true;
+            }
+            // only the rechecks with groups to fetch are traced, the ring would be filled by the idle ones
+            if (scanTracer != null) {
+                scanTracer.beginCycle("recheck");
+            }
+
+            Map<Node, List<GroupOverview>> recheckedByCoordinator = new HashMap<>();
+            for (Map.Entry<Node, List<GroupOverview>> coordinatorGroups : groupsByCoordinator.entrySet()) {
+                List<GroupOverview> rechecked = new ArrayList<>();
+                for (GroupOverview group : coordinatorGroups.getValue()) {
+                    if (recheckedGroups.contains(group.groupId())) {
+                        rechecked.add(group);
+                    }
+                }
+                recheckedByCoordinator.put(coordinatorGroups.getKey(), rechecked);
+            }
+
+            long start = System.nanoTime();
+            PartitionAssignmentIndex index = incrementalChecker.newIndex();
+            int failures = checker.fetchGroupOffsets(recheckedByCoordinator, lastMonitoredPartitions, index);
+            checkerMetrics.adminClientErrors(CheckerMetrics.Phase.OFFSET_FETCH, failures);
+            tracePhase(CheckerMetrics.Phase.OFFSET_FETCH, System.nanoTime() - start);
+            if (failures > 0) {
+                // a group without offsets would be reported as recovered, the next full scan evaluates them
+                traceEnd(recheckStart, true);
+                return true;
+            }
+            start = System.nanoTime();
+            IncrementalChecker.ScanDelta delta = scanEvaluator.recheck(incrementalChecker, index, recheckedGroups);
+            tracePhase(CheckerMetrics.Phase.COMPARE, System.nanoTime() - start);
+            traceEnd(recheckStart, false);
+            LOGGER.debug("Recheck of " + recheckedGroups.size() + " consumer groups: " + delta);
+            return true;
+        } finally {
+            scanning.set(false);
+        }
+    }
+
+    /**
+     * @return <tt>true</tt> if the scheduler has to call {@link #recheck()} between the full scans
+     */
+    public boolean needsRecheck() {
+        return watchExpansions || hasFlaggedGroups();
+    }
+
+    /**
+     * @return <tt>true</tt> if some consumer groups had unassigned partitions in the last scan
+     */
+    public boolean hasFlaggedGroups() {
+        return !incrementalChecker.getFlaggedGroups().isEmpty();
+    }
+
+
+    private ScanOutcome scan() {
+        long scanStart = System.nanoTime();
+        // the accepted groups of this scan, the listing is discarded if they change before the comparison
+        GroupFilter scanFilter = groupFilter.snapshot();
+
+        // the admin clients are borrowed from the pool and reused between runs
+        long start = System.nanoTime();
+        Map<Node, List<GroupOverview>> groupsByCoordinator;
+        try {
+            groupsByCoordinator = checker.listGroupsByCoordinator();
+        } catch (RuntimeException e) {
+            endPhase(CheckerMetrics.Phase.GROUP_LISTING, start);
+            checkerMetrics.adminClientErrors(CheckerMetrics.Phase.GROUP_LISTING, 1);
+            LOGGER.error("Unable to list the consumer groups", e);
+            return ScanOutcome.failed(System.nanoTime() - scanStart);
+        }
+        boolean overBudget = endPhase(CheckerMetrics.Phase.GROUP_LISTING, start);
+        lastGroupsByCoordinator = groupsByCoordinator;
+
+        // topic-first: the monitored topics are resolved before the offsets, so only their partitions are requested
+        start = System.nanoTime();
+        List<TopicPartition> monitoredPartitions = topicFirst ? scanEvaluator.resolveMonitoredPartitions() : null;
+        long resolveNanos = System.nanoTime() - start;
+        lastMonitoredPartitions = monitoredPartitions;
+
+        // between the full sweeps every group is only asked for the topics it consumed in the last scan
+        start = System.nanoTime();
+        OffsetFetchPlanner.Plan plan = offsetFetchPlanner.plan(groupsByCoordinator, monitoredPartitions,
+                incrementalChecker.getTopicsByGroup());
+        PartitionAssignmentIndex index = incrementalChecker.newIndex();
+        Set<String> failedGroups = ConcurrentHashMap.newKeySet();
+        int failures = plan.isSweep()
+                ? checker.fetchGroupOffsets(groupsByCoordinator, monitoredPartitions, index, failedGroups)
+                : checker.fetchGroupOffsets(plan.getGroupsByCoordinator(), plan::partitionsOf, index, failedGroups);
+        offsetFetchPlanner.completed(plan, failedGroups);
+        LOGGER.debug(plan.toString());
+        checkerMetrics.adminClientErrors(CheckerMetrics.Phase.OFFSET_FETCH, failures);
+        overBudget |= endPhase(CheckerMetrics.Phase.OFFSET_FETCH, start);
+
+        // the metadata phase includes the resolution of the monitored topics
+        start = System.nanoTime() - resolveNanos;
+        BitSet checkedTopics = scanEvaluator.refreshMetadata(index);
+        overBudget |= endPhase(CheckerMetrics.Phase.METADATA_FETCH, start);
+
+        // a rebalance during the scan would take the groups of the moving shards as removed
+        if (!scanFilter.isReady() || groupFilter.getGeneration() != scanFilter.getGeneration()) {
+            LOGGER.warn("Discarding the scan because the consumer groups of this instance changed during it");
+            return ScanOutcome.failed(System.nanoTime() - scanStart);
+        }
+        // the groups that are not accepted any more are forgotten without being reported as recovered
+        if (scanFilter.getGeneration() != checkedGeneration) {
+            scanEvaluator.retainGroups(incrementalChecker, scanFilter);
+            checkedGeneration = scanFilter.getGeneration();
+        }
+
+        // compare consumer-partitions Vs topic-partitions, only for the pairs that changed since the last run, the
+        // groups that couldn't be fetched keep their previous state
+        start = System.nanoTime();
+        IncrementalChecker.ScanDelta delta = scanEvaluator.compare(incrementalChecker, index, checkedTopics,
+                failedGroups);
+        overBudget |= endPhase(CheckerMetrics.Phase.COMPARE, start);
+        saveSnapshot(index, checkedTopics);
+
+        // lag of every monitored partition, with the log end offsets fetched once for all the groups
+        if (lagEnabled) {
+            start = System.nanoTime();
+            failures += checkLag(index, checkedTopics);
+            overBudget |= endPhase(CheckerMetrics.Phase.LAG_CHECK, start);
+        }
+
+        // cross-check the committed offsets with the members of the groups, one request per coordinator
+        if (liveAssignments) {
+            start = System.nanoTime();
+            failures += checkLiveAssignments(groupsByCoordinator, index);
+            overBudget |= endPhase(CheckerMetrics.Phase.ASSIGNMENT_CHECK, start);
+        }
+
+        LOGGER.info(delta.toString());
+        LOGGER.info(adminClientPool.toString());
+        LOGGER.info(topicMetadataCache.toString());
+
+        boolean changed = delta.getChangedPairs() > 0 || delta.getNewGroups() > 0 || delta.getRemovedGroups() > 0;
+        return new ScanOutcome(failures > 0, overBudget, changed, System.nanoTime() - scanStart);
+    }
+
+    /**
+     * Compare the partition counts of the monitored topics, fetched with one metadata request, with the ones of the
+     * last evaluation
+     * @return The consumer groups of the topics that gained partitions
+     */
+    private Set<String> findExpandedTopicGroups() {
+        Map<String, Integer> partitionCounts;
+        try {
+            partitionCounts = scanEvaluator.fetchPartitionCounts();
+        } catch (RuntimeException e) {
+            LOGGER.warn("Unable to fetch the partition counts of the monitored topics", e);
+            return Collections.emptySet();
+        }
+        Set<String> expandedTopics = incrementalChecker.getExpandedTopics(partitionCounts);
+        if (expandedTopics.isEmpty()) {
+            return Collections.emptySet();
+        }
+        checkerMetrics.topicExpansions(expandedTopics.size());
+        // the offsets of the new partitions are fetched too
+        if (lastMonitoredPartitions != null) {
+            lastMonitoredPartitions = scanEvaluator.monitoredPartitions(partitionCounts);
+        }
+        Set<String> groups = incrementalChecker.getGroupsConsuming(expandedTopics);
+        LOGGER.info("The topics " + expandedTopics + " gained partitions, checking again the consumer groups " +
+                groups);
+        return groups;
+    }
+
+    private void saveSnapshot(PartitionAssignmentIndex index, BitSet checkedTopics) {
+        if (snapshotStore == null) {
+            return;
+        }
+        try {
+            snapshotStore.append(ClusterSnapshot.of(System.currentTimeMillis(), index,
+                    scanEvaluator.getPartitionCounts(index, checkedTopics)));
+        } catch (IOException e) {
+            LOGGER.warn("Unable to save the snapshot of the scan", e);
+        }
+    }
+
+    /**
+     * @return 1 if the log end offsets couldn't be fetched
+     */
+    private int checkLag(PartitionAssignmentIndex index, BitSet checkedTopics) {
+        try {
+            ConsumerLagChecker.LagSummary lag =
+                    scanEvaluator.checkLag(consumerLagChecker, index, checkedTopics, reportPipeline);
+            consumerLagGauges.update(lag.getLagByPair(), lag.getMaxLagByPair());
+            LOGGER.info(lag.toString());
+            return 0;
+        } catch (RuntimeException e) {
+            LOGGER.error("Unable to fetch the log end offsets of the monitored partitions", e);
+            return 1;
+        }
+    }
+
+    /**
+     * @return The number of consumer groups that couldn't be described
+     */
+    private int checkLiveAssignments(Map<Node, List<GroupOverview>> groupsByCoordinator,
+                                     PartitionAssignmentIndex index) {
+        AtomicInteger failures = new AtomicInteger();
+        try {
+            Map<String, Set<TopicPartition>> assignments = checker.describeAssignments(groupsByCoordinator, failures);
+            Map<LiveAssignmentCheck.Status, Integer> flagged =
+                    scanEvaluator.crossCheck(liveAssignmentCheck, index, assignments, reportPipeline);
+            LOGGER.info("Live assignments of " + assignments.size() + " consumer groups: " + flagged);
+        } catch (RuntimeException e) {
+            failures.incrementAndGet();
+            LOGGER.error("Unable to check the live assignments of the consumer groups", e);
+        }
+        checkerMetrics.adminClientErrors(CheckerMetrics.Phase.ASSIGNMENT_CHECK, failures.get());
+        return failures.get();
+    }
+
+    /**
+     * Record the time of a phase
+     * @return <tt>true</tt> if the phase took longer than its budget
+     */
+    private boolean endPhase(CheckerMetrics.Phase phase, long start) {
+        long elapsedNanos = checkerMetrics.recordPhase(phase, start);
+        tracePhase(phase, elapsedNanos);
+        if (elapsedNanos > TimeUnit.MILLISECONDS.toNanos(phaseBudgetMs)) {
+            checkerMetrics.overBudget(phase);
+            LOGGER.warn("The " + phase.getTag() + " phase took " + TimeUnit.NANOSECONDS.toMillis(elapsedNanos) +
+                    " ms, over its budget of " + phaseBudgetMs + " ms");
+            return true;
+        }
+        return false;
+    }
+
+    private void tracePhase(CheckerMetrics.Phase phase, long elapsedNanos) {
+        if (scanTracer != null) {
+            scanTracer.phase(phase, elapsedNanos);
+        }
+    }
+
+    private void traceEnd(long start, boolean failed) {
+        if (scanTracer != null) {
+            scanTracer.endCycle(System.nanoTime() - start, failed);
         }
     }
-}
\ No newline at end of file
+}
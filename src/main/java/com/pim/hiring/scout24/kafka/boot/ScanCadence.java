@@ -0,0 +1,69 @@
+package com.pim.hiring.scout24.kafka.boot;
+
+
+/**
+ * Decides the delay between the end of a full scan and the start of the next one.
+ * The delay doubles, up to a maximum, while the scans fail, take longer than their budget or get slower than usual,
+ * and goes back to the base delay after a clean scan. A scan that finds nothing new is clean, so a quiet cluster keeps
+ * being checked at the base delay.
+ */
+public class ScanCadence {
+
+    // weight of the last scan in the average duration
+    private static final double AVERAGE_WEIGHT = 0.3;
+    // a scan slower than this factor of the average is treated as a latency increase
+    private static final double SLOW_FACTOR = 2.0;
+
+    private final long baseDelayMs;
+    private final long maxDelayMs;
+
+    private int level = 0;
+    private double averageNanos = 0;
+
+
+    /**
+     * @param baseDelayMs The delay when the scans are clean
+     * @param maxDelayMs The maximum delay
+     */
+    public ScanCadence(long baseDelayMs, long maxDelayMs) {
+        this.baseDelayMs = baseDelayMs;
+        this.maxDelayMs = Math.max(baseDelayMs, maxDelayMs);
+    }
+
+
+    /**
+     * @param outcome The outcome of the finished scan
+     * @return The delay until the next full scan
+     */
+    public synchronized long nextDelayMs(ScanOutcome outcome) {
+        boolean slower = averageNanos > 0 && outcome.getDurationNanos() > averageNanos * SLOW_FACTOR;
+        averageNanos = averageNanos == 0 ? outcome.getDurationNanos()
+                : averageNanos + AVERAGE_WEIGHT * (outcome.getDurationNanos() - averageNanos);
+
+        if (outcome.isFailed() || outcome.isOverBudget() || slower) {
+            if (delayMs(level) < maxDelayMs) {
+                level++;
+            }
+        } else {
+            level = 0;
+        }
+        return delayMs(level);
+    }
+
+    /**
+     * @return The number of times the base delay has been doubled
+     */
+    public synchronized int getLevel() {
+        return level;
+    }
+
+    public long getBaseDelayMs() {
+        return baseDelayMs;
+    }
+
+
+    private long delayMs(int level) {
+        // the shift can't overflow because the level stops growing at the maximum delay
+        return Math.min(maxDelayMs, baseDelayMs << level);
+    }
+}
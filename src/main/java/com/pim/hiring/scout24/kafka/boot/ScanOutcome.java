@@ -0,0 +1,57 @@
+package com.pim.hiring.scout24.kafka.boot;
+
+
+/**
+ * What a full scan found, used to decide when the next one runs
+ */
+public class ScanOutcome {
+
+    private final boolean failed;
+    private final boolean overBudget;
+    private final boolean changed;
+    private final long durationNanos;
+
+
+    /**
+     * @param failed Some admin client requests failed
+     * @param overBudget Some phase took longer than its budget
+     * @param changed Some group, offset or topic partition count changed since the previous scan
+     * @param durationNanos The time spent in the scan
+     */
+    public ScanOutcome(boolean failed, boolean overBudget, boolean changed, long durationNanos) {
+        this.failed = failed;
+        this.overBudget = overBudget;
+        this.changed = changed;
+        this.durationNanos = durationNanos;
+    }
+
+    /**
+     * @return The outcome of a scan that couldn't finish
+     */
+    public static ScanOutcome failed(long durationNanos) {
+        return new ScanOutcome(true, false, false, durationNanos);
+    }
+
+
+    public boolean isFailed() {
+        return failed;
+    }
+
+    public boolean isOverBudget() {
+        return overBudget;
+    }
+
+    public boolean isChanged() {
+        return changed;
+    }
+
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "ScanOutcome{failed=" + failed + ", overBudget=" + overBudget + ", changed=" + changed +
+                ", durationMs=" + durationNanos / 1000000 + "}";
+    }
+}
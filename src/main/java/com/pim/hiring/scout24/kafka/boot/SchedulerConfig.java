@@ -0,0 +1,52 @@
+package com.pim.hiring.scout24.kafka.boot;
+
+import com.pim.hiring.scout24.kafka.metrics.CheckerMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ScheduledExecutorService;
+
+
+/**
+ * Created on 17/10/2026.
+ */
+@Configuration
+@ConditionalOnProperty(name = "checker.mode", havingValue = "polling", matchIfMissing = true)
+public class SchedulerConfig {
+
+    @Value("${checker.schedule.delay-ms:60000}")
+    private long delayMs;
+
+    @Value("${checker.schedule.max-delay-ms:600000}")
+    private long maxDelayMs;
+
+    @Value("${checker.schedule.recheck-interval-ms:10000}")
+    private long recheckIntervalMs;
+
+    // the tests start the scans by themselves
+    @Value("${scheduling.enabled:true}")
+    private boolean schedulingEnabled;
+
+    @Value("${checker.cluster.name:}")
+    private String clusterName;
+
+    // only defined when several clusters are monitored
+    @Autowired(required = false)
+    @Qualifier("sharedScheduler")
+    private ScheduledExecutorService sharedScheduler;
+
+    @Bean
+    public ScanCadence scanCadence() {
+        return new ScanCadence(delayMs, maxDelayMs);
+    }
+
+    @Bean
+    public AdaptiveScheduler adaptiveScheduler(Daemon daemon, CheckerMetrics checkerMetrics) {
+        return new AdaptiveScheduler(daemon, scanCadence(), recheckIntervalMs, checkerMetrics, schedulingEnabled,
+                sharedScheduler, clusterName.isEmpty() ? "checker-scan-" : "checker-" + clusterName + "-");
+    }
+}
@@ -0,0 +1,394 @@
+package com.pim.hiring.scout24.kafka.checker;
+
+import com.pim.hiring.scout24.kafka.admin.AdminClientPool;
+import com.pim.hiring.scout24.kafka.index.PartitionAssignmentIndex;
+import com.pim.hiring.scout24.kafka.report.UnassignedPartitionReport;
+import kafka.admin.AdminClient;
+import org.apache.kafka.clients.ClientResponse;
+import org.apache.kafka.clients.consumer.internals.ConsumerNetworkClient;
+import org.apache.kafka.clients.consumer.internals.RequestFutureListener;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.RetriableException;
+import org.apache.kafka.common.errors.WakeupException;
+import org.apache.kafka.common.protocol.Errors;
+import org.apache.kafka.common.requests.AbstractRequest;
+import org.apache.kafka.common.requests.AbstractResponse;
+import org.apache.kafka.common.requests.GroupCoordinatorRequest;
+import org.apache.kafka.common.requests.GroupCoordinatorResponse;
+import org.apache.kafka.common.requests.ListGroupsRequest;
+import org.apache.kafka.common.requests.ListGroupsResponse;
+import org.apache.kafka.common.requests.MetadataRequest;
+import org.apache.kafka.common.requests.MetadataResponse;
+import org.apache.kafka.common.requests.OffsetFetchRequest;
+import org.apache.kafka.common.requests.OffsetFetchResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+
+/**
+ * Non-blocking version of {@link UnassignedTopicPartitions} that returns a {@link CompletableFuture} per consumer group.
+ * A single I/O thread owns an {@link AdminClient} and drives its network client: the requests of every call are
+ * sent without waiting for each other and the futures are completed from the response listeners, so no caller
+ * thread is ever blocked. Every future fails with a {@link TimeoutException} when it's not done in time, and a
+ * future that is cancelled or timed out sends no more requests.
+ */
+public class AsyncUnassignedTopicPartitions implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AsyncUnassignedTopicPartitions.class);
+
+    private static final long POLL_TIMEOUT_MS = 1000;
+    private static final long RETRY_BACKOFF_MS = 100;
+
+    private final AdminClient adminClient;
+    private final ConsumerNetworkClient client;
+    private final TopicMatcher topicMatcher;
+    private final long timeoutMs;
+    // runs the dependent stages of the futures, so they never run on the I/O thread
+    private final Executor callbackExecutor;
+    private final ScheduledExecutorService timeouts;
+
+    // requests waiting to be sent by the I/O thread
+    private final LinkedBlockingQueue<Runnable> tasks = new LinkedBlockingQueue<>();
+    private final Thread ioThread;
+    private volatile boolean running = true;
+
+    // only used by the I/O thread
+    private int inFlight = 0;
+
+    private GroupFilter groupFilter = GroupFilter.ALL;
+
+
+    /**
+     * @param bootstrapServers Configured Kafka servers in the application.yml file
+     * @param topicMatcher The monitored topics
+     * @param timeoutMs Maximum time to complete every returned future
+     * @param callbackExecutor Completes the returned futures
+     */
+    public AsyncUnassignedTopicPartitions(String bootstrapServers, TopicMatcher topicMatcher, long timeoutMs,
+                                          Executor callbackExecutor) {
+        this.adminClient = AdminClientPool.createKafkaAdminClient(bootstrapServers);
+        this.client = adminClient.client();
+        this.topicMatcher = topicMatcher;
+        this.timeoutMs = timeoutMs;
+        this.callbackExecutor = callbackExecutor;
+        this.timeouts = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("async-checker-timeouts-"));
+
+        ioThread = new Thread(this::run, "async-checker-io");
+        ioThread.setDaemon(true);
+        ioThread.start();
+    }
+
+
+    public void setGroupFilter(GroupFilter groupFilter) {
+        this.groupFilter = groupFilter;
+    }
+
+    /**
+     * List the consumer groups of every broker
+     * @return The groups by coordinator broker
+     */
+    public CompletableFuture<Map<Node, List<String>>> listGroupsByCoordinator() {
+        CompletableFuture<Map<Node, List<String>>> result = withTimeout(new CompletableFuture<>());
+        forward(fetchMetadata(result).thenCompose(metadata -> listGroups(result, metadata.brokers())), result);
+        return result;
+    }
+
+    /**
+     * Check the committed offsets of a consumer group against the partitions of the monitored topics
+     * @param groupId The consumer group
+     * @return The unassigned partitions of every topic of the group, empty if all of them have committed offsets
+     */
+    public CompletableFuture<List<UnassignedPartitionReport>> checkGroup(String groupId) {
+        CompletableFuture<List<UnassignedPartitionReport>> result = withTimeout(new CompletableFuture<>());
+
+        CompletableFuture<Map<String, Integer>> partitionCounts = fetchMetadata(result).thenApply(this::partitionCounts);
+        CompletableFuture<Map<TopicPartition, Long>> offsets = findCoordinator(result, groupId)
+                .thenCompose(coordinator -> fetchOffsets(result, coordinator, groupId));
+
+        forward(offsets.thenCombine(partitionCounts, (groupOffsets, counts) -> compare(groupId, groupOffsets, counts)),
+                result);
+        return result;
+    }
+
+    /**
+     * Check every consumer group. The outer future completes when the groups are listed, and the future of each
+     * group completes as soon as its offsets arrive, so the results can be consumed while the others are running
+     * @return The future of every consumer group
+     */
+    public CompletableFuture<Map<String, CompletableFuture<List<UnassignedPartitionReport>>>> checkAllGroups() {
+        CompletableFuture<Map<String, CompletableFuture<List<UnassignedPartitionReport>>>> result =
+                withTimeout(new CompletableFuture<>());
+
+        // a single metadata request gives the brokers and the partition counts for all the groups
+        CompletableFuture<MetadataResponse> metadata = fetchMetadata(result);
+        CompletableFuture<Map<String, Integer>> partitionCounts = metadata.thenApply(this::partitionCounts);
+
+        forward(metadata.thenCompose(response -> listGroups(result, response.brokers())).thenApply(groups -> {
+            Map<String, CompletableFuture<List<UnassignedPartitionReport>>> groupResults = new LinkedHashMap<>();
+            for (Map.Entry<Node, List<String>> coordinatorGroups : groups.entrySet()) {
+                for (String groupId : coordinatorGroups.getValue()) {
+                    CompletableFuture<List<UnassignedPartitionReport>> groupResult =
+                            withTimeout(new CompletableFuture<>());
+                    forward(fetchOffsets(groupResult, coordinatorGroups.getKey(), groupId).thenCombine(partitionCounts,
+                            (groupOffsets, counts) -> compare(groupId, groupOffsets, counts)), groupResult);
+                    groupResults.put(groupId, groupResult);
+                }
+            }
+            return groupResults;
+        }), result);
+        return result;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        client.wakeup();
+        try {
+            ioThread.join(POLL_TIMEOUT_MS * 2);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        timeouts.shutdownNow();
+        adminClient.close();
+    }
+
+
+    private CompletableFuture<MetadataResponse> fetchMetadata(CompletableFuture<?> owner) {
+        // all the topics, so the monitored ones are never created by the request
+        return send(owner, null, MetadataRequest.Builder.allTopics(), response -> (MetadataResponse) response);
+    }
+
+    private CompletableFuture<Map<Node, List<String>>> listGroups(CompletableFuture<?> owner, Iterable<Node> brokers) {
+        Map<Node, CompletableFuture<List<String>>> requests = new LinkedHashMap<>();
+        for (Node broker : brokers) {
+            requests.put(broker, send(owner, broker, new ListGroupsRequest.Builder(), response -> {
+                ListGroupsResponse listGroups = (ListGroupsResponse) response;
+                Errors error = Errors.forCode(listGroups.errorCode());
+                if (error != Errors.NONE) {
+                    throw error.exception();
+                }
+                List<String> groups = new ArrayList<>();
+                for (ListGroupsResponse.Group group : listGroups.groups()) {
+                    if (groupFilter.accept(group.groupId())) {
+                        groups.add(group.groupId());
+                    }
+                }
+                return groups;
+            }));
+        }
+
+        return CompletableFuture.allOf(requests.values().toArray(new CompletableFuture<?>[requests.size()]))
+                .thenApply(done -> {
+                    Map<Node, List<String>> groups = new LinkedHashMap<>();
+                    for (Map.Entry<Node, CompletableFuture<List<String>>> request : requests.entrySet()) {
+                        groups.put(request.getKey(), request.getValue().join());
+                    }
+                    return groups;
+                });
+    }
+
+    private CompletableFuture<Node> findCoordinator(CompletableFuture<?> owner, String groupId) {
+        return send(owner, null, new GroupCoordinatorRequest.Builder(groupId), response -> {
+            GroupCoordinatorResponse coordinator = (GroupCoordinatorResponse) response;
+            Errors error = Errors.forCode(coordinator.errorCode());
+            if (error != Errors.NONE) {
+                throw error.exception();
+            }
+            return coordinator.node();
+        });
+    }
+
+    private CompletableFuture<Map<TopicPartition, Long>> fetchOffsets(CompletableFuture<?> owner, Node coordinator,
+                                                                      String groupId) {
+        return send(owner, coordinator, OffsetFetchRequest.Builder.allTopicPartitions(groupId), response -> {
+            OffsetFetchResponse offsetFetch = (OffsetFetchResponse) response;
+            if (offsetFetch.hasError()) {
+                throw offsetFetch.error().exception();
+            }
+            // the partitions without committed offsets are never added
+            Map<TopicPartition, Long> groupOffsets = new HashMap<>();
+            for (Map.Entry<TopicPartition, OffsetFetchResponse.PartitionData> partition
+                    : offsetFetch.responseData().entrySet()) {
+                OffsetFetchResponse.PartitionData partitionData = partition.getValue();
+                if (!partitionData.hasError() && partitionData.offset != OffsetFetchResponse.INVALID_OFFSET
+                        && topicMatcher.matches(partition.getKey().topic())) {
+                    groupOffsets.put(partition.getKey(), partitionData.offset);
+                }
+            }
+            return groupOffsets;
+        });
+    }
+
+    /**
+     * @return The partition count of every monitored topic
+     */
+    private Map<String, Integer> partitionCounts(MetadataResponse metadata) {
+        Map<String, Integer> partitionCounts = new HashMap<>();
+        for (MetadataResponse.TopicMetadata topic : metadata.topicMetadata()) {
+            if (topic.error() == Errors.NONE && topicMatcher.matches(topic.topic())) {
+                partitionCounts.put(topic.topic(), topic.partitionMetadata().size());
+            }
+        }
+        return partitionCounts;
+    }
+
+    private static List<UnassignedPartitionReport> compare(String groupId, Map<TopicPartition, Long> groupOffsets,
+                                                           Map<String, Integer> partitionCounts) {
+        if (groupOffsets.isEmpty()) {
+            return Collections.emptyList();
+        }
+        PartitionAssignmentIndex index = new PartitionAssignmentIndex();
+        index.addGroup(groupId, groupOffsets);
+
+        List<UnassignedPartitionReport> reports = new ArrayList<>();
+        index.forEach((group, topicId, assignment) -> {
+            String topic = index.topicName(topicId);
+            Integer partitionCount = partitionCounts.get(topic);
+            if (partitionCount == null) {
+                // the topic has been deleted
+                return;
+            }
+            BitSet missing = index.getMissingPartitions(group, topicId, partitionCount);
+            if (!missing.isEmpty()) {
+                reports.add(UnassignedPartitionReport.of(UnassignedPartitionReport.Type.UNASSIGNED, groupId, topic,
+                        missing));
+            }
+        });
+        return reports;
+    }
+
+
+    /**
+     * Send a request from the I/O thread. Retriable errors, like a coordinator that is still loading, are sent
+     * again after a backoff until the owner future is done
+     * @param owner The future returned to the caller, nothing is sent once it is done
+     * @param node The destination broker or {@code null} for the least loaded one
+     * @param request The request
+     * @param parser Converts the response, it runs on the I/O thread and fails the future if it throws
+     * @return The converted response, completed by the callback executor
+     */
+    private <T> CompletableFuture<T> send(CompletableFuture<?> owner, Node node, AbstractRequest.Builder<?> request,
+                                          Function<AbstractResponse, T> parser) {
+        CompletableFuture<T> response = new CompletableFuture<>();
+        submit(() -> attempt(owner, node, request, parser, response));
+        return response;
+    }
+
+    private <T> void attempt(CompletableFuture<?> owner, Node node, AbstractRequest.Builder<?> request,
+                             Function<AbstractResponse, T> parser, CompletableFuture<T> response) {
+        if (owner.isDone()) {
+            // cancelled, timed out or already failed
+            fail(response, new CancellationException());
+            return;
+        }
+        Node destination = node != null ? node : client.leastLoadedNode();
+        if (destination == null) {
+            fail(response, new IllegalStateException("No Kafka broker available"));
+            return;
+        }
+        inFlight++;
+        client.send(destination, request).addListener(new RequestFutureListener<ClientResponse>() {
+            @Override
+            public void onSuccess(ClientResponse clientResponse) {
+                inFlight--;
+                T value;
+                try {
+                    value = parser.apply(clientResponse.responseBody());
+                } catch (RuntimeException e) {
+                    retryOrFail(e);
+                    return;
+                }
+                callbackExecutor.execute(() -> response.complete(value));
+            }
+
+            @Override
+            public void onFailure(RuntimeException e) {
+                inFlight--;
+                retryOrFail(e);
+            }
+
+            private void retryOrFail(RuntimeException e) {
+                if (e instanceof RetriableException && running) {
+                    LOGGER.debug("Retrying " + request + ": " + e.getMessage());
+                    timeouts.schedule(() -> submit(() -> attempt(owner, node, request, parser, response)),
+                            RETRY_BACKOFF_MS, TimeUnit.MILLISECONDS);
+                } else {
+                    fail(response, e);
+                }
+            }
+        });
+    }
+
+    private void fail(CompletableFuture<?> future, Throwable e) {
+        callbackExecutor.execute(() -> future.completeExceptionally(e));
+    }
+
+    private void submit(Runnable task) {
+        if (!running) {
+            throw new IllegalStateException("The asynchronous checker is closed");
+        }
+        tasks.add(task);
+        // the I/O thread may be blocked in the network poll
+        client.wakeup();
+    }
+
+    private <T> CompletableFuture<T> withTimeout(CompletableFuture<T> future) {
+        ScheduledFuture<?> timeout = timeouts.schedule(() -> future.completeExceptionally(
+                new TimeoutException("Not completed after " + timeoutMs + " ms")), timeoutMs, TimeUnit.MILLISECONDS);
+        future.whenComplete((value, e) -> timeout.cancel(false));
+        return future;
+    }
+
+    private static <T> void forward(CompletableFuture<T> from, CompletableFuture<T> to) {
+        from.whenComplete((value, e) -> {
+            if (e != null) {
+                to.completeExceptionally(e instanceof CompletionException ? e.getCause() : e);
+            } else {
+                to.complete(value);
+            }
+        });
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                Runnable task = inFlight == 0 ? tasks.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS) : tasks.poll();
+                while (task != null) {
+                    task.run();
+                    task = tasks.poll();
+                }
+                if (inFlight > 0) {
+                    client.poll(POLL_TIMEOUT_MS);
+                }
+            } catch (WakeupException e) {
+                // new requests to send
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                LOGGER.warn("Unexpected error in the asynchronous checker I/O thread", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.pim.hiring.scout24.kafka.checker;
+
+import com.pim.hiring.scout24.kafka.api.UnassignedStateView;
+import com.pim.hiring.scout24.kafka.metrics.UnassignedPartitionsGauges;
+import com.pim.hiring.scout24.kafka.rules.RuleEngine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+
+import java.util.concurrent.ForkJoinPool;
+
+
+/**
+ * Created on 17/10/2026.
+ */
+@Configuration
+public class CheckerConfig {
+
+    @Value("${spring.kafka.bootstrap-servers}")
+    private String bootstrapServers;
+
+    @Value("${spring.kafka.topics-to-check}")
+    private String[] topicsToCheck;
+
+    @Value("${checker.async.timeout-ms:30000}")
+    private long asyncTimeoutMs;
+
+    @Autowired(required = false)
+    private GroupFilter groupFilter = GroupFilter.ALL;
+
+    @Autowired
+    private UnassignedPartitionsGauges unassignedPartitionsGauges;
+
+    @Autowired
+    private RuleEngine ruleEngine;
+
+    @Bean
+    public UnassignedStateView unassignedStateView() {
+        return new UnassignedStateView();
+    }
+
+    // the gauges and the query API see every unassigned partition, the rules only decide what is reported
+    @Bean
+    public IncrementalChecker.TransitionListener transitionListener() {
+        return new CompositeTransitionListener(ruleEngine, unassignedPartitionsGauges, unassignedStateView());
+    }
+
+    @Bean
+    public ScanEvaluator scanEvaluator(TopicMetadataCache topicMetadataCache) {
+        return new ScanEvaluator(topicMetadataCache, topicsToCheck, transitionListener());
+    }
+
+    // the I/O thread and its admin client are only created when the asynchronous API is used
+    @Lazy
+    @Bean(destroyMethod = "close")
+    public AsyncUnassignedTopicPartitions asyncUnassignedTopicPartitions() {
+        AsyncUnassignedTopicPartitions checker = new AsyncUnassignedTopicPartitions(bootstrapServers,
+                new TopicMatcher(topicsToCheck), asyncTimeoutMs, ForkJoinPool.commonPool());
+        checker.setGroupFilter(groupFilter);
+        return checker;
+    }
+}
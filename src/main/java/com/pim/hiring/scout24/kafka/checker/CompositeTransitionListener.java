@@ -0,0 +1,44 @@
+package com.pim.hiring.scout24.kafka.checker;
+
+import java.util.BitSet;
+
+
+/**
+ * Forwards the transitions to several listeners
+ */
+public class CompositeTransitionListener implements IncrementalChecker.TransitionListener {
+
+    private final IncrementalChecker.TransitionListener[] listeners;
+
+    public CompositeTransitionListener(IncrementalChecker.TransitionListener... listeners) {
+        this.listeners = listeners;
+    }
+
+    @Override
+    public void onUnassigned(String group, String topic, BitSet partitions) {
+        for (IncrementalChecker.TransitionListener listener : listeners) {
+            listener.onUnassigned(group, topic, partitions);
+        }
+    }
+
+    @Override
+    public void onRecovered(String group, String topic, BitSet partitions) {
+        for (IncrementalChecker.TransitionListener listener : listeners) {
+            listener.onRecovered(group, topic, partitions);
+        }
+    }
+
+    @Override
+    public void onCleared(String group, String topic, BitSet partitions) {
+        for (IncrementalChecker.TransitionListener listener : listeners) {
+            listener.onCleared(group, topic, partitions);
+        }
+    }
+
+    @Override
+    public void onScanCompleted() {
+        for (IncrementalChecker.TransitionListener listener : listeners) {
+            listener.onScanCompleted();
+        }
+    }
+}
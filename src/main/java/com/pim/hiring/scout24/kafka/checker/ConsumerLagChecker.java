@@ -0,0 +1,160 @@
+package com.pim.hiring.scout24.kafka.checker;
+
+import com.pim.hiring.scout24.kafka.index.PartitionAssignment;
+import com.pim.hiring.scout24.kafka.index.PartitionAssignmentIndex;
+import org.apache.kafka.common.TopicPartition;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+
+/**
+ * Computes the lag of every (consumer group, partition) pair of a scan against the log end offsets.
+ * The end offsets are fetched once per partition and shared by all the groups that read it. A partition is stalled
+ * when it has lag and its committed offset didn't move since the previous scan; only the partitions that become
+ * stalled are reported.
+ */
+public class ConsumerLagChecker {
+
+    /**
+     * Receives the partitions that became stalled
+     */
+    public interface StallListener {
+        void onStalled(String group, String topic, BitSet partitions);
+    }
+
+    /**
+     * Lag of a scan
+     */
+    public static class LagSummary {
+        // topic#group -> lag of all the partitions of the pair
+        private final Map<String, Long> lagByPair = new HashMap<>();
+        // topic#group -> lag of the most lagging partition of the pair
+        private final Map<String, Long> maxLagByPair = new HashMap<>();
+        private long totalLag;
+        private long maxLag;
+        private int stalledPartitions;
+
+        public Map<String, Long> getLagByPair() {
+            return lagByPair;
+        }
+
+        /**
+         * @return The lag of the most lagging partition of every topic#group pair, a single stuck partition is hidden
+         * by the sum when the other partitions have some lag
+         */
+        public Map<String, Long> getMaxLagByPair() {
+            return maxLagByPair;
+        }
+
+        public long getTotalLag() {
+            return totalLag;
+        }
+
+        public long getMaxLag() {
+            return maxLag;
+        }
+
+        public int getStalledPartitions() {
+            return stalledPartitions;
+        }
+
+        @Override
+        public String toString() {
+            return "LagSummary{pairs=" + lagByPair.size() + ", totalLag=" + totalLag + ", maxLag=" + maxLag +
+                    ", stalledPartitions=" + stalledPartitions + "}";
+        }
+    }
+
+    private PartitionAssignmentIndex previousIndex;
+    // (group id, topic id) -> stalled partitions in the previous scan
+    private Map<Long, BitSet> previousStalled = new HashMap<>();
+
+
+    /**
+     * @param index The index of the scan, sharing its dictionaries with the previous scans
+     * @param checkedTopics The identifiers of the monitored topics
+     * @param endOffsets The log end offset of the partitions of the monitored topics
+     * @param listener Receives the partitions that became stalled
+     * @return {@link LagSummary}
+     */
+    public synchronized LagSummary check(PartitionAssignmentIndex index, BitSet checkedTopics,
+                                         Map<TopicPartition, Long> endOffsets, StallListener listener) {
+        // topic id -> end offset per partition, so every group reads the same array
+        Map<Integer, long[]> topicEndOffsets = new HashMap<>();
+        for (Map.Entry<TopicPartition, Long> endOffset : endOffsets.entrySet()) {
+            TopicPartition tp = endOffset.getKey();
+            int topicId = index.getTopics().id(tp.topic());
+            if (topicId < 0 || endOffset.getValue() == null) {
+                continue;
+            }
+            long[] ends = topicEndOffsets.get(topicId);
+            if (ends == null || tp.partition() >= ends.length) {
+                long[] grown = new long[Math.max(tp.partition() + 1, ends == null ? 0 : ends.length)];
+                Arrays.fill(grown, -1L);
+                if (ends != null) {
+                    System.arraycopy(ends, 0, grown, 0, ends.length);
+                }
+                ends = grown;
+                topicEndOffsets.put(topicId, ends);
+            }
+            ends[tp.partition()] = endOffset.getValue();
+        }
+
+        LagSummary summary = new LagSummary();
+        Map<Long, BitSet> currentStalled = new HashMap<>();
+
+        index.forEach((groupId, topicId, assignment) -> {
+            long[] ends = topicEndOffsets.get(topicId);
+            if (!checkedTopics.get(topicId) || ends == null) {
+                return;
+            }
+            PartitionAssignment previous = previousIndex == null ? null : previousIndex.getAssignment(groupId, topicId);
+            long pairLag = 0;
+            long pairMaxLag = 0;
+            BitSet stalled = new BitSet();
+
+            BitSet partitions = assignment.getPartitions();
+            for (int partition = partitions.nextSetBit(0); partition >= 0;
+                 partition = partitions.nextSetBit(partition + 1)) {
+                long committed = assignment.getOffset(partition);
+                if (committed == PartitionAssignment.UNKNOWN_OFFSET || partition >= ends.length
+                        || ends[partition] < 0) {
+                    continue;
+                }
+                long lag = Math.max(0, ends[partition] - committed);
+                pairLag += lag;
+                pairMaxLag = Math.max(pairMaxLag, lag);
+                if (lag > 0 && previous != null && previous.getOffset(partition) == committed) {
+                    stalled.set(partition);
+                }
+            }
+            summary.totalLag += pairLag;
+            summary.maxLag = Math.max(summary.maxLag, pairMaxLag);
+            String pair = index.topicName(topicId) + "#" + index.groupName(groupId);
+            summary.lagByPair.put(pair, pairLag);
+            summary.maxLagByPair.put(pair, pairMaxLag);
+
+            if (!stalled.isEmpty()) {
+                long pairKey = PartitionAssignmentIndex.pairKey(groupId, topicId);
+                currentStalled.put(pairKey, stalled);
+                summary.stalledPartitions += stalled.cardinality();
+
+                BitSet newlyStalled = (BitSet) stalled.clone();
+                BitSet previousPairStalled = previousStalled.get(pairKey);
+                if (previousPairStalled != null) {
+                    newlyStalled.andNot(previousPairStalled);
+                }
+                if (!newlyStalled.isEmpty()) {
+                    listener.onStalled(index.groupName(groupId), index.topicName(topicId), newlyStalled);
+                }
+            }
+        });
+
+        previousIndex = index;
+        previousStalled = currentStalled;
+        return summary;
+    }
+}
@@ -0,0 +1,41 @@
+package com.pim.hiring.scout24.kafka.checker;
+
+
+/**
+ * Decides which consumer groups are checked by this instance
+ */
+public interface GroupFilter {
+
+    /**
+     * Checks every consumer group
+     */
+    GroupFilter ALL = groupId -> true;
+
+    /**
+     * @param groupId The consumer group
+     * @return <tt>true</tt> if the group has to be checked
+     */
+    boolean accept(String groupId);
+
+    /**
+     * @return <tt>false</tt> while the accepted groups are not known, e.g. before the first assignment or during a
+     * rebalance, when a scan would take every group as removed
+     */
+    default boolean isReady() {
+        return true;
+    }
+
+    /**
+     * @return A number that changes every time the accepted groups change
+     */
+    default long getGeneration() {
+        return 0;
+    }
+
+    /**
+     * @return The filter of the groups accepted now, it doesn't change when the accepted groups change later
+     */
+    default GroupFilter snapshot() {
+        return this;
+    }
+}
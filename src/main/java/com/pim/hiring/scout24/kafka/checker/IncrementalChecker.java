@@ -0,0 +1,455 @@
+package com.pim.hiring.scout24.kafka.checker;
+
+import com.pim.hiring.scout24.kafka.index.IdDictionary;
+import com.pim.hiring.scout24.kafka.index.PartitionAssignment;
+import com.pim.hiring.scout24.kafka.index.PartitionAssignmentIndex;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+
+/**
+ * Compares every scan with the previous one and only evaluates again the (consumer group, topic) pairs whose
+ * committed offsets or topic partition count changed.
+ * Instead of reporting the same missing partitions on every scan, it reports when partitions become unassigned and
+ * when they recover.
+ */
+public class IncrementalChecker {
+
+    // shared by all the scans, so the identifiers of consecutive indexes can be compared
+    private final IdDictionary groups = new IdDictionary();
+    private final IdDictionary topics = new IdDictionary();
+
+    private PartitionAssignmentIndex previousIndex;
+    // topic id -> partition count in the previous scan
+    private Map<Integer, Integer> previousPartitionCounts = new HashMap<>();
+    // (group id, topic id) -> missing partitions in the previous scan
+    private Map<Long, BitSet> previousMissing = new HashMap<>();
+
+
+    /**
+     * Receives the changes found by a scan
+     */
+    public interface TransitionListener {
+
+        /**
+         * Some partitions of the topic lost their committed offsets, or the topic has new partitions without them
+         */
+        void onUnassigned(String group, String topic, BitSet partitions);
+
+        /**
+         * Some partitions that were missing have committed offsets now
+         */
+        void onRecovered(String group, String topic, BitSet partitions);
+
+        /**
+         * The topic is not checked any more, because it left the monitored topics or doesn't exist, so the partitions
+         * that were missing are forgotten without being recovered
+         */
+        default void onCleared(String group, String topic, BitSet partitions) {
+        }
+
+        /**
+         * A full scan has been evaluated, after all its transitions
+         */
+        default void onScanCompleted() {
+        }
+    }
+
+    /**
+     * Gives the partition count of the topics in the current scan
+     */
+    public interface PartitionCounts {
+
+        /**
+         * @param topicId The topic identifier
+         * @return The number of partitions or -1 if the topic must not be checked
+         */
+        int partitionCount(int topicId);
+    }
+
+    /**
+     * Summary of the differences between two scans
+     */
+    public static class ScanDelta {
+        private int newGroups;
+        private int removedGroups;
+        private int changedPairs;
+        private int unchangedPairs;
+        private int unassignedPairs;
+
+        public int getNewGroups() {
+            return newGroups;
+        }
+
+        public int getRemovedGroups() {
+            return removedGroups;
+        }
+
+        public int getChangedPairs() {
+            return changedPairs;
+        }
+
+        public int getUnchangedPairs() {
+            return unchangedPairs;
+        }
+
+        public int getUnassignedPairs() {
+            return unassignedPairs;
+        }
+
+        @Override
+        public String toString() {
+            return "ScanDelta{newGroups=" + newGroups + ", removedGroups=" + removedGroups +
+                    ", changedPairs=" + changedPairs + ", unchangedPairs=" + unchangedPairs +
+                    ", unassignedPairs=" + unassignedPairs + "}";
+        }
+    }
+
+
+    /**
+     * @return A new empty index that shares the dictionaries of the previous scans
+     */
+    public PartitionAssignmentIndex newIndex() {
+        return new PartitionAssignmentIndex(groups, topics);
+    }
+
+    /**
+     * Compare a new scan with the previous one and keep it as the previous scan for the next call
+     * @param index The index of the new scan, created with {@link #newIndex()}
+     * @param partitionCounts The partition count of every topic
+     * @param listener Receives the partitions that became unassigned or recovered
+     * @return {@link ScanDelta}
+     */
+    public ScanDelta check(PartitionAssignmentIndex index, PartitionCounts partitionCounts,
+                           TransitionListener listener) {
+        return check(index, partitionCounts, Collections.emptySet(), listener);
+    }
+
+    /**
+     * Compare a new scan with the previous one and keep it as the previous scan for the next call.
+     * The groups whose offsets couldn't be fetched keep the assignments and missing partitions of the previous scan,
+     * without any transition, so a failed request is never taken as a recovery
+     * @param index The index of the new scan, created with {@link #newIndex()}
+     * @param partitionCounts The partition count of every topic
+     * @param failedGroups The consumer groups whose offsets couldn't be fetched
+     * @param listener Receives the partitions that became unassigned or recovered
+     * @return {@link ScanDelta}
+     */
+    public synchronized ScanDelta check(PartitionAssignmentIndex index, PartitionCounts partitionCounts,
+                                        Set<String> failedGroups, TransitionListener listener) {
+        ScanDelta delta = new ScanDelta();
+        Map<Integer, Integer> currentPartitionCounts = new HashMap<>();
+        Map<Long, BitSet> currentMissing = new HashMap<>();
+        BitSet currentGroups = new BitSet();
+        BitSet failedGroupIds = new BitSet();
+        for (String group : failedGroups) {
+            int groupId = groups.id(group);
+            if (groupId >= 0) {
+                failedGroupIds.set(groupId);
+            }
+        }
+
+        index.forEach((groupId, topicId, assignment) -> {
+            currentGroups.set(groupId);
+
+            Integer partitionCount = currentPartitionCounts.get(topicId);
+            if (partitionCount == null) {
+                partitionCount = partitionCounts.partitionCount(topicId);
+                currentPartitionCounts.put(topicId, partitionCount);
+            }
+            long pairKey = PartitionAssignmentIndex.pairKey(groupId, topicId);
+            BitSet previous = previousMissing.get(pairKey);
+            if (partitionCount < 0) {
+                if (previous != null) {
+                    listener.onCleared(groups.name(groupId), topics.name(topicId), previous);
+                }
+                return;
+            }
+
+            PartitionAssignment previousAssignment =
+                    previousIndex == null ? null : previousIndex.getAssignment(groupId, topicId);
+
+            BitSet missing;
+            if (assignment.sameOffsets(previousAssignment)
+                    && partitionCount.equals(previousPartitionCounts.get(topicId))) {
+                // steady state, nothing to evaluate or report
+                missing = previous;
+                delta.unchangedPairs++;
+            } else {
+                missing = index.getMissingPartitions(groupId, topicId, partitionCount);
+                delta.changedPairs++;
+                report(groupId, topicId, previous, missing, listener);
+            }
+            if (missing != null && !missing.isEmpty()) {
+                currentMissing.put(pairKey, missing);
+                delta.unassignedPairs++;
+            }
+        });
+
+        // pairs that disappeared because the group was removed or stopped committing the topic, the failed groups
+        // keep their missing partitions
+        for (Map.Entry<Long, BitSet> missing : previousMissing.entrySet()) {
+            int groupId = PartitionAssignmentIndex.groupId(missing.getKey());
+            int topicId = PartitionAssignmentIndex.topicId(missing.getKey());
+            if (failedGroupIds.get(groupId)) {
+                currentMissing.put(missing.getKey(), missing.getValue());
+                delta.unassignedPairs++;
+            } else if (index.getAssignment(groupId, topicId) == null) {
+                listener.onRecovered(groups.name(groupId), topics.name(topicId), missing.getValue());
+            }
+        }
+
+        if (previousIndex != null) {
+            BitSet previousGroups = new BitSet();
+            previousIndex.forEach((groupId, topicId, assignment) -> previousGroups.set(groupId));
+
+            BitSet newGroups = (BitSet) currentGroups.clone();
+            newGroups.andNot(previousGroups);
+            previousGroups.andNot(currentGroups);
+            previousGroups.andNot(failedGroupIds);
+            delta.newGroups = newGroups.cardinality();
+            delta.removedGroups = previousGroups.cardinality();
+        } else {
+            delta.newGroups = currentGroups.cardinality();
+        }
+
+        // the next scan compares the failed groups with their last fetched offsets, the given index is not changed
+        if (!failedGroupIds.isEmpty() && previousIndex != null) {
+            previousIndex = index.withGroupsOf(previousIndex, failedGroupIds);
+            previousPartitionCounts.forEach(currentPartitionCounts::putIfAbsent);
+        } else {
+            previousIndex = index;
+        }
+        previousPartitionCounts = currentPartitionCounts;
+        previousMissing = currentMissing;
+
+        listener.onScanCompleted();
+        return delta;
+    }
+
+    /**
+     * Restore the previous scan, so the next check only evaluates and reports the pairs that changed since it
+     * @param index The index of the previous scan, created with {@link #newIndex()}
+     * @param partitionCounts The partition count of the topics checked in the previous scan
+     * @param listener Receives the partitions that were unassigned in the previous scan
+     */
+    public synchronized void restore(PartitionAssignmentIndex index, Map<String, Integer> partitionCounts,
+                                     TransitionListener listener) {
+        Map<Integer, Integer> restoredPartitionCounts = new HashMap<>();
+        for (Map.Entry<String, Integer> partitionCount : partitionCounts.entrySet()) {
+            restoredPartitionCounts.put(topics.intern(partitionCount.getKey()), partitionCount.getValue());
+        }
+        Map<Long, BitSet> restoredMissing = new HashMap<>();
+        index.forEach((groupId, topicId, assignment) -> {
+            Integer partitionCount = restoredPartitionCounts.get(topicId);
+            if (partitionCount == null) {
+                return;
+            }
+            BitSet missing = index.getMissingPartitions(groupId, topicId, partitionCount);
+            if (!missing.isEmpty()) {
+                restoredMissing.put(PartitionAssignmentIndex.pairKey(groupId, topicId), missing);
+                listener.onUnassigned(groups.name(groupId), topics.name(topicId), missing);
+            }
+        });
+
+        previousIndex = index;
+        previousPartitionCounts = restoredPartitionCounts;
+        previousMissing = restoredMissing;
+    }
+
+    /**
+     * Evaluate again only some consumer groups, keeping the rest of the previous scan.
+     * It must be called after a full {@link #check(PartitionAssignmentIndex, PartitionCounts, TransitionListener)}
+     * @param index The index with only the groups to evaluate, created with {@link #newIndex()}
+     * @param groupNames The evaluated groups, the ones missing in the index have no committed offsets any more
+     * @param partitionCounts The partition count of every topic
+     * @param listener Receives the partitions that became unassigned or recovered
+     * @return {@link ScanDelta} of the evaluated groups
+     */
+    public synchronized ScanDelta recheck(PartitionAssignmentIndex index, Set<String> groupNames,
+                                          PartitionCounts partitionCounts, TransitionListener listener) {
+        ScanDelta delta = new ScanDelta();
+        if (previousIndex == null) {
+            return delta;
+        }
+        BitSet groupIds = new BitSet();
+        for (String group : groupNames) {
+            int groupId = groups.id(group);
+            if (groupId >= 0) {
+                groupIds.set(groupId);
+            }
+        }
+
+        // topic id -> partition count of the evaluated pairs
+        Map<Integer, Integer> evaluatedCounts = new HashMap<>();
+        index.forEach((groupId, topicId, assignment) -> {
+            int partitionCount = partitionCounts.partitionCount(topicId);
+            long pairKey = PartitionAssignmentIndex.pairKey(groupId, topicId);
+            BitSet previous = previousMissing.get(pairKey);
+            if (partitionCount < 0) {
+                if (previous != null) {
+                    listener.onCleared(groups.name(groupId), topics.name(topicId), previous);
+                    previousMissing.remove(pairKey);
+                }
+                return;
+            }
+
+            BitSet missing = index.getMissingPartitions(groupId, topicId, partitionCount);
+            delta.changedPairs++;
+            report(groupId, topicId, previous, missing, listener);
+            if (missing.isEmpty()) {
+                previousMissing.remove(pairKey);
+            } else {
+                previousMissing.put(pairKey, missing);
+                delta.unassignedPairs++;
+            }
+            evaluatedCounts.put(topicId, partitionCount);
+        });
+
+        // pairs of the evaluated groups that disappeared
+        Iterator<Map.Entry<Long, BitSet>> missing = previousMissing.entrySet().iterator();
+        while (missing.hasNext()) {
+            Map.Entry<Long, BitSet> pair = missing.next();
+            int groupId = PartitionAssignmentIndex.groupId(pair.getKey());
+            int topicId = PartitionAssignmentIndex.topicId(pair.getKey());
+            if (groupIds.get(groupId) && index.getAssignment(groupId, topicId) == null) {
+                listener.onRecovered(groups.name(groupId), topics.name(topicId), pair.getValue());
+                missing.remove();
+            }
+        }
+
+        // the next full scan compares against the evaluated offsets
+        previousIndex.replaceGroups(index, groupIds);
+
+        // a new partition count is only taken as evaluated once every group of the topic has been evaluated with it,
+        // otherwise the next full scan would take the other groups as unchanged and never report their new partitions
+        evaluatedCounts.entrySet().removeIf(
+                count -> count.getValue().equals(previousPartitionCounts.get(count.getKey())));
+        if (!evaluatedCounts.isEmpty()) {
+            previousIndex.forEach((groupId, topicId, assignment) -> {
+                if (!groupIds.get(groupId)) {
+                    evaluatedCounts.remove(topicId);
+                }
+            });
+            previousPartitionCounts.putAll(evaluatedCounts);
+        }
+        return delta;
+    }
+
+    /**
+     * Forget the consumer groups that are not checked by this instance any more, e.g. because their shard moved to
+     * another instance. Their missing partitions are cleared, not recovered
+     * @param groupFilter Accepts the groups to keep
+     * @param listener Receives the cleared partitions
+     */
+    public synchronized void retainGroups(GroupFilter groupFilter, TransitionListener listener) {
+        BitSet droppedGroups = new BitSet();
+        for (int groupId = 0; groupId < groups.size(); groupId++) {
+            if (!groupFilter.accept(groups.name(groupId))) {
+                droppedGroups.set(groupId);
+            }
+        }
+        Iterator<Map.Entry<Long, BitSet>> missing = previousMissing.entrySet().iterator();
+        while (missing.hasNext()) {
+            Map.Entry<Long, BitSet> pair = missing.next();
+            int groupId = PartitionAssignmentIndex.groupId(pair.getKey());
+            if (droppedGroups.get(groupId)) {
+                listener.onCleared(groups.name(groupId), topics.name(PartitionAssignmentIndex.topicId(pair.getKey())),
+                        pair.getValue());
+                missing.remove();
+            }
+        }
+        if (previousIndex != null) {
+            previousIndex.replaceGroups(newIndex(), droppedGroups);
+        }
+    }
+
+    /**
+     * @return The consumer groups with unassigned partitions in the last evaluation
+     */
+    public synchronized Set<String> getFlaggedGroups() {
+        Set<String> flagged = new HashSet<>();
+        for (Long pairKey : previousMissing.keySet()) {
+            flagged.add(groups.name(PartitionAssignmentIndex.groupId(pairKey)));
+        }
+        return flagged;
+    }
+
+
+    /**
+     * @return The topics with committed offsets of every consumer group in the last evaluation
+     */
+    public synchronized Map<String, Set<String>> getTopicsByGroup() {
+        Map<String, Set<String>> topicsByGroup = new HashMap<>();
+        if (previousIndex != null) {
+            previousIndex.forEach((groupId, topicId, assignment) ->
+                    topicsByGroup.computeIfAbsent(groups.name(groupId), group -> new HashSet<>())
+                            .add(topics.name(topicId)));
+        }
+        return topicsByGroup;
+    }
+
+    /**
+     * @param partitionCounts The current partition count of the monitored topics
+     * @return The topics with more partitions than when they were last evaluated
+     */
+    public synchronized Set<String> getExpandedTopics(Map<String, Integer> partitionCounts) {
+        Set<String> expanded = new HashSet<>();
+        for (Map.Entry<String, Integer> partitionCount : partitionCounts.entrySet()) {
+            int topicId = topics.id(partitionCount.getKey());
+            Integer previous = topicId < 0 ? null : previousPartitionCounts.get(topicId);
+            if (previous != null && previous >= 0 && partitionCount.getValue() > previous) {
+                expanded.add(partitionCount.getKey());
+            }
+        }
+        return expanded;
+    }
+
+    /**
+     * @param topicNames Some topics
+     * @return The consumer groups with committed offsets of any of the topics in the last evaluation
+     */
+    public synchronized Set<String> getGroupsConsuming(Set<String> topicNames) {
+        Set<String> consuming = new HashSet<>();
+        if (previousIndex == null) {
+            return consuming;
+        }
+        BitSet topicIds = new BitSet();
+        for (String topic : topicNames) {
+            int topicId = topics.id(topic);
+            if (topicId >= 0) {
+                topicIds.set(topicId);
+            }
+        }
+        previousIndex.forEach((groupId, topicId, assignment) -> {
+            if (topicIds.get(topicId)) {
+                consuming.add(groups.name(groupId));
+            }
+        });
+        return consuming;
+    }
+
+    private void report(int groupId, int topicId, BitSet previous, BitSet missing, TransitionListener listener) {
+        BitSet unassigned = (BitSet) missing.clone();
+        if (previous != null) {
+            unassigned.andNot(previous);
+        }
+        if (!unassigned.isEmpty()) {
+            listener.onUnassigned(groups.name(groupId), topics.name(topicId), unassigned);
+        }
+
+        if (previous != null) {
+            BitSet recovered = (BitSet) previous.clone();
+            recovered.andNot(missing);
+            if (!recovered.isEmpty()) {
+                listener.onRecovered(groups.name(groupId), topics.name(topicId), recovered);
+            }
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.pim.hiring.scout24.kafka.checker;
+
+import com.pim.hiring.scout24.kafka.index.PartitionAssignmentIndex;
+import org.apache.kafka.common.TopicPartition;
+
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.ToIntFunction;
+
+
+/**
+ * Cross-checks the committed offsets of the consumer groups with the partitions assigned to their live members.
+ * The committed offsets stay long after the consumer that owned a partition died, so a partition with an offset but
+ * without a member is flagged, as well as the partitions assigned to a member that never committed them and the
+ * partitions with neither of them. Like the {@link IncrementalChecker}, only the partitions that enter a status are
+ * reported, not the ones that were already flagged in the previous check. The groups that are not described, e.g.
+ * because they are rebalancing, keep the flags of their last check while they still have committed offsets.
+ */
+public class LiveAssignmentCheck {
+
+    public enum Status {
+        // the partition has a committed offset but no member consumes it
+        COMMITTED_NOT_ASSIGNED,
+        // a member consumes the partition but has never committed it
+        ASSIGNED_NOT_COMMITTED,
+        // the partition has neither a committed offset nor a member
+        MISSING
+    }
+
+    /**
+     * Receives the partitions that entered a status
+     */
+    public interface FlagListener {
+        void onFlagged(Status status, String group, String topic, BitSet partitions);
+    }
+
+    // topic#group -> flagged partitions of every status in the previous check
+    private Map<String, Map<Status, BitSet>> previousFlags = new HashMap<>();
+
+
+    /**
+     * @param index The committed offsets of the scan
+     * @param assignments The partitions assigned to the live members of the described groups
+     * @param partitionCounts Gives the partition count of a topic, or -1 if it must not be checked
+     * @param listener Receives the partitions that entered a status
+     * @return The number of flagged partitions of every status in the described groups
+     */
+    public synchronized Map<Status, Integer> check(PartitionAssignmentIndex index,
+                                                   Map<String, Set<TopicPartition>> assignments,
+                                                   ToIntFunction<String> partitionCounts, FlagListener listener) {
+        // topic#group -> committed and assigned partitions, only for the described groups
+        Map<String, BitSet> committed = new HashMap<>();
+        Map<String, BitSet> assigned = new HashMap<>();
+        Set<String> indexedGroups = new HashSet<>();
+
+        index.forEach((groupId, topicId, assignment) -> {
+            String group = index.groupName(groupId);
+            indexedGroups.add(group);
+            if (assignments.containsKey(group)) {
+                committed.put(key(index.topicName(topicId), group), assignment.getPartitions());
+            }
+        });
+        for (Map.Entry<String, Set<TopicPartition>> groupAssignment : assignments.entrySet()) {
+            for (TopicPartition tp : groupAssignment.getValue()) {
+                assigned.computeIfAbsent(key(tp.topic(), groupAssignment.getKey()), key -> new BitSet())
+                        .set(tp.partition());
+            }
+        }
+
+        Map<Status, Integer> counts = new EnumMap<>(Status.class);
+        for (Status status : Status.values()) {
+            counts.put(status, 0);
+        }
+        Map<String, Map<Status, BitSet>> currentFlags = new HashMap<>();
+        Map<String, Integer> topicPartitionCounts = new HashMap<>();
+
+        for (String key : union(committed, assigned)) {
+            // '#' is not valid in topic names, the group follows the first one
+            String topic = key.substring(0, key.indexOf('#'));
+            int partitionCount = topicPartitionCounts.computeIfAbsent(topic, partitionCounts::applyAsInt);
+            if (partitionCount < 0) {
+                continue;
+            }
+            BitSet committedPartitions = committed.getOrDefault(key, new BitSet());
+            BitSet assignedPartitions = assigned.getOrDefault(key, new BitSet());
+
+            Map<Status, BitSet> flags = new EnumMap<>(Status.class);
+            BitSet committedNotAssigned = (BitSet) committedPartitions.clone();
+            committedNotAssigned.andNot(assignedPartitions);
+            flags.put(Status.COMMITTED_NOT_ASSIGNED, committedNotAssigned);
+
+            BitSet assignedNotCommitted = (BitSet) assignedPartitions.clone();
+            assignedNotCommitted.andNot(committedPartitions);
+            flags.put(Status.ASSIGNED_NOT_COMMITTED, assignedNotCommitted);
+
+            BitSet missing = new BitSet(partitionCount);
+            missing.set(0, partitionCount);
+            missing.andNot(committedPartitions);
+            missing.andNot(assignedPartitions);
+            flags.put(Status.MISSING, missing);
+
+            String group = key.substring(key.indexOf('#') + 1);
+            Map<Status, BitSet> previous = previousFlags.get(key);
+            for (Map.Entry<Status, BitSet> flag : flags.entrySet()) {
+                // partitions beyond the partition count belong to a deleted or shrunk topic
+                BitSet partitions = flag.getValue().get(0, partitionCount);
+                flag.setValue(partitions);
+                counts.put(flag.getKey(), counts.get(flag.getKey()) + partitions.cardinality());
+
+                BitSet flagged = (BitSet) partitions.clone();
+                if (previous != null) {
+                    flagged.andNot(previous.get(flag.getKey()));
+                }
+                if (!flagged.isEmpty()) {
+                    listener.onFlagged(flag.getKey(), group, topic, flagged);
+                }
+            }
+            currentFlags.put(key, flags);
+        }
+
+        // the groups that weren't described would flag their partitions again once they are
+        for (Map.Entry<String, Map<Status, BitSet>> previous : previousFlags.entrySet()) {
+            String group = previous.getKey().substring(previous.getKey().indexOf('#') + 1);
+            if (!assignments.containsKey(group) && indexedGroups.contains(group)) {
+                currentFlags.put(previous.getKey(), previous.getValue());
+            }
+        }
+        previousFlags = currentFlags;
+        return counts;
+    }
+
+
+    private static Set<String> union(Map<String, BitSet> committed, Map<String, BitSet> assigned) {
+        Set<String> keys = new HashSet<>(committed.keySet());
+        keys.addAll(assigned.keySet());
+        return keys;
+    }
+
+    private static String key(String topic, String group) {
+        return topic + "#" + group;
+    }
+}
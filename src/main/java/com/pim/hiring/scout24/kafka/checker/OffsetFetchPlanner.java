@@ -0,0 +1,176 @@
+package com.pim.hiring.scout24.kafka.checker;
+
+import kafka.coordinator.GroupOverview;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.TopicPartition;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+
+/**
+ * Decides which consumer groups of a scan are asked for their offsets, and for which partitions.
+ * A full sweep asks every group for all the monitored partitions. Between the sweeps a group is only asked for the
+ * monitored partitions of the topics it had offsets of in the last scan, and the groups that had none of them are not
+ * asked at all. The new groups are asked for all the monitored partitions, and a new monitored topic starts a sweep.
+ * A group that starts consuming another monitored topic is found by the next sweep.
+ */
+public class OffsetFetchPlanner {
+
+    private final int sweepEvery;
+
+    private int scansSinceSweep;
+    // the groups asked for all the monitored partitions since the last sweep and the topics of that sweep, null
+    // before the first one
+    private Set<String> sweptGroups;
+    private Set<String> sweptTopics;
+
+
+    /**
+     * The consumer groups and partitions of a scan
+     */
+    public static class Plan {
+        private final boolean sweep;
+        private final Map<Node, List<GroupOverview>> groupsByCoordinator;
+        private final List<TopicPartition> monitoredPartitions;
+        // only the groups asked for some of the monitored partitions
+        private final Map<String, List<TopicPartition>> partitionsByGroup;
+        private final Set<String> sweptGroups;
+        private final int skippedGroups;
+
+        private Plan(boolean sweep, Map<Node, List<GroupOverview>> groupsByCoordinator,
+                     List<TopicPartition> monitoredPartitions, Map<String, List<TopicPartition>> partitionsByGroup,
+                     Set<String> sweptGroups, int skippedGroups) {
+            this.sweep = sweep;
+            this.groupsByCoordinator = groupsByCoordinator;
+            this.monitoredPartitions = monitoredPartitions;
+            this.partitionsByGroup = partitionsByGroup;
+            this.sweptGroups = sweptGroups;
+            this.skippedGroups = skippedGroups;
+        }
+
+        /**
+         * @return <tt>true</tt> if every group is asked for all the monitored partitions
+         */
+        public boolean isSweep() {
+            return sweep;
+        }
+
+        /**
+         * @return The consumer groups to fetch
+         */
+        public Map<Node, List<GroupOverview>> getGroupsByCoordinator() {
+            return groupsByCoordinator;
+        }
+
+        /**
+         * @param groupId A consumer group of the plan
+         * @return The partitions to fetch of the group, {@code null} to fetch all of them
+         */
+        public List<TopicPartition> partitionsOf(String groupId) {
+            return partitionsByGroup.getOrDefault(groupId, monitoredPartitions);
+        }
+
+        public int getSkippedGroups() {
+            return skippedGroups;
+        }
+
+        @Override
+        public String toString() {
+            return "OffsetFetchPlan{sweep=" + sweep + ", sweptGroups=" + sweptGroups.size() + ", narrowedGroups=" +
+                    partitionsByGroup.size() + ", skippedGroups=" + skippedGroups + "}";
+        }
+    }
+
+
+    /**
+     * @param sweepEvery A full sweep every this number of scans, every scan is a sweep if it's 1 or less
+     */
+    public OffsetFetchPlanner(int sweepEvery) {
+        this.sweepEvery = sweepEvery;
+    }
+
+
+    /**
+     * @param groupsByCoordinator The consumer groups of the cluster
+     * @param monitoredPartitions The monitored partitions or {@code null} if all of them are fetched
+     * @param topicsByGroup The topics with offsets of every consumer group in the last scan
+     * @return The groups and partitions to fetch
+     */
+    public synchronized Plan plan(Map<Node, List<GroupOverview>> groupsByCoordinator,
+                                  List<TopicPartition> monitoredPartitions, Map<String, Set<String>> topicsByGroup) {
+        Map<String, List<TopicPartition>> partitionsByTopic = new HashMap<>();
+        if (monitoredPartitions != null) {
+            for (TopicPartition partition : monitoredPartitions) {
+                partitionsByTopic.computeIfAbsent(partition.topic(), topic -> new ArrayList<>()).add(partition);
+            }
+        }
+
+        scansSinceSweep++;
+        boolean sweep = monitoredPartitions == null || sweptGroups == null || scansSinceSweep >= sweepEvery ||
+                !sweptTopics.containsAll(partitionsByTopic.keySet());
+        if (sweep) {
+            Set<String> swept = new HashSet<>();
+            for (List<GroupOverview> groups : groupsByCoordinator.values()) {
+                for (GroupOverview group : groups) {
+                    swept.add(group.groupId());
+                }
+            }
+            return new Plan(true, groupsByCoordinator, monitoredPartitions, new HashMap<>(), swept, 0);
+        }
+
+        Map<Node, List<GroupOverview>> fetchedGroups = new LinkedHashMap<>();
+        Map<String, List<TopicPartition>> partitionsByGroup = new HashMap<>();
+        Set<String> swept = new HashSet<>();
+        int skipped = 0;
+        for (Map.Entry<Node, List<GroupOverview>> coordinatorGroups : groupsByCoordinator.entrySet()) {
+            List<GroupOverview> fetched = new ArrayList<>();
+            for (GroupOverview group : coordinatorGroups.getValue()) {
+                List<TopicPartition> partitions = new ArrayList<>();
+                for (String topic : topicsByGroup.getOrDefault(group.groupId(), Collections.emptySet())) {
+                    partitions.addAll(partitionsByTopic.getOrDefault(topic, Collections.emptyList()));
+                }
+                if (!partitions.isEmpty()) {
+                    partitionsByGroup.put(group.groupId(), partitions);
+                } else if (sweptGroups.contains(group.groupId()) && !topicsByGroup.containsKey(group.groupId())) {
+                    // it had no offsets of the monitored topics in the last sweep
+                    skipped++;
+                    continue;
+                } else {
+                    // new, or its topics are not monitored any more, so it would be taken as removed
+                    swept.add(group.groupId());
+                }
+                fetched.add(group);
+            }
+            fetchedGroups.put(coordinatorGroups.getKey(), fetched);
+        }
+        return new Plan(false, fetchedGroups, monitoredPartitions, partitionsByGroup, swept, skipped);
+    }
+
+    /**
+     * Record the fetched groups of a plan
+     * @param plan The plan of the scan
+     * @param failedGroups The consumer groups whose offsets couldn't be fetched, asked again in the next scan
+     */
+    public synchronized void completed(Plan plan, Set<String> failedGroups) {
+        if (plan.sweep) {
+            sweptGroups = new HashSet<>(plan.sweptGroups);
+            sweptTopics = new HashSet<>();
+            if (plan.monitoredPartitions != null) {
+                for (TopicPartition partition : plan.monitoredPartitions) {
+                    sweptTopics.add(partition.topic());
+                }
+            }
+            scansSinceSweep = 0;
+        } else {
+            sweptGroups.addAll(plan.sweptGroups);
+        }
+        sweptGroups.removeAll(failedGroups);
+    }
+}
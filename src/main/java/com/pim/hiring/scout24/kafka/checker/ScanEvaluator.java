@@ -0,0 +1,289 @@
+package com.pim.hiring.scout24.kafka.checker;
+
+import com.pim.hiring.scout24.kafka.index.IdDictionary;
+import com.pim.hiring.scout24.kafka.index.PartitionAssignmentIndex;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+
+/**
+ * Compares the partitions of a scan index with the topic partitions of the monitored topics.
+ * The topics to check are decided once per topic, their metadata is fetched with a single request and only the
+ * pairs that changed since the previous scan of the same {@link IncrementalChecker} are evaluated.
+ */
+public class ScanEvaluator {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScanEvaluator.class);
+
+    private final TopicMetadataCache topicMetadataCache;
+    private final TopicMatcher topicMatcher;
+    private final IncrementalChecker.TransitionListener listener;
+
+
+    /**
+     * @param topicMetadataCache The topic partitions cache
+     * @param topicsToCheck The monitored topic names or regular expressions, all of them if it's empty
+     * @param listener Receives the partitions that became unassigned or recovered
+     */
+    public ScanEvaluator(TopicMetadataCache topicMetadataCache, String[] topicsToCheck,
+                         IncrementalChecker.TransitionListener listener) {
+        this.topicMetadataCache = topicMetadataCache;
+        this.topicMatcher = new TopicMatcher(topicsToCheck);
+        this.listener = listener;
+    }
+
+
+    /**
+     * Resolve the monitored topics against the cluster, so the offsets of the other topics are never requested
+     * @return The partitions of the monitored topics or {@code null} if every topic is monitored
+     */
+    public List<TopicPartition> resolveMonitoredPartitions() {
+        if (topicMatcher.isMatchAll()) {
+            return null;
+        }
+        List<TopicPartition> monitoredPartitions = new ArrayList<>();
+        for (Map.Entry<String, List<Integer>> topic : topicMetadataCache.refreshMatching(topicMatcher).entrySet()) {
+            for (Integer partition : topic.getValue()) {
+                monitoredPartitions.add(new TopicPartition(topic.getKey(), partition));
+            }
+        }
+        return monitoredPartitions;
+    }
+
+    /**
+     * Fetch with one metadata request the partition count of every monitored topic of the cluster, so a topic
+     * expansion is seen without waiting for the next full scan
+     * @return The partition count of the existing monitored topics
+     */
+    public Map<String, Integer> fetchPartitionCounts() {
+        Map<String, Integer> counts = new HashMap<>();
+        for (Map.Entry<String, List<Integer>> topic : topicMetadataCache.refreshMatching(topicMatcher).entrySet()) {
+            counts.put(topic.getKey(), topic.getValue().size());
+        }
+        return counts;
+    }
+
+    /**
+     * @param partitionCounts The partition count of the monitored topics, as returned by
+     *                        {@link #fetchPartitionCounts()}
+     * @return The partitions of the monitored topics or {@code null} if every topic is monitored
+     */
+    public List<TopicPartition> monitoredPartitions(Map<String, Integer> partitionCounts) {
+        if (topicMatcher.isMatchAll()) {
+            return null;
+        }
+        List<TopicPartition> monitoredPartitions = new ArrayList<>();
+        for (Map.Entry<String, Integer> topic : partitionCounts.entrySet()) {
+            // the partitions of a topic are numbered from 0
+            for (int partition = 0; partition < topic.getValue(); partition++) {
+                monitoredPartitions.add(new TopicPartition(topic.getKey(), partition));
+            }
+        }
+        return monitoredPartitions;
+    }
+
+    /**
+     * Evaluate a scan against the previous one
+     * @param incrementalChecker The checker that keeps the previous scan
+     * @param index The index of the scan, created with {@link IncrementalChecker#newIndex()}
+     * @return {@link IncrementalChecker.ScanDelta}
+     */
+    public IncrementalChecker.ScanDelta evaluate(IncrementalChecker incrementalChecker, PartitionAssignmentIndex index) {
+        return compare(incrementalChecker, index, refreshMetadata(index));
+    }
+
+    /**
+     * Decide which topics of the scan are monitored and fetch their metadata
+     * @param index The index of the scan
+     * @return The identifiers of the monitored topics
+     */
+    public BitSet refreshMetadata(PartitionAssignmentIndex index) {
+
+        // the dictionary is shared between scans, so only the topics used in this one are decided
+        BitSet scanTopics = new BitSet();
+        index.forEach((groupId, topicId, assignment) -> scanTopics.set(topicId));
+
+        // decide once per topic if it has to be checked
+        IdDictionary topics = index.getTopics();
+        BitSet checkedTopics = new BitSet(topics.size());
+        Set<String> checkedTopicNames = new HashSet<>();
+        for (int topicId = scanTopics.nextSetBit(0); topicId >= 0; topicId = scanTopics.nextSetBit(topicId + 1)) {
+            String topic = topics.name(topicId);
+
+            if (topicMatcher.matches(topic)) {
+                checkedTopics.set(topicId);
+                checkedTopicNames.add(topic);
+            } else {
+                LOGGER.debug("Skipping topic " + topic + " because it isn't in the topics-to-check list.");
+            }
+        }
+
+        // fetch the metadata of every monitored topic with a single request
+        topicMetadataCache.refresh(checkedTopicNames);
+
+        // a consumer using an unknown partition means that the topic has been expanded
+        index.forEach((groupId, topicId, assignment) -> {
+            if (checkedTopics.get(topicId)) {
+                topicMetadataCache.invalidateIfOutdated(index.topicName(topicId), assignment.getPartitions());
+            }
+        });
+        return checkedTopics;
+    }
+
+    /**
+     * Compare consumer-partitions Vs topic-partitions, only for the pairs that changed since the last scan
+     * @param incrementalChecker The checker that keeps the previous scan
+     * @param index The index of the scan, created with {@link IncrementalChecker#newIndex()}
+     * @param checkedTopics The monitored topics, as returned by {@link #refreshMetadata(PartitionAssignmentIndex)}
+     * @return {@link IncrementalChecker.ScanDelta}
+     */
+    public IncrementalChecker.ScanDelta compare(IncrementalChecker incrementalChecker, PartitionAssignmentIndex index,
+                                                BitSet checkedTopics) {
+        return compare(incrementalChecker, index, checkedTopics, Collections.emptySet());
+    }
+
+    /**
+     * Compare consumer-partitions Vs topic-partitions, only for the pairs that changed since the last scan
+     * @param incrementalChecker The checker that keeps the previous scan
+     * @param index The index of the scan, created with {@link IncrementalChecker#newIndex()}
+     * @param checkedTopics The monitored topics, as returned by {@link #refreshMetadata(PartitionAssignmentIndex)}
+     * @param failedGroups The consumer groups whose offsets couldn't be fetched, they keep their previous state
+     * @return {@link IncrementalChecker.ScanDelta}
+     */
+    public IncrementalChecker.ScanDelta compare(IncrementalChecker incrementalChecker, PartitionAssignmentIndex index,
+                                                BitSet checkedTopics, Set<String> failedGroups) {
+        return incrementalChecker.check(index, partitionCounts(index, checkedTopics), failedGroups, listener);
+    }
+
+    /**
+     * Forget the consumer groups of the previous scan that are not accepted any more
+     * @param incrementalChecker The checker that keeps the previous scan
+     * @param groupFilter Accepts the groups checked by this instance
+     */
+    public void retainGroups(IncrementalChecker incrementalChecker, GroupFilter groupFilter) {
+        incrementalChecker.retainGroups(groupFilter, listener);
+    }
+
+    /**
+     * Evaluate again only some consumer groups of the previous scan
+     * @param incrementalChecker The checker that keeps the previous scan
+     * @param index The index with only the groups to evaluate, created with {@link IncrementalChecker#newIndex()}
+     * @param groups The evaluated groups
+     * @return {@link IncrementalChecker.ScanDelta} of the evaluated groups
+     */
+    public IncrementalChecker.ScanDelta recheck(IncrementalChecker incrementalChecker, PartitionAssignmentIndex index,
+                                                Set<String> groups) {
+        BitSet checkedTopics = refreshMetadata(index);
+        return incrementalChecker.recheck(index, groups, partitionCounts(index, checkedTopics), listener);
+    }
+
+
+    /**
+     * Cross-check the committed offsets of a scan with the live member assignments of its consumer groups.
+     * It must be called after {@link #refreshMetadata(PartitionAssignmentIndex)}
+     * @param liveAssignmentCheck The check that keeps the previous flags
+     * @param index The index of the scan
+     * @param assignments The partitions assigned to the live members of every described group
+     * @param listener Receives the partitions that entered a status
+     * @return The number of flagged partitions of every status
+     */
+    public Map<LiveAssignmentCheck.Status, Integer> crossCheck(LiveAssignmentCheck liveAssignmentCheck,
+                                                               PartitionAssignmentIndex index,
+                                                               Map<String, Set<TopicPartition>> assignments,
+                                                               LiveAssignmentCheck.FlagListener listener) {
+        return liveAssignmentCheck.check(index, assignments, topic -> {
+            if (!topicMatcher.matches(topic)) {
+                return -1;
+            }
+            // the assigned topics without committed offsets are not cached yet
+            List<Integer> topicPartitions = topicMetadataCache.getPartitions(topic);
+            return topicPartitions == null ? -1 : topicPartitions.size();
+        }, listener);
+    }
+
+
+    /**
+     * Compute the lag of the monitored partitions of a scan. The log end offsets are fetched with a single batched
+     * request per leader broker and shared by all the consumer groups.
+     * It must be called after {@link #refreshMetadata(PartitionAssignmentIndex)}
+     * @param consumerLagChecker The checker that keeps the previous scan
+     * @param index The index of the scan
+     * @param checkedTopics The monitored topics, as returned by {@link #refreshMetadata(PartitionAssignmentIndex)}
+     * @param listener Receives the partitions that became stalled
+     * @return {@link ConsumerLagChecker.LagSummary}
+     */
+    public ConsumerLagChecker.LagSummary checkLag(ConsumerLagChecker consumerLagChecker,
+                                                  PartitionAssignmentIndex index, BitSet checkedTopics,
+                                                  ConsumerLagChecker.StallListener listener) {
+        // only the partitions committed by some group, once whatever the number of groups reading them
+        Map<String, BitSet> committedPartitions = new HashMap<>();
+        index.forEach((groupId, topicId, assignment) -> {
+            if (checkedTopics.get(topicId)) {
+                committedPartitions.computeIfAbsent(index.topicName(topicId), topic -> new BitSet())
+                        .or(assignment.getPartitions());
+            }
+        });
+        List<TopicPartition> partitions = new ArrayList<>();
+        for (Map.Entry<String, BitSet> topic : committedPartitions.entrySet()) {
+            List<Integer> topicPartitions = topicMetadataCache.getPartitions(topic.getKey());
+            if (topicPartitions == null) {
+                continue;
+            }
+            BitSet committed = topic.getValue();
+            for (Integer partition : topicPartitions) {
+                if (committed.get(partition)) {
+                    partitions.add(new TopicPartition(topic.getKey(), partition));
+                }
+            }
+        }
+        return consumerLagChecker.check(index, checkedTopics, topicMetadataCache.endOffsets(partitions), listener);
+    }
+
+
+    /**
+     * @param index The index of the scan
+     * @param checkedTopics The monitored topics, as returned by {@link #refreshMetadata(PartitionAssignmentIndex)}
+     * @return The partition count of the monitored topics that exist
+     */
+    public Map<String, Integer> getPartitionCounts(PartitionAssignmentIndex index, BitSet checkedTopics) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (int topicId = checkedTopics.nextSetBit(0); topicId >= 0; topicId = checkedTopics.nextSetBit(topicId + 1)) {
+            List<Integer> topicPartitions = topicMetadataCache.getPartitions(index.topicName(topicId));
+            if (topicPartitions != null) {
+                counts.put(index.topicName(topicId), topicPartitions.size());
+            }
+        }
+        return counts;
+    }
+
+
+    public TopicMatcher getTopicMatcher() {
+        return topicMatcher;
+    }
+
+
+    private IncrementalChecker.PartitionCounts partitionCounts(PartitionAssignmentIndex index, BitSet checkedTopics) {
+        IdDictionary topics = index.getTopics();
+        return topicId -> {
+            if (!checkedTopics.get(topicId)) {
+                return -1;
+            }
+            List<Integer> topicPartitions = topicMetadataCache.getPartitions(topics.name(topicId));
+            if (topicPartitions == null) {
+                LOGGER.warn("Skipping topic " + topics.name(topicId) + " because it doesn't exist any more.");
+                return -1;
+            }
+            return topicPartitions.size();
+        };
+    }
+}
@@ -0,0 +1,90 @@
+package com.pim.hiring.scout24.kafka.checker;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+
+/**
+ * Decides if a topic is monitored.
+ * Plain topic names are looked up in a hash set and the entries with regular expression characters are compiled once
+ * as patterns. It matches every topic when it has no entries.
+ */
+public class TopicMatcher {
+
+    // '.' is valid in topic names, so it doesn't make an entry a pattern by itself
+    private static final Pattern PATTERN_CHARACTERS = Pattern.compile("[*+?^$|()\\[\\]{}\\\\]");
+
+    private final Set<String> names;
+    private final List<Pattern> patterns;
+
+
+    /**
+     * @param topicsToCheck Topic names or regular expressions, every topic is monitored if it's empty
+     */
+    public TopicMatcher(String... topicsToCheck) {
+        Set<String> names = new HashSet<>();
+        List<Pattern> patterns = new ArrayList<>();
+        if (topicsToCheck != null) {
+            for (String entry : topicsToCheck) {
+                String topic = entry.trim();
+                if (topic.isEmpty()) {
+                    continue;
+                }
+                if (PATTERN_CHARACTERS.matcher(topic).find()) {
+                    patterns.add(Pattern.compile(topic));
+                } else {
+                    names.add(topic);
+                }
+            }
+        }
+        this.names = Collections.unmodifiableSet(names);
+        this.patterns = Collections.unmodifiableList(patterns);
+    }
+
+
+    /**
+     * @param topic The topic name
+     * @return <tt>true</tt> if the topic is monitored
+     */
+    public boolean matches(String topic) {
+        if (names.contains(topic)) {
+            return true;
+        }
+        for (Pattern pattern : patterns) {
+            if (pattern.matcher(topic).matches()) {
+                return true;
+            }
+        }
+        return isMatchAll();
+    }
+
+    /**
+     * @return <tt>true</tt> if every topic is monitored
+     */
+    public boolean isMatchAll() {
+        return names.isEmpty() && patterns.isEmpty();
+    }
+
+    /**
+     * @return <tt>true</tt> if the monitored topics are known without listing the cluster topics
+     */
+    public boolean isNamesOnly() {
+        return patterns.isEmpty();
+    }
+
+    /**
+     * @return The plain topic names
+     */
+    public Set<String> getNames() {
+        return names;
+    }
+
+    @Override
+    public String toString() {
+        return "TopicMatcher{names=" + names + ", patterns=" + patterns + "}";
+    }
+}
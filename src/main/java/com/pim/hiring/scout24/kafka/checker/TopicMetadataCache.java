@@ -0,0 +1,326 @@
+package com.pim.hiring.scout24.kafka.checker;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Bounded cache with the partition numbers of the monitored topics.
+ * Missing or expired topics are fetched together with a single metadata request, and a topic is invalidated as soon
+ * as a consumer group is seen using a partition that the cached entry doesn't know.
+ * Unknown topics are not cached, so a new topic is found as soon as it is created.
+ */
+public class TopicMetadataCache implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TopicMetadataCache.class);
+
+    private final Map<String, Object> consumerConfigs;
+    private final long ttlMs;
+
+    // topic -> cached entry, in access order so the least used topic is evicted first
+    private final LruEntries entries;
+
+    private final Object fetchLock = new Object();
+    private Consumer<?, ?> metadataConsumer;
+
+    // lookups of the cached entries, the forced fetches of refreshMatching are not counted
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+
+    private static final class Entry {
+        private final List<Integer> partitions;
+        private final long fetchedAt;
+
+        private Entry(List<Integer> partitions, long fetchedAt) {
+            this.partitions = partitions;
+            this.fetchedAt = fetchedAt;
+        }
+    }
+
+    private static final class LruEntries extends LinkedHashMap<String, Entry> {
+        private static final long serialVersionUID = 1L;
+
+        private final int maxTopics;
+
+        private LruEntries(int maxTopics) {
+            super(16, 0.75f, true);
+            this.maxTopics = maxTopics;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > maxTopics;
+        }
+    }
+
+
+    /**
+     * @param consumerConfigs The configuration used to create the metadata consumer
+     * @param ttlMs Time after which a cached topic is fetched again
+     * @param maxTopics Maximum number of cached topics
+     */
+    public TopicMetadataCache(Map<String, Object> consumerConfigs, long ttlMs, int maxTopics) {
+        this.consumerConfigs = consumerConfigs;
+        this.ttlMs = ttlMs;
+        this.entries = new LruEntries(maxTopics);
+    }
+
+
+    /**
+     * Fetch with one metadata request every topic that is not cached or whose entry has expired
+     * @param topics The monitored topics
+     */
+    public void refresh(Collection<String> topics) {
+        Set<String> staleTopics = new LinkedHashSet<>();
+        long now = System.currentTimeMillis();
+
+        synchronized (entries) {
+            for (String topic : topics) {
+                Entry entry = entries.get(topic);
+                if (entry == null || now - entry.fetchedAt >= ttlMs) {
+                    staleTopics.add(topic);
+                    misses.incrementAndGet();
+                } else {
+                    hits.incrementAndGet();
+                }
+            }
+        }
+        if (!staleTopics.isEmpty()) {
+            fetch(staleTopics);
+        }
+    }
+
+    /**
+     * Fetch with one metadata request the partitions of every monitored topic of the cluster, ignoring the cached
+     * entries so a topic expansion is seen at once. The cache is not looked up, so no hit or miss is counted
+     * @param matcher The monitored topics
+     * @return The partition numbers of the existing monitored topics
+     */
+    public Map<String, List<Integer>> refreshMatching(TopicMatcher matcher) {
+        Map<String, List<PartitionInfo>> clusterTopics = listClusterTopics();
+
+        Set<String> topics = new LinkedHashSet<>(matcher.getNames());
+        if (!matcher.isNamesOnly()) {
+            for (String topic : clusterTopics.keySet()) {
+                if (matcher.matches(topic)) {
+                    topics.add(topic);
+                }
+            }
+        }
+        Map<String, List<Integer>> fetched = store(topics, clusterTopics);
+        fetched.values().removeIf(partitions -> partitions == null);
+
+        return fetched;
+    }
+
+    /**
+     * Get the partition numbers of a topic, fetching them if the topic is not cached
+     * @param topic The topic name
+     * @return The partition numbers or {@code null} if the topic doesn't exist
+     */
+    public List<Integer> getPartitions(String topic) {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(topic);
+        }
+
+        if (entry != null && System.currentTimeMillis() - entry.fetchedAt < ttlMs) {
+            hits.incrementAndGet();
+            return entry.partitions;
+        }
+        misses.incrementAndGet();
+        return fetch(Collections.singleton(topic)).get(topic);
+    }
+
+    /**
+     * Get the partitions identifiers for a specific topic
+     * @param topic The topic name
+     * @return A map with the topic name as key and the partition numbers as value.
+     * Return {@code null} if no partitions are found
+     */
+    public Map<String, List<Integer>> getTopicPartitionsInfo(String topic) {
+        List<Integer> partitions = getPartitions(topic);
+        if (partitions == null) {
+            return null;
+        }
+        Map<String, List<Integer>> topicPartitionsInfo = new HashMap<>();
+        topicPartitionsInfo.put(topic, new ArrayList<>(partitions));
+
+        return topicPartitionsInfo;
+    }
+
+    /**
+     * Invalidate the cached topic if a consumer uses a partition that it doesn't contain
+     * @param topic The topic name
+     * @param consumerPartitions The partitions used by a consumer group
+     * @return <tt>true</tt> if the topic was invalidated
+     */
+    public boolean invalidateIfOutdated(String topic, Collection<Integer> consumerPartitions) {
+        synchronized (entries) {
+            Entry entry = entries.get(topic);
+            if (entry == null || entry.partitions.containsAll(consumerPartitions)) {
+                return false;
+            }
+            LOGGER.info("Topic " + topic + " has more partitions than the cached " + entry.partitions.size() +
+                    ", invalidating its metadata");
+        }
+        invalidate(topic);
+        return true;
+    }
+
+    /**
+     * Invalidate the cached topic if a consumer uses a partition that it doesn't contain
+     * @param topic The topic name
+     * @param consumerPartitions The partitions used by a consumer group
+     * @return <tt>true</tt> if the topic was invalidated
+     */
+    public boolean invalidateIfOutdated(String topic, BitSet consumerPartitions) {
+        synchronized (entries) {
+            Entry entry = entries.get(topic);
+            // partitions are numbered from 0, so the cached ones go from 0 to size - 1
+            if (entry == null || consumerPartitions.length() <= entry.partitions.size()) {
+                return false;
+            }
+            LOGGER.info("Topic " + topic + " has more partitions than the cached " + entry.partitions.size() +
+                    ", invalidating its metadata");
+        }
+        invalidate(topic);
+        return true;
+    }
+
+    /**
+     * Fetch the log end offsets of some partitions with the metadata consumer, one batched request per leader broker
+     * @param partitions The partitions
+     * @return The log end offset of every partition
+     */
+    public Map<TopicPartition, Long> endOffsets(Collection<TopicPartition> partitions) {
+        if (partitions.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        synchronized (fetchLock) {
+            return metadataConsumer().endOffsets(partitions);
+        }
+    }
+
+    /**
+     * Remove a topic from the cache
+     * @param topic The topic name
+     */
+    public void invalidate(String topic) {
+        synchronized (entries) {
+            if (entries.remove(topic) != null) {
+                invalidations.incrementAndGet();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (fetchLock) {
+            if (metadataConsumer != null) {
+                metadataConsumer.close();
+                metadataConsumer = null;
+            }
+        }
+    }
+
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getInvalidationCount() {
+        return invalidations.get();
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "TopicMetadataCache{topics=" + size() + ", hits=" + hits + ", misses=" + misses +
+                ", invalidations=" + invalidations + "}";
+    }
+
+
+    private Map<String, List<Integer>> fetch(Set<String> topics) {
+        return store(topics, listClusterTopics());
+    }
+
+    private Map<String, List<PartitionInfo>> listClusterTopics() {
+        // a single metadata request returns every topic of the cluster
+        synchronized (fetchLock) {
+            return metadataConsumer().listTopics();
+        }
+    }
+
+    private Consumer<?, ?> metadataConsumer() {
+        if (metadataConsumer == null) {
+            metadataConsumer = new KafkaConsumer<>(consumerConfigs);
+        }
+        return metadataConsumer;
+    }
+
+    private Map<String, List<Integer>> store(Set<String> topics, Map<String, List<PartitionInfo>> clusterTopics) {
+        long now = System.currentTimeMillis();
+        Map<String, List<Integer>> fetched = new HashMap<>();
+
+        synchronized (entries) {
+            for (String topic : topics) {
+                List<Integer> partitions = toPartitionNumbers(clusterTopics.get(topic));
+                fetched.put(topic, partitions);
+                if (partitions == null) {
+                    entries.remove(topic);
+                    continue;
+                }
+                Entry previous = entries.put(topic, new Entry(partitions, now));
+
+                if (previous != null && previous.partitions.size() != partitions.size()) {
+                    LOGGER.info("Topic " + topic + " changed from " + previous.partitions.size() + " to " +
+                            partitions.size() + " partitions");
+                }
+            }
+        }
+        LOGGER.debug("Fetched the metadata of " + topics.size() + " topics");
+
+        return fetched;
+    }
+
+    private static List<Integer> toPartitionNumbers(List<PartitionInfo> partitionInfo) {
+        if (partitionInfo == null || partitionInfo.isEmpty()) {
+            return null;
+        }
+        List<Integer> partitions = new ArrayList<>(partitionInfo.size());
+        for (PartitionInfo partition : partitionInfo) {
+            partitions.add(partition.partition());
+        }
+        Collections.sort(partitions);
+
+        return Collections.unmodifiableList(partitions);
+    }
+}
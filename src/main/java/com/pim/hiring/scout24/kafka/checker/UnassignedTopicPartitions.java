@@ -1,19 +1,26 @@
 package com.pim.hiring.scout24.kafka.checker;
 
+import com.pim.hiring.scout24.kafka.admin.AdminClientPool;
+import com.pim.hiring.scout24.kafka.admin.ConsumerGroupOffsetsFetcher;
+import com.pim.hiring.scout24.kafka.admin.GroupDiscovery;
+import com.pim.hiring.scout24.kafka.admin.ProtocolGroupDiscovery;
+import com.pim.hiring.scout24.kafka.index.PartitionAssignmentIndex;
+import com.pim.hiring.scout24.kafka.trace.ScanTracer;
 import kafka.admin.AdminClient;
 import kafka.coordinator.GroupOverview;
-import org.apache.kafka.clients.CommonClientConfigs;
 import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.Node;
 import org.apache.kafka.common.PartitionInfo;
 import org.apache.kafka.common.TopicPartition;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Component;
-import scala.collection.JavaConversions;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
 
 /**
@@ -24,35 +31,177 @@ public class UnassignedTopicPartitions {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(UnassignedTopicPartitions.class);
 
-    @Value("${spring.kafka.bootstrap-servers}")
-    private String bootstrapServers;
+    private AdminClientPool adminClientPool;
+
+    private ConsumerGroupOffsetsFetcher offsetsFetcher;
+
+    // only the consumer groups of the owned shards when several instances are running
+    @Autowired(required = false)
+    private GroupFilter groupFilter = GroupFilter.ALL;
+
+    @Autowired(required = false)
+    private GroupDiscovery groupDiscovery = new ProtocolGroupDiscovery();
+
+    // receives the response time of every consumer group when the scans are traced
+    @Autowired(required = false)
+    private ScanTracer scanTracer;
 
 
     // Constructor
-    public void UnassignedTopicPartitions() {}
+    public UnassignedTopicPartitions() {}
+
+    @Autowired
+    public UnassignedTopicPartitions(AdminClientPool adminClientPool, ConsumerGroupOffsetsFetcher offsetsFetcher) {
+        this.adminClientPool = adminClientPool;
+        this.offsetsFetcher = offsetsFetcher;
+    }
 
 
     /**
-     * Create a Kafka admin client
+     * Create a Kafka admin client. The caller owns the client and has to close it
      * @param bootstrapServers Configured Kafka servers in the application.yml file
      * @return {@link AdminClient}
      */
     public AdminClient createKafkaAdminClient(String bootstrapServers) {
-        // create Kafka AdminClient
-        Properties props = new Properties();
-        props.put(CommonClientConfigs.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers );
-
-        AdminClient adminClient = AdminClient.create(props);
-
-        return adminClient;
+        return AdminClientPool.createKafkaAdminClient(bootstrapServers);
     }
 
     /**
-     * Return the {@link AdminClient} if exists or create a new one
+     * Return the pooled {@link AdminClient} if exists or create a new one.
+     * The client has to be given back with {@link AdminClientPool#release(AdminClient)}
      * @return {@link AdminClient}
      */
     public AdminClient getKafkaAdminClient() {
-        return createKafkaAdminClient(bootstrapServers);
+        return getAdminClientPool().borrow();
+    }
+
+    /**
+     * Build the index with the partitions with committed offsets of every consumer group, fetching the groups in
+     * parallel with pooled {@link AdminClient} instances
+     * @return {@link PartitionAssignmentIndex}
+     */
+    public PartitionAssignmentIndex buildAssignmentIndex() {
+        return buildAssignmentIndex(new PartitionAssignmentIndex());
+    }
+
+    /**
+     * Fill an index with the partitions and committed offsets of every consumer group, fetching the groups in
+     * parallel with pooled {@link AdminClient} instances
+     * @param index The empty index to fill
+     * @return {@link PartitionAssignmentIndex}
+     */
+    public PartitionAssignmentIndex buildAssignmentIndex(PartitionAssignmentIndex index) {
+        fetchGroupOffsets(listGroupsByCoordinator(), index);
+        return index;
+    }
+
+    /**
+     * Get the consumer groups of the cluster grouped by their coordinator broker, with a pooled {@link AdminClient}
+     * @return a map with the coordinator broker as key and its consumer groups as value
+     */
+    public Map<Node, List<GroupOverview>> listGroupsByCoordinator() {
+        return getAdminClientPool().execute(this::listGroupsByCoordinator);
+    }
+
+    /**
+     * Fill an index with the partitions and committed offsets of the given consumer groups, fetching them in
+     * parallel with pooled {@link AdminClient} instances
+     * @param groupsByCoordinator The consumer groups grouped by their coordinator broker
+     * @param index The index to fill
+     * @return The number of consumer groups whose offsets couldn't be fetched
+     */
+    public int fetchGroupOffsets(Map<Node, List<GroupOverview>> groupsByCoordinator, PartitionAssignmentIndex index) {
+        return fetchGroupOffsets(groupsByCoordinator, null, index);
+    }
+
+    /**
+     * Fill an index with the committed offsets of some partitions of the given consumer groups, fetching them in
+     * parallel with pooled {@link AdminClient} instances. The groups without offsets for any of them are not added
+     * @param groupsByCoordinator The consumer groups grouped by their coordinator broker
+     * @param partitions The monitored partitions or {@code null} to fetch all of them
+     * @param index The index to fill
+     * @return The number of consumer groups whose offsets couldn't be fetched
+     */
+    public int fetchGroupOffsets(Map<Node, List<GroupOverview>> groupsByCoordinator, List<TopicPartition> partitions,
+                                 PartitionAssignmentIndex index) {
+        return fetchGroupOffsets(groupsByCoordinator, partitions, index, null);
+    }
+
+    /**
+     * Fill an index with the committed offsets of some partitions of the given consumer groups, fetching them in
+     * parallel with pooled {@link AdminClient} instances. The groups without offsets for any of them are not added
+     * @param groupsByCoordinator The consumer groups grouped by their coordinator broker
+     * @param partitions The monitored partitions or {@code null} to fetch all of them
+     * @param index The index to fill
+     * @param failedGroups Receives the consumer groups whose offsets couldn't be fetched, from the fetcher threads, or
+     *                     {@code null}
+     * @return The number of consumer groups whose offsets couldn't be fetched
+     */
+    public int fetchGroupOffsets(Map<Node, List<GroupOverview>> groupsByCoordinator, List<TopicPartition> partitions,
+                                 PartitionAssignmentIndex index, Set<String> failedGroups) {
+        int failures = getOffsetsFetcher().fetch(groupsByCoordinator, partitions, newHandler(index, failedGroups));
+        if (failures > 0) {
+            LOGGER.warn(failures + " consumer groups have been skipped because their offsets couldn't be fetched");
+        }
+        return failures;
+    }
+
+    /**
+     * Fill an index with the committed offsets of the given consumer groups, asking every group for its own
+     * partitions. The groups without offsets for any of them are not added
+     * @param groupsByCoordinator The consumer groups grouped by their coordinator broker
+     * @param partitionsOfGroup Gives the partitions to fetch of a group, or {@code null} to fetch all of them
+     * @param index The index to fill
+     * @param failedGroups Receives the consumer groups whose offsets couldn't be fetched, from the fetcher threads, or
+     *                     {@code null}
+     * @return The number of consumer groups whose offsets couldn't be fetched
+     */
+    public int fetchGroupOffsets(Map<Node, List<GroupOverview>> groupsByCoordinator,
+                                 Function<String, List<TopicPartition>> partitionsOfGroup,
+                                 PartitionAssignmentIndex index, Set<String> failedGroups) {
+        int failures = getOffsetsFetcher().fetchPerGroup(groupsByCoordinator, partitionsOfGroup,
+                newHandler(index, failedGroups));
+        if (failures > 0) {
+            LOGGER.warn(failures + " consumer groups have been skipped because their offsets couldn't be fetched");
+        }
+        return failures;
+    }
+
+    private ConsumerGroupOffsetsFetcher.GroupOffsetsHandler newHandler(PartitionAssignmentIndex index,
+                                                               Set<String> failedGroups) {
+        // every group is added by one fetcher thread
+        return new ConsumerGroupOffsetsFetcher.GroupOffsetsHandler() {
+            @Override
+            public void onGroupOffsets(String groupId, Map<TopicPartition, Object> groupOffsets) {
+                index.addGroup(groupId, groupOffsets);
+            }
+
+            @Override
+            public void onGroupResponse(String groupId, Node coordinator, long latencyNanos) {
+                if (scanTracer != null) {
+                    scanTracer.groupResponse(groupId, coordinator, latencyNanos);
+                }
+            }
+
+            @Override
+            public void onGroupFailed(String groupId) {
+                if (failedGroups != null) {
+                    failedGroups.add(groupId);
+                }
+            }
+        };
+    }
+
+    /**
+     * Get the partitions assigned to the live members of the consumer groups, with a pooled {@link AdminClient}
+     * @param groupsByCoordinator The consumer groups grouped by their coordinator broker
+     * @param failures Incremented for every group that couldn't be described
+     * @return The assigned partitions of every stable consumer group
+     */
+    public Map<String, Set<TopicPartition>> describeAssignments(Map<Node, List<GroupOverview>> groupsByCoordinator,
+                                                                AtomicInteger failures) {
+        return getAdminClientPool().execute(adminClient ->
+                groupDiscovery.describeAssignments(adminClient, groupsByCoordinator, failures));
     }
 
 
@@ -122,55 +271,45 @@ public class UnassignedTopicPartitions {
     public Map<String, Map<String, List<Integer>>> getTopicAndPartitionsForAllConsumerGroups(AdminClient adminClient) {
         Map<String, Map<String, List<Integer>>> topicConsumergroupConsumerPartitions = new HashMap<>();
 
+        AtomicInteger failures = new AtomicInteger();
 
-        // TODO: Why this method doesn't get the assignments?
-//        List<GroupOverview> groups =  scala.collection.JavaConversions.seqAsJavaList(
-//            adminClient.listAllConsumerGroupsFlattened()
-//        );
-
-        List<GroupOverview> groups =  scala.collection.JavaConversions.seqAsJavaList(
-                adminClient.listAllGroupsFlattened()
-        );
-
-
-        // for each consumer group...
-        for (GroupOverview group : groups) {
-
-            // Get consumer group offsets
-            Map<TopicPartition, Object> groupOffsets = JavaConversions.mapAsJavaMap(
-                    adminClient.listGroupOffsets( group.groupId() )
-            );
-            // Extract only the topic partitions
-            Set<TopicPartition> consumerTopicPartitions = groupOffsets.keySet();
-
-
-            // for each partition within the consumer
-            for (TopicPartition tp : consumerTopicPartitions) {
-
-                // topic-partitions relationship for a particular consumer
-                Map<String, List<Integer>> topicPartitionsList = new HashMap<>();
-                // partition list
-                List<Integer> partitionsList = new ArrayList<>();
-
-                partitionsList.add( tp.partition() );
-                // Add a new topic-partition relationship
-                topicPartitionsList.put(tp.topic(), partitionsList);
-
-                // key: topic#consumer-group  value: [topic, {partitions}]
-                String key = tp.topic() + "#" + group.groupId();
+        // for each coordinator, fetch the offsets of all its consumer groups together, adding every group as soon as
+        // it's read
+        for (Map.Entry<Node, List<GroupOverview>> groups : listGroupsByCoordinator(adminClient).entrySet()) {
+            groupDiscovery.fetchOffsets(adminClient, groups.getKey(), groups.getValue(), null, failures,
+                    GroupDiscovery.ResponseListener.NONE, (groupId, groupOffsets) ->
+                            addGroupPartitions(topicConsumergroupConsumerPartitions, groupId, groupOffsets.keySet()));
+        }
+        if (failures.get() > 0) {
+            LOGGER.warn(failures.get() + " consumer groups have been skipped because their offsets couldn't be fetched");
+        }
+        return topicConsumergroupConsumerPartitions;
+    }
 
-                if (topicConsumergroupConsumerPartitions.containsKey(key)) {
+    /**
+     * Get the consumer groups of the cluster grouped by their coordinator broker, only the ones accepted by the
+     * {@link GroupFilter}
+     * @param adminClient Kafka admin client
+     * @return a map with the coordinator broker as key and its consumer groups as value
+     */
+    public Map<Node, List<GroupOverview>> listGroupsByCoordinator(AdminClient adminClient) {
+        Map<Node, List<GroupOverview>> groupsByBroker = groupDiscovery.listGroups(adminClient);
+        // let the pool reconnect if the brokers changed
+        if (adminClientPool != null) {
+            adminClientPool.updateClusterNodes(groupsByBroker.keySet());
+        }
 
-                    // Add a new partition to an existed relation
-                    topicConsumergroupConsumerPartitions.replace(key,
-                            addNewPartition(topicConsumergroupConsumerPartitions.get(key), tp.topic(), tp.partition())
-                        );
-                } else {
-                    topicConsumergroupConsumerPartitions.put(key, topicPartitionsList);
+        Map<Node, List<GroupOverview>> groupsByCoordinator = new HashMap<>();
+        for (Map.Entry<Node, List<GroupOverview>> brokerGroups : groupsByBroker.entrySet()) {
+            List<GroupOverview> groups = new ArrayList<>();
+            for (GroupOverview group : brokerGroups.getValue()) {
+                if (groupFilter.accept(group.groupId())) {
+                    groups.add(group);
                 }
             }
+            groupsByCoordinator.put(brokerGroups.getKey(), groups);
         }
-        return topicConsumergroupConsumerPartitions;
+        return groupsByCoordinator;
     }
 
 
@@ -209,6 +348,56 @@ public class UnassignedTopicPartitions {
     }
 
 
+    /**
+     * Add the partitions with committed offsets of a consumer group to the topic#consumer-group structure
+     * @param topicConsumergroupConsumerPartitions The structure to update
+     * @param groupId The consumer group
+     * @param consumerTopicPartitions The topic partitions with committed offsets
+     */
+    void addGroupPartitions(Map<String, Map<String, List<Integer>>> topicConsumergroupConsumerPartitions,
+                            String groupId, Set<TopicPartition> consumerTopicPartitions) {
+
+        // partition list of each topic of the consumer, so the topic#consumer-group key is built once per topic
+        Map<String, List<Integer>> groupTopicPartitions = new HashMap<>();
+
+        // for each partition within the consumer
+        for (TopicPartition tp : consumerTopicPartitions) {
+            List<Integer> partitionsList = groupTopicPartitions.get(tp.topic());
+
+            if (partitionsList == null) {
+                // key: topic#consumer-group  value: [topic, {partitions}]
+                Map<String, List<Integer>> topicPartitionsList = topicConsumergroupConsumerPartitions.computeIfAbsent(
+                        tp.topic() + "#" + groupId, key -> new HashMap<>());
+                partitionsList = topicPartitionsList.computeIfAbsent(tp.topic(), topic -> new ArrayList<>());
+                groupTopicPartitions.put(tp.topic(), partitionsList);
+            }
+            partitionsList.add(tp.partition());
+        }
+    }
+
+    public void setGroupFilter(GroupFilter groupFilter) {
+        this.groupFilter = groupFilter;
+    }
+
+    public void setGroupDiscovery(GroupDiscovery groupDiscovery) {
+        this.groupDiscovery = groupDiscovery;
+    }
+
+    private AdminClientPool getAdminClientPool() {
+        if (adminClientPool == null) {
+            throw new IllegalStateException("No Kafka admin client pool configured");
+        }
+        return adminClientPool;
+    }
+
+    private ConsumerGroupOffsetsFetcher getOffsetsFetcher() {
+        if (offsetsFetcher == null) {
+            throw new IllegalStateException("No consumer group offsets fetcher configured");
+        }
+        return offsetsFetcher;
+    }
+
+
     /**
      * Add a new partition to an existed topic-consumer relationship
      * @param topicPartitionsList The current topic-partition relationship
@@ -0,0 +1,185 @@
+package com.pim.hiring.scout24.kafka.cli;
+
+import com.pim.hiring.scout24.kafka.admin.AdminClientPool;
+import com.pim.hiring.scout24.kafka.admin.ConsumerGroupOffsetsFetcher;
+import com.pim.hiring.scout24.kafka.checker.IncrementalChecker;
+import com.pim.hiring.scout24.kafka.checker.ScanEvaluator;
+import com.pim.hiring.scout24.kafka.checker.TopicMetadataCache;
+import com.pim.hiring.scout24.kafka.checker.UnassignedTopicPartitions;
+import com.pim.hiring.scout24.kafka.index.PartitionAssignmentIndex;
+import kafka.coordinator.GroupOverview;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * One-shot checker without Spring: it wires {@link UnassignedTopicPartitions} directly, scans the cluster once,
+ * prints every (consumer group, topic) pair with unassigned partitions and exits with a status code, so it can run
+ * as a cron job or a health gate. It takes the same properties as the application, as --name=value arguments:
+ * <pre>
+ * java -jar kafka-unassigned-partitions-checker-slim.jar --spring.kafka.bootstrap-servers=kafka:9092 \
+ *     --spring.kafka.topics-to-check=orders-.*
+ * </pre>
+ */
+public class CheckerCli {
+
+    public static final int OK = 0;
+    public static final int UNASSIGNED_PARTITIONS = 1;
+    public static final int SCAN_FAILED = 2;
+    public static final int USAGE = 64;
+
+    private static final String BOOTSTRAP_SERVERS = "spring.kafka.bootstrap-servers";
+
+    // the properties read by the scan and their defaults, the same ones as the application
+    private static final Map<String, String> DEFAULTS = new LinkedHashMap<>();
+    static {
+        DEFAULTS.put(BOOTSTRAP_SERVERS, null);
+        DEFAULTS.put("spring.kafka.topics-to-check", "");
+        DEFAULTS.put("checker.admin.pool-size", "4");
+        DEFAULTS.put("checker.admin.borrow-timeout-ms", "30000");
+        DEFAULTS.put("checker.fetch.threads", "4");
+        DEFAULTS.put("checker.fetch.max-in-flight", "8");
+        DEFAULTS.put("checker.fetch.batch-size", "50");
+        DEFAULTS.put("checker.metadata.max-topics", "10000");
+    }
+
+
+    public static void main(String[] args) {
+        // set before the first logger is created
+        if (System.getProperty("logback.configurationFile") == null) {
+            System.setProperty("logback.configurationFile", "checker-cli-logback.xml");
+        }
+        System.exit(run(args, System.out, System.err));
+    }
+
+    /**
+     * @param args The --name=value properties
+     * @param out Receives a line for every (consumer group, topic) pair with unassigned partitions
+     * @param err Receives the usage and the errors
+     * @return {@link #OK}, {@link #UNASSIGNED_PARTITIONS}, {@link #SCAN_FAILED} if the consumer groups couldn't be
+     * listed or some of them couldn't be fetched, or {@link #USAGE}
+     */
+    public static int run(String[] args, PrintStream out, PrintStream err) {
+        Map<String, String> properties;
+        try {
+            properties = parse(args);
+        } catch (IllegalArgumentException e) {
+            err.println(e.getMessage());
+            err.println("Usage: --" + BOOTSTRAP_SERVERS + "=host:port [--name=value ...], properties: " +
+                    DEFAULTS.keySet());
+            return USAGE;
+        }
+
+        int poolSize = Integer.parseInt(properties.get("checker.admin.pool-size"));
+        int fetchThreads = Integer.parseInt(properties.get("checker.fetch.threads"));
+        int fetchMaxInFlight = Integer.parseInt(properties.get("checker.fetch.max-in-flight"));
+        AdminClientPool adminClientPool = new AdminClientPool(properties.get(BOOTSTRAP_SERVERS), poolSize,
+                Long.parseLong(properties.get("checker.admin.borrow-timeout-ms")));
+        // the in-flight limit of the fetcher keeps the queue bounded
+        ExecutorService executor = new ThreadPoolExecutor(fetchThreads, fetchThreads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(fetchMaxInFlight), runnable -> {
+                    Thread thread = new Thread(runnable, "offsets-fetcher");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        TopicMetadataCache topicMetadataCache = new TopicMetadataCache(consumerConfigs(properties), Long.MAX_VALUE,
+                Integer.parseInt(properties.get("checker.metadata.max-topics")));
+        try {
+            UnassignedTopicPartitions checker = new UnassignedTopicPartitions(adminClientPool,
+                    new ConsumerGroupOffsetsFetcher(adminClientPool, executor, fetchMaxInFlight,
+                            Integer.parseInt(properties.get("checker.fetch.batch-size"))));
+            return scan(checker, topicMetadataCache, properties.get("spring.kafka.topics-to-check"), out, err);
+        } catch (RuntimeException e) {
+            err.println("Scan failed: " + e);
+            return SCAN_FAILED;
+        } finally {
+            executor.shutdownNow();
+            topicMetadataCache.close();
+            adminClientPool.close();
+        }
+    }
+
+
+    private static int scan(UnassignedTopicPartitions checker, TopicMetadataCache topicMetadataCache,
+                            String topicsToCheck, PrintStream out, PrintStream err) {
+        AtomicInteger unassignedPairs = new AtomicInteger();
+        IncrementalChecker incrementalChecker = new IncrementalChecker();
+        ScanEvaluator scanEvaluator = new ScanEvaluator(topicMetadataCache, splitTopics(topicsToCheck),
+                new IncrementalChecker.TransitionListener() {
+                    @Override
+                    public void onUnassigned(String group, String topic, BitSet partitions) {
+                        unassignedPairs.incrementAndGet();
+                        out.println(group + " " + topic + " " + partitions);
+                    }
+
+                    @Override
+                    public void onRecovered(String group, String topic, BitSet partitions) {
+                    }
+                });
+
+        Map<Node, List<GroupOverview>> groupsByCoordinator = checker.listGroupsByCoordinator();
+        // only the offsets of the monitored partitions are requested
+        List<TopicPartition> monitoredPartitions = scanEvaluator.resolveMonitoredPartitions();
+        PartitionAssignmentIndex index = incrementalChecker.newIndex();
+        int failures = checker.fetchGroupOffsets(groupsByCoordinator, monitoredPartitions, index);
+        // the first scan of an incremental checker reports every unassigned partition
+        IncrementalChecker.ScanDelta delta = scanEvaluator.evaluate(incrementalChecker, index);
+
+        if (failures > 0) {
+            err.println(failures + " consumer groups couldn't be fetched, " + delta);
+            return SCAN_FAILED;
+        }
+        err.println(delta);
+        return unassignedPairs.get() > 0 ? UNASSIGNED_PARTITIONS : OK;
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> properties = new HashMap<>(DEFAULTS);
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            String name = arg.startsWith("--") && separator > 2 ? arg.substring(2, separator) : null;
+            if (name == null || !DEFAULTS.containsKey(name)) {
+                throw new IllegalArgumentException("Unknown argument " + arg);
+            }
+            properties.put(name, arg.substring(separator + 1));
+        }
+        if (properties.get(BOOTSTRAP_SERVERS) == null || properties.get(BOOTSTRAP_SERVERS).trim().isEmpty()) {
+            throw new IllegalArgumentException("Missing --" + BOOTSTRAP_SERVERS);
+        }
+        for (Map.Entry<String, String> property : properties.entrySet()) {
+            if (property.getKey().startsWith("checker.") && !property.getValue().matches("\\d+")) {
+                throw new IllegalArgumentException("Invalid --" + property.getKey() + "=" + property.getValue());
+            }
+        }
+        return properties;
+    }
+
+    // the metadata consumer never joins a group nor reads records
+    private static Map<String, Object> consumerConfigs(Map<String, String> properties) {
+        Map<String, Object> props = new HashMap<>();
+        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, properties.get(BOOTSTRAP_SERVERS));
+        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class);
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class);
+        return props;
+    }
+
+    private static String[] splitTopics(String topicsToCheck) {
+        return topicsToCheck.trim().isEmpty() ? new String[0] :
+                Arrays.stream(topicsToCheck.split(",")).map(String::trim).toArray(String[]::new);
+    }
+}
@@ -0,0 +1,218 @@
+package com.pim.hiring.scout24.kafka.cluster;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pim.hiring.scout24.kafka.admin.AdminConfig;
+import com.pim.hiring.scout24.kafka.boot.Daemon;
+import com.pim.hiring.scout24.kafka.boot.SchedulerConfig;
+import com.pim.hiring.scout24.kafka.checker.CheckerConfig;
+import com.pim.hiring.scout24.kafka.checker.UnassignedTopicPartitions;
+import com.pim.hiring.scout24.kafka.consumer.ReceiverConfig;
+import com.pim.hiring.scout24.kafka.metrics.MetricsConfig;
+import com.pim.hiring.scout24.kafka.report.ReportPipeline;
+import com.pim.hiring.scout24.kafka.rules.RulesConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.EnumerablePropertySource;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.MutablePropertySources;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+
+
+/**
+ * Runs the scans of the clusters of checker.clusters.names, every one of them in its own Spring context with the
+ * polling components of the application: admin client pool, fetcher executor, metadata cache, checker state, metrics
+ * and scheduler. The properties of a cluster are the application ones overridden by the checker.clusters.[name].*
+ * ones, so a slow or unreachable cluster only exhausts its own clients and threads.
+ * The report pipeline, the meter registry and the scheduler timer are shared with the application context.
+ */
+public class ClusterContexts implements SmartLifecycle {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ClusterContexts.class);
+
+    private static final Class<?>[] CLUSTER_COMPONENTS = {AdminConfig.class, ReceiverConfig.class,
+            MetricsConfig.class, RulesConfig.class, CheckerConfig.class, UnassignedTopicPartitions.class,
+            Daemon.class, SchedulerConfig.class};
+
+    // checker.clusters.[name].[property] overrides spring.kafka.[property], the other ones override checker.*
+    private static final List<String> SPRING_KAFKA_PROPERTIES = Arrays.asList("bootstrap-servers", "topics-to-check");
+
+    private final List<String> names;
+    private final ConfigurableEnvironment environment;
+    private final ReportPipeline reportPipeline;
+    private final MeterRegistry meterRegistry;
+    private final ObjectMapper objectMapper;
+    private final ScheduledExecutorService sharedScheduler;
+
+    private final Map<String, AnnotationConfigApplicationContext> contexts = new LinkedHashMap<>();
+    private boolean running;
+
+
+    /**
+     * @param names The names of the clusters
+     * @param environment The application environment
+     * @param reportPipeline Receives the reports of every cluster, with its name
+     * @param meterRegistry Receives the meters of every cluster, with its name in the cluster tag
+     * @param objectMapper Reads the alert rules
+     * @param sharedScheduler The timer of the schedulers of every cluster
+     */
+    public ClusterContexts(List<String> names, ConfigurableEnvironment environment, ReportPipeline reportPipeline,
+                           MeterRegistry meterRegistry, ObjectMapper objectMapper,
+                           ScheduledExecutorService sharedScheduler) {
+        this.names = names;
+        this.environment = environment;
+        this.reportPipeline = reportPipeline;
+        this.meterRegistry = meterRegistry;
+        this.objectMapper = objectMapper;
+        this.sharedScheduler = sharedScheduler;
+    }
+
+
+    @Override
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        try {
+            for (String name : names) {
+                contexts.put(name, createContext(name));
+                LOGGER.info("Started the checker of the cluster " + name);
+            }
+        } catch (RuntimeException e) {
+            closeContexts();
+            throw e;
+        }
+        running = true;
+    }
+
+    @Override
+    public synchronized void stop() {
+        closeContexts();
+        running = false;
+    }
+
+    @Override
+    public void stop(Runnable callback) {
+        stop();
+        callback.run();
+    }
+
+    @Override
+    public synchronized boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public boolean isAutoStartup() {
+        return true;
+    }
+
+    // started before the scheduler of the application context
+    @Override
+    public int getPhase() {
+        return Integer.MAX_VALUE - 1;
+    }
+
+    /**
+     * @param name The name of a cluster
+     * @return The context of the cluster or {@code null} if it's not running
+     */
+    public synchronized AnnotationConfigApplicationContext getContext(String name) {
+        return contexts.get(name);
+    }
+
+    public List<String> getNames() {
+        return Collections.unmodifiableList(names);
+    }
+
+
+    private AnnotationConfigApplicationContext createContext(String name) {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.setDisplayName("cluster " + name);
+        context.setEnvironment(clusterEnvironment(name));
+        context.getBeanFactory().registerSingleton("reportPipeline", reportPipeline.forCluster(name));
+        context.getBeanFactory().registerSingleton("meterRegistry", meterRegistry);
+        context.getBeanFactory().registerSingleton("objectMapper", objectMapper);
+        context.getBeanFactory().registerSingleton("sharedScheduler", sharedScheduler);
+        context.register(CLUSTER_COMPONENTS);
+        try {
+            context.refresh();
+        } catch (RuntimeException e) {
+            context.close();
+            throw e;
+        }
+        // the cluster context has no registry of its own, and the shared report pipeline is bound by the application
+        for (Map.Entry<String, MeterBinder> binder : context.getBeansOfType(MeterBinder.class).entrySet()) {
+            if (!"reportPipelineMetrics".equals(binder.getKey())) {
+                binder.getValue().bindTo(meterRegistry);
+            }
+        }
+        return context;
+    }
+
+    private ConfigurableEnvironment clusterEnvironment(String name) {
+        StandardEnvironment clusterEnvironment = new StandardEnvironment();
+        MutablePropertySources sources = clusterEnvironment.getPropertySources();
+        List<String> defaultSources = new ArrayList<>();
+        for (PropertySource<?> source : sources) {
+            defaultSources.add(source.getName());
+        }
+        for (String source : defaultSources) {
+            sources.remove(source);
+        }
+        for (PropertySource<?> source : environment.getPropertySources()) {
+            sources.addLast(source);
+        }
+        sources.addFirst(new MapPropertySource("cluster-" + name, clusterProperties(name)));
+        clusterEnvironment.setActiveProfiles(environment.getActiveProfiles());
+        return clusterEnvironment;
+    }
+
+    private Map<String, Object> clusterProperties(String name) {
+        String prefix = "checker.clusters." + name + ".";
+        Map<String, Object> properties = new HashMap<>();
+        for (PropertySource<?> source : environment.getPropertySources()) {
+            if (!(source instanceof EnumerablePropertySource)) {
+                continue;
+            }
+            for (String key : ((EnumerablePropertySource<?>) source).getPropertyNames()) {
+                if (key.startsWith(prefix)) {
+                    String property = key.substring(prefix.length());
+                    // the sources are in precedence order
+                    properties.putIfAbsent(SPRING_KAFKA_PROPERTIES.contains(property) ?
+                            "spring.kafka." + property : "checker." + property, environment.getProperty(key));
+                }
+            }
+        }
+        if (properties.get("spring.kafka.bootstrap-servers") == null) {
+            throw new IllegalArgumentException("Missing " + prefix + "bootstrap-servers");
+        }
+        properties.put("checker.cluster.name", name);
+        // the sharding and the snapshots only apply to the cluster of spring.kafka.bootstrap-servers
+        properties.put("checker.shard.enabled", "false");
+        properties.put("checker.snapshot.enabled", "false");
+        return properties;
+    }
+
+    private void closeContexts() {
+        List<String> started = new ArrayList<>(contexts.keySet());
+        Collections.reverse(started);
+        for (String name : started) {
+            contexts.remove(name).close();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.pim.hiring.scout24.kafka.cluster;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pim.hiring.scout24.kafka.report.ReportPipeline;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+
+/**
+ * Created on 17/10/2026.
+ */
+@Configuration
+@ConditionalOnExpression("!'${checker.clusters.names:}'.trim().isEmpty()")
+public class ClustersConfig {
+
+    @Value("${checker.clusters.names}")
+    private String[] names;
+
+    @Value("${checker.clusters.scheduler-threads:1}")
+    private int schedulerThreads;
+
+    // the cluster tag of spring.kafka.bootstrap-servers
+    @Value("${checker.cluster.name:default}")
+    private String defaultName;
+
+    @Autowired
+    private ConfigurableEnvironment environment;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // the timer threads only start the scans, every cluster runs them in its own thread
+    @Bean(destroyMethod = "shutdownNow")
+    public ScheduledExecutorService sharedScheduler() {
+        return Executors.newScheduledThreadPool(schedulerThreads, new CustomizableThreadFactory("checker-scheduler-"));
+    }
+
+    @Bean
+    public ClusterContexts clusterContexts(ReportPipeline reportPipeline, MeterRegistry meterRegistry) {
+        List<String> clusters = new ArrayList<>();
+        for (String name : names) {
+            String cluster = name.trim();
+            if (cluster.isEmpty() || cluster.equals(defaultName) || clusters.contains(cluster)) {
+                throw new IllegalArgumentException("Invalid or repeated cluster name '" + name + "'");
+            }
+            clusters.add(cluster);
+        }
+        return new ClusterContexts(clusters, environment, reportPipeline, meterRegistry, objectMapper,
+                sharedScheduler());
+    }
+}
@@ -0,0 +1,292 @@
+package com.pim.hiring.scout24.kafka.consumer;
+
+import com.pim.hiring.scout24.kafka.checker.IncrementalChecker;
+import com.pim.hiring.scout24.kafka.checker.ScanEvaluator;
+import com.pim.hiring.scout24.kafka.index.PartitionAssignmentIndex;
+import kafka.common.OffsetAndMetadata;
+import kafka.common.Topic;
+import kafka.coordinator.BaseKey;
+import kafka.coordinator.GroupMetadataKey;
+import kafka.coordinator.GroupMetadataManager;
+import kafka.coordinator.GroupTopicPartition;
+import kafka.coordinator.OffsetKey;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.kafka.core.ConsumerFactory;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Streaming mode: tails the internal __consumer_offsets topic and keeps a live view of the committed offsets of every
+ * consumer group, so unassigned partitions are reported seconds after a commit instead of on the next scan.
+ * The whole topic is read from the beginning when it starts; the view is evaluated once it has caught up and then
+ * every time it changes, at most once per evaluation interval. The records that cannot be decoded are skipped; if the
+ * consumer fails, the topic is read again from the beginning with a new consumer after a backoff.
+ */
+public class ConsumerOffsetsTailer implements SmartLifecycle {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConsumerOffsetsTailer.class);
+
+    private static final String CONSUMER_OFFSETS_TOPIC = Topic.GroupMetadataTopicName();
+
+    private static final long MIN_RESTART_BACKOFF_MS = 1000;
+    private static final long MAX_RESTART_BACKOFF_MS = 30000;
+
+    private final ConsumerFactory<byte[], byte[]> consumerFactory;
+    private final ScanEvaluator scanEvaluator;
+    private final long pollTimeoutMs;
+    private final long evaluateIntervalMs;
+
+    // only used by the tailer thread
+    private final IncrementalChecker incrementalChecker = new IncrementalChecker();
+    // group -> committed offset of each topic partition
+    private final Map<String, Map<TopicPartition, Long>> groupOffsets = new HashMap<>();
+    private long restartBackoffMs = MIN_RESTART_BACKOFF_MS;
+
+    private volatile boolean running = false;
+    private volatile Consumer<byte[], byte[]> consumer;
+    private Thread thread;
+
+
+    /**
+     * @param consumerFactory Creates the byte array consumer that reads the internal topic
+     * @param scanEvaluator Evaluates the live view
+     * @param pollTimeoutMs Maximum time blocked in every poll
+     * @param evaluateIntervalMs Minimum time between two evaluations
+     */
+    public ConsumerOffsetsTailer(ConsumerFactory<byte[], byte[]> consumerFactory, ScanEvaluator scanEvaluator,
+                                 long pollTimeoutMs, long evaluateIntervalMs) {
+        this.consumerFactory = consumerFactory;
+        this.scanEvaluator = scanEvaluator;
+        this.pollTimeoutMs = pollTimeoutMs;
+        this.evaluateIntervalMs = evaluateIntervalMs;
+    }
+
+
+    @Override
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        thread = new Thread(this::run, "consumer-offsets-tailer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        Consumer<byte[], byte[]> current = consumer;
+        if (current != null) {
+            current.wakeup();
+        }
+        if (thread != null) {
+            try {
+                thread.join(pollTimeoutMs * 2);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            thread = null;
+        }
+    }
+
+    @Override
+    public void stop(Runnable callback) {
+        stop();
+        callback.run();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public boolean isAutoStartup() {
+        return true;
+    }
+
+    @Override
+    public int getPhase() {
+        return Integer.MAX_VALUE;
+    }
+
+
+    private void run() {
+        while (running) {
+            tail();
+            if (running) {
+                LOGGER.info("Reading " + CONSUMER_OFFSETS_TOPIC + " again in " + restartBackoffMs + " ms");
+                try {
+                    Thread.sleep(restartBackoffMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                restartBackoffMs = Math.min(restartBackoffMs * 2, MAX_RESTART_BACKOFF_MS);
+            }
+        }
+        running = false;
+    }
+
+    /**
+     * Read the internal topic from the beginning until the tailer stops or the consumer fails
+     */
+    private void tail() {
+        try (Consumer<byte[], byte[]> offsetsConsumer = consumerFactory.createConsumer()) {
+            consumer = offsetsConsumer;
+            // the view is loaded again from the beginning of the topic
+            groupOffsets.clear();
+
+            List<TopicPartition> partitions = assignAllPartitions(offsetsConsumer);
+            offsetsConsumer.seekToBeginning(partitions);
+            Map<TopicPartition, Long> endOffsets = offsetsConsumer.endOffsets(partitions);
+            LOGGER.info("Reading " + partitions.size() + " partitions of " + CONSUMER_OFFSETS_TOPIC);
+
+            boolean caughtUp = false;
+            boolean dirty = false;
+            long lastEvaluation = 0;
+
+            while (running) {
+                ConsumerRecords<byte[], byte[]> records = offsetsConsumer.poll(pollTimeoutMs);
+                for (ConsumerRecord<byte[], byte[]> record : records) {
+                    try {
+                        dirty |= apply(record);
+                    } catch (RuntimeException e) {
+                        // e.g. a key or value version written by a newer broker
+                        LOGGER.warn("Skipping the record " + record.offset() + " of " + record.topic() + "-"
+                                + record.partition() + " that cannot be decoded: " + e);
+                    }
+                }
+
+                if (!caughtUp) {
+                    caughtUp = isCaughtUp(offsetsConsumer, endOffsets);
+                    if (caughtUp) {
+                        LOGGER.info("Live view loaded with " + groupOffsets.size() + " consumer groups");
+                        restartBackoffMs = MIN_RESTART_BACKOFF_MS;
+                    }
+                }
+                long now = System.currentTimeMillis();
+                if (caughtUp && dirty && now - lastEvaluation >= evaluateIntervalMs) {
+                    evaluate();
+                    dirty = false;
+                    lastEvaluation = now;
+                }
+            }
+        } catch (WakeupException e) {
+            // stopped
+        } catch (RuntimeException e) {
+            LOGGER.error("The " + CONSUMER_OFFSETS_TOPIC + " consumer has failed", e);
+        } finally {
+            consumer = null;
+        }
+    }
+
+    private List<TopicPartition> assignAllPartitions(Consumer<byte[], byte[]> offsetsConsumer) {
+        List<PartitionInfo> partitionInfo = offsetsConsumer.partitionsFor(CONSUMER_OFFSETS_TOPIC);
+
+        // the internal topic is created with the first commit of the cluster
+        while (running && (partitionInfo == null || partitionInfo.isEmpty())) {
+            LOGGER.info("Waiting for the creation of " + CONSUMER_OFFSETS_TOPIC);
+            sleep(pollTimeoutMs);
+            partitionInfo = offsetsConsumer.partitionsFor(CONSUMER_OFFSETS_TOPIC);
+        }
+
+        List<TopicPartition> partitions = new ArrayList<>();
+        if (partitionInfo != null) {
+            for (PartitionInfo partition : partitionInfo) {
+                partitions.add(new TopicPartition(partition.topic(), partition.partition()));
+            }
+        }
+        offsetsConsumer.assign(partitions);
+
+        return partitions;
+    }
+
+    /**
+     * Update the live view with a record of the internal topic
+     * @return <tt>true</tt> if the view changed
+     */
+    private boolean apply(ConsumerRecord<byte[], byte[]> record) {
+        if (record.key() == null) {
+            return false;
+        }
+        BaseKey key = GroupMetadataManager.readMessageKey(ByteBuffer.wrap(record.key()));
+
+        if (key instanceof OffsetKey) {
+            GroupTopicPartition groupTopicPartition = ((OffsetKey) key).key();
+            if (!scanEvaluator.getTopicMatcher().matches(groupTopicPartition.topicPartition().topic())) {
+                // the offsets of the topics that are not monitored are never kept
+                return false;
+            }
+            String group = groupTopicPartition.group();
+            Map<TopicPartition, Long> offsets = groupOffsets.get(group);
+
+            if (record.value() == null) {
+                // tombstone, the offset has expired or has been deleted
+                if (offsets == null || offsets.remove(groupTopicPartition.topicPartition()) == null) {
+                    return false;
+                }
+                if (offsets.isEmpty()) {
+                    groupOffsets.remove(group);
+                }
+                return true;
+            }
+            OffsetAndMetadata offset = GroupMetadataManager.readOffsetMessageValue(ByteBuffer.wrap(record.value()));
+            if (offsets == null) {
+                offsets = new HashMap<>();
+                groupOffsets.put(group, offsets);
+            }
+            Long previous = offsets.put(groupTopicPartition.topicPartition(), offset.offset());
+            return previous == null || previous != offset.offset();
+
+        } else if (key instanceof GroupMetadataKey && record.value() == null) {
+            // the group has been deleted
+            return groupOffsets.remove(((GroupMetadataKey) key).key()) != null;
+        }
+        return false;
+    }
+
+    private boolean isCaughtUp(Consumer<byte[], byte[]> offsetsConsumer, Map<TopicPartition, Long> endOffsets) {
+        for (Map.Entry<TopicPartition, Long> endOffset : endOffsets.entrySet()) {
+            if (offsetsConsumer.position(endOffset.getKey()) < endOffset.getValue()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void evaluate() {
+        PartitionAssignmentIndex index = incrementalChecker.newIndex();
+        for (Map.Entry<String, Map<TopicPartition, Long>> group : groupOffsets.entrySet()) {
+            index.addGroup(group.getKey(), group.getValue());
+        }
+        try {
+            IncrementalChecker.ScanDelta delta = scanEvaluator.evaluate(incrementalChecker, index);
+            LOGGER.debug(delta.toString());
+        } catch (RuntimeException e) {
+            LOGGER.warn("Unable to evaluate the consumer groups live view", e);
+        }
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
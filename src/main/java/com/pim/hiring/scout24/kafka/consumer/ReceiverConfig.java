@@ -1,8 +1,13 @@
 package com.pim.hiring.scout24.kafka.consumer;
 
+import com.pim.hiring.scout24.kafka.checker.ScanEvaluator;
+import com.pim.hiring.scout24.kafka.checker.TopicMetadataCache;
+import com.pim.hiring.scout24.kafka.shard.ShardCoordinator;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.annotation.EnableKafka;
@@ -24,6 +29,27 @@ public class ReceiverConfig {
     @Value("${spring.kafka.bootstrap-servers}")
     private String bootstrapServers;
 
+    @Value("${checker.metadata.ttl-ms:300000}")
+    private long metadataTtlMs;
+
+    @Value("${checker.metadata.max-topics:10000}")
+    private int metadataMaxTopics;
+
+    @Value("${checker.streaming.poll-timeout-ms:1000}")
+    private long streamingPollTimeoutMs;
+
+    @Value("${checker.streaming.evaluate-interval-ms:2000}")
+    private long streamingEvaluateIntervalMs;
+
+    @Value("${checker.shard.topic:kafka-unassigned-partitions-checker-shards}")
+    private String shardTopic;
+
+    @Value("${checker.shard.group-id:kafka-unassigned-partitions-checker}")
+    private String shardGroupId;
+
+    @Value("${checker.shard.poll-timeout-ms:1000}")
+    private long shardPollTimeoutMs;
+
     @Bean
     public Map<String, Object> consumerConfigs() {
             Map<String, Object> props = new HashMap<>();
@@ -49,4 +75,46 @@ public class ReceiverConfig {
         return factory;
     }
 
+    @Bean
+    @ConditionalOnProperty(name = "checker.mode", havingValue = "streaming")
+    public ConsumerFactory<byte[], byte[]> consumerOffsetsConsumerFactory() {
+        Map<String, Object> props = new HashMap<>();
+        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class);
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class);
+        // __consumer_offsets is read with manual assignment and from the beginning on every start
+        props.put(ConsumerConfig.EXCLUDE_INTERNAL_TOPICS_CONFIG, false);
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+
+        return new DefaultKafkaConsumerFactory<>(props);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "checker.mode", havingValue = "streaming")
+    public ConsumerOffsetsTailer consumerOffsetsTailer(ScanEvaluator scanEvaluator) {
+        return new ConsumerOffsetsTailer(consumerOffsetsConsumerFactory(), scanEvaluator,
+                streamingPollTimeoutMs, streamingEvaluateIntervalMs);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "checker.shard.enabled", havingValue = "true")
+    public ConsumerFactory<String, String> shardConsumerFactory() {
+        Map<String, Object> props = new HashMap<>(consumerConfigs());
+        // all the instances join the same group, so they split the partitions of the shard topic
+        props.put(ConsumerConfig.GROUP_ID_CONFIG, shardGroupId);
+
+        return new DefaultKafkaConsumerFactory<>(props);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "checker.shard.enabled", havingValue = "true")
+    public ShardCoordinator shardCoordinator() {
+        return new ShardCoordinator(shardConsumerFactory(), shardTopic, shardPollTimeoutMs);
+    }
+
+    @Bean(destroyMethod = "close")
+    public TopicMetadataCache topicMetadataCache() {
+        return new TopicMetadataCache(consumerConfigs(), metadataTtlMs, metadataMaxTopics);
+    }
+
 }
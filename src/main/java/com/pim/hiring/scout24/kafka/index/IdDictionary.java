@@ -0,0 +1,63 @@
+package com.pim.hiring.scout24.kafka.index;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * Interns names (topics, consumer groups) as dense int identifiers, so the index can store them as primitives.
+ * Lookups are lock free, new names are appended under a lock.
+ */
+public class IdDictionary {
+
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile String[] names = new String[16];
+    private int size = 0;
+
+
+    /**
+     * Get the identifier of a name, adding it if it's new
+     * @param name The name
+     * @return The identifier
+     */
+    public int intern(String name) {
+        Integer id = ids.get(name);
+        if (id != null) {
+            return id;
+        }
+        synchronized (this) {
+            id = ids.get(name);
+            if (id == null) {
+                if (size == names.length) {
+                    names = Arrays.copyOf(names, size * 2);
+                }
+                id = size;
+                names[size++] = name;
+                // published after the name is stored, so name(id) always works for a visible id
+                ids.put(name, id);
+            }
+            return id;
+        }
+    }
+
+    /**
+     * @param name The name
+     * @return The identifier or -1 if the name has never been interned
+     */
+    public int id(String name) {
+        Integer id = ids.get(name);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * @param id The identifier
+     * @return The interned name
+     */
+    public String name(int id) {
+        return names[id];
+    }
+
+    public int size() {
+        return ids.size();
+    }
+}
@@ -0,0 +1,48 @@
+package com.pim.hiring.scout24.kafka.index;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+
+/**
+ * Partitions with committed offsets of a (consumer group, topic) pair and the committed offset of each one
+ */
+public final class PartitionAssignment {
+
+    /** Offset of the partitions without a known committed offset */
+    public static final long UNKNOWN_OFFSET = -1L;
+
+    private final BitSet partitions;
+    // committed offset per partition number
+    private final long[] offsets;
+
+
+    PartitionAssignment(BitSet partitions, long[] offsets) {
+        this.partitions = partitions;
+        this.offsets = offsets;
+    }
+
+
+    /**
+     * @return The partitions with committed offsets
+     */
+    public BitSet getPartitions() {
+        return partitions;
+    }
+
+    /**
+     * @param partition The partition number
+     * @return The committed offset or {@link #UNKNOWN_OFFSET}
+     */
+    public long getOffset(int partition) {
+        return partition < offsets.length ? offsets[partition] : UNKNOWN_OFFSET;
+    }
+
+    /**
+     * @param other The assignment of the same pair in other scan
+     * @return <tt>true</tt> if both have the same partitions and committed offsets
+     */
+    public boolean sameOffsets(PartitionAssignment other) {
+        return other != null && partitions.equals(other.partitions) && Arrays.equals(offsets, other.offsets);
+    }
+}
@@ -0,0 +1,268 @@
+package com.pim.hiring.scout24.kafka.index;
+
+import org.apache.kafka.common.TopicPartition;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * Compact index of the partitions with committed offsets of every (consumer group, topic) pair.
+ * Topics and groups are interned as int identifiers and the partitions of each pair are stored in a {@link BitSet},
+ * so the missing partitions of a pair are a single bitset difference against the topic partitions.
+ * Different groups can be added from different threads at the same time.
+ * Indexes of consecutive scans share their dictionaries, so the same identifiers can be compared between them.
+ */
+public class PartitionAssignmentIndex {
+
+    private final IdDictionary groups;
+    private final IdDictionary topics;
+
+    // (group id, topic id) -> partitions with committed offsets
+    private final ConcurrentHashMap<Long, PartitionAssignment> assignments = new ConcurrentHashMap<>();
+
+    // every fetcher thread reuses its buffers for all the groups it adds
+    private static final ThreadLocal<TopicAccumulator> ACCUMULATOR = ThreadLocal.withInitial(TopicAccumulator::new);
+
+
+    /**
+     * Visits every (consumer group, topic) pair of the index
+     */
+    public interface AssignmentVisitor {
+        void visit(int groupId, int topicId, PartitionAssignment assignment);
+    }
+
+
+    public PartitionAssignmentIndex() {
+        this(new IdDictionary(), new IdDictionary());
+    }
+
+    /**
+     * @param groups The consumer group dictionary, it can be shared between indexes
+     * @param topics The topic dictionary, it can be shared between indexes
+     */
+    public PartitionAssignmentIndex(IdDictionary groups, IdDictionary topics) {
+        this.groups = groups;
+        this.topics = topics;
+    }
+
+
+    /**
+     * Add the partitions of a consumer group, replacing the previous ones of the same topics
+     * @param group The consumer group
+     * @param topicPartitions The topic partitions with committed offsets
+     */
+    public void addGroup(String group, Collection<TopicPartition> topicPartitions) {
+        int groupId = groups.intern(group);
+        TopicAccumulator accumulator = ACCUMULATOR.get().reset();
+        for (TopicPartition tp : topicPartitions) {
+            accumulator.add(topics.intern(tp.topic()), tp.partition(), PartitionAssignment.UNKNOWN_OFFSET);
+        }
+        accumulator.drainTo(groupId, assignments);
+    }
+
+    /**
+     * Add the partitions and committed offsets of a consumer group, replacing the previous ones of the same topics
+     * @param group The consumer group
+     * @param groupOffsets The committed offset of each topic partition, as returned by the admin client
+     */
+    public void addGroup(String group, Map<TopicPartition, ?> groupOffsets) {
+        int groupId = groups.intern(group);
+        TopicAccumulator accumulator = ACCUMULATOR.get().reset();
+        for (Map.Entry<TopicPartition, ?> groupOffset : groupOffsets.entrySet()) {
+            TopicPartition tp = groupOffset.getKey();
+            accumulator.add(topics.intern(tp.topic()), tp.partition(), toOffset(groupOffset.getValue()));
+        }
+        accumulator.drainTo(groupId, assignments);
+    }
+
+    /**
+     * Replace all the pairs of some consumer groups with the ones of another index
+     * @param other An index that shares the dictionaries of this one
+     * @param groupIds The consumer groups to replace, the ones missing in the other index are removed
+     */
+    public void replaceGroups(PartitionAssignmentIndex other, BitSet groupIds) {
+        assignments.keySet().removeIf(key -> groupIds.get(groupId(key)));
+        assignments.putAll(other.assignments);
+    }
+
+    /**
+     * @param other An index that shares the dictionaries of this one
+     * @param groupIds Some consumer groups
+     * @return A copy of this index with the pairs of the given groups taken from the other index
+     */
+    public PartitionAssignmentIndex withGroupsOf(PartitionAssignmentIndex other, BitSet groupIds) {
+        PartitionAssignmentIndex copy = new PartitionAssignmentIndex(groups, topics);
+        copy.assignments.putAll(assignments);
+        for (Map.Entry<Long, PartitionAssignment> assignment : other.assignments.entrySet()) {
+            if (groupIds.get(groupId(assignment.getKey()))) {
+                copy.assignments.put(assignment.getKey(), assignment.getValue());
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * @param groupId The consumer group identifier
+     * @param topicId The topic identifier
+     * @return The partitions with committed offsets or {@code null} if the group doesn't use the topic
+     */
+    public PartitionAssignment getAssignment(int groupId, int topicId) {
+        return assignments.get(pairKey(groupId, topicId));
+    }
+
+    /**
+     * Get the topic partitions that have no committed offsets for a consumer group
+     * @param groupId The consumer group identifier
+     * @param topicId The topic identifier
+     * @param partitionCount The number of partitions of the topic
+     * @return The missing partitions, empty if the group has all of them or doesn't use the topic
+     */
+    public BitSet getMissingPartitions(int groupId, int topicId, int partitionCount) {
+        BitSet missing = new BitSet(partitionCount);
+        PartitionAssignment assignment = getAssignment(groupId, topicId);
+
+        if (assignment != null) {
+            missing.set(0, partitionCount);
+            missing.andNot(assignment.getPartitions());
+        }
+        return missing;
+    }
+
+    /**
+     * Visit every (consumer group, topic) pair
+     * @param visitor The visitor
+     */
+    public void forEach(AssignmentVisitor visitor) {
+        for (Map.Entry<Long, PartitionAssignment> assignment : assignments.entrySet()) {
+            long key = assignment.getKey();
+            visitor.visit(groupId(key), topicId(key), assignment.getValue());
+        }
+    }
+
+
+    public IdDictionary getGroups() {
+        return groups;
+    }
+
+    public IdDictionary getTopics() {
+        return topics;
+    }
+
+    public String groupName(int groupId) {
+        return groups.name(groupId);
+    }
+
+    public String topicName(int topicId) {
+        return topics.name(topicId);
+    }
+
+    /**
+     * @return The number of (consumer group, topic) pairs
+     */
+    public int size() {
+        return assignments.size();
+    }
+
+
+    /**
+     * @param groupId The consumer group identifier
+     * @param topicId The topic identifier
+     * @return A single primitive key for the (consumer group, topic) pair
+     */
+    public static long pairKey(int groupId, int topicId) {
+        return ((long) groupId << 32) | (topicId & 0xFFFFFFFFL);
+    }
+
+    public static int groupId(long pairKey) {
+        return (int) (pairKey >>> 32);
+    }
+
+    public static int topicId(long pairKey) {
+        return (int) pairKey;
+    }
+
+    private static long toOffset(Object offset) {
+        return offset instanceof Number ? ((Number) offset).longValue() : PartitionAssignment.UNKNOWN_OFFSET;
+    }
+
+
+    /**
+     * Builds the assignments of a consumer group one topic at a time. The partitions of the group are recorded as
+     * primitive (topic, partition, offset) entries, sorted by topic, and every topic is written into a bitset and an
+     * offsets array reused between topics and groups, so adding a group only allocates its final assignments.
+     * The buffers grow with the largest topic and group seen, and are released after a group much larger than usual.
+     */
+    private static final class TopicAccumulator {
+
+        private static final int INITIAL_ENTRIES = 256;
+        // a buffer with more entries is released after its group
+        private static final int RETAINED_ENTRIES = 16384;
+
+        // (topic id << 32 | entry) sorted by topic, with the partition and offset of every entry
+        private long[] keys = new long[INITIAL_ENTRIES];
+        private int[] partitions = new int[INITIAL_ENTRIES];
+        private long[] offsets = new long[INITIAL_ENTRIES];
+        private int size;
+
+        // the topic being written
+        private final BitSet topicPartitions = new BitSet();
+        private long[] topicOffsets = new long[0];
+
+        // drops the entries left by a group that failed while being added
+        private TopicAccumulator reset() {
+            size = 0;
+            return this;
+        }
+
+        private void add(int topicId, int partition, long offset) {
+            if (size == keys.length) {
+                int capacity = size * 2;
+                keys = Arrays.copyOf(keys, capacity);
+                partitions = Arrays.copyOf(partitions, capacity);
+                offsets = Arrays.copyOf(offsets, capacity);
+            }
+            keys[size] = ((long) topicId << 32) | size;
+            partitions[size] = partition;
+            offsets[size] = offset;
+            size++;
+        }
+
+        private void drainTo(int groupId, Map<Long, PartitionAssignment> assignments) {
+            Arrays.sort(keys, 0, size);
+            int from = 0;
+            while (from < size) {
+                int topicId = (int) (keys[from] >>> 32);
+                int maxPartition = -1;
+                int to = from;
+                for (; to < size && (int) (keys[to] >>> 32) == topicId; to++) {
+                    int entry = (int) keys[to];
+                    int partition = partitions[entry];
+                    if (partition >= topicOffsets.length) {
+                        int length = topicOffsets.length;
+                        topicOffsets = Arrays.copyOf(topicOffsets, Math.max(partition + 1, length * 2));
+                        Arrays.fill(topicOffsets, length, topicOffsets.length, PartitionAssignment.UNKNOWN_OFFSET);
+                    }
+                    topicPartitions.set(partition);
+                    topicOffsets[partition] = offsets[entry];
+                    maxPartition = Math.max(maxPartition, partition);
+                }
+                assignments.put(pairKey(groupId, topicId), new PartitionAssignment((BitSet) topicPartitions.clone(),
+                        Arrays.copyOf(topicOffsets, maxPartition + 1)));
+
+                topicPartitions.clear();
+                Arrays.fill(topicOffsets, 0, maxPartition + 1, PartitionAssignment.UNKNOWN_OFFSET);
+                from = to;
+            }
+            size = 0;
+            if (keys.length > RETAINED_ENTRIES) {
+                keys = new long[INITIAL_ENTRIES];
+                partitions = new int[INITIAL_ENTRIES];
+                offsets = new long[INITIAL_ENTRIES];
+            }
+        }
+    }
+}
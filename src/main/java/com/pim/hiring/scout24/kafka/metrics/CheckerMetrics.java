@@ -0,0 +1,194 @@
+package com.pim.hiring.scout24.kafka.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Scan timings, admin client errors and scheduler statistics.
+ * Every meter is registered once, so recording a scan only updates the existing timers and counters.
+ */
+public class CheckerMetrics {
+
+    /**
+     * The phases of a polling scan
+     */
+    public enum Phase {
+        GROUP_LISTING("group-listing"),
+        OFFSET_FETCH("offset-fetch"),
+        METADATA_FETCH("metadata-fetch"),
+        COMPARE("compare"),
+        ASSIGNMENT_CHECK("assignment-check"),
+        LAG_CHECK("lag-check");
+
+        private final String tag;
+
+        Phase(String tag) {
+            this.tag = tag;
+        }
+
+        public String getTag() {
+            return tag;
+        }
+    }
+
+    /**
+     * The runs of the scheduler
+     */
+    public enum RunType {
+        FULL("full"),
+        RECHECK("recheck");
+
+        private final String tag;
+
+        RunType(String tag) {
+            this.tag = tag;
+        }
+
+        public String getTag() {
+            return tag;
+        }
+    }
+
+    private final Map<Phase, Timer> phaseTimers = new EnumMap<>(Phase.class);
+    private final Map<Phase, Counter> overBudgetPhases = new EnumMap<>(Phase.class);
+    private final Map<Phase, Counter> adminClientErrors = new EnumMap<>(Phase.class);
+    private final Map<RunType, Counter> scheduledRuns = new EnumMap<>(RunType.class);
+    private final Counter skippedRuns;
+    private final Counter topicExpansions;
+    private final AtomicLong nextRunAt = new AtomicLong();
+    private final AtomicLong fullScanDelayMs = new AtomicLong();
+    private final AtomicLong backoffLevel = new AtomicLong();
+
+
+    /**
+     * @param registry The registry where the meters are registered
+     */
+    public CheckerMetrics(MeterRegistry registry) {
+        for (Phase phase : Phase.values()) {
+            phaseTimers.put(phase, Timer.builder("kafka.checker.scan.phase")
+                    .description("Time spent in every phase of a scan")
+                    .tag("phase", phase.getTag())
+                    .publishPercentileHistogram()
+                    .register(registry));
+        }
+        for (Phase phase : Phase.values()) {
+            overBudgetPhases.put(phase, Counter.builder("kafka.checker.scan.over.budget")
+                    .description("Phases that took longer than their time budget")
+                    .tag("phase", phase.getTag())
+                    .register(registry));
+        }
+        // only these phases use the admin client
+        for (Phase phase : new Phase[]{Phase.GROUP_LISTING, Phase.OFFSET_FETCH, Phase.ASSIGNMENT_CHECK}) {
+            adminClientErrors.put(phase, Counter.builder("kafka.checker.admin.errors")
+                    .description("Failed admin client requests")
+                    .tag("phase", phase.getTag())
+                    .register(registry));
+        }
+
+        for (RunType type : RunType.values()) {
+            scheduledRuns.put(type, Counter.builder("kafka.checker.scheduler.runs")
+                    .description("Scheduled scans")
+                    .tag("type", type.getTag())
+                    .register(registry));
+        }
+        skippedRuns = Counter.builder("kafka.checker.scheduler.skipped.runs")
+                .description("Scheduled scans skipped because another scan was running")
+                .register(registry);
+        topicExpansions = Counter.builder("kafka.checker.topic.expansions")
+                .description("Monitored topics found with more partitions between the full scans")
+                .register(registry);
+        Gauge.builder("kafka.checker.scheduler.next.run", nextRunAt, next -> next.get() / 1000.0)
+                .description("Time of the next scheduled scan in seconds since the epoch")
+                .register(registry);
+        Gauge.builder("kafka.checker.scheduler.delay", fullScanDelayMs, delay -> delay.get() / 1000.0)
+                .description("Delay in seconds until the next full scan")
+                .register(registry);
+        Gauge.builder("kafka.checker.scheduler.backoff.level", backoffLevel, AtomicLong::get)
+                .description("Number of times the base delay between full scans has been doubled")
+                .register(registry);
+    }
+
+
+    /**
+     * @param phase The finished phase
+     * @param startNanos The {@link System#nanoTime()} when the phase started
+     * @return The time spent in the phase in nanoseconds
+     */
+    public long recordPhase(Phase phase, long startNanos) {
+        long elapsedNanos = System.nanoTime() - startNanos;
+        phaseTimers.get(phase).record(elapsedNanos, TimeUnit.NANOSECONDS);
+        return elapsedNanos;
+    }
+
+    /**
+     * @param phase The phase that took longer than its budget
+     */
+    public void overBudget(Phase phase) {
+        overBudgetPhases.get(phase).increment();
+    }
+
+    /**
+     * @param phase {@link Phase#GROUP_LISTING}, {@link Phase#OFFSET_FETCH} or {@link Phase#ASSIGNMENT_CHECK}
+     * @param errors The number of failed requests
+     */
+    public void adminClientErrors(Phase phase, int errors) {
+        if (errors > 0) {
+            adminClientErrors.get(phase).increment(errors);
+        }
+    }
+
+    public void scheduledRun(RunType type) {
+        scheduledRuns.get(type).increment();
+    }
+
+    public void skippedRun() {
+        skippedRuns.increment();
+    }
+
+    /**
+     * @param topics The number of monitored topics that gained partitions
+     */
+    public void topicExpansions(int topics) {
+        topicExpansions.increment(topics);
+    }
+
+    /**
+     * @param nextRunAt The time of the next scheduled scan in milliseconds since the epoch
+     */
+    public void nextRun(long nextRunAt) {
+        this.nextRunAt.set(nextRunAt);
+    }
+
+    /**
+     * @param delayMs The delay until the next full scan
+     * @param backoffLevel The number of times the base delay has been doubled
+     */
+    public void fullScanDelay(long delayMs, int backoffLevel) {
+        this.fullScanDelayMs.set(delayMs);
+        this.backoffLevel.set(backoffLevel);
+    }
+
+    public Timer getPhaseTimer(Phase phase) {
+        return phaseTimers.get(phase);
+    }
+
+    public Counter getAdminClientErrors(Phase phase) {
+        return adminClientErrors.get(phase);
+    }
+
+    public Counter getSkippedRuns() {
+        return skippedRuns;
+    }
+
+    public Counter getTopicExpansions() {
+        return topicExpansions;
+    }
+}
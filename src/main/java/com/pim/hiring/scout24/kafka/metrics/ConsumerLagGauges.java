@@ -0,0 +1,89 @@
+package com.pim.hiring.scout24.kafka.metrics;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Keeps two gauges for every (consumer group, topic) pair of the last scan: the lag of all its partitions and the lag
+ * of its most lagging partition, so a single stuck partition of a busy topic stands out.
+ * The gauges are removed when their pair is no longer in a scan.
+ */
+public class ConsumerLagGauges {
+
+    public static final String METRIC_NAME = "kafka.checker.consumer.lag";
+    public static final String MAX_METRIC_NAME = "kafka.checker.consumer.lag.max";
+
+    private final MeterRegistry registry;
+
+    // topic#group -> gauges, the topic names can't contain '#'
+    private final Map<String, PairGauge> gauges = new HashMap<>();
+
+
+    private static class PairGauge {
+        private final AtomicLong lag = new AtomicLong();
+        private final AtomicLong maxLag = new AtomicLong();
+        private Gauge gauge;
+        private Gauge maxGauge;
+    }
+
+
+    /**
+     * @param registry The registry where the gauges are registered
+     */
+    public ConsumerLagGauges(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+
+    /**
+     * @param lagByPair The lag of every topic#group pair of the scan
+     * @param maxLagByPair The lag of the most lagging partition of every pair
+     */
+    public synchronized void update(Map<String, Long> lagByPair, Map<String, Long> maxLagByPair) {
+        Iterator<Map.Entry<String, PairGauge>> iterator = gauges.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, PairGauge> pairGauge = iterator.next();
+            if (!lagByPair.containsKey(pairGauge.getKey())) {
+                registry.remove(pairGauge.getValue().gauge);
+                registry.remove(pairGauge.getValue().maxGauge);
+                iterator.remove();
+            }
+        }
+        for (Map.Entry<String, Long> lag : lagByPair.entrySet()) {
+            PairGauge pairGauge = gauges.get(lag.getKey());
+            if (pairGauge == null) {
+                String key = lag.getKey();
+                String group = key.substring(key.indexOf('#') + 1);
+                String topic = key.substring(0, key.indexOf('#'));
+                pairGauge = new PairGauge();
+                // the gauges only keep a weak reference to their value, the map keeps it alive
+                pairGauge.gauge = Gauge.builder(METRIC_NAME, pairGauge.lag, AtomicLong::get)
+                        .description("Messages of the topic not consumed yet by the consumer group")
+                        .tag("group", group)
+                        .tag("topic", topic)
+                        .register(registry);
+                pairGauge.maxGauge = Gauge.builder(MAX_METRIC_NAME, pairGauge.maxLag, AtomicLong::get)
+                        .description("Messages not consumed yet of the most lagging partition of the topic")
+                        .tag("group", group)
+                        .tag("topic", topic)
+                        .register(registry);
+                gauges.put(key, pairGauge);
+            }
+            pairGauge.lag.set(lag.getValue());
+            pairGauge.maxLag.set(maxLagByPair.getOrDefault(lag.getKey(), 0L));
+        }
+    }
+
+    /**
+     * @return The number of (consumer group, topic) pairs with a lag gauge
+     */
+    public synchronized int size() {
+        return gauges.size();
+    }
+}
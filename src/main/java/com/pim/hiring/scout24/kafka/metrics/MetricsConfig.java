@@ -0,0 +1,106 @@
+package com.pim.hiring.scout24.kafka.metrics;
+
+import com.pim.hiring.scout24.kafka.admin.AdminClientPool;
+import com.pim.hiring.scout24.kafka.checker.TopicMetadataCache;
+import com.pim.hiring.scout24.kafka.report.ReportPipeline;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+
+/**
+ * Created on 17/10/2026.
+ */
+@Configuration
+public class MetricsConfig {
+
+    // set for every cluster of checker.clusters.names
+    @Value("${checker.cluster.name:}")
+    private String clusterName;
+
+    @Value("${checker.clusters.names:}")
+    private String[] clusterNames;
+
+    @Bean
+    public CheckerMetrics checkerMetrics(MeterRegistry registry) {
+        return new CheckerMetrics(clusterRegistry(registry));
+    }
+
+    @Bean
+    public UnassignedPartitionsGauges unassignedPartitionsGauges(MeterRegistry registry) {
+        return new UnassignedPartitionsGauges(clusterRegistry(registry));
+    }
+
+    @Bean
+    public ConsumerLagGauges consumerLagGauges(MeterRegistry registry) {
+        return new ConsumerLagGauges(clusterRegistry(registry));
+    }
+
+    // the counters are read from the pool and the cache when they are scraped
+    @Bean
+    public MeterBinder adminClientPoolMetrics(AdminClientPool adminClientPool) {
+        return meterRegistry -> {
+            MeterRegistry registry = clusterRegistry(meterRegistry);
+            FunctionCounter.builder("kafka.checker.admin.clients.created", adminClientPool,
+                    AdminClientPool::getCreatedCount).register(registry);
+            FunctionCounter.builder("kafka.checker.admin.clients.reused", adminClientPool,
+                    AdminClientPool::getReusedCount).register(registry);
+            FunctionCounter.builder("kafka.checker.admin.clients.reconnects", adminClientPool,
+                    AdminClientPool::getReconnectCount).register(registry);
+            Gauge.builder("kafka.checker.admin.clients.open", adminClientPool,
+                    AdminClientPool::getOpenCount).register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder topicMetadataCacheMetrics(TopicMetadataCache topicMetadataCache) {
+        return meterRegistry -> {
+            MeterRegistry registry = clusterRegistry(meterRegistry);
+            FunctionCounter.builder("kafka.checker.metadata.cache.requests", topicMetadataCache,
+                    TopicMetadataCache::getHitCount).tag("result", "hit").register(registry);
+            FunctionCounter.builder("kafka.checker.metadata.cache.requests", topicMetadataCache,
+                    TopicMetadataCache::getMissCount).tag("result", "miss").register(registry);
+            FunctionCounter.builder("kafka.checker.metadata.cache.invalidations", topicMetadataCache,
+                    TopicMetadataCache::getInvalidationCount).register(registry);
+            Gauge.builder("kafka.checker.metadata.cache.size", topicMetadataCache,
+                    TopicMetadataCache::size).register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder reportPipelineMetrics(ReportPipeline reportPipeline) {
+        return registry -> {
+            for (String sink : reportPipeline.getSinkNames()) {
+                Gauge.builder("kafka.checker.report.queued", reportPipeline, pipeline -> pipeline.getQueued(sink))
+                        .tag("sink", sink).register(registry);
+                FunctionCounter.builder("kafka.checker.report.written", reportPipeline,
+                        pipeline -> pipeline.getWritten(sink)).tag("sink", sink).register(registry);
+                FunctionCounter.builder("kafka.checker.report.failed", reportPipeline,
+                        pipeline -> pipeline.getFailed(sink)).tag("sink", sink).register(registry);
+            }
+        };
+    }
+
+
+    /**
+     * When several clusters are monitored all the meters of a cluster get its name in the cluster tag, the ones of
+     * spring.kafka.bootstrap-servers are tagged with checker.cluster.name or "default"
+     * @param registry The application registry
+     * @return The registry where the meters of this cluster are registered
+     */
+    private MeterRegistry clusterRegistry(MeterRegistry registry) {
+        String cluster = !clusterName.isEmpty() ? clusterName : clusterNames.length > 0 ? "default" : null;
+        if (cluster == null) {
+            return registry;
+        }
+        CompositeMeterRegistry clusterRegistry = new CompositeMeterRegistry(registry.config().clock());
+        clusterRegistry.config().commonTags("cluster", cluster);
+        clusterRegistry.add(registry);
+        return clusterRegistry;
+    }
+}
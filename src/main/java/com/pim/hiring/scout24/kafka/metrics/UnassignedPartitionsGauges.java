@@ -0,0 +1,86 @@
+package com.pim.hiring.scout24.kafka.metrics;
+
+import com.pim.hiring.scout24.kafka.checker.IncrementalChecker;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Keeps a gauge with the number of unassigned partitions of every (consumer group, topic) pair.
+ * The gauges are updated with the transitions of the scans, so a steady state doesn't touch them. A gauge is removed
+ * when all the partitions of its pair recover or its topic is not checked any more.
+ */
+public class UnassignedPartitionsGauges implements IncrementalChecker.TransitionListener {
+
+    public static final String METRIC_NAME = "kafka.checker.unassigned.partitions";
+
+    private final MeterRegistry registry;
+
+    // topic#group -> gauge, the topic names can't contain '#'
+    private final Map<String, PairGauge> gauges = new HashMap<>();
+
+
+    private static class PairGauge {
+        private final AtomicInteger unassigned = new AtomicInteger();
+        private Gauge gauge;
+    }
+
+
+    /**
+     * @param registry The registry where the gauges are registered
+     */
+    public UnassignedPartitionsGauges(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+
+    @Override
+    public synchronized void onUnassigned(String group, String topic, BitSet partitions) {
+        String key = topic + "#" + group;
+        PairGauge pairGauge = gauges.get(key);
+        if (pairGauge == null) {
+            pairGauge = new PairGauge();
+            // the gauge only keeps a weak reference to its value, the map keeps it alive
+            pairGauge.gauge = Gauge.builder(METRIC_NAME, pairGauge.unassigned, AtomicInteger::get)
+                    .description("Topic partitions without committed offsets of the consumer group")
+                    .tag("group", group)
+                    .tag("topic", topic)
+                    .register(registry);
+            gauges.put(key, pairGauge);
+        }
+        pairGauge.unassigned.addAndGet(partitions.cardinality());
+    }
+
+    @Override
+    public synchronized void onRecovered(String group, String topic, BitSet partitions) {
+        String key = topic + "#" + group;
+        PairGauge pairGauge = gauges.get(key);
+        if (pairGauge == null) {
+            return;
+        }
+        if (pairGauge.unassigned.addAndGet(-partitions.cardinality()) <= 0) {
+            gauges.remove(key);
+            registry.remove(pairGauge.gauge);
+        }
+    }
+
+    @Override
+    public synchronized void onCleared(String group, String topic, BitSet partitions) {
+        PairGauge pairGauge = gauges.remove(topic + "#" + group);
+        if (pairGauge != null) {
+            registry.remove(pairGauge.gauge);
+        }
+    }
+
+    /**
+     * @return The number of (consumer group, topic) pairs with unassigned partitions
+     */
+    public synchronized int size() {
+        return gauges.size();
+    }
+}
@@ -0,0 +1,54 @@
+package com.pim.hiring.scout24.kafka.report;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+
+/**
+ * Writes every report as a JSON object in its own line, to a file or to the standard output
+ */
+public class JsonLinesSink implements ReportSink {
+
+    private final ObjectMapper objectMapper;
+    private final OutputStream out;
+    private final boolean ownsStream;
+
+
+    /**
+     * @param objectMapper Serializes the reports
+     * @param path The file where the lines are appended or an empty path for the standard output
+     * @throws IOException If the file can't be opened
+     */
+    public JsonLinesSink(ObjectMapper objectMapper, String path) throws IOException {
+        this.objectMapper = objectMapper;
+        this.ownsStream = path != null && !path.isEmpty();
+        this.out = ownsStream ? new FileOutputStream(path, true) : System.out;
+    }
+
+    @Override
+    public String getName() {
+        return "json";
+    }
+
+    @Override
+    public void write(List<UnassignedPartitionReport> reports) throws IOException {
+        StringBuilder lines = new StringBuilder();
+        for (UnassignedPartitionReport report : reports) {
+            lines.append(objectMapper.writeValueAsString(report)).append('\n');
+        }
+        out.write(lines.toString().getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (ownsStream) {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.pim.hiring.scout24.kafka.report;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.util.concurrent.ListenableFuture;
+
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * Publishes every report as JSON in a Kafka topic, keyed by consumer group so the reports of a group keep their order
+ */
+public class KafkaSink implements ReportSink {
+
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final ObjectMapper objectMapper;
+    private final String topic;
+
+
+    /**
+     * @param kafkaTemplate The template of the application
+     * @param objectMapper Serializes the reports
+     * @param topic The topic where the reports are published
+     */
+    public KafkaSink(KafkaTemplate<String, String> kafkaTemplate, ObjectMapper objectMapper, String topic) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.objectMapper = objectMapper;
+        this.topic = topic;
+    }
+
+    @Override
+    public String getName() {
+        return "kafka";
+    }
+
+    @Override
+    public void write(List<UnassignedPartitionReport> reports) throws Exception {
+        // the whole batch is sent before waiting, so the producer can group the records
+        List<ListenableFuture<SendResult<String, String>>> sent = new ArrayList<>(reports.size());
+        for (UnassignedPartitionReport report : reports) {
+            sent.add(kafkaTemplate.send(topic, report.getGroup(), objectMapper.writeValueAsString(report)));
+        }
+        kafkaTemplate.flush();
+        for (ListenableFuture<SendResult<String, String>> result : sent) {
+            result.get();
+        }
+    }
+}
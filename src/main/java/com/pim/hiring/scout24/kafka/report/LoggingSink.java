@@ -0,0 +1,58 @@
+package com.pim.hiring.scout24.kafka.report;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+
+/**
+ * Prints the partitions that became unassigned, recovered or flagged by the live assignment check in the
+ * application log
+ */
+public class LoggingSink implements ReportSink {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LoggingSink.class);
+
+    @Override
+    public String getName() {
+        return "log";
+    }
+
+    @Override
+    public void write(List<UnassignedPartitionReport> reports) {
+        for (UnassignedPartitionReport report : reports) {
+            String consumer = (report.getCluster() == null ? "" : report.getCluster() + "/") +
+                    report.getTopic() + "#" + report.getGroup();
+            for (int partition : report.getPartitions()) {
+                String topicPartition = report.getTopic() + "-" + partition;
+                switch (report.getType()) {
+                    case UNASSIGNED:
+                        if (report.getSeverity() == UnassignedPartitionReport.Severity.CRITICAL) {
+                            LOGGER.error("Consumer " + consumer + " has missed the partition " + topicPartition);
+                        } else {
+                            LOGGER.warn("Consumer " + consumer + " has missed the partition " + topicPartition);
+                        }
+                        break;
+                    case RECOVERED:
+                        LOGGER.info("Consumer " + consumer + " has recovered the partition " + topicPartition);
+                        break;
+                    case COMMITTED_NOT_ASSIGNED:
+                        LOGGER.warn("Consumer " + consumer + " has no member consuming the committed partition " +
+                                topicPartition);
+                        break;
+                    case ASSIGNED_NOT_COMMITTED:
+                        LOGGER.warn("Consumer " + consumer + " has never committed the assigned partition " +
+                                topicPartition);
+                        break;
+                    case STALLED:
+                        LOGGER.warn("Consumer " + consumer + " has stalled on the partition " + topicPartition);
+                        break;
+                    default:
+                        LOGGER.warn("Consumer " + consumer + " has neither committed nor assigned the partition " +
+                                topicPartition);
+                }
+            }
+        }
+    }
+}
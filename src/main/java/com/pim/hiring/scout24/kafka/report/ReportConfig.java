@@ -0,0 +1,80 @@
+package com.pim.hiring.scout24.kafka.report;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * Created on 17/10/2026.
+ */
+@Configuration
+public class ReportConfig {
+
+    @Value("${checker.report.sinks:log}")
+    private String[] sinks;
+
+    @Value("${checker.report.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${checker.report.batch-size:500}")
+    private int batchSize;
+
+    @Value("${checker.report.linger-ms:1000}")
+    private long lingerMs;
+
+    @Value("${checker.report.json.path:}")
+    private String jsonPath;
+
+    @Value("${checker.report.kafka.topic:unassigned-partitions}")
+    private String kafkaTopic;
+
+    @Value("${checker.report.webhook.url:}")
+    private String webhookUrl;
+
+    @Value("${checker.report.webhook.timeout-ms:5000}")
+    private int webhookTimeoutMs;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private KafkaTemplate<String, String> kafkaTemplate;
+
+    // the pending reports are written when the context is closed
+    @Bean(destroyMethod = "close")
+    public ReportPipeline reportPipeline() throws IOException {
+        List<ReportSink> reportSinks = new ArrayList<>();
+        for (String sink : sinks) {
+            switch (sink.trim()) {
+                case "log":
+                    reportSinks.add(new LoggingSink());
+                    break;
+                case "stdout":
+                    reportSinks.add(new StdoutSink());
+                    break;
+                case "json":
+                    reportSinks.add(new JsonLinesSink(objectMapper, jsonPath));
+                    break;
+                case "kafka":
+                    reportSinks.add(new KafkaSink(kafkaTemplate, objectMapper, kafkaTopic));
+                    break;
+                case "webhook":
+                    reportSinks.add(new WebhookSink(webhookUrl, webhookTimeoutMs));
+                    break;
+                case "":
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown report sink " + sink);
+            }
+        }
+        return new ReportPipeline(reportSinks, queueCapacity, batchSize, lingerMs);
+    }
+}
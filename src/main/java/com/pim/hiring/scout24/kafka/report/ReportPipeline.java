@@ -0,0 +1,243 @@
+package com.pim.hiring.scout24.kafka.report;
+
+import com.pim.hiring.scout24.kafka.checker.ConsumerLagChecker;
+import com.pim.hiring.scout24.kafka.checker.IncrementalChecker;
+import com.pim.hiring.scout24.kafka.checker.LiveAssignmentCheck;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Streams the transitions found by the scans to the report sinks.
+ * Every sink has its own bounded queue and thread, so a slow sink doesn't delay the others. The reports are written in
+ * batches of up to batchSize reports, waiting at most lingerMs to fill a batch. When a queue is full the scan waits
+ * until the sink catches up, so the memory used by the pending reports is bounded.
+ */
+public class ReportPipeline implements IncrementalChecker.TransitionListener, LiveAssignmentCheck.FlagListener,
+        ConsumerLagChecker.StallListener, AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReportPipeline.class);
+
+    private final List<SinkWorker> workers;
+    private final int batchSize;
+    private final long lingerMs;
+    // set in the views of the other monitored clusters, which write to the sinks of the pipeline that created them
+    private final ReportPipeline owner;
+    private final String cluster;
+
+    private volatile boolean running = true;
+
+
+    /**
+     * @param sinks The sinks that receive every report
+     * @param queueCapacity Maximum number of reports waiting for each sink
+     * @param batchSize Maximum number of reports written together
+     * @param lingerMs Maximum time waiting for more reports before writing a batch
+     */
+    public ReportPipeline(List<ReportSink> sinks, int queueCapacity, int batchSize, long lingerMs) {
+        this.workers = new ArrayList<>();
+        this.batchSize = batchSize;
+        this.lingerMs = lingerMs;
+        this.owner = null;
+        this.cluster = null;
+        for (ReportSink sink : sinks) {
+            SinkWorker worker = new SinkWorker(sink, queueCapacity);
+            workers.add(worker);
+            worker.thread.start();
+        }
+    }
+
+    private ReportPipeline(ReportPipeline owner, String cluster) {
+        this.workers = owner.workers;
+        this.batchSize = owner.batchSize;
+        this.lingerMs = owner.lingerMs;
+        this.owner = owner;
+        this.cluster = cluster;
+    }
+
+
+    /**
+     * @param cluster The name of a monitored cluster
+     * @return A pipeline that writes to the same sinks the reports of the cluster, with its name
+     */
+    public ReportPipeline forCluster(String cluster) {
+        return new ReportPipeline(owner == null ? this : owner, cluster);
+    }
+
+
+    @Override
+    public void onUnassigned(String group, String topic, BitSet partitions) {
+        publish(UnassignedPartitionReport.of(UnassignedPartitionReport.Type.UNASSIGNED, group, topic, partitions));
+    }
+
+    @Override
+    public void onRecovered(String group, String topic, BitSet partitions) {
+        publish(UnassignedPartitionReport.of(UnassignedPartitionReport.Type.RECOVERED, group, topic, partitions));
+    }
+
+    @Override
+    public void onFlagged(LiveAssignmentCheck.Status status, String group, String topic, BitSet partitions) {
+        publish(UnassignedPartitionReport.of(UnassignedPartitionReport.Type.valueOf(status.name()), group, topic,
+                partitions));
+    }
+
+    @Override
+    public void onStalled(String group, String topic, BitSet partitions) {
+        publish(UnassignedPartitionReport.of(UnassignedPartitionReport.Type.STALLED, group, topic, partitions));
+    }
+
+    /**
+     * Queue a report for every sink, waiting while a queue is full
+     * @param report The report
+     */
+    public void publish(UnassignedPartitionReport report) {
+        if (owner != null) {
+            owner.publish(report.withCluster(cluster));
+            return;
+        }
+        if (!running) {
+            return;
+        }
+        try {
+            for (SinkWorker worker : workers) {
+                worker.queue.put(report);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Write the pending reports and close the sinks
+     */
+    @Override
+    public void close() {
+        if (owner != null) {
+            // the sinks are closed by the owner
+            return;
+        }
+        running = false;
+        for (SinkWorker worker : workers) {
+            try {
+                worker.thread.join(lingerMs + TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            try {
+                worker.sink.close();
+            } catch (Exception e) {
+                LOGGER.warn("Unable to close the " + worker.sink.getName() + " sink", e);
+            }
+        }
+    }
+
+
+    public List<String> getSinkNames() {
+        List<String> names = new ArrayList<>();
+        for (SinkWorker worker : workers) {
+            names.add(worker.sink.getName());
+        }
+        return Collections.unmodifiableList(names);
+    }
+
+    /**
+     * @return The reports waiting for a sink
+     */
+    public int getQueued(String sinkName) {
+        SinkWorker worker = worker(sinkName);
+        return worker == null ? 0 : worker.queue.size();
+    }
+
+    /**
+     * @return The reports written by a sink
+     */
+    public long getWritten(String sinkName) {
+        SinkWorker worker = worker(sinkName);
+        return worker == null ? 0 : worker.written.get();
+    }
+
+    /**
+     * @return The reports dropped because a sink failed to write them
+     */
+    public long getFailed(String sinkName) {
+        SinkWorker worker = worker(sinkName);
+        return worker == null ? 0 : worker.failed.get();
+    }
+
+
+    private SinkWorker worker(String sinkName) {
+        for (SinkWorker worker : workers) {
+            if (worker.sink.getName().equals(sinkName)) {
+                return worker;
+            }
+        }
+        return null;
+    }
+
+
+    private class SinkWorker implements Runnable {
+        private final ReportSink sink;
+        private final BlockingQueue<UnassignedPartitionReport> queue;
+        private final Thread thread;
+        private final AtomicLong written = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+
+        private SinkWorker(ReportSink sink, int queueCapacity) {
+            this.sink = sink;
+            this.queue = new ArrayBlockingQueue<>(queueCapacity);
+            this.thread = new Thread(this, "report-sink-" + sink.getName());
+            this.thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            List<UnassignedPartitionReport> batch = new ArrayList<>(batchSize);
+            try {
+                // the pending reports are written before stopping
+                while (running || !queue.isEmpty()) {
+                    UnassignedPartitionReport first = queue.poll(lingerMs, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lingerMs);
+                    while (batch.size() < batchSize) {
+                        queue.drainTo(batch, batchSize - batch.size());
+                        long remaining = deadline - System.nanoTime();
+                        if (batch.size() >= batchSize || remaining <= 0 || !running) {
+                            break;
+                        }
+                        UnassignedPartitionReport next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                        if (next == null) {
+                            break;
+                        }
+                        batch.add(next);
+                    }
+                    write(batch);
+                    batch.clear();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void write(List<UnassignedPartitionReport> batch) {
+            try {
+                sink.write(batch);
+                written.addAndGet(batch.size());
+            } catch (Exception e) {
+                LOGGER.warn("The " + sink.getName() + " sink has dropped " + batch.size() + " reports", e);
+                failed.addAndGet(batch.size());
+            }
+        }
+    }
+}
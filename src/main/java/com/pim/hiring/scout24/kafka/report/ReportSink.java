@@ -0,0 +1,32 @@
+package com.pim.hiring.scout24.kafka.report;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+
+/**
+ * Destination of the reports. Every sink receives its batches from a single thread
+ */
+public interface ReportSink extends Closeable {
+
+    /**
+     * @return The name used in the logs and metrics
+     */
+    String getName();
+
+    /**
+     * Write a batch of reports. A failed batch is logged and dropped
+     * @param reports The reports in the order they were found
+     * @throws Exception If the batch couldn't be written
+     */
+    void write(List<UnassignedPartitionReport> reports) throws Exception;
+
+    /**
+     * Release the resources of the sink, called once its pending batches are written
+     * @throws IOException If the sink couldn't be closed
+     */
+    @Override
+    default void close() throws IOException {
+    }
+}
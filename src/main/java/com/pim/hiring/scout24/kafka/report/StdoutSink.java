@@ -0,0 +1,40 @@
+package com.pim.hiring.scout24.kafka.report;
+
+import java.io.PrintStream;
+import java.util.List;
+
+
+/**
+ * Prints one line per missing or recovered topic partition
+ */
+public class StdoutSink implements ReportSink {
+
+    private final PrintStream out;
+
+    public StdoutSink() {
+        this(System.out);
+    }
+
+    public StdoutSink(PrintStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public String getName() {
+        return "stdout";
+    }
+
+    @Override
+    public void write(List<UnassignedPartitionReport> reports) {
+        StringBuilder lines = new StringBuilder();
+        for (UnassignedPartitionReport report : reports) {
+            String state = report.getType() == UnassignedPartitionReport.Type.UNASSIGNED ? "missing" : "recovered";
+            for (int partition : report.getPartitions()) {
+                lines.append(state).append(' ').append(report.getGroup()).append(' ')
+                        .append(report.getTopic()).append('-').append(partition).append('\n');
+            }
+        }
+        out.print(lines);
+        out.flush();
+    }
+}
@@ -0,0 +1,106 @@
+package com.pim.hiring.scout24.kafka.report;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.BitSet;
+
+
+/**
+ * A change of the assignment of a (consumer group, topic) pair, written to the report sinks
+ */
+public class UnassignedPartitionReport {
+
+    public enum Type {
+        // the partitions have no committed offsets
+        UNASSIGNED,
+        // the partitions have committed offsets again
+        RECOVERED,
+        // live assignment check: the partitions have committed offsets but no member consumes them
+        COMMITTED_NOT_ASSIGNED,
+        // live assignment check: a member consumes the partitions but has never committed them
+        ASSIGNED_NOT_COMMITTED,
+        // live assignment check: the partitions have neither committed offsets nor members
+        MISSING,
+        // lag check: the partitions have lag and their committed offsets didn't move since the previous scan
+        STALLED
+    }
+
+    public enum Severity {
+        INFO,
+        WARNING,
+        CRITICAL
+    }
+
+    private final Type type;
+    private final String group;
+    private final String topic;
+    private final int[] partitions;
+    private final long timestamp;
+    private final Severity severity;
+    // null for the cluster of spring.kafka.bootstrap-servers
+    private final String cluster;
+
+
+    public UnassignedPartitionReport(Type type, String group, String topic, int[] partitions, long timestamp) {
+        this(type, group, topic, partitions, timestamp, type == Type.RECOVERED ? Severity.INFO : Severity.WARNING);
+    }
+
+    public UnassignedPartitionReport(Type type, String group, String topic, int[] partitions, long timestamp,
+                                     Severity severity) {
+        this(type, group, topic, partitions, timestamp, severity, null);
+    }
+
+    public UnassignedPartitionReport(Type type, String group, String topic, int[] partitions, long timestamp,
+                                     Severity severity, String cluster) {
+        this.type = type;
+        this.group = group;
+        this.topic = topic;
+        this.partitions = partitions;
+        this.timestamp = timestamp;
+        this.severity = severity;
+        this.cluster = cluster;
+    }
+
+    public static UnassignedPartitionReport of(Type type, String group, String topic, BitSet partitions) {
+        return new UnassignedPartitionReport(type, group, topic, partitions.stream().toArray(),
+                System.currentTimeMillis());
+    }
+
+    public UnassignedPartitionReport withSeverity(Severity severity) {
+        return new UnassignedPartitionReport(type, group, topic, partitions, timestamp, severity, cluster);
+    }
+
+    public UnassignedPartitionReport withCluster(String cluster) {
+        return new UnassignedPartitionReport(type, group, topic, partitions, timestamp, severity, cluster);
+    }
+
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getGroup() {
+        return group;
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    public int[] getPartitions() {
+        return partitions;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public Severity getSeverity() {
+        return severity;
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public String getCluster() {
+        return cluster;
+    }
+}
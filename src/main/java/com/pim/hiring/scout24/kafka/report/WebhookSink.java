@@ -0,0 +1,44 @@
+package com.pim.hiring.scout24.kafka.report;
+
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.List;
+
+
+/**
+ * Posts every batch of reports as a JSON array to an HTTP endpoint
+ */
+public class WebhookSink implements ReportSink {
+
+    private final RestTemplate restTemplate;
+    private final String url;
+
+
+    /**
+     * @param url The endpoint that receives the batches
+     * @param timeoutMs The connection and read timeout
+     */
+    public WebhookSink(String url, int timeoutMs) {
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(timeoutMs);
+        requestFactory.setReadTimeout(timeoutMs);
+        this.restTemplate = new RestTemplate(requestFactory);
+        this.url = url;
+    }
+
+    @Override
+    public String getName() {
+        return "webhook";
+    }
+
+    @Override
+    public void write(List<UnassignedPartitionReport> reports) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        restTemplate.postForEntity(url, new HttpEntity<>(reports, headers), Void.class);
+    }
+}
@@ -0,0 +1,78 @@
+package com.pim.hiring.scout24.kafka.rules;
+
+import java.util.Arrays;
+
+
+/**
+ * A rule of the rules file, applied to the (consumer group, topic) pairs whose names fully match its regular
+ * expressions. The first rule that matches a pair is the only one applied to it.
+ */
+public class AlertRule {
+
+    private String group = ".*";
+    private String topic = ".*";
+    // the partitions may be missing on purpose, for instance with manual assignment
+    private boolean allowMissing;
+    // the partitions allowed to be missing, all of them if it's not set
+    private int[] partitions;
+    // consecutive scans a partition has to be missing before it's reported
+    private int minCycles = 1;
+    // the report is critical when this ratio of the topic partitions is missing
+    private Double criticalRatio;
+
+
+    public String getGroup() {
+        return group;
+    }
+
+    public void setGroup(String group) {
+        this.group = group;
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    public void setTopic(String topic) {
+        this.topic = topic;
+    }
+
+    public boolean isAllowMissing() {
+        return allowMissing;
+    }
+
+    public void setAllowMissing(boolean allowMissing) {
+        this.allowMissing = allowMissing;
+    }
+
+    public int[] getPartitions() {
+        return partitions;
+    }
+
+    public void setPartitions(int[] partitions) {
+        this.partitions = partitions;
+    }
+
+    public int getMinCycles() {
+        return minCycles;
+    }
+
+    public void setMinCycles(int minCycles) {
+        this.minCycles = minCycles;
+    }
+
+    public Double getCriticalRatio() {
+        return criticalRatio;
+    }
+
+    public void setCriticalRatio(Double criticalRatio) {
+        this.criticalRatio = criticalRatio;
+    }
+
+    @Override
+    public String toString() {
+        return "AlertRule{group=" + group + ", topic=" + topic + ", allowMissing=" + allowMissing +
+                ", partitions=" + Arrays.toString(partitions) + ", minCycles=" + minCycles +
+                ", criticalRatio=" + criticalRatio + "}";
+    }
+}
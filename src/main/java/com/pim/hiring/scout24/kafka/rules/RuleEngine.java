@@ -0,0 +1,206 @@
+package com.pim.hiring.scout24.kafka.rules;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pim.hiring.scout24.kafka.checker.IncrementalChecker;
+import com.pim.hiring.scout24.kafka.report.UnassignedPartitionReport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+
+
+/**
+ * Applies the {@link RuleSet} to the transitions of the scans before they are reported.
+ * The partitions allowed to be missing are never reported, the ones that have to be missing for several scans are
+ * held until then (and dropped if they recover before), and the unassigned reports get a severity. The rules file is
+ * read again after every full scan in which its modification time changed; an invalid file keeps the previous rules.
+ */
+public class RuleEngine implements IncrementalChecker.TransitionListener {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RuleEngine.class);
+
+    private final Path rulesPath;
+    private final ObjectMapper objectMapper;
+    private final ToIntFunction<String> partitionCounts;
+    private final Consumer<UnassignedPartitionReport> publisher;
+
+    private volatile RuleSet rules = RuleSet.EMPTY;
+    private FileTime rulesModified;
+
+    // completed full scans
+    private long cycle;
+    // topic#group -> missing partitions of the pair
+    private final Map<String, PairState> pairs = new HashMap<>();
+
+
+    private static class PairState {
+        private final String group;
+        private final String topic;
+        private final BitSet missing = new BitSet();
+        private final BitSet reported = new BitSet();
+        // partition -> first cycle of the current period without committed offsets
+        private final Map<Integer, Long> missingSince = new HashMap<>();
+
+        private PairState(String group, String topic) {
+            this.group = group;
+            this.topic = topic;
+        }
+    }
+
+
+    /**
+     * @param rulesPath The JSON rules file or {@code null} to report every transition
+     * @param objectMapper Reads the rules file
+     * @param partitionCounts Gives the partition count of a topic, or -1 if it's not known
+     * @param publisher Receives the reports
+     * @throws IOException If the rules file can't be read
+     * @throws IllegalArgumentException If a rule is not valid
+     */
+    public RuleEngine(Path rulesPath, ObjectMapper objectMapper, ToIntFunction<String> partitionCounts,
+                      Consumer<UnassignedPartitionReport> publisher) throws IOException {
+        this.rulesPath = rulesPath;
+        this.objectMapper = objectMapper;
+        this.partitionCounts = partitionCounts;
+        this.publisher = publisher;
+        if (rulesPath != null) {
+            rulesModified = Files.getLastModifiedTime(rulesPath);
+            rules = RuleSet.load(rulesPath, objectMapper);
+            LOGGER.info("Loaded " + rules.size() + " alert rules from " + rulesPath);
+        }
+    }
+
+
+    @Override
+    public synchronized void onUnassigned(String group, String topic, BitSet partitions) {
+        PairState pair = pairs.computeIfAbsent(topic + "#" + group, key -> new PairState(group, topic));
+        pair.missing.or(partitions);
+        for (int partition = partitions.nextSetBit(0); partition >= 0;
+             partition = partitions.nextSetBit(partition + 1)) {
+            pair.missingSince.putIfAbsent(partition, cycle);
+        }
+        evaluate(pair);
+    }
+
+    @Override
+    public synchronized void onRecovered(String group, String topic, BitSet partitions) {
+        PairState pair = pairs.get(topic + "#" + group);
+        if (pair == null) {
+            return;
+        }
+        // only the partitions that were reported as unassigned are reported as recovered
+        BitSet recovered = (BitSet) pair.reported.clone();
+        recovered.and(partitions);
+        pair.missing.andNot(partitions);
+        pair.reported.andNot(partitions);
+        for (int partition = partitions.nextSetBit(0); partition >= 0;
+             partition = partitions.nextSetBit(partition + 1)) {
+            pair.missingSince.remove(partition);
+        }
+        if (pair.missing.isEmpty()) {
+            pairs.remove(topic + "#" + group);
+        }
+        if (!recovered.isEmpty()) {
+            publisher.accept(UnassignedPartitionReport.of(UnassignedPartitionReport.Type.RECOVERED, group, topic,
+                    recovered));
+        }
+    }
+
+    /**
+     * The pair is forgotten without a recovered report, its topic is not checked any more
+     */
+    @Override
+    public synchronized void onCleared(String group, String topic, BitSet partitions) {
+        pairs.remove(topic + "#" + group);
+    }
+
+    /**
+     * Report the held partitions that have been missing for enough scans and reload the rules if they changed
+     */
+    @Override
+    public synchronized void onScanCompleted() {
+        reloadIfModified();
+        for (PairState pair : pairs.values()) {
+            evaluate(pair);
+        }
+        cycle++;
+    }
+
+    /**
+     * Restore partitions that were already reported as unassigned by a previous run, so their recovery is reported
+     * @param group The consumer group
+     * @param topic The topic
+     * @param partitions The unassigned partitions
+     */
+    public synchronized void restoreReported(String group, String topic, BitSet partitions) {
+        PairState pair = pairs.computeIfAbsent(topic + "#" + group, key -> new PairState(group, topic));
+        pair.missing.or(partitions);
+        pair.reported.or(partitions);
+        for (int partition = partitions.nextSetBit(0); partition >= 0;
+             partition = partitions.nextSetBit(partition + 1)) {
+            pair.missingSince.putIfAbsent(partition, cycle);
+        }
+    }
+
+    public RuleSet getRules() {
+        return rules;
+    }
+
+
+    private void evaluate(PairState pair) {
+        BitSet unreported = (BitSet) pair.missing.clone();
+        unreported.andNot(pair.reported);
+        if (unreported.isEmpty()) {
+            return;
+        }
+        RuleSet currentRules = rules;
+        currentRules.removeAllowed(pair.group, pair.topic, unreported);
+        AlertRule rule = currentRules.match(pair.group, pair.topic);
+        for (int partition = unreported.nextSetBit(0); partition >= 0;
+             partition = unreported.nextSetBit(partition + 1)) {
+            if (cycle - pair.missingSince.get(partition) + 1 < rule.getMinCycles()) {
+                unreported.clear(partition);
+            }
+        }
+        if (unreported.isEmpty()) {
+            return;
+        }
+        pair.reported.or(unreported);
+        publisher.accept(UnassignedPartitionReport.of(UnassignedPartitionReport.Type.UNASSIGNED, pair.group,
+                pair.topic, unreported).withSeverity(severity(rule, pair)));
+    }
+
+    private UnassignedPartitionReport.Severity severity(AlertRule rule, PairState pair) {
+        if (rule.getCriticalRatio() != null) {
+            int partitionCount = partitionCounts.applyAsInt(pair.topic);
+            if (partitionCount > 0 && pair.missing.cardinality() >= rule.getCriticalRatio() * partitionCount) {
+                return UnassignedPartitionReport.Severity.CRITICAL;
+            }
+        }
+        return UnassignedPartitionReport.Severity.WARNING;
+    }
+
+    private void reloadIfModified() {
+        if (rulesPath == null) {
+            return;
+        }
+        try {
+            FileTime modified = Files.getLastModifiedTime(rulesPath);
+            if (modified.equals(rulesModified)) {
+                return;
+            }
+            rulesModified = modified;
+            rules = RuleSet.load(rulesPath, objectMapper);
+            LOGGER.info("Reloaded " + rules.size() + " alert rules from " + rulesPath);
+        } catch (IOException | IllegalArgumentException e) {
+            LOGGER.error("Unable to reload the alert rules from " + rulesPath + ", keeping the previous ones", e);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.pim.hiring.scout24.kafka.rules;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+
+/**
+ * Compiled, immutable list of {@link AlertRule}s. The regular expressions are compiled once when the rules are
+ * loaded, and the rule of every (consumer group, topic) pair is resolved once and cached, so evaluating a result is a
+ * map lookup.
+ */
+public final class RuleSet {
+
+    /** The rule of the pairs that match no rule: every missing partition is reported right away */
+    public static final AlertRule DEFAULT_RULE = new AlertRule();
+
+    public static final RuleSet EMPTY = compile(new AlertRule[0]);
+
+    private final AlertRule[] rules;
+    private final Pattern[] groupPatterns;
+    private final Pattern[] topicPatterns;
+    // the allowed partitions of every rule, null if all of them are allowed or none
+    private final BitSet[] allowedPartitions;
+
+    // topic#group -> position of the first matching rule, -1 for the default rule
+    private final ConcurrentHashMap<String, Integer> matches = new ConcurrentHashMap<>();
+
+
+    private RuleSet(AlertRule[] rules, Pattern[] groupPatterns, Pattern[] topicPatterns,
+                    BitSet[] allowedPartitions) {
+        this.rules = rules;
+        this.groupPatterns = groupPatterns;
+        this.topicPatterns = topicPatterns;
+        this.allowedPartitions = allowedPartitions;
+    }
+
+
+    /**
+     * Read and compile a JSON array of rules
+     * @param path The rules file
+     * @param objectMapper The JSON mapper
+     * @return {@link RuleSet}
+     * @throws IOException If the file can't be read or parsed
+     * @throws IllegalArgumentException If a rule is not valid
+     */
+    public static RuleSet load(Path path, ObjectMapper objectMapper) throws IOException {
+        return compile(objectMapper.readValue(path.toFile(), AlertRule[].class));
+    }
+
+    /**
+     * @param rules The rules, in priority order
+     * @return {@link RuleSet}
+     * @throws IllegalArgumentException If a rule is not valid
+     */
+    public static RuleSet compile(AlertRule... rules) {
+        Pattern[] groupPatterns = new Pattern[rules.length];
+        Pattern[] topicPatterns = new Pattern[rules.length];
+        BitSet[] allowedPartitions = new BitSet[rules.length];
+        for (int i = 0; i < rules.length; i++) {
+            AlertRule rule = rules[i];
+            if (rule.getMinCycles() < 1) {
+                throw new IllegalArgumentException("minCycles must be at least 1 in " + rule);
+            }
+            if (rule.getCriticalRatio() != null && (rule.getCriticalRatio() <= 0 || rule.getCriticalRatio() > 1)) {
+                throw new IllegalArgumentException("criticalRatio must be in (0, 1] in " + rule);
+            }
+            try {
+                groupPatterns[i] = Pattern.compile(rule.getGroup());
+                topicPatterns[i] = Pattern.compile(rule.getTopic());
+            } catch (PatternSyntaxException e) {
+                throw new IllegalArgumentException("Invalid regular expression in " + rule, e);
+            }
+            if (rule.isAllowMissing() && rule.getPartitions() != null) {
+                allowedPartitions[i] = new BitSet();
+                for (int partition : rule.getPartitions()) {
+                    allowedPartitions[i].set(partition);
+                }
+            }
+        }
+        return new RuleSet(rules.clone(), groupPatterns, topicPatterns, allowedPartitions);
+    }
+
+
+    /**
+     * @param group The consumer group
+     * @param topic The topic
+     * @return The first rule that matches the pair or {@link #DEFAULT_RULE}
+     */
+    public AlertRule match(String group, String topic) {
+        int rule = position(group, topic);
+        return rule < 0 ? DEFAULT_RULE : rules[rule];
+    }
+
+    /**
+     * Remove the partitions that the rule of a pair allows to be missing
+     * @param group The consumer group
+     * @param topic The topic
+     * @param missing The missing partitions, modified
+     */
+    public void removeAllowed(String group, String topic, BitSet missing) {
+        int rule = position(group, topic);
+        if (rule < 0 || !rules[rule].isAllowMissing()) {
+            return;
+        }
+        if (allowedPartitions[rule] == null) {
+            missing.clear();
+        } else {
+            missing.andNot(allowedPartitions[rule]);
+        }
+    }
+
+    public List<AlertRule> getRules() {
+        return Arrays.asList(rules.clone());
+    }
+
+    public int size() {
+        return rules.length;
+    }
+
+
+    private int position(String group, String topic) {
+        return matches.computeIfAbsent(topic + "#" + group, key -> {
+            for (int i = 0; i < rules.length; i++) {
+                if (groupPatterns[i].matcher(group).matches() && topicPatterns[i].matcher(topic).matches()) {
+                    return i;
+                }
+            }
+            return -1;
+        });
+    }
+}
@@ -0,0 +1,36 @@
+package com.pim.hiring.scout24.kafka.rules;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pim.hiring.scout24.kafka.checker.TopicMetadataCache;
+import com.pim.hiring.scout24.kafka.report.ReportPipeline;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.List;
+
+
+/**
+ * Created on 17/10/2026.
+ */
+@Configuration
+public class RulesConfig {
+
+    @Value("${checker.rules.path:}")
+    private String rulesPath;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Bean
+    public RuleEngine ruleEngine(TopicMetadataCache topicMetadataCache, ReportPipeline reportPipeline)
+            throws IOException {
+        return new RuleEngine(rulesPath.isEmpty() ? null : Paths.get(rulesPath), objectMapper, topic -> {
+            List<Integer> partitions = topicMetadataCache.getPartitions(topic);
+            return partitions == null ? -1 : partitions.size();
+        }, reportPipeline::publish);
+    }
+}
@@ -0,0 +1,268 @@
+package com.pim.hiring.scout24.kafka.shard;
+
+import com.pim.hiring.scout24.kafka.checker.GroupFilter;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+import org.apache.kafka.common.utils.Utils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.kafka.core.ConsumerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * Splits the consumer groups between the running checker instances.
+ * Every partition of the shard topic is a shard and the instances join the same consumer group on that topic, so
+ * Kafka assigns the shards between them and moves the shards of an instance that disappears to the remaining ones.
+ * A consumer group belongs to the shard given by the hash of its name, the same one used by the default partitioner,
+ * so all the instances agree on it. From the revocation of the shards until the next assignment the filter is not
+ * ready, so no scan takes the groups of the moving shards as removed. If the consumer fails, its shards are released
+ * and the group is joined again with a new consumer after a backoff.
+ */
+public class ShardCoordinator implements SmartLifecycle, GroupFilter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ShardCoordinator.class);
+
+    private static final long MIN_RESTART_BACKOFF_MS = 1000;
+    private static final long MAX_RESTART_BACKOFF_MS = 30000;
+
+    private final ConsumerFactory<String, String> consumerFactory;
+    private final String shardTopic;
+    private final long pollTimeoutMs;
+
+    // replaced on every rebalance, read by the scan threads
+    private volatile Shards shards = Shards.UNKNOWN;
+
+    private volatile boolean running = false;
+    private volatile Consumer<String, String> consumer;
+    private Thread thread;
+    // only used by the coordinator thread
+    private long assignments;
+    private long restartBackoffMs = MIN_RESTART_BACKOFF_MS;
+
+
+    private static class Shards implements GroupFilter {
+        // before the first assignment or while a rebalance is in progress
+        private static final Shards UNKNOWN = new Shards(0, new BitSet(), -1);
+
+        private final int count;
+        private final BitSet owned;
+        private final long generation;
+
+        private Shards(int count, BitSet owned, long generation) {
+            this.count = count;
+            this.owned = owned;
+            this.generation = generation;
+        }
+
+        @Override
+        public boolean accept(String groupId) {
+            return count > 0 && owned.get(shardOf(groupId, count));
+        }
+
+        @Override
+        public boolean isReady() {
+            return count > 0;
+        }
+
+        @Override
+        public long getGeneration() {
+            return generation;
+        }
+    }
+
+
+    /**
+     * @param consumerFactory Creates the consumer that joins the coordination group
+     * @param shardTopic The topic whose partitions are the shards, it has to exist
+     * @param pollTimeoutMs Maximum time blocked in every poll
+     */
+    public ShardCoordinator(ConsumerFactory<String, String> consumerFactory, String shardTopic, long pollTimeoutMs) {
+        this.consumerFactory = consumerFactory;
+        this.shardTopic = shardTopic;
+        this.pollTimeoutMs = pollTimeoutMs;
+    }
+
+
+    /**
+     * @param groupId The consumer group
+     * @return <tt>true</tt> if the group belongs to a shard owned by this instance
+     */
+    @Override
+    public boolean accept(String groupId) {
+        return shards.accept(groupId);
+    }
+
+    /**
+     * @return <tt>true</tt> once the shards are assigned, <tt>false</tt> while they are being rebalanced
+     */
+    @Override
+    public boolean isReady() {
+        return shards.isReady();
+    }
+
+    /**
+     * @return The number of assignments received so far, -1 while the shards are not assigned
+     */
+    @Override
+    public long getGeneration() {
+        return shards.generation;
+    }
+
+    /**
+     * @return The shards owned now, they are not changed by the following rebalances
+     */
+    @Override
+    public GroupFilter snapshot() {
+        return shards;
+    }
+
+    /**
+     * @return The shards owned by this instance
+     */
+    public BitSet getOwnedShards() {
+        return (BitSet) shards.owned.clone();
+    }
+
+    /**
+     * @return The number of shards, 0 until the first assignment
+     */
+    public int getShardCount() {
+        return shards.count;
+    }
+
+    /**
+     * @param groupId The consumer group
+     * @param shardCount The number of shards
+     * @return The shard of the consumer group
+     */
+    public static int shardOf(String groupId, int shardCount) {
+        return Utils.toPositive(Utils.murmur2(groupId.getBytes(StandardCharsets.UTF_8))) % shardCount;
+    }
+
+
+    @Override
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        thread = new Thread(this::run, "shard-coordinator");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        Consumer<String, String> current = consumer;
+        if (current != null) {
+            current.wakeup();
+        }
+        if (thread != null) {
+            try {
+                thread.join(pollTimeoutMs * 2);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            thread = null;
+        }
+        shards = Shards.UNKNOWN;
+    }
+
+    @Override
+    public void stop(Runnable callback) {
+        stop();
+        callback.run();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public boolean isAutoStartup() {
+        return true;
+    }
+
+    @Override
+    public int getPhase() {
+        return Integer.MAX_VALUE;
+    }
+
+
+    private void run() {
+        while (running) {
+            join();
+            if (running) {
+                LOGGER.info("Joining the shard group again in " + restartBackoffMs + " ms");
+                try {
+                    Thread.sleep(restartBackoffMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                restartBackoffMs = Math.min(restartBackoffMs * 2, MAX_RESTART_BACKOFF_MS);
+            }
+        }
+        running = false;
+    }
+
+    /**
+     * Join the shard group and poll until the coordinator stops or the consumer fails
+     */
+    private void join() {
+        // closing the consumer leaves the group, so the other instances take over the shards at once
+        try (Consumer<String, String> shardConsumer = consumerFactory.createConsumer()) {
+            consumer = shardConsumer;
+            shardConsumer.subscribe(Collections.singletonList(shardTopic), new ConsumerRebalanceListener() {
+                @Override
+                public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+                    // the scans are held until the shards are assigned again
+                    shards = Shards.UNKNOWN;
+                }
+
+                @Override
+                public void onPartitionsAssigned(Collection<TopicPartition> partitions) {
+                    assign(shardConsumer, partitions);
+                }
+            });
+
+            // the records are ignored, polling keeps the membership of the group
+            while (running) {
+                shardConsumer.poll(pollTimeoutMs);
+            }
+        } catch (WakeupException e) {
+            // stopped
+        } catch (RuntimeException e) {
+            LOGGER.error("The shard consumer has failed", e);
+        } finally {
+            consumer = null;
+            // the other instances take over the shards, the scans are held until they are assigned again
+            shards = Shards.UNKNOWN;
+        }
+    }
+
+    private void assign(Consumer<String, String> shardConsumer, Collection<TopicPartition> partitions) {
+        List<PartitionInfo> partitionInfo = shardConsumer.partitionsFor(shardTopic);
+        int count = partitionInfo == null ? 0 : partitionInfo.size();
+
+        BitSet owned = new BitSet(count);
+        for (TopicPartition partition : partitions) {
+            owned.set(partition.partition());
+        }
+        shards = new Shards(count, owned, ++assignments);
+        restartBackoffMs = MIN_RESTART_BACKOFF_MS;
+        LOGGER.info("Owning the shards " + owned + " of " + count);
+    }
+}
@@ -0,0 +1,266 @@
+package com.pim.hiring.scout24.kafka.snapshot;
+
+import com.pim.hiring.scout24.kafka.index.PartitionAssignment;
+import com.pim.hiring.scout24.kafka.index.PartitionAssignmentIndex;
+import org.apache.kafka.common.TopicPartition;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Immutable copy of a scan: the committed offsets of every (consumer group, topic) pair and the partition count of
+ * the monitored topics. The names are stored once per snapshot and the pairs refer to them by position, so a snapshot
+ * doesn't depend on the dictionaries of the process that wrote it.
+ */
+public final class ClusterSnapshot {
+
+    private final long timestamp;
+    private final String[] groups;
+    private final String[] topics;
+    // partition count per topic position, -1 if the topic was not monitored
+    private final int[] partitionCounts;
+
+    // the pairs, by position
+    private final int[] pairGroups;
+    private final int[] pairTopics;
+    private final BitSet[] pairPartitions;
+    private final long[][] pairOffsets;
+
+    // topic#group -> pair position
+    private final Map<String, Integer> pairPositions = new HashMap<>();
+
+
+    private ClusterSnapshot(long timestamp, String[] groups, String[] topics, int[] partitionCounts,
+                            int[] pairGroups, int[] pairTopics, BitSet[] pairPartitions, long[][] pairOffsets) {
+        this.timestamp = timestamp;
+        this.groups = groups;
+        this.topics = topics;
+        this.partitionCounts = partitionCounts;
+        this.pairGroups = pairGroups;
+        this.pairTopics = pairTopics;
+        this.pairPartitions = pairPartitions;
+        this.pairOffsets = pairOffsets;
+        for (int pair = 0; pair < pairGroups.length; pair++) {
+            pairPositions.put(topics[pairTopics[pair]] + "#" + groups[pairGroups[pair]], pair);
+        }
+    }
+
+
+    /**
+     * Copy a scan
+     * @param timestamp The time of the scan
+     * @param index The committed offsets of the scan
+     * @param partitionCounts The partition count of the monitored topics
+     * @return {@link ClusterSnapshot}
+     */
+    public static ClusterSnapshot of(long timestamp, PartitionAssignmentIndex index,
+                                     Map<String, Integer> partitionCounts) {
+        // index identifier -> snapshot position
+        Map<Integer, Integer> groupPositions = new HashMap<>();
+        Map<Integer, Integer> topicPositions = new HashMap<>();
+        List<String> groups = new ArrayList<>();
+        List<String> topics = new ArrayList<>();
+
+        int size = index.size();
+        List<Integer> pairGroups = new ArrayList<>(size);
+        List<Integer> pairTopics = new ArrayList<>(size);
+        List<BitSet> pairPartitions = new ArrayList<>(size);
+        List<long[]> pairOffsets = new ArrayList<>(size);
+
+        index.forEach((groupId, topicId, assignment) -> {
+            pairGroups.add(groupPositions.computeIfAbsent(groupId, id -> {
+                groups.add(index.groupName(id));
+                return groups.size() - 1;
+            }));
+            pairTopics.add(topicPositions.computeIfAbsent(topicId, id -> {
+                topics.add(index.topicName(id));
+                return topics.size() - 1;
+            }));
+            BitSet partitions = (BitSet) assignment.getPartitions().clone();
+            long[] offsets = new long[partitions.length()];
+            for (int partition = 0; partition < offsets.length; partition++) {
+                offsets[partition] = assignment.getOffset(partition);
+            }
+            pairPartitions.add(partitions);
+            pairOffsets.add(offsets);
+        });
+
+        int[] counts = new int[topics.size()];
+        for (int topic = 0; topic < counts.length; topic++) {
+            counts[topic] = partitionCounts.getOrDefault(topics.get(topic), -1);
+        }
+        return new ClusterSnapshot(timestamp, groups.toArray(new String[0]), topics.toArray(new String[0]), counts,
+                toArray(pairGroups), toArray(pairTopics), pairPartitions.toArray(new BitSet[0]),
+                pairOffsets.toArray(new long[0][]));
+    }
+
+
+    /**
+     * Add the committed offsets of the snapshot to an index
+     * @param index The index, usually empty
+     */
+    public void restoreInto(PartitionAssignmentIndex index) {
+        for (int pair = 0; pair < pairGroups.length; pair++) {
+            Map<TopicPartition, Long> offsets = new HashMap<>();
+            BitSet partitions = pairPartitions[pair];
+            for (int partition = partitions.nextSetBit(0); partition >= 0;
+                 partition = partitions.nextSetBit(partition + 1)) {
+                offsets.put(new TopicPartition(topics[pairTopics[pair]], partition), pairOffsets[pair][partition]);
+            }
+            index.addGroup(groups[pairGroups[pair]], offsets);
+        }
+    }
+
+    /**
+     * @param group The consumer group
+     * @param topic The topic
+     * @return The partitions without committed offsets or {@code null} if the group didn't use the topic or the topic
+     * was not monitored
+     */
+    public BitSet getMissingPartitions(String group, String topic) {
+        Integer pair = pairPositions.get(topic + "#" + group);
+        if (pair == null || partitionCounts[pairTopics[pair]] < 0) {
+            return null;
+        }
+        BitSet missing = new BitSet();
+        missing.set(0, partitionCounts[pairTopics[pair]]);
+        missing.andNot(pairPartitions[pair]);
+        return missing;
+    }
+
+    /**
+     * @return The partition count of the monitored topics
+     */
+    public Map<String, Integer> getPartitionCounts() {
+        Map<String, Integer> counts = new HashMap<>();
+        for (int topic = 0; topic < topics.length; topic++) {
+            if (partitionCounts[topic] >= 0) {
+                counts.put(topics[topic], partitionCounts[topic]);
+            }
+        }
+        return Collections.unmodifiableMap(counts);
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * @return The number of (consumer group, topic) pairs
+     */
+    public int size() {
+        return pairGroups.length;
+    }
+
+
+    /**
+     * Only the offsets of the committed partitions are written, the others are implied by the partition bitset
+     * @return The binary representation of the snapshot
+     */
+    byte[] encode() {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + pairGroups.length * 32);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeLong(timestamp);
+            writeNames(out, groups);
+            writeNames(out, topics);
+            for (int count : partitionCounts) {
+                out.writeInt(count);
+            }
+            out.writeInt(pairGroups.length);
+            for (int pair = 0; pair < pairGroups.length; pair++) {
+                out.writeInt(pairGroups[pair]);
+                out.writeInt(pairTopics[pair]);
+                long[] words = pairPartitions[pair].toLongArray();
+                out.writeInt(words.length);
+                for (long word : words) {
+                    out.writeLong(word);
+                }
+                BitSet partitions = pairPartitions[pair];
+                for (int partition = partitions.nextSetBit(0); partition >= 0;
+                     partition = partitions.nextSetBit(partition + 1)) {
+                    out.writeLong(pairOffsets[pair][partition]);
+                }
+            }
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            // not thrown by a byte array stream
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @param buffer The binary representation written by {@link #encode()}
+     * @return {@link ClusterSnapshot}
+     */
+    static ClusterSnapshot decode(ByteBuffer buffer) {
+        long timestamp = buffer.getLong();
+        String[] groups = readNames(buffer);
+        String[] topics = readNames(buffer);
+        int[] partitionCounts = new int[topics.length];
+        for (int topic = 0; topic < topics.length; topic++) {
+            partitionCounts[topic] = buffer.getInt();
+        }
+        int pairs = buffer.getInt();
+        int[] pairGroups = new int[pairs];
+        int[] pairTopics = new int[pairs];
+        BitSet[] pairPartitions = new BitSet[pairs];
+        long[][] pairOffsets = new long[pairs][];
+        for (int pair = 0; pair < pairs; pair++) {
+            pairGroups[pair] = buffer.getInt();
+            pairTopics[pair] = buffer.getInt();
+            long[] words = new long[buffer.getInt()];
+            for (int word = 0; word < words.length; word++) {
+                words[word] = buffer.getLong();
+            }
+            BitSet partitions = BitSet.valueOf(words);
+            long[] offsets = new long[partitions.length()];
+            for (int partition = 0; partition < offsets.length; partition++) {
+                offsets[partition] = partitions.get(partition) ? buffer.getLong() : PartitionAssignment.UNKNOWN_OFFSET;
+            }
+            pairPartitions[pair] = partitions;
+            pairOffsets[pair] = offsets;
+        }
+        return new ClusterSnapshot(timestamp, groups, topics, partitionCounts, pairGroups, pairTopics,
+                pairPartitions, pairOffsets);
+    }
+
+
+    private static void writeNames(DataOutputStream out, String[] names) throws IOException {
+        out.writeInt(names.length);
+        for (String name : names) {
+            byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static String[] readNames(ByteBuffer buffer) {
+        String[] names = new String[buffer.getInt()];
+        for (int name = 0; name < names.length; name++) {
+            byte[] bytes = new byte[buffer.getInt()];
+            buffer.get(bytes);
+            names[name] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return names;
+    }
+
+    private static int[] toArray(List<Integer> values) {
+        int[] array = new int[values.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = values.get(i);
+        }
+        return array;
+    }
+}
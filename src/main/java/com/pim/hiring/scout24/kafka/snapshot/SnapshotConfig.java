@@ -0,0 +1,29 @@
+package com.pim.hiring.scout24.kafka.snapshot;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+
+/**
+ * Created on 17/10/2026.
+ */
+@Configuration
+public class SnapshotConfig {
+
+    @Value("${checker.snapshot.path:checker-snapshots.dat}")
+    private String path;
+
+    @Value("${checker.snapshot.retained:10}")
+    private int retained;
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "checker.snapshot.enabled", havingValue = "true")
+    public SnapshotStore snapshotStore() throws IOException {
+        return new SnapshotStore(Paths.get(path), retained);
+    }
+}
@@ -0,0 +1,204 @@
+package com.pim.hiring.scout24.kafka.snapshot;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+
+/**
+ * Keeps the last snapshots of the cluster in a local append-only file, so a restarted checker continues from its last
+ * scan and knows for how long the partitions have been unassigned.
+ * Every snapshot is a record with a magic number, its length and a CRC32 of its payload. The file is memory mapped to
+ * load and append the records; a torn record at the end (the process died while writing it) is truncated on load.
+ * When the file holds twice the retained snapshots it's rewritten with only the retained ones.
+ */
+public class SnapshotStore implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SnapshotStore.class);
+
+    private static final int MAGIC = 0x534e4150;
+    // magic, payload length and CRC32
+    private static final int HEADER_SIZE = 12;
+
+    private final Path path;
+    private final int retained;
+
+    // oldest first
+    private final Deque<ClusterSnapshot> snapshots = new ArrayDeque<>();
+
+    private FileChannel channel;
+    private long position;
+    private int records;
+
+
+    /**
+     * Open the file, creating it if it doesn't exist, and load its last snapshots
+     * @param path The snapshot file
+     * @param retained The number of snapshots kept
+     * @throws IOException If the file can't be read or created
+     */
+    public SnapshotStore(Path path, int retained) throws IOException {
+        if (retained < 1) {
+            throw new IllegalArgumentException("At least one snapshot has to be retained: " + retained);
+        }
+        this.path = path;
+        this.retained = retained;
+        long start = System.nanoTime();
+        load();
+        LOGGER.info("Loaded " + snapshots.size() + " snapshots of " + records + " records from " + path + " in " +
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+    }
+
+
+    /**
+     * Append a snapshot, dropping the oldest one if there are more than the retained snapshots
+     * @param snapshot The snapshot
+     * @throws IOException If the file can't be written
+     */
+    public synchronized void append(ClusterSnapshot snapshot) throws IOException {
+        position = write(channel, position, snapshot.encode());
+        records++;
+        add(snapshot);
+        if (records >= 2 * retained) {
+            compact();
+        }
+    }
+
+    /**
+     * @return The last snapshot or {@code null} if there are none
+     */
+    public synchronized ClusterSnapshot latest() {
+        return snapshots.peekLast();
+    }
+
+    /**
+     * @return The retained snapshots, oldest first
+     */
+    public synchronized List<ClusterSnapshot> getSnapshots() {
+        return new ArrayList<>(snapshots);
+    }
+
+    /**
+     * Get the time of the first snapshot of the current period without committed offsets of a partition.
+     * Only the retained snapshots are inspected, so it's a lower bound when the partition is unassigned in all of them
+     * @param group The consumer group
+     * @param topic The topic
+     * @param partition The partition number
+     * @return The snapshot timestamp or -1 if the partition is not unassigned in the last snapshot
+     */
+    public synchronized long unassignedSince(String group, String topic, int partition) {
+        long since = -1;
+        Iterator<ClusterSnapshot> newestFirst = snapshots.descendingIterator();
+        while (newestFirst.hasNext()) {
+            ClusterSnapshot snapshot = newestFirst.next();
+            BitSet missing = snapshot.getMissingPartitions(group, topic);
+            if (missing == null || !missing.get(partition)) {
+                break;
+            }
+            since = snapshot.getTimestamp();
+        }
+        return since;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+
+
+    private void load() throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = channel.size();
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("The snapshot file " + path + " is too big: " + size + " bytes");
+        }
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        while (buffer.remaining() >= HEADER_SIZE) {
+            int start = buffer.position();
+            int magic = buffer.getInt();
+            int length = buffer.getInt();
+            int crc = buffer.getInt();
+            if (magic != MAGIC || length < 0 || length > buffer.remaining()) {
+                break;
+            }
+            ByteBuffer payload = buffer.slice();
+            payload.limit(length);
+            if (crc != crc(payload.duplicate())) {
+                break;
+            }
+            ClusterSnapshot snapshot;
+            try {
+                snapshot = ClusterSnapshot.decode(payload);
+            } catch (RuntimeException e) {
+                LOGGER.warn("Unable to decode the snapshot at " + start + " of " + path, e);
+                break;
+            }
+            add(snapshot);
+            records++;
+            buffer.position(start + HEADER_SIZE + length);
+            position = buffer.position();
+        }
+        if (position < size) {
+            LOGGER.warn("Truncating " + (size - position) + " bytes of incomplete snapshots at the end of " + path);
+            channel.truncate(position);
+        }
+    }
+
+    private void add(ClusterSnapshot snapshot) {
+        snapshots.addLast(snapshot);
+        while (snapshots.size() > retained) {
+            snapshots.removeFirst();
+        }
+    }
+
+    /**
+     * Rewrite the file with only the retained snapshots, replacing it atomically
+     */
+    private void compact() throws IOException {
+        Path compacted = path.resolveSibling(path.getFileName() + ".compact");
+        try (FileChannel out = FileChannel.open(compacted, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long compactedPosition = 0;
+            for (ClusterSnapshot snapshot : snapshots) {
+                compactedPosition = write(out, compactedPosition, snapshot.encode());
+            }
+        }
+        channel.close();
+        Files.move(compacted, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        position = channel.size();
+        records = snapshots.size();
+    }
+
+    /**
+     * @return The position after the record
+     */
+    private static long write(FileChannel channel, long position, byte[] payload) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, position, HEADER_SIZE + payload.length);
+        buffer.putInt(MAGIC).putInt(payload.length).putInt(crc(ByteBuffer.wrap(payload))).put(payload);
+        buffer.force();
+        return position + HEADER_SIZE + payload.length;
+    }
+
+    private static int crc(ByteBuffer payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+}
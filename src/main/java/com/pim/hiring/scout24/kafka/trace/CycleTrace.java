@@ -0,0 +1,121 @@
+package com.pim.hiring.scout24.kafka.trace;
+
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Immutable copy of a traced scan cycle: the time of every phase, the latency of the offset requests and the slowest
+ * consumer groups
+ */
+public final class CycleTrace {
+
+    private final long sequence;
+    private final String type;
+    private final long startedAt;
+    private final double durationMs;
+    private final boolean failed;
+    private final Map<String, Double> phasesMs;
+    private final int groupResponses;
+    private final double meanResponseMs;
+    private final double maxResponseMs;
+    private final List<GroupLatency> slowestGroups;
+
+
+    /**
+     * The response time of the offsets of a consumer group
+     */
+    public static final class GroupLatency {
+        private final String group;
+        private final String coordinator;
+        private final double latencyMs;
+
+        public GroupLatency(String group, String coordinator, double latencyMs) {
+            this.group = group;
+            this.coordinator = coordinator;
+            this.latencyMs = latencyMs;
+        }
+
+        public String getGroup() {
+            return group;
+        }
+
+        public String getCoordinator() {
+            return coordinator;
+        }
+
+        public double getLatencyMs() {
+            return latencyMs;
+        }
+
+        @Override
+        public String toString() {
+            return group + "@" + coordinator + "=" + String.format("%.1f", latencyMs) + "ms";
+        }
+    }
+
+
+    public CycleTrace(long sequence, String type, long startedAt, double durationMs, boolean failed,
+                      Map<String, Double> phasesMs, int groupResponses, double meanResponseMs, double maxResponseMs,
+                      List<GroupLatency> slowestGroups) {
+        this.sequence = sequence;
+        this.type = type;
+        this.startedAt = startedAt;
+        this.durationMs = durationMs;
+        this.failed = failed;
+        this.phasesMs = phasesMs;
+        this.groupResponses = groupResponses;
+        this.meanResponseMs = meanResponseMs;
+        this.maxResponseMs = maxResponseMs;
+        this.slowestGroups = slowestGroups;
+    }
+
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public long getStartedAt() {
+        return startedAt;
+    }
+
+    public double getDurationMs() {
+        return durationMs;
+    }
+
+    public boolean isFailed() {
+        return failed;
+    }
+
+    public Map<String, Double> getPhasesMs() {
+        return phasesMs;
+    }
+
+    public int getGroupResponses() {
+        return groupResponses;
+    }
+
+    public double getMeanResponseMs() {
+        return meanResponseMs;
+    }
+
+    public double getMaxResponseMs() {
+        return maxResponseMs;
+    }
+
+    public List<GroupLatency> getSlowestGroups() {
+        return slowestGroups;
+    }
+
+    @Override
+    public String toString() {
+        return "CycleTrace{sequence=" + sequence + ", type=" + type + ", durationMs=" +
+                String.format("%.1f", durationMs) + ", failed=" + failed + ", phasesMs=" + phasesMs +
+                ", groupResponses=" + groupResponses + ", meanResponseMs=" + String.format("%.1f", meanResponseMs) +
+                ", maxResponseMs=" + String.format("%.1f", maxResponseMs) + ", slowestGroups=" + slowestGroups + "}";
+    }
+}
@@ -0,0 +1,163 @@
+package com.pim.hiring.scout24.kafka.trace;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * Emits the scan phases and the consumer group responses as custom JFR events, checker.ScanPhase and
+ * checker.GroupResponse, so a flight recording shows them next to the GC pauses and the thread activity.
+ * The events are defined at runtime with jdk.jfr.EventFactory, nothing is emitted on a JVM without JFR or while no
+ * recording has them enabled. Whether an event type is enabled is only read by {@link #refresh()}, once per scan
+ * cycle, so the group responses of a cycle without recordings make no reflective call at all.
+ */
+public class JfrEvents {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JfrEvents.class);
+
+    private final Object phaseFactory;
+    private final Object groupResponseFactory;
+    private final Object phaseType;
+    private final Object groupResponseType;
+    private final Method typeEnabled;
+    private final Method newEvent;
+    private final Method isEnabled;
+    private final Method set;
+    private final Method commit;
+
+    // read by the scan and fetcher threads, updated by refresh
+    private volatile boolean phaseEnabled;
+    private volatile boolean groupResponseEnabled;
+
+
+    private JfrEvents(Object phaseFactory, Object groupResponseFactory, Method getEventType, Method typeEnabled,
+                      Method newEvent, Method isEnabled, Method set, Method commit)
+            throws ReflectiveOperationException {
+        this.phaseFactory = phaseFactory;
+        this.groupResponseFactory = groupResponseFactory;
+        this.phaseType = getEventType.invoke(phaseFactory);
+        this.groupResponseType = getEventType.invoke(groupResponseFactory);
+        this.typeEnabled = typeEnabled;
+        this.newEvent = newEvent;
+        this.isEnabled = isEnabled;
+        this.set = set;
+        this.commit = commit;
+    }
+
+
+    /**
+     * @return The events or {@code null} if this JVM has no JFR
+     */
+    public static JfrEvents create() {
+        try {
+            Class<?> factoryClass = Class.forName("jdk.jfr.EventFactory");
+            Class<?> eventClass = Class.forName("jdk.jfr.Event");
+            Class<?> annotationElementClass = Class.forName("jdk.jfr.AnnotationElement");
+            Class<?> valueDescriptorClass = Class.forName("jdk.jfr.ValueDescriptor");
+            Constructor<?> annotation = annotationElementClass.getConstructor(Class.class, Object.class);
+            Constructor<?> field = valueDescriptorClass.getConstructor(Class.class, String.class, List.class);
+            Method createFactory = factoryClass.getMethod("create", List.class, List.class);
+            Object timespan = annotation.newInstance(annotationClass("jdk.jfr.Timespan"), "NANOSECONDS");
+
+            Object phaseFactory = createFactory.invoke(null,
+                    eventAnnotations(annotation, "checker.ScanPhase", "Scan Phase"),
+                    Arrays.asList(
+                            field.newInstance(String.class, "phase", Collections.emptyList()),
+                            field.newInstance(long.class, "elapsed", Collections.singletonList(timespan))));
+            Object groupResponseFactory = createFactory.invoke(null,
+                    eventAnnotations(annotation, "checker.GroupResponse", "Consumer Group Response"),
+                    Arrays.asList(
+                            field.newInstance(String.class, "group", Collections.emptyList()),
+                            field.newInstance(String.class, "coordinator", Collections.emptyList()),
+                            field.newInstance(long.class, "latency", Collections.singletonList(timespan))));
+            JfrEvents events = new JfrEvents(phaseFactory, groupResponseFactory,
+                    factoryClass.getMethod("getEventType"), Class.forName("jdk.jfr.EventType").getMethod("isEnabled"),
+                    factoryClass.getMethod("newEvent"), eventClass.getMethod("isEnabled"),
+                    eventClass.getMethod("set", int.class, Object.class), eventClass.getMethod("commit"));
+            events.refresh();
+            return events;
+        } catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+            LOGGER.warn("JFR events not available: " + e);
+            return null;
+        }
+    }
+
+    /**
+     * Read again whether the event types are enabled by some recording
+     */
+    public void refresh() {
+        try {
+            phaseEnabled = (Boolean) typeEnabled.invoke(phaseType);
+            groupResponseEnabled = (Boolean) typeEnabled.invoke(groupResponseType);
+        } catch (ReflectiveOperationException e) {
+            LOGGER.debug("Error reading the JFR event settings", e);
+        }
+    }
+
+    /**
+     * @return <tt>true</tt> if the group responses were enabled in the last refresh
+     */
+    public boolean isGroupResponseEnabled() {
+        return groupResponseEnabled;
+    }
+
+    /**
+     * @param phase The tag of a finished scan phase
+     * @param nanos The time spent in the phase
+     */
+    public void phase(String phase, long nanos) {
+        if (phaseEnabled) {
+            emit(phaseFactory, phase, nanos);
+        }
+    }
+
+    /**
+     * @param group A consumer group
+     * @param coordinator Its coordinator broker
+     * @param nanos The time until its offsets were received
+     */
+    public void groupResponse(String group, String coordinator, long nanos) {
+        if (groupResponseEnabled) {
+            emit(groupResponseFactory, group, coordinator, nanos);
+        }
+    }
+
+
+    private void emit(Object factory, Object... values) {
+        try {
+            Object event = newEvent.invoke(factory);
+            // the recording may have stopped since the last refresh
+            if (!(Boolean) isEnabled.invoke(event)) {
+                return;
+            }
+            for (int i = 0; i < values.length; i++) {
+                set.invoke(event, i, values[i]);
+            }
+            commit.invoke(event);
+        } catch (ReflectiveOperationException e) {
+            LOGGER.debug("Error emitting a JFR event", e);
+        }
+    }
+
+    private static List<Object> eventAnnotations(Constructor<?> annotation, String name, String label)
+            throws ReflectiveOperationException {
+        List<Object> annotations = new ArrayList<>();
+        annotations.add(annotation.newInstance(annotationClass("jdk.jfr.Name"), name));
+        annotations.add(annotation.newInstance(annotationClass("jdk.jfr.Label"), label));
+        annotations.add(annotation.newInstance(annotationClass("jdk.jfr.Category"), new String[]{"Kafka Checker"}));
+        return annotations;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Class<? extends Annotation> annotationClass(String name) throws ClassNotFoundException {
+        return (Class<? extends Annotation>) Class.forName(name);
+    }
+}
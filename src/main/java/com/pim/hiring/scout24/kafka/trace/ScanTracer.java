@@ -0,0 +1,239 @@
+package com.pim.hiring.scout24.kafka.trace;
+
+import com.pim.hiring.scout24.kafka.metrics.CheckerMetrics;
+import org.apache.kafka.common.Node;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Records the phases, the offset request latencies and the slowest consumer groups of the last scan cycles.
+ * The cycles are kept in a ring buffer allocated once, so tracing a cycle only writes into existing arrays: a few
+ * field updates per phase and per consumer group response, far below the cost of the requests themselves. The cycles
+ * slower than a threshold are logged with their summary, and every phase and group response is also emitted as a JFR
+ * event when a {@link JfrEvents} is given and a recording has it enabled when the cycle begins.
+ */
+public class ScanTracer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScanTracer.class);
+
+    private static final CheckerMetrics.Phase[] PHASES = CheckerMetrics.Phase.values();
+
+    private final Cycle[] ring;
+    private final long logThresholdNanos;
+    private final JfrEvents jfrEvents;
+
+    // cycles started so far, the current one is ring[(started - 1) % ring.length]
+    private long started;
+    private Cycle current;
+
+
+    /**
+     * A preallocated slot of the ring buffer
+     */
+    private static final class Cycle {
+        private long sequence;
+        private String type;
+        private long startedAt;
+        private long durationNanos;
+        private boolean failed;
+        private final long[] phaseNanos = new long[PHASES.length];
+        private int responses;
+        private long totalResponseNanos;
+        private long maxResponseNanos;
+        // the slowest groups, unordered, the fastest of them at minSlow once all the slots are used
+        private final String[] slowGroups;
+        private final Node[] slowCoordinators;
+        private final long[] slowNanos;
+        private int slowCount;
+        private int minSlow;
+
+        private Cycle(int slowestGroups) {
+            slowGroups = new String[slowestGroups];
+            slowCoordinators = new Node[slowestGroups];
+            slowNanos = new long[slowestGroups];
+        }
+
+        private void reset(long sequence, String type) {
+            this.sequence = sequence;
+            this.type = type;
+            startedAt = System.currentTimeMillis();
+            durationNanos = -1;
+            failed = false;
+            Arrays.fill(phaseNanos, -1);
+            responses = 0;
+            totalResponseNanos = 0;
+            maxResponseNanos = 0;
+            Arrays.fill(slowGroups, null);
+            Arrays.fill(slowCoordinators, null);
+            slowCount = 0;
+            minSlow = 0;
+        }
+
+        private void addResponse(String group, Node coordinator, long nanos) {
+            responses++;
+            totalResponseNanos += nanos;
+            maxResponseNanos = Math.max(maxResponseNanos, nanos);
+            if (slowNanos.length == 0) {
+                return;
+            }
+            int slot;
+            if (slowCount < slowNanos.length) {
+                slot = slowCount++;
+            } else if (nanos > slowNanos[minSlow]) {
+                slot = minSlow;
+            } else {
+                return;
+            }
+            slowGroups[slot] = group;
+            slowCoordinators[slot] = coordinator;
+            slowNanos[slot] = nanos;
+            if (slowCount == slowNanos.length) {
+                minSlow = 0;
+                for (int i = 1; i < slowCount; i++) {
+                    if (slowNanos[i] < slowNanos[minSlow]) {
+                        minSlow = i;
+                    }
+                }
+            }
+        }
+
+        private CycleTrace copy() {
+            Map<String, Double> phasesMs = new LinkedHashMap<>();
+            for (CheckerMetrics.Phase phase : PHASES) {
+                if (phaseNanos[phase.ordinal()] >= 0) {
+                    phasesMs.put(phase.getTag(), toMs(phaseNanos[phase.ordinal()]));
+                }
+            }
+            List<CycleTrace.GroupLatency> slowest = new ArrayList<>(slowCount);
+            for (int i = 0; i < slowCount; i++) {
+                slowest.add(new CycleTrace.GroupLatency(slowGroups[i], address(slowCoordinators[i]),
+                        toMs(slowNanos[i])));
+            }
+            slowest.sort((a, b) -> Double.compare(b.getLatencyMs(), a.getLatencyMs()));
+            return new CycleTrace(sequence, type, startedAt, durationNanos < 0 ? -1 : toMs(durationNanos), failed,
+                    Collections.unmodifiableMap(phasesMs), responses,
+                    responses == 0 ? 0 : toMs(totalResponseNanos / responses), toMs(maxResponseNanos),
+                    Collections.unmodifiableList(slowest));
+        }
+    }
+
+
+    /**
+     * @param cycles The number of cycles kept
+     * @param slowestGroups The number of slowest consumer groups kept for every cycle
+     * @param logThresholdMs The cycles that take longer are logged with their summary, 0 to log all of them
+     * @param jfrEvents Emits the JFR events or {@code null} to not emit them
+     */
+    public ScanTracer(int cycles, int slowestGroups, long logThresholdMs, JfrEvents jfrEvents) {
+        if (cycles < 1 || slowestGroups < 0) {
+            throw new IllegalArgumentException("Invalid trace sizes: " + cycles + " cycles, " + slowestGroups +
+                    " slowest groups");
+        }
+        ring = new Cycle[cycles];
+        for (int i = 0; i < cycles; i++) {
+            ring[i] = new Cycle(slowestGroups);
+        }
+        this.logThresholdNanos = TimeUnit.MILLISECONDS.toNanos(logThresholdMs);
+        this.jfrEvents = jfrEvents;
+    }
+
+
+    /**
+     * Start tracing a cycle, the oldest one is overwritten when the ring is full
+     * @param type The type of the cycle, e.g. full or recheck
+     */
+    public void beginCycle(String type) {
+        if (jfrEvents != null) {
+            jfrEvents.refresh();
+        }
+        synchronized (this) {
+            current = ring[(int) (started % ring.length)];
+            current.reset(++started, type);
+        }
+    }
+
+    /**
+     * @param phase A finished phase of the current cycle
+     * @param nanos The time spent in the phase
+     */
+    public void phase(CheckerMetrics.Phase phase, long nanos) {
+        synchronized (this) {
+            if (current != null) {
+                current.phaseNanos[phase.ordinal()] = nanos;
+            }
+        }
+        if (jfrEvents != null) {
+            jfrEvents.phase(phase.getTag(), nanos);
+        }
+    }
+
+    /**
+     * Called from the fetcher threads for every consumer group of the current cycle
+     * @param group The consumer group
+     * @param coordinator Its coordinator broker
+     * @param nanos The time until its offsets were received
+     */
+    public void groupResponse(String group, Node coordinator, long nanos) {
+        synchronized (this) {
+            if (current != null) {
+                current.addResponse(group, coordinator, nanos);
+            }
+        }
+        if (jfrEvents != null && jfrEvents.isGroupResponseEnabled()) {
+            jfrEvents.groupResponse(group, address(coordinator), nanos);
+        }
+    }
+
+    /**
+     * Finish the current cycle and log its summary, at info level if it took longer than the threshold
+     * @param durationNanos The time of the whole cycle
+     * @param failed <tt>true</tt> if some request failed
+     */
+    public void endCycle(long durationNanos, boolean failed) {
+        boolean slow = durationNanos >= logThresholdNanos;
+        CycleTrace trace;
+        synchronized (this) {
+            if (current == null) {
+                return;
+            }
+            current.durationNanos = durationNanos;
+            current.failed = failed;
+            trace = slow || LOGGER.isDebugEnabled() ? current.copy() : null;
+            current = null;
+        }
+        if (slow) {
+            LOGGER.info(trace.toString());
+        } else if (trace != null) {
+            LOGGER.debug(trace.toString());
+        }
+    }
+
+    /**
+     * @return The traced cycles, the last one first
+     */
+    public synchronized List<CycleTrace> getCycles() {
+        List<CycleTrace> cycles = new ArrayList<>();
+        for (long sequence = started; sequence > 0 && sequence > started - ring.length; sequence--) {
+            cycles.add(ring[(int) ((sequence - 1) % ring.length)].copy());
+        }
+        return cycles;
+    }
+
+
+    private static String address(Node node) {
+        return node == null ? null : node.host() + ":" + node.port();
+    }
+
+    private static double toMs(long nanos) {
+        return nanos / 1e6;
+    }
+}
@@ -0,0 +1,32 @@
+package com.pim.hiring.scout24.kafka.trace;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+
+/**
+ * Created on 17/10/2026.
+ */
+@Configuration
+@ConditionalOnProperty(name = "checker.trace.enabled", havingValue = "true")
+public class TraceConfig {
+
+    @Value("${checker.trace.cycles:64}")
+    private int cycles;
+
+    @Value("${checker.trace.slowest-groups:10}")
+    private int slowestGroups;
+
+    @Value("${checker.trace.log-threshold-ms:30000}")
+    private long logThresholdMs;
+
+    @Value("${checker.trace.jfr:false}")
+    private boolean jfr;
+
+    @Bean
+    public ScanTracer scanTracer() {
+        return new ScanTracer(cycles, slowestGroups, logThresholdMs, jfr ? JfrEvents.create() : null);
+    }
+}
@@ -0,0 +1,27 @@
+package com.pim.hiring.scout24.kafka.trace;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+
+/**
+ * Dumps the traced scan cycles, the last one first
+ */
+@RestController
+@ConditionalOnProperty(name = "checker.trace.enabled", havingValue = "true")
+public class TraceController {
+
+    @Autowired
+    private ScanTracer scanTracer;
+
+    @GetMapping("/trace")
+    public List<CycleTrace> trace(@RequestParam(value = "limit", required = false) Integer limit) {
+        List<CycleTrace> cycles = scanTracer.getCycles();
+        return limit == null || limit >= cycles.size() ? cycles : cycles.subList(0, Math.max(limit, 0));
+    }
+}
@@ -0,0 +1,202 @@
+package com.pim.hiring.scout24.kafka;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.pim.hiring.scout24.kafka.boot.Daemon;
+import com.pim.hiring.scout24.kafka.boot.ScanOutcome;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.Assert;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.test.rule.KafkaEmbedded;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created on 17/10/2026.
+ *
+ * Fills a multi-broker embedded cluster with scale-* topics and consumer groups that commit offsets, runs full
+ * {@link Daemon} scans and writes their wall time, broker requests and heap usage to target/scale-report.json.
+ * Every tenth group leaves a partition without offsets, so the scans also report unassigned partitions.
+ * The warm scans fail the test when they are slower than scale.max-scan-ms or ask a group for its offsets more than
+ * once. Only compiled and run with the scale-tests profile:
+ *
+ *     mvn -P scale-tests test -Dtest=ClusterScaleTest -Dscale.topics=2000 -Dscale.max-scan-ms=30000
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {"scheduling.enabled=false", "spring.kafka.topics-to-check=scale-.*"})
+@DirtiesContext
+public class ClusterScaleTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ClusterScaleTest.class);
+
+    private static final int BROKERS = Integer.getInteger("scale.brokers", 3);
+    private static final int TOPICS = Integer.getInteger("scale.topics", 1000);
+    private static final int PARTITIONS = Integer.getInteger("scale.partitions", 4);
+    private static final int GROUPS = Integer.getInteger("scale.groups", 500);
+    private static final int TOPICS_PER_GROUP = Integer.getInteger("scale.topics-per-group", 5);
+    private static final int SCANS = Integer.getInteger("scale.scans", 3);
+    // the warm scans (all but the first one) fail the test when they take longer, 0 to only report them. The default
+    // is about 20 times the warm scans of the default cluster, ~300 ms, and grows with the groups
+    private static final long MAX_SCAN_MS = Long.getLong("scale.max-scan-ms", 1000L + 10L * GROUPS);
+
+    private static final String REPORT_PATH = System.getProperty("scale.report", "target/scale-report.json");
+
+    @ClassRule
+    public static KafkaEmbedded embeddedKafka = new KafkaEmbedded(BROKERS, true, PARTITIONS, topicNames());
+
+    @Autowired
+    private Daemon daemon;
+
+
+    @Test
+    public void testFullScansAtScale() throws Exception {
+        long start = System.nanoTime();
+        commitOffsets();
+        long fillMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        LOGGER.info("Committed the offsets of " + GROUPS + " consumer groups in " + fillMs + " ms");
+
+        List<Map<String, Object>> scans = new ArrayList<>();
+        for (int scan = 0; scan < SCANS; scan++) {
+            System.gc();
+            resetPeakHeap();
+            Map<String, Long> requestsBefore = brokerRequests();
+
+            ScanOutcome outcome = daemon.init();
+
+            Map<String, Long> requests = brokerRequests();
+            requests.replaceAll((request, count) -> count - requestsBefore.getOrDefault(request, 0L));
+            requests.values().removeIf(count -> count == 0);
+
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("scan", scan);
+            result.put("wallMs", TimeUnit.NANOSECONDS.toMillis(outcome.getDurationNanos()));
+            result.put("failed", outcome.isFailed());
+            result.put("changed", outcome.isChanged());
+            result.put("brokerRequests", requests);
+            result.put("heapUsedBytes", heapUsed());
+            result.put("heapPeakBytes", peakHeap());
+            scans.add(result);
+            LOGGER.info("Scan " + scan + ": " + result);
+        }
+
+        Map<String, Object> cluster = new LinkedHashMap<>();
+        cluster.put("brokers", BROKERS);
+        cluster.put("topics", TOPICS);
+        cluster.put("partitionsPerTopic", PARTITIONS);
+        cluster.put("groups", GROUPS);
+        cluster.put("topicsPerGroup", TOPICS_PER_GROUP);
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("timestamp", System.currentTimeMillis());
+        report.put("cluster", cluster);
+        report.put("fillMs", fillMs);
+        report.put("scans", scans);
+        File reportFile = new File(REPORT_PATH);
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(reportFile, report);
+        LOGGER.info("Scale report written to " + reportFile.getAbsolutePath());
+
+        for (Map<String, Object> scan : scans) {
+            Assert.assertFalse("Failed scan " + scan, (Boolean) scan.get("failed"));
+        }
+        for (Map<String, Object> scan : scans.subList(1, scans.size())) {
+            if (MAX_SCAN_MS > 0) {
+                Assert.assertTrue("Scan over " + MAX_SCAN_MS + " ms: " + scan,
+                        (Long) scan.get("wallMs") <= MAX_SCAN_MS);
+            }
+            @SuppressWarnings("unchecked")
+            Map<String, Long> requests = (Map<String, Long>) scan.get("brokerRequests");
+            Assert.assertTrue("More than one offset request per group: " + scan,
+                    requests.getOrDefault("OffsetFetch", 0L) <= GROUPS);
+        }
+    }
+
+
+    private static String[] topicNames() {
+        String[] topics = new String[TOPICS];
+        for (int topic = 0; topic < TOPICS; topic++) {
+            topics[topic] = "scale-" + topic;
+        }
+        return topics;
+    }
+
+    /**
+     * Every group commits all the partitions of its topics but the tenth groups, which skip the partition 0 of their
+     * first topic
+     */
+    private void commitOffsets() {
+        for (int group = 0; group < GROUPS; group++) {
+            Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+            for (int i = 0; i < TOPICS_PER_GROUP; i++) {
+                String topic = "scale-" + ((group * TOPICS_PER_GROUP + i) % TOPICS);
+                for (int partition = 0; partition < PARTITIONS; partition++) {
+                    if (group % 10 != 0 || i != 0 || partition != 0) {
+                        offsets.put(new TopicPartition(topic, partition), new OffsetAndMetadata(group));
+                    }
+                }
+            }
+            try (KafkaConsumer<Integer, String> consumer = new KafkaConsumer<>(
+                    KafkaTestUtils.consumerProps("scale-group-" + group, "false", embeddedKafka))) {
+                consumer.assign(offsets.keySet());
+                consumer.commitSync(offsets);
+            }
+        }
+    }
+
+    /**
+     * The brokers run in this JVM and share the request meters, so the counts are the ones of the whole cluster
+     * @return The requests received by the brokers by request type
+     */
+    private static Map<String, Long> brokerRequests() throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        Map<String, Long> requests = new TreeMap<>();
+        for (ObjectName name : server.queryNames(
+                new ObjectName("kafka.network:type=RequestMetrics,name=RequestsPerSec,request=*"), null)) {
+            requests.put(name.getKeyProperty("request"), ((Number) server.getAttribute(name, "Count")).longValue());
+        }
+        return requests;
+    }
+
+    private static long heapUsed() {
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static void resetPeakHeap() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    private static long peakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+}
@@ -0,0 +1,84 @@
+package com.pim.hiring.scout24.kafka;
+
+import com.pim.hiring.scout24.kafka.admin.AdminClientPool;
+import kafka.admin.AdminClient;
+import org.apache.kafka.common.Node;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created on 18/10/2026.
+ */
+public class AdminClientPoolTest {
+
+    // the clients are never connected
+    private static String BOOTSTRAP_SERVERS = "localhost:9092";
+
+    private AdminClientPool pool;
+
+
+    @Before
+    public void setUp() throws Exception {
+        pool = new AdminClientPool(BOOTSTRAP_SERVERS, 1, 5000);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        pool.close();
+    }
+
+
+    @Test
+    public void testAWaitingBorrowerGetsANewClientWhenAnOldOneIsReleased() throws Exception {
+        AdminClient old = pool.borrow();
+        CompletableFuture<AdminClient> waiting = CompletableFuture.supplyAsync(pool::borrow);
+        Thread.sleep(200);
+        Assert.assertFalse(waiting.isDone());
+
+        // the cluster changes while both clients are in use
+        pool.updateClusterNodes(Collections.singletonList(new Node(0, "localhost", 9092)));
+        pool.updateClusterNodes(Collections.singletonList(new Node(1, "localhost", 9093)));
+        pool.release(old);
+
+        AdminClient current = waiting.get(1, TimeUnit.SECONDS);
+        Assert.assertNotSame(old, current);
+        Assert.assertEquals(2, pool.getCreatedCount());
+        Assert.assertEquals(1, pool.getClosedCount());
+        Assert.assertEquals(1, pool.getOpenCount());
+        pool.release(current);
+    }
+
+    @Test
+    public void testAWaitingBorrowerGetsANewClientWhenAFailedOneIsInvalidated() throws Exception {
+        AdminClient failed = pool.borrow();
+        CompletableFuture<AdminClient> waiting = CompletableFuture.supplyAsync(pool::borrow);
+        Thread.sleep(200);
+
+        pool.invalidate(failed);
+
+        AdminClient current = waiting.get(1, TimeUnit.SECONDS);
+        Assert.assertNotSame(failed, current);
+        Assert.assertEquals(1, pool.getReconnectCount());
+        pool.release(current);
+    }
+
+    @Test
+    public void testABorrowerTimesOutWhenNoClientIsFree() throws Exception {
+        pool.close();
+        pool = new AdminClientPool(BOOTSTRAP_SERVERS, 1, 300);
+        AdminClient adminClient = pool.borrow();
+        try {
+            pool.borrow();
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertEquals(1, pool.getOpenCount());
+        }
+        pool.release(adminClient);
+    }
+}
@@ -0,0 +1,228 @@
+package com.pim.hiring.scout24.kafka;
+
+import com.pim.hiring.scout24.kafka.checker.AsyncUnassignedTopicPartitions;
+import com.pim.hiring.scout24.kafka.checker.TopicMatcher;
+import com.pim.hiring.scout24.kafka.report.UnassignedPartitionReport;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.springframework.kafka.test.rule.KafkaEmbedded;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Created on 17/10/2026.
+ */
+public class AsyncUnassignedTopicPartitionsTest {
+
+    private static String TOPIC_NAME = "async-topic";
+
+    private static String GROUP_NAME = "async-group";
+
+    // Create 2 partitions topic
+    @ClassRule
+    public static KafkaEmbedded embeddedKafka = new KafkaEmbedded(1, true, 2, TOPIC_NAME, "other-topic");
+
+    private AsyncUnassignedTopicPartitions checker;
+
+
+    @Before
+    public void setUp() throws Exception {
+        checker = new AsyncUnassignedTopicPartitions(embeddedKafka.getBrokersAsString(), new TopicMatcher(TOPIC_NAME),
+                30000, ForkJoinPool.commonPool());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        checker.close();
+    }
+
+
+    @Test
+    public void testUnassignedPartitionsAreReportedPerGroup() throws Exception {
+        // manual assignment of the first partition of each topic
+        commit(new TopicPartition(TOPIC_NAME, 0));
+        commit(new TopicPartition("other-topic", 0));
+
+        List<UnassignedPartitionReport> reports = checker.checkGroup(GROUP_NAME).get(30, TimeUnit.SECONDS);
+        // the topic that is not monitored is never reported
+        Assert.assertEquals(1, reports.size());
+        Assert.assertEquals(UnassignedPartitionReport.Type.UNASSIGNED, reports.get(0).getType());
+        Assert.assertEquals(TOPIC_NAME, reports.get(0).getTopic());
+        Assert.assertArrayEquals(new int[]{1}, reports.get(0).getPartitions());
+
+        Map<String, CompletableFuture<List<UnassignedPartitionReport>>> groups = waitForGroup(GROUP_NAME);
+        reports = groups.get(GROUP_NAME).get(30, TimeUnit.SECONDS);
+        Assert.assertEquals(1, reports.size());
+        Assert.assertArrayEquals(new int[]{1}, reports.get(0).getPartitions());
+    }
+
+    @Test
+    public void testFuturesAreCompletedAfterTheTimeout() throws Exception {
+        // a broker that accepts the connections but never answers
+        try (ServerSocket silentBroker = new ServerSocket(0);
+             AsyncUnassignedTopicPartitions impatient = new AsyncUnassignedTopicPartitions(
+                     "localhost:" + silentBroker.getLocalPort(), new TopicMatcher(TOPIC_NAME), 200,
+                     ForkJoinPool.commonPool())) {
+            CompletableFuture<List<UnassignedPartitionReport>> result = impatient.checkGroup(GROUP_NAME);
+            try {
+                result.get(10, TimeUnit.SECONDS);
+                Assert.fail("The check of a silent cluster must time out");
+            } catch (ExecutionException e) {
+                Assert.assertTrue(e.getCause() instanceof TimeoutException);
+            }
+
+            // a cancelled future is never completed by the responses
+            CompletableFuture<Map<String, CompletableFuture<List<UnassignedPartitionReport>>>> all =
+                    impatient.checkAllGroups();
+            Assert.assertTrue(all.cancel(true));
+            Assert.assertTrue(all.isCancelled());
+        }
+
+        commit(new TopicPartition(TOPIC_NAME, 0));
+        commit("async-other-group", new TopicPartition(TOPIC_NAME, 0));
+        waitForGroup("async-other-group");
+
+        // the responses are held until the futures of the groups are cancelled or timed out
+        HeldExecutor held = new HeldExecutor();
+        try (AsyncUnassignedTopicPartitions slow = new AsyncUnassignedTopicPartitions(
+                embeddedKafka.getBrokersAsString(), new TopicMatcher(TOPIC_NAME), 2000, held)) {
+            CompletableFuture<Map<String, CompletableFuture<List<UnassignedPartitionReport>>>> all =
+                    slow.checkAllGroups();
+            while (!all.isDone()) {
+                held.runNext();
+            }
+            List<CompletableFuture<List<UnassignedPartitionReport>>> groupResults = new ArrayList<>(all.get().values());
+            Assert.assertTrue(groupResults.size() >= 2);
+            // every offset response is waiting
+            held.awaitPending(groupResults.size());
+            Map<String, Long> requests = brokerRequests();
+            Assert.assertTrue(requests.get("OffsetFetch") >= groupResults.size());
+
+            Assert.assertTrue(groupResults.get(0).cancel(true));
+            for (CompletableFuture<List<UnassignedPartitionReport>> groupResult : groupResults) {
+                try {
+                    groupResult.get(10, TimeUnit.SECONDS);
+                    Assert.fail("The future of a group must be cancelled or timed out");
+                } catch (CancellationException e) {
+                    Assert.assertSame(groupResults.get(0), groupResult);
+                } catch (ExecutionException e) {
+                    Assert.assertTrue(e.getCause() instanceof TimeoutException);
+                }
+            }
+
+            // the held responses don't complete them, and nothing else is sent
+            held.runAll();
+            groupResults.forEach(groupResult -> Assert.assertTrue(groupResult.isCompletedExceptionally()));
+            Thread.sleep(500);
+            held.runAll();
+            Assert.assertEquals(requests, brokerRequests());
+
+            // a check cancelled before the groups are listed sends no list request
+            all = slow.checkAllGroups();
+            held.awaitPending(1);
+            Assert.assertTrue(all.cancel(true));
+            held.runAll();
+            Thread.sleep(500);
+            held.runAll();
+            Assert.assertEquals(requests, brokerRequests());
+        }
+    }
+
+
+    private void commit(TopicPartition partition) {
+        commit(GROUP_NAME, partition);
+    }
+
+    private void commit(String group, TopicPartition partition) {
+        try (KafkaConsumer<Integer, String> consumer = new KafkaConsumer<>(
+                KafkaTestUtils.consumerProps(group, "false", embeddedKafka))) {
+            consumer.assign(Collections.singletonList(partition));
+            consumer.commitSync(Collections.singletonMap(partition, new OffsetAndMetadata(0)));
+        }
+    }
+
+    private Map<String, CompletableFuture<List<UnassignedPartitionReport>>> waitForGroup(String group)
+            throws Exception {
+        Map<String, CompletableFuture<List<UnassignedPartitionReport>>> groups =
+                checker.checkAllGroups().get(30, TimeUnit.SECONDS);
+        for (int i = 0; i < 50 && !groups.containsKey(group); i++) {
+            Thread.sleep(200);
+            groups = checker.checkAllGroups().get(30, TimeUnit.SECONDS);
+        }
+        Assert.assertTrue(groups.containsKey(group));
+        return groups;
+    }
+
+    /**
+     * The group requests received by the broker, it runs in this JVM. The metadata requests are not counted because
+     * the network client refreshes its metadata by itself
+     * @return The requests received by request type
+     */
+    private static Map<String, Long> brokerRequests() throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        Map<String, Long> requests = new TreeMap<>();
+        for (String request : Arrays.asList("GroupCoordinator", "ListGroups", "OffsetFetch")) {
+            ObjectName name = new ObjectName(
+                    "kafka.network:type=RequestMetrics,name=RequestsPerSec,request=" + request);
+            requests.put(request, server.isRegistered(name)
+                    ? ((Number) server.getAttribute(name, "Count")).longValue() : 0L);
+        }
+        return requests;
+    }
+
+    /**
+     * Keeps the completions of the futures until the test runs them
+     */
+    private static class HeldExecutor implements Executor {
+        private final LinkedBlockingQueue<Runnable> pending = new LinkedBlockingQueue<>();
+
+        @Override
+        public void execute(Runnable command) {
+            pending.add(command);
+        }
+
+        void runNext() throws InterruptedException {
+            Runnable next = pending.poll(10, TimeUnit.SECONDS);
+            Assert.assertNotNull("No response received", next);
+            next.run();
+        }
+
+        void runAll() {
+            Runnable next;
+            while ((next = pending.poll()) != null) {
+                next.run();
+            }
+        }
+
+        void awaitPending(int count) throws InterruptedException {
+            for (int i = 0; i < 100 && pending.size() < count; i++) {
+                Thread.sleep(100);
+            }
+            Assert.assertTrue(pending.size() >= count);
+        }
+    }
+}
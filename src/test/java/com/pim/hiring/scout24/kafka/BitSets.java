@@ -0,0 +1,25 @@
+package com.pim.hiring.scout24.kafka;
+
+import java.util.BitSet;
+
+/**
+ * Created on 18/10/2026.
+ */
+final class BitSets {
+
+    private BitSets() {
+    }
+
+
+    /**
+     * @param partitions The partition numbers
+     * @return A bit set with the given partitions
+     */
+    static BitSet partitions(int... partitions) {
+        BitSet bitSet = new BitSet();
+        for (int partition : partitions) {
+            bitSet.set(partition);
+        }
+        return bitSet;
+    }
+}
@@ -0,0 +1,78 @@
+package com.pim.hiring.scout24.kafka;
+
+import com.pim.hiring.scout24.kafka.cli.CheckerCli;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.Assert;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.springframework.kafka.test.rule.KafkaEmbedded;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.Collections;
+
+/**
+ * Created on 17/10/2026.
+ */
+public class CheckerCliTest {
+
+    // Create 2 partitions topics
+    @ClassRule
+    public static KafkaEmbedded embeddedKafka = new KafkaEmbedded(1, true, 2, "cli-orders", "cli-payments");
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    private final ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+
+    @Test
+    public void testInvalidArgumentsExitWithUsage() throws Exception {
+        Assert.assertEquals(CheckerCli.USAGE, run());
+        Assert.assertEquals(CheckerCli.USAGE, run("--spring.kafka.bootstrap-servers=localhost:9092", "--unknown=1"));
+        Assert.assertEquals(CheckerCli.USAGE, run("--spring.kafka.bootstrap-servers=localhost:9092",
+                "--checker.fetch.threads=many"));
+        Assert.assertTrue(err.toString().contains("Usage"));
+    }
+
+    @Test
+    public void testTheExitCodeTellsIfSomePartitionsAreUnassigned() throws Exception {
+        commit("cli-orders-group", new TopicPartition("cli-orders", 0));
+        commit("cli-payments-group", new TopicPartition("cli-payments", 0), new TopicPartition("cli-payments", 1));
+
+        // the groups are listed once the coordinator has loaded them
+        int status = CheckerCli.OK;
+        for (int i = 0; i < 50 && status == CheckerCli.OK; i++) {
+            out.reset();
+            status = run("--spring.kafka.bootstrap-servers=" + embeddedKafka.getBrokersAsString(),
+                    "--spring.kafka.topics-to-check=cli-.*", "--checker.admin.pool-size=1");
+            if (status == CheckerCli.OK) {
+                Thread.sleep(200);
+            }
+        }
+        Assert.assertEquals(CheckerCli.UNASSIGNED_PARTITIONS, status);
+        Assert.assertEquals("cli-orders-group cli-orders {1}", out.toString().trim());
+
+        out.reset();
+        Assert.assertEquals(CheckerCli.OK, run("--spring.kafka.bootstrap-servers=" +
+                embeddedKafka.getBrokersAsString(), "--spring.kafka.topics-to-check=cli-payments"));
+        Assert.assertEquals("", out.toString().trim());
+    }
+
+
+    private int run(String... args) {
+        return CheckerCli.run(args, new PrintStream(out, true), new PrintStream(err, true));
+    }
+
+    private void commit(String group, TopicPartition... partitions) {
+        try (KafkaConsumer<Integer, String> consumer = new KafkaConsumer<>(
+                KafkaTestUtils.consumerProps(group, "false", embeddedKafka))) {
+            for (TopicPartition partition : partitions) {
+                consumer.assign(Collections.singletonList(partition));
+                consumer.commitSync(Collections.singletonMap(partition, new OffsetAndMetadata(0)));
+            }
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.pim.hiring.scout24.kafka;
+
+import com.pim.hiring.scout24.kafka.checker.ConsumerLagChecker;
+import com.pim.hiring.scout24.kafka.checker.IncrementalChecker;
+import com.pim.hiring.scout24.kafka.index.PartitionAssignmentIndex;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Created on 17/10/2026.
+ */
+public class ConsumerLagCheckerTest {
+
+    private IncrementalChecker incrementalChecker;
+
+    private ConsumerLagChecker lagChecker;
+
+    private List<String> stalls;
+
+
+    @Before
+    public void setUp() throws Exception {
+        incrementalChecker = new IncrementalChecker();
+        lagChecker = new ConsumerLagChecker();
+        stalls = new ArrayList<>();
+    }
+
+
+    @Test
+    public void testLagIsSharedByTheGroups() throws Exception {
+        PartitionAssignmentIndex index = index(5L, 8L, 10L);
+        Map<TopicPartition, Long> endOffsets = endOffsets(10L, 10L);
+
+        ConsumerLagChecker.LagSummary summary = lagChecker.check(index, allTopics(index), endOffsets,
+                (group, topic, partitions) -> stalls.add(group + " " + topic + " " + partitions));
+        Assert.assertEquals(Long.valueOf(5 + 2), summary.getLagByPair().get("t1#g1"));
+        Assert.assertEquals(Long.valueOf(0), summary.getLagByPair().get("t1#g2"));
+        Assert.assertEquals(Long.valueOf(5), summary.getMaxLagByPair().get("t1#g1"));
+        Assert.assertEquals(Long.valueOf(0), summary.getMaxLagByPair().get("t1#g2"));
+        Assert.assertEquals(7, summary.getTotalLag());
+        Assert.assertEquals(5, summary.getMaxLag());
+        // there is no previous scan to compare with
+        Assert.assertEquals(0, summary.getStalledPartitions());
+        Assert.assertTrue(stalls.isEmpty());
+    }
+
+    @Test
+    public void testStalledPartitionsAreReportedOnce() throws Exception {
+        ConsumerLagChecker.StallListener listener = (group, topic, partitions) ->
+                stalls.add(group + " " + topic + " " + partitions);
+        PartitionAssignmentIndex index = index(5L, 8L, 10L);
+        lagChecker.check(index, allTopics(index), endOffsets(10L, 10L), listener);
+
+        // g1 moved the partition 1 but not the partition 0
+        index = index(5L, 9L, 11L);
+        ConsumerLagChecker.LagSummary summary = lagChecker.check(index, allTopics(index), endOffsets(12L, 12L),
+                listener);
+        Assert.assertEquals(1, summary.getStalledPartitions());
+        Assert.assertEquals(1, stalls.size());
+        Assert.assertEquals("g1 t1 {0}", stalls.get(0));
+
+        // g2 has lag now, but it isn't stalled while its offset moves
+        Assert.assertEquals(Long.valueOf(1), summary.getLagByPair().get("t1#g2"));
+
+        // g1 is still stalled and not reported again
+        index = index(5L, 12L, 11L);
+        summary = lagChecker.check(index, allTopics(index), endOffsets(12L, 12L), listener);
+        Assert.assertEquals(2, summary.getStalledPartitions());
+        Assert.assertEquals(2, stalls.size());
+        Assert.assertEquals("g2 t1 {0}", stalls.get(1));
+    }
+
+
+    /**
+     * t1 with 2 partitions, g1 commits both and g2 only the partition 0
+     */
+    private PartitionAssignmentIndex index(long g1Partition0, long g1Partition1, long g2Partition0) {
+        PartitionAssignmentIndex index = incrementalChecker.newIndex();
+        Map<TopicPartition, Long> g1 = new HashMap<>();
+        g1.put(new TopicPartition("t1", 0), g1Partition0);
+        g1.put(new TopicPartition("t1", 1), g1Partition1);
+        index.addGroup("g1", g1);
+        Map<TopicPartition, Long> g2 = new HashMap<>();
+        g2.put(new TopicPartition("t1", 0), g2Partition0);
+        index.addGroup("g2", g2);
+        return index;
+    }
+
+    private static Map<TopicPartition, Long> endOffsets(long partition0, long partition1) {
+        Map<TopicPartition, Long> endOffsets = new HashMap<>();
+        endOffsets.put(new TopicPartition("t1", 0), partition0);
+        endOffsets.put(new TopicPartition("t1", 1), partition1);
+        return endOffsets;
+    }
+
+    private static BitSet allTopics(PartitionAssignmentIndex index) {
+        BitSet topics = new BitSet();
+        topics.set(0, index.getTopics().size());
+        return topics;
+    }
+}
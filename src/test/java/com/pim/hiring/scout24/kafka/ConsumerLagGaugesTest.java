@@ -0,0 +1,58 @@
+package com.pim.hiring.scout24.kafka;
+
+import com.pim.hiring.scout24.kafka.metrics.ConsumerLagGauges;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Created on 18/10/2026.
+ */
+public class ConsumerLagGaugesTest {
+
+    private SimpleMeterRegistry registry;
+
+    private ConsumerLagGauges gauges;
+
+
+    @Before
+    public void setUp() throws Exception {
+        registry = new SimpleMeterRegistry();
+        gauges = new ConsumerLagGauges(registry);
+    }
+
+
+    @Test
+    public void testTheMostLaggingPartitionIsPublishedNextToTheSum() throws Exception {
+        Map<String, Long> lagByPair = new HashMap<>();
+        lagByPair.put("t1#g1", 120L);
+        lagByPair.put("t1#g2", 3L);
+        Map<String, Long> maxLagByPair = new HashMap<>();
+        maxLagByPair.put("t1#g1", 100L);
+        maxLagByPair.put("t1#g2", 1L);
+        gauges.update(lagByPair, maxLagByPair);
+
+        Assert.assertEquals(120.0, gauge(ConsumerLagGauges.METRIC_NAME, "g1").value(), 0.0);
+        Assert.assertEquals(100.0, gauge(ConsumerLagGauges.MAX_METRIC_NAME, "g1").value(), 0.0);
+        Assert.assertEquals(1.0, gauge(ConsumerLagGauges.MAX_METRIC_NAME, "g2").value(), 0.0);
+        Assert.assertEquals(2, gauges.size());
+
+        // g2 is not in the next scan
+        gauges.update(Collections.singletonMap("t1#g1", 50L), Collections.singletonMap("t1#g1", 50L));
+        Assert.assertEquals(50.0, gauge(ConsumerLagGauges.MAX_METRIC_NAME, "g1").value(), 0.0);
+        Assert.assertNull(gauge(ConsumerLagGauges.METRIC_NAME, "g2"));
+        Assert.assertNull(gauge(ConsumerLagGauges.MAX_METRIC_NAME, "g2"));
+        Assert.assertEquals(1, gauges.size());
+    }
+
+
+    private Gauge gauge(String name, String group) {
+        return registry.find(name).tag("group", group).tag("topic", "t1").gauge();
+    }
+}
@@ -0,0 +1,183 @@
+package com.pim.hiring.scout24.kafka;
+
+import com.pim.hiring.scout24.kafka.checker.IncrementalChecker;
+import com.pim.hiring.scout24.kafka.checker.ScanEvaluator;
+import com.pim.hiring.scout24.kafka.checker.TopicMetadataCache;
+import com.pim.hiring.scout24.kafka.consumer.ConsumerOffsetsTailer;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.test.rule.KafkaEmbedded;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Created on 17/10/2026.
+ */
+public class ConsumerOffsetsStreamingTest {
+
+    private static String TOPIC_NAME = "topic1";
+
+    private static String GROUP_NAME = "streaming-group";
+
+    private static String RESTARTED_GROUP_NAME = "restarted-streaming-group";
+
+    // Create 2 partitions topic
+    @ClassRule
+    public static KafkaEmbedded embeddedKafka = new KafkaEmbedded(1, true, 2, TOPIC_NAME);
+
+    private final List<String> transitions = new CopyOnWriteArrayList<>();
+
+    private TopicMetadataCache cache;
+
+    private ConsumerOffsetsTailer tailer;
+
+    private ScanEvaluator scanEvaluator;
+
+    private Map<String, Object> tailerProps;
+
+
+    @Before
+    public void setUp() throws Exception {
+        Map<String, Object> consumerProps = KafkaTestUtils.consumerProps(GROUP_NAME, "false", embeddedKafka);
+
+        // wait until the broker publishes the topic metadata
+        cache = new TopicMetadataCache(consumerProps, 0, 10);
+        for (int i = 0; i < 50 && cache.getPartitions(TOPIC_NAME) == null; i++) {
+            Thread.sleep(200);
+        }
+
+        scanEvaluator = new ScanEvaluator(cache, new String[]{TOPIC_NAME},
+                new IncrementalChecker.TransitionListener() {
+                    @Override
+                    public void onUnassigned(String group, String topic, BitSet partitions) {
+                        transitions.add("unassigned " + group + " " + topic + " " + partitions);
+                    }
+
+                    @Override
+                    public void onRecovered(String group, String topic, BitSet partitions) {
+                        transitions.add("recovered " + group + " " + topic + " " + partitions);
+                    }
+                });
+
+        tailerProps = KafkaTestUtils.consumerProps("tailer", "false", embeddedKafka);
+        tailerProps.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class);
+        tailerProps.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class);
+        tailerProps.put(ConsumerConfig.EXCLUDE_INTERNAL_TOPICS_CONFIG, false);
+
+        tailer = new ConsumerOffsetsTailer(new DefaultKafkaConsumerFactory<>(tailerProps), scanEvaluator, 200, 200);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        tailer.stop();
+        cache.close();
+    }
+
+
+    @Test
+    public void testCommitsAreReportedFromTheConsumerOffsetsTopic() throws Exception {
+        // manual assignment of the first partition only
+        commit(new TopicPartition(TOPIC_NAME, 0));
+        tailer.start();
+
+        waitForTransition("unassigned " + GROUP_NAME + " " + TOPIC_NAME + " {1}");
+
+        commit(new TopicPartition(TOPIC_NAME, 1));
+
+        waitForTransition("recovered " + GROUP_NAME + " " + TOPIC_NAME + " {1}");
+    }
+
+    @Test
+    public void testTheTailerSkipsUndecodableRecordsAndSurvivesAConsumerFailure() throws Exception {
+        AtomicInteger polls = new AtomicInteger();
+        ConsumerFactory<byte[], byte[]> failingFactory = new ConsumerFactory<byte[], byte[]>() {
+            @Override
+            public Consumer<byte[], byte[]> createConsumer() {
+                return new KafkaConsumer<byte[], byte[]>(tailerProps) {
+                    @Override
+                    public ConsumerRecords<byte[], byte[]> poll(long timeout) {
+                        int poll = polls.incrementAndGet();
+                        if (poll == 1) {
+                            throw new IllegalStateException("Broken consumer");
+                        } else if (poll == 2) {
+                            return withUndecodableRecord(super.poll(timeout));
+                        }
+                        return super.poll(timeout);
+                    }
+                };
+            }
+
+            @Override
+            public boolean isAutoCommit() {
+                return false;
+            }
+        };
+        tailer.stop();
+        tailer = new ConsumerOffsetsTailer(failingFactory, scanEvaluator, 200, 200);
+
+        commit(RESTARTED_GROUP_NAME, new TopicPartition(TOPIC_NAME, 0));
+        tailer.start();
+
+        waitForTransition("unassigned " + RESTARTED_GROUP_NAME + " " + TOPIC_NAME + " {1}");
+        Assert.assertTrue(polls.get() >= 2);
+        Assert.assertTrue(tailer.isRunning());
+
+        commit(RESTARTED_GROUP_NAME, new TopicPartition(TOPIC_NAME, 1));
+
+        waitForTransition("recovered " + RESTARTED_GROUP_NAME + " " + TOPIC_NAME + " {1}");
+    }
+
+
+    private void commit(TopicPartition partition) {
+        commit(GROUP_NAME, partition);
+    }
+
+    private void commit(String group, TopicPartition partition) {
+        try (KafkaConsumer<Integer, String> consumer = new KafkaConsumer<>(
+                KafkaTestUtils.consumerProps(group, "false", embeddedKafka))) {
+            consumer.assign(Collections.singletonList(partition));
+            consumer.commitSync(Collections.singletonMap(partition, new OffsetAndMetadata(0)));
+        }
+    }
+
+    private static ConsumerRecords<byte[], byte[]> withUndecodableRecord(ConsumerRecords<byte[], byte[]> records) {
+        Map<TopicPartition, List<ConsumerRecord<byte[], byte[]>>> merged = new HashMap<>();
+        for (TopicPartition partition : records.partitions()) {
+            merged.put(partition, new ArrayList<>(records.records(partition)));
+        }
+        // a key version unknown to this client
+        TopicPartition partition = new TopicPartition("__consumer_offsets", 0);
+        merged.computeIfAbsent(partition, p -> new ArrayList<>())
+                .add(0, new ConsumerRecord<>(partition.topic(), partition.partition(), 0,
+                        new byte[]{Byte.MAX_VALUE, Byte.MAX_VALUE}, new byte[0]));
+        return new ConsumerRecords<>(merged);
+    }
+
+    private void waitForTransition(String transition) throws InterruptedException {
+        for (int i = 0; i < 150 && !transitions.contains(transition); i++) {
+            Thread.sleep(200);
+        }
+        Assert.assertTrue("Expected " + transition + " in " + transitions, transitions.contains(transition));
+    }
+}
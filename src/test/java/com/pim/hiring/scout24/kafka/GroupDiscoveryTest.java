@@ -0,0 +1,189 @@
+package com.pim.hiring.scout24.kafka;
+
+import com.pim.hiring.scout24.kafka.admin.AdminClientPool;
+import com.pim.hiring.scout24.kafka.admin.ConsumerGroupOffsetsFetcher;
+import com.pim.hiring.scout24.kafka.admin.GroupDiscovery;
+import com.pim.hiring.scout24.kafka.admin.ProtocolGroupDiscovery;
+import com.pim.hiring.scout24.kafka.admin.ScalaGroupDiscovery;
+import kafka.admin.AdminClient;
+import kafka.coordinator.GroupOverview;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.springframework.kafka.test.rule.KafkaEmbedded;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+
+import java.net.ServerSocket;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Created on 17/10/2026.
+ */
+public class GroupDiscoveryTest {
+
+    private static String TOPIC_NAME = "discovery-topic";
+
+    // Create 2 partitions topic
+    @ClassRule
+    public static KafkaEmbedded embeddedKafka = new KafkaEmbedded(1, true, 2, TOPIC_NAME);
+
+    private AdminClient adminClient;
+
+
+    @Before
+    public void setUp() throws Exception {
+        adminClient = AdminClientPool.createKafkaAdminClient(embeddedKafka.getBrokersAsString());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        adminClient.close();
+    }
+
+
+    @Test
+    public void testBothStrategiesFindTheSameGroupsAndOffsets() throws Exception {
+        commit("group-a", new TopicPartition(TOPIC_NAME, 0), 5L);
+        commit("group-b", new TopicPartition(TOPIC_NAME, 1), 7L);
+
+        Map<Node, List<GroupOverview>> scalaGroups = waitForGroups(new ScalaGroupDiscovery(), 2);
+        Map<Node, List<GroupOverview>> protocolGroups = waitForGroups(new ProtocolGroupDiscovery(), 2);
+        Assert.assertEquals(scalaGroups, protocolGroups);
+
+        Node coordinator = protocolGroups.keySet().iterator().next();
+        List<GroupOverview> groups = protocolGroups.get(coordinator);
+        AtomicInteger failures = new AtomicInteger();
+        Map<String, Map<TopicPartition, Object>> scalaOffsets =
+                new ScalaGroupDiscovery().fetchOffsets(adminClient, coordinator, groups, null, failures);
+        Map<String, Map<TopicPartition, Object>> protocolOffsets =
+                new ProtocolGroupDiscovery().fetchOffsets(adminClient, coordinator, groups, null, failures);
+
+        Assert.assertEquals(0, failures.get());
+        Assert.assertEquals(scalaOffsets, protocolOffsets);
+        Assert.assertEquals(Collections.singletonMap(new TopicPartition(TOPIC_NAME, 1), 7L),
+                protocolOffsets.get("group-b"));
+    }
+
+    @Test
+    public void testTheOffsetsAreFetchedAgainFromTheNewCoordinator() throws Exception {
+        commit("moved-group", new TopicPartition(TOPIC_NAME, 0), 3L);
+        waitForGroups(new ProtocolGroupDiscovery(), 1);
+
+        // the listed coordinator is not reachable any more
+        Node gone;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            gone = new Node(99, "localhost", socket.getLocalPort());
+        }
+        AtomicInteger failures = new AtomicInteger();
+        Map<String, Map<TopicPartition, Object>> offsets = new ProtocolGroupDiscovery().fetchOffsets(adminClient,
+                gone, Collections.singletonList(new GroupOverview("moved-group", "")), null, failures);
+
+        Assert.assertEquals(0, failures.get());
+        Assert.assertEquals(Collections.singletonMap(new TopicPartition(TOPIC_NAME, 0), 3L),
+                offsets.get("moved-group"));
+    }
+
+    @Test
+    public void testLiveAssignmentsAreDescribed() throws Exception {
+        Map<String, Object> props = KafkaTestUtils.consumerProps("live-group", "false", embeddedKafka);
+        try (KafkaConsumer<Integer, String> consumer = new KafkaConsumer<>(props)) {
+            consumer.subscribe(Collections.singletonList(TOPIC_NAME));
+            for (int i = 0; i < 50 && consumer.assignment().isEmpty(); i++) {
+                consumer.poll(200);
+            }
+            Assert.assertEquals(2, consumer.assignment().size());
+
+            Map<Node, List<GroupOverview>> groups = waitForGroups(new ProtocolGroupDiscovery(), 1);
+            Set<TopicPartition> expected = new HashSet<>(Arrays.asList(
+                    new TopicPartition(TOPIC_NAME, 0), new TopicPartition(TOPIC_NAME, 1)));
+
+            AtomicInteger failures = new AtomicInteger();
+            for (GroupDiscovery discovery : new GroupDiscovery[]{new ProtocolGroupDiscovery(), new ScalaGroupDiscovery()}) {
+                Map<String, Set<TopicPartition>> assignments =
+                        discovery.describeAssignments(adminClient, groups, failures);
+                Assert.assertEquals(expected, assignments.get("live-group"));
+            }
+            Assert.assertEquals(0, failures.get());
+        }
+    }
+
+    @Test
+    public void testTheGroupsThatAreNotSettledWhenABatchAbortsAreFailed() throws Exception {
+        // "retried" got a retriable error and was waiting for its retry when the batch aborted
+        GroupDiscovery aborting = new ProtocolGroupDiscovery() {
+            @Override
+            public void fetchOffsets(AdminClient adminClient, Node coordinator, List<GroupOverview> groups,
+                                     List<TopicPartition> partitions, AtomicInteger failures,
+                                     ResponseListener listener, OffsetsSink sink) {
+                listener.onGroupResponse("retried", coordinator, 1);
+                listener.onGroupResponse("fetched", coordinator, 1);
+                sink.onGroupOffsets("fetched", Collections.singletonMap(new TopicPartition(TOPIC_NAME, 0), 5L));
+                listener.onGroupFetched("fetched");
+                listener.onGroupResponse("empty", coordinator, 1);
+                listener.onGroupFetched("empty");
+                throw new IllegalStateException("Interrupted while waiting to retry a request");
+            }
+        };
+        Node coordinator = new Node(0, "localhost", 9092);
+        List<GroupOverview> groups = Arrays.asList(new GroupOverview("retried", "consumer"),
+                new GroupOverview("fetched", "consumer"), new GroupOverview("empty", "consumer"),
+                new GroupOverview("unsent", "consumer"));
+
+        Set<String> fetched = new HashSet<>();
+        Set<String> failed = new HashSet<>();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (AdminClientPool pool = new AdminClientPool(embeddedKafka.getBrokersAsString(), 1, 30000)) {
+            int failures = new ConsumerGroupOffsetsFetcher(pool, executor, 1, 10, aborting).fetch(
+                    Collections.singletonMap(coordinator, groups),
+                    new ConsumerGroupOffsetsFetcher.GroupOffsetsHandler() {
+                        @Override
+                        public void onGroupOffsets(String groupId, Map<TopicPartition, Object> groupOffsets) {
+                            fetched.add(groupId);
+                        }
+
+                        @Override
+                        public void onGroupFailed(String groupId) {
+                            failed.add(groupId);
+                        }
+                    });
+            Assert.assertEquals(2, failures);
+        } finally {
+            executor.shutdownNow();
+        }
+        Assert.assertEquals(Collections.singleton("fetched"), fetched);
+        Assert.assertEquals(new HashSet<>(Arrays.asList("retried", "unsent")), failed);
+    }
+
+
+    private void commit(String group, TopicPartition partition, long offset) {
+        try (KafkaConsumer<Integer, String> consumer = new KafkaConsumer<>(
+                KafkaTestUtils.consumerProps(group, "false", embeddedKafka))) {
+            consumer.assign(Collections.singletonList(partition));
+            consumer.commitSync(Collections.singletonMap(partition, new OffsetAndMetadata(offset)));
+        }
+    }
+
+    private Map<Node, List<GroupOverview>> waitForGroups(GroupDiscovery discovery, int count)
+            throws InterruptedException {
+        Map<Node, List<GroupOverview>> groups = discovery.listGroups(adminClient);
+        for (int i = 0; i < 50 && groups.values().stream().mapToInt(List::size).sum() < count; i++) {
+            Thread.sleep(200);
+            groups = discovery.listGroups(adminClient);
+        }
+        return groups;
+    }
+}
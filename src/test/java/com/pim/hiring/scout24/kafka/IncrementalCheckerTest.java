@@ -0,0 +1,247 @@
+package com.pim.hiring.scout24.kafka;
+
+import com.pim.hiring.scout24.kafka.checker.IncrementalChecker;
+import com.pim.hiring.scout24.kafka.index.PartitionAssignmentIndex;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Created on 17/10/2026.
+ */
+public class IncrementalCheckerTest {
+
+    private IncrementalChecker checker;
+
+    private List<String> transitions;
+
+    private IncrementalChecker.TransitionListener listener = new IncrementalChecker.TransitionListener() {
+        @Override
+        public void onUnassigned(String group, String topic, BitSet partitions) {
+            transitions.add("unassigned " + group + " " + topic + " " + partitions);
+        }
+
+        @Override
+        public void onRecovered(String group, String topic, BitSet partitions) {
+            transitions.add("recovered " + group + " " + topic + " " + partitions);
+        }
+
+        @Override
+        public void onCleared(String group, String topic, BitSet partitions) {
+            transitions.add("cleared " + group + " " + topic + " " + partitions);
+        }
+    };
+
+
+    @Before
+    public void setUp() throws Exception {
+        checker = new IncrementalChecker();
+        transitions = new ArrayList<>();
+    }
+
+
+    @Test
+    public void testSteadyStateIsReportedOnce() throws Exception {
+        IncrementalChecker.ScanDelta delta = scan(2, 10L);
+        Assert.assertEquals(1, delta.getNewGroups());
+        Assert.assertEquals(1, delta.getUnassignedPairs());
+        Assert.assertEquals(1, transitions.size());
+        Assert.assertEquals("unassigned g1 t1 {1}", transitions.get(0));
+
+        transitions.clear();
+        delta = scan(2, 10L);
+        Assert.assertEquals(1, delta.getUnchangedPairs());
+        Assert.assertEquals(1, delta.getUnassignedPairs());
+        Assert.assertTrue(transitions.isEmpty());
+    }
+
+    @Test
+    public void testRecoveredPartitionsAreReported() throws Exception {
+        scan(2, 10L);
+
+        transitions.clear();
+        scan(2, 10L, 20L);
+        Assert.assertEquals(1, transitions.size());
+        Assert.assertEquals("recovered g1 t1 {1}", transitions.get(0));
+    }
+
+    @Test
+    public void testNewTopicPartitionsAreReported() throws Exception {
+        scan(1, 10L);
+        Assert.assertTrue(transitions.isEmpty());
+
+        // the topic has been expanded but the group keeps the same offsets
+        IncrementalChecker.ScanDelta delta = scan(2, 10L);
+        Assert.assertEquals(1, delta.getChangedPairs());
+        Assert.assertEquals("unassigned g1 t1 {1}", transitions.get(0));
+    }
+
+    @Test
+    public void testAGroupThatCouldNotBeFetchedKeepsItsState() throws Exception {
+        scan(2, 10L);
+
+        // g1 is missing from the index because its offsets couldn't be fetched
+        transitions.clear();
+        IncrementalChecker.ScanDelta delta = checker.check(checker.newIndex(), topicId -> 2,
+                Collections.singleton("g1"), listener);
+        Assert.assertTrue(transitions.isEmpty());
+        Assert.assertEquals(0, delta.getRemovedGroups());
+        Assert.assertEquals(1, delta.getUnassignedPairs());
+        Assert.assertEquals(Collections.singleton("g1"), checker.getFlaggedGroups());
+
+        // once fetched again it's compared with its last fetched offsets
+        delta = scan(2, 10L);
+        Assert.assertTrue(transitions.isEmpty());
+        Assert.assertEquals(1, delta.getUnchangedPairs());
+    }
+
+    @Test
+    public void testATopicThatLeavesTheMonitoredTopicsIsCleared() throws Exception {
+        scan(2, 10L);
+
+        transitions.clear();
+        IncrementalChecker.ScanDelta delta = scan(-1, 10L);
+        Assert.assertEquals(Collections.singletonList("cleared g1 t1 {1}"), transitions);
+        Assert.assertEquals(0, delta.getUnassignedPairs());
+        Assert.assertTrue(checker.getFlaggedGroups().isEmpty());
+
+        // nothing is left to clear, and the topic is reported again when it's monitored again
+        transitions.clear();
+        scan(-1, 10L);
+        Assert.assertTrue(transitions.isEmpty());
+        scan(2, 10L);
+        Assert.assertEquals(Collections.singletonList("unassigned g1 t1 {1}"), transitions);
+    }
+
+    @Test
+    public void testTheGroupsThatAreNotAcceptedAnyMoreAreCleared() throws Exception {
+        Map<TopicPartition, Object> g2Offsets = new HashMap<>();
+        g2Offsets.put(new TopicPartition("t1", 0), 5L);
+        PartitionAssignmentIndex index = checker.newIndex();
+        index.addGroup("g1", offsets(10L));
+        index.addGroup("g2", g2Offsets);
+        checker.check(index, topicId -> 2, listener);
+
+        // the shard of g2 moved to another instance
+        transitions.clear();
+        checker.retainGroups(groupId -> groupId.equals("g1"), listener);
+        Assert.assertEquals(Collections.singletonList("cleared g2 t1 {1}"), transitions);
+        Assert.assertEquals(Collections.singleton("g1"), checker.getFlaggedGroups());
+
+        // g2 is not listed any more and it's not taken as removed
+        transitions.clear();
+        IncrementalChecker.ScanDelta delta = scan(2, 10L);
+        Assert.assertTrue(transitions.isEmpty());
+        Assert.assertEquals(0, delta.getRemovedGroups());
+        Assert.assertEquals(1, delta.getUnchangedPairs());
+    }
+
+    @Test
+    public void testRecheckOnlyEvaluatesTheGivenGroups() throws Exception {
+        Map<TopicPartition, Object> g2Offsets = new HashMap<>();
+        g2Offsets.put(new TopicPartition("t1", 0), 5L);
+        PartitionAssignmentIndex index = checker.newIndex();
+        index.addGroup("g1", offsets(10L));
+        index.addGroup("g2", g2Offsets);
+        checker.check(index, topicId -> 2, listener);
+        Assert.assertEquals(2, checker.getFlaggedGroups().size());
+
+        // only g1 is evaluated again, g2 keeps its missing partition
+        transitions.clear();
+        PartitionAssignmentIndex recheck = checker.newIndex();
+        recheck.addGroup("g1", offsets(10L, 20L));
+        checker.recheck(recheck, Collections.singleton("g1"), topicId -> 2, listener);
+        Assert.assertEquals(1, transitions.size());
+        Assert.assertEquals("recovered g1 t1 {1}", transitions.get(0));
+        Assert.assertEquals(Collections.singleton("g2"), checker.getFlaggedGroups());
+
+        // the next full scan starts from the rechecked offsets
+        transitions.clear();
+        index = checker.newIndex();
+        index.addGroup("g1", offsets(10L, 20L));
+        index.addGroup("g2", g2Offsets);
+        IncrementalChecker.ScanDelta delta = checker.check(index, topicId -> 2, listener);
+        Assert.assertEquals(2, delta.getUnchangedPairs());
+        Assert.assertTrue(transitions.isEmpty());
+    }
+
+
+    @Test
+    public void testTheGroupsOfExpandedTopicsAreFound() throws Exception {
+        Map<TopicPartition, Object> g2Offsets = new HashMap<>();
+        g2Offsets.put(new TopicPartition("t2", 0), 5L);
+        PartitionAssignmentIndex index = checker.newIndex();
+        index.addGroup("g1", offsets(10L, 20L));
+        index.addGroup("g2", g2Offsets);
+        checker.check(index, topicId -> 2, listener);
+
+        Map<String, Integer> partitionCounts = new HashMap<>();
+        partitionCounts.put("t1", 3);
+        partitionCounts.put("t2", 2);
+        partitionCounts.put("t3", 8);
+        Assert.assertEquals(Collections.singleton("t1"), checker.getExpandedTopics(partitionCounts));
+        Assert.assertEquals(Collections.singleton("g1"), checker.getGroupsConsuming(Collections.singleton("t1")));
+
+        // once the groups are checked again with the new partition count the topic is not expanded any more
+        transitions.clear();
+        PartitionAssignmentIndex recheck = checker.newIndex();
+        recheck.addGroup("g1", offsets(10L, 20L));
+        checker.recheck(recheck, Collections.singleton("g1"), topicId -> 3, listener);
+        Assert.assertEquals(Collections.singletonList("unassigned g1 t1 {2}"), transitions);
+        Assert.assertTrue(checker.getExpandedTopics(partitionCounts).isEmpty());
+    }
+
+    @Test
+    public void testTheGroupsThatWereNotRecheckedSeeTheNewPartitions() throws Exception {
+        PartitionAssignmentIndex index = checker.newIndex();
+        index.addGroup("g1", offsets(10L, 20L));
+        index.addGroup("g2", offsets(10L, 20L));
+        checker.check(index, topicId -> 2, listener);
+        Assert.assertTrue(transitions.isEmpty());
+
+        // t1 gains a partition but only the flagged g1 is rechecked, e.g. the partition counts couldn't be watched
+        PartitionAssignmentIndex recheck = checker.newIndex();
+        recheck.addGroup("g1", offsets(10L, 20L));
+        checker.recheck(recheck, Collections.singleton("g1"), topicId -> 3, listener);
+        Assert.assertEquals(Collections.singletonList("unassigned g1 t1 {2}"), transitions);
+        Assert.assertEquals(Collections.singleton("t1"),
+                checker.getExpandedTopics(Collections.singletonMap("t1", 3)));
+
+        // the next full scan evaluates g2 with the new partition, g1 is not reported again
+        transitions.clear();
+        index = checker.newIndex();
+        index.addGroup("g1", offsets(10L, 20L));
+        index.addGroup("g2", offsets(10L, 20L));
+        checker.check(index, topicId -> 3, listener);
+        Assert.assertEquals(Collections.singletonList("unassigned g2 t1 {2}"), transitions);
+    }
+
+    /**
+     * Scan a cluster with a group g1 consuming the first partitions of the topic t1
+     */
+    private IncrementalChecker.ScanDelta scan(int partitionCount, Long... offsets) {
+        PartitionAssignmentIndex index = checker.newIndex();
+        index.addGroup("g1", offsets(offsets));
+
+        return checker.check(index, topicId -> partitionCount, listener);
+    }
+
+    /**
+     * @return The offsets of the first partitions of the topic t1
+     */
+    private static Map<TopicPartition, Object> offsets(Long... offsets) {
+        Map<TopicPartition, Object> groupOffsets = new HashMap<>();
+        for (int partition = 0; partition < offsets.length; partition++) {
+            groupOffsets.put(new TopicPartition("t1", partition), offsets[partition]);
+        }
+        return groupOffsets;
+    }
+}
@@ -0,0 +1,107 @@
+package com.pim.hiring.scout24.kafka;
+
+import com.pim.hiring.scout24.kafka.checker.LiveAssignmentCheck;
+import com.pim.hiring.scout24.kafka.index.PartitionAssignmentIndex;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Created on 17/10/2026.
+ */
+public class LiveAssignmentCheckTest {
+
+    private LiveAssignmentCheck check;
+
+    private List<String> flags;
+
+    private LiveAssignmentCheck.FlagListener listener = new LiveAssignmentCheck.FlagListener() {
+        @Override
+        public void onFlagged(LiveAssignmentCheck.Status status, String group, String topic, BitSet partitions) {
+            flags.add(status + " " + group + " " + topic + " " + partitions);
+        }
+    };
+
+
+    @Before
+    public void setUp() throws Exception {
+        check = new LiveAssignmentCheck();
+        flags = new ArrayList<>();
+    }
+
+
+    @Test
+    public void testPartitionsAreClassified() throws Exception {
+        // 4 partitions: 0 committed and assigned, 1 committed only, 2 assigned only, 3 neither
+        PartitionAssignmentIndex index = new PartitionAssignmentIndex();
+        index.addGroup("g1", Arrays.asList(new TopicPartition("t1", 0), new TopicPartition("t1", 1)));
+        Map<String, Set<TopicPartition>> assignments = Collections.singletonMap("g1",
+                new HashSet<>(Arrays.asList(new TopicPartition("t1", 0), new TopicPartition("t1", 2))));
+
+        Map<LiveAssignmentCheck.Status, Integer> counts = check.check(index, assignments, topic -> 4, listener);
+        Assert.assertEquals(Integer.valueOf(1), counts.get(LiveAssignmentCheck.Status.COMMITTED_NOT_ASSIGNED));
+        Assert.assertEquals(Integer.valueOf(1), counts.get(LiveAssignmentCheck.Status.ASSIGNED_NOT_COMMITTED));
+        Assert.assertEquals(Integer.valueOf(1), counts.get(LiveAssignmentCheck.Status.MISSING));
+        Assert.assertTrue(flags.contains("COMMITTED_NOT_ASSIGNED g1 t1 {1}"));
+        Assert.assertTrue(flags.contains("ASSIGNED_NOT_COMMITTED g1 t1 {2}"));
+        Assert.assertTrue(flags.contains("MISSING g1 t1 {3}"));
+
+        // the same partitions are flagged only once
+        flags.clear();
+        check.check(index, assignments, topic -> 4, listener);
+        Assert.assertTrue(flags.isEmpty());
+    }
+
+    @Test
+    public void testTheFlagsAreKeptWhileAGroupIsRebalancing() throws Exception {
+        PartitionAssignmentIndex index = new PartitionAssignmentIndex();
+        index.addGroup("g1", Arrays.asList(new TopicPartition("t1", 0), new TopicPartition("t1", 1)));
+        Map<String, Set<TopicPartition>> assignments = Collections.singletonMap("g1",
+                Collections.singleton(new TopicPartition("t1", 0)));
+        check.check(index, assignments, topic -> 2, listener);
+        Assert.assertEquals(Collections.singletonList("COMMITTED_NOT_ASSIGNED g1 t1 {1}"), flags);
+
+        // g1 is rebalancing, so it isn't described
+        flags.clear();
+        Map<LiveAssignmentCheck.Status, Integer> counts =
+                check.check(index, Collections.emptyMap(), topic -> 2, listener);
+        Assert.assertTrue(flags.isEmpty());
+        Assert.assertEquals(Integer.valueOf(0), counts.get(LiveAssignmentCheck.Status.COMMITTED_NOT_ASSIGNED));
+
+        // it settles with the same members, nothing new is flagged
+        check.check(index, assignments, topic -> 2, listener);
+        Assert.assertTrue(flags.isEmpty());
+
+        // a group that disappears is forgotten
+        check.check(new PartitionAssignmentIndex(), Collections.emptyMap(), topic -> 2, listener);
+        check.check(index, assignments, topic -> 2, listener);
+        Assert.assertEquals(Collections.singletonList("COMMITTED_NOT_ASSIGNED g1 t1 {1}"), flags);
+    }
+
+    @Test
+    public void testGroupsWithoutMembersHaveNoAssignedPartitions() throws Exception {
+        PartitionAssignmentIndex index = new PartitionAssignmentIndex();
+        index.addGroup("g1", Arrays.asList(new TopicPartition("t1", 0), new TopicPartition("t1", 1)));
+        // g2 only commits offsets with manual assignment, so it isn't described
+        index.addGroup("g2", Collections.singletonList(new TopicPartition("t1", 0)));
+
+        check.check(index, Collections.singletonMap("g1", Collections.emptySet()), topic -> 2, listener);
+        Assert.assertEquals(Collections.singletonList("COMMITTED_NOT_ASSIGNED g1 t1 {0, 1}"), flags);
+
+        // the topics that are not monitored are skipped
+        flags.clear();
+        check = new LiveAssignmentCheck();
+        check.check(index, Collections.singletonMap("g1", Collections.emptySet()), topic -> -1, listener);
+        Assert.assertTrue(flags.isEmpty());
+    }
+}
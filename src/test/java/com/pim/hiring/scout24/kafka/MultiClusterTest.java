@@ -0,0 +1,91 @@
+package com.pim.hiring.scout24.kafka;
+
+import com.pim.hiring.scout24.kafka.admin.AdminClientPool;
+import com.pim.hiring.scout24.kafka.api.UnassignedState;
+import com.pim.hiring.scout24.kafka.api.UnassignedStateView;
+import com.pim.hiring.scout24.kafka.boot.Daemon;
+import com.pim.hiring.scout24.kafka.boot.ScanOutcome;
+import com.pim.hiring.scout24.kafka.cluster.ClusterContexts;
+import com.pim.hiring.scout24.kafka.metrics.CheckerMetrics;
+import com.pim.hiring.scout24.kafka.metrics.UnassignedPartitionsGauges;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.Assert;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.kafka.test.rule.KafkaEmbedded;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.Collections;
+
+/**
+ * Created on 17/10/2026.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {"scheduling.enabled=false", "checker.clusters.names=second",
+        "checker.clusters.second.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "checker.clusters.second.topics-to-check=orders", "checker.clusters.second.admin.pool-size=1"})
+@DirtiesContext
+public class MultiClusterTest {
+
+    // Create 2 partitions topic
+    @ClassRule
+    public static KafkaEmbedded embeddedKafka = new KafkaEmbedded(1, true, 2, "orders");
+
+    @Autowired
+    private ClusterContexts clusterContexts;
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+
+    @Test
+    public void testEveryClusterHasItsOwnComponents() throws Exception {
+        ApplicationContext second = clusterContexts.getContext("second");
+        Assert.assertNotNull(second);
+        Assert.assertNotSame(applicationContext.getBean(AdminClientPool.class), second.getBean(AdminClientPool.class));
+        Assert.assertNotSame(applicationContext.getBean(Daemon.class), second.getBean(Daemon.class));
+
+        // the meters of every cluster have its name in the cluster tag
+        Assert.assertNotNull(meterRegistry.find("kafka.checker.scan.phase").tag("cluster", "default")
+                .tag("phase", CheckerMetrics.Phase.COMPARE.getTag()).timer());
+        Assert.assertNotNull(meterRegistry.find("kafka.checker.scan.phase").tag("cluster", "second")
+                .tag("phase", CheckerMetrics.Phase.COMPARE.getTag()).timer());
+    }
+
+    @Test
+    public void testTheScansOfAClusterOnlyUpdateItsOwnState() throws Exception {
+        try (KafkaConsumer<Integer, String> consumer = new KafkaConsumer<>(
+                KafkaTestUtils.consumerProps("orders-group", "false", embeddedKafka))) {
+            TopicPartition partition = new TopicPartition("orders", 0);
+            consumer.assign(Collections.singletonList(partition));
+            consumer.commitSync(Collections.singletonMap(partition, new OffsetAndMetadata(1)));
+        }
+
+        ApplicationContext second = clusterContexts.getContext("second");
+        ScanOutcome outcome = second.getBean(Daemon.class).init();
+        Assert.assertFalse(outcome.isFailed());
+
+        UnassignedState state = second.getBean(UnassignedStateView.class).current();
+        Assert.assertEquals(1, state.getPairs().size());
+        Assert.assertEquals("orders-group", state.getPairs().get(0).getGroup());
+        Assert.assertTrue(applicationContext.getBean(UnassignedStateView.class).current().getPairs().isEmpty());
+
+        Gauge gauge = meterRegistry.find(UnassignedPartitionsGauges.METRIC_NAME).tag("cluster", "second")
+                .tag("group", "orders-group").gauge();
+        Assert.assertNotNull(gauge);
+        Assert.assertEquals(1.0, gauge.value(), 0.0);
+    }
+}
@@ -0,0 +1,81 @@
+package com.pim.hiring.scout24.kafka;
+
+import com.pim.hiring.scout24.kafka.checker.OffsetFetchPlanner;
+import kafka.coordinator.GroupOverview;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Created on 18/10/2026.
+ */
+public class OffsetFetchPlannerTest {
+
+    private OffsetFetchPlanner planner;
+
+    private Map<Node, List<GroupOverview>> groups;
+
+    private List<TopicPartition> monitored;
+
+    // g1 consumes t1, g2 consumes no monitored topic
+    private Map<String, Set<String>> topicsByGroup;
+
+
+    @Before
+    public void setUp() throws Exception {
+        planner = new OffsetFetchPlanner(3);
+        groups = Collections.singletonMap(new Node(0, "localhost", 9092),
+                Arrays.asList(new GroupOverview("g1", "consumer"), new GroupOverview("g2", "consumer")));
+        monitored = Arrays.asList(new TopicPartition("t1", 0), new TopicPartition("t1", 1),
+                new TopicPartition("t2", 0));
+        topicsByGroup = Collections.singletonMap("g1", Collections.singleton("t1"));
+    }
+
+
+    @Test
+    public void testTheGroupsAreOnlyAskedForTheirTopicsBetweenSweeps() throws Exception {
+        OffsetFetchPlanner.Plan plan = planner.plan(groups, monitored, new HashMap<>());
+        Assert.assertTrue(plan.isSweep());
+        Assert.assertEquals(monitored, plan.partitionsOf("g2"));
+        planner.completed(plan, Collections.emptySet());
+
+        plan = planner.plan(groups, monitored, topicsByGroup);
+        Assert.assertFalse(plan.isSweep());
+        Assert.assertEquals(1, plan.getSkippedGroups());
+        Assert.assertEquals(Collections.singletonList(new GroupOverview("g1", "consumer")),
+                plan.getGroupsByCoordinator().values().iterator().next());
+        Assert.assertEquals(monitored.subList(0, 2), plan.partitionsOf("g1"));
+        planner.completed(plan, Collections.emptySet());
+
+        // every third scan is a sweep
+        planner.completed(planner.plan(groups, monitored, topicsByGroup), Collections.emptySet());
+        Assert.assertTrue(planner.plan(groups, monitored, topicsByGroup).isSweep());
+    }
+
+    @Test
+    public void testNewGroupsAndTopicsAreSwept() throws Exception {
+        planner.completed(planner.plan(groups, monitored, topicsByGroup), Collections.singleton("g2"));
+
+        // g2 failed in the sweep, and g3 is new
+        Map<Node, List<GroupOverview>> moreGroups = Collections.singletonMap(new Node(0, "localhost", 9092),
+                Arrays.asList(new GroupOverview("g2", "consumer"), new GroupOverview("g3", "consumer")));
+        OffsetFetchPlanner.Plan plan = planner.plan(moreGroups, monitored, topicsByGroup);
+        Assert.assertFalse(plan.isSweep());
+        Assert.assertEquals(0, plan.getSkippedGroups());
+        Assert.assertEquals(monitored, plan.partitionsOf("g2"));
+        Assert.assertEquals(monitored, plan.partitionsOf("g3"));
+
+        // a topic that is monitored since the last sweep
+        List<TopicPartition> newTopic = Arrays.asList(new TopicPartition("t1", 0), new TopicPartition("t3", 0));
+        Assert.assertTrue(planner.plan(groups, newTopic, topicsByGroup).isSweep());
+    }
+}
@@ -0,0 +1,97 @@
+package com.pim.hiring.scout24.kafka;
+
+import com.pim.hiring.scout24.kafka.index.PartitionAssignment;
+import com.pim.hiring.scout24.kafka.index.PartitionAssignmentIndex;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Created on 17/10/2026.
+ */
+public class PartitionAssignmentIndexTest {
+
+    private PartitionAssignmentIndex index;
+
+
+    @Before
+    public void setUp() throws Exception {
+        index = new PartitionAssignmentIndex();
+
+        // g1 consumes all the partitions of t1, g2 only the first one and g3 consumes t2
+        index.addGroup("g1", Arrays.asList(new TopicPartition("t1", 0), new TopicPartition("t1", 1)));
+        index.addGroup("g2", Collections.singletonList(new TopicPartition("t1", 0)));
+        index.addGroup("g3", Collections.singletonList(new TopicPartition("t2", 0)));
+    }
+
+
+    @Test
+    public void testGroupUsingAllTopicPartitions() throws Exception {
+        Assert.assertTrue( missingPartitions("g1", "t1", 2).isEmpty() );
+    }
+
+    @Test
+    public void testGroupUsingSomeTopicPartitions() throws Exception {
+        BitSet expected = new BitSet();
+        expected.set(1);
+
+        Assert.assertEquals( expected, missingPartitions("g2", "t1", 2) );
+    }
+
+    @Test
+    public void testGroupNotUsingTheTopic() throws Exception {
+        Assert.assertTrue( missingPartitions("g3", "t1", 2).isEmpty() );
+        Assert.assertTrue( missingPartitions("g1", "t2", 1).isEmpty() );
+    }
+
+    @Test
+    public void testOnePairPerGroupAndTopic() throws Exception {
+        Assert.assertEquals(3, index.size());
+        Assert.assertEquals(3, index.getGroups().size());
+        Assert.assertEquals(2, index.getTopics().size());
+    }
+
+    @Test
+    public void testTheOffsetsOfEveryTopicAreKeptApart() throws Exception {
+        // the topics of a large group interleaved, as in the responses of the coordinator
+        Map<TopicPartition, Object> largeGroup = new LinkedHashMap<>();
+        for (int partition = 0; partition < 20000; partition++) {
+            largeGroup.put(new TopicPartition("t" + (partition % 3), partition / 3), (long) partition);
+        }
+        index.addGroup("g4", largeGroup);
+
+        Map<TopicPartition, Object> smallGroup = new LinkedHashMap<>();
+        smallGroup.put(new TopicPartition("t1", 3), 7L);
+        smallGroup.put(new TopicPartition("t2", 1), null);
+        index.addGroup("g5", smallGroup);
+
+        PartitionAssignment t1 = assignment("g4", "t1");
+        Assert.assertEquals(6667, t1.getPartitions().cardinality());
+        Assert.assertEquals(1, t1.getOffset(0));
+        Assert.assertEquals(19999, t1.getOffset(6666));
+
+        // nothing of the previous group is left in the reused buffers
+        PartitionAssignment g5t1 = assignment("g5", "t1");
+        Assert.assertEquals(1, g5t1.getPartitions().cardinality());
+        Assert.assertEquals(7, g5t1.getOffset(3));
+        Assert.assertEquals(PartitionAssignment.UNKNOWN_OFFSET, g5t1.getOffset(0));
+        Assert.assertEquals(PartitionAssignment.UNKNOWN_OFFSET, assignment("g5", "t2").getOffset(1));
+        Assert.assertNull(assignment("g5", "t0"));
+    }
+
+
+    private PartitionAssignment assignment(String group, String topic) {
+        return index.getAssignment(index.getGroups().id(group), index.getTopics().id(topic));
+    }
+
+    private BitSet missingPartitions(String group, String topic, int partitionCount) {
+        return index.getMissingPartitions(index.getGroups().id(group), index.getTopics().id(topic), partitionCount);
+    }
+}
@@ -0,0 +1,85 @@
+package com.pim.hiring.scout24.kafka;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pim.hiring.scout24.kafka.report.JsonLinesSink;
+import com.pim.hiring.scout24.kafka.report.ReportPipeline;
+import com.pim.hiring.scout24.kafka.report.ReportSink;
+import com.pim.hiring.scout24.kafka.report.UnassignedPartitionReport;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static com.pim.hiring.scout24.kafka.BitSets.partitions;
+
+/**
+ * Created on 17/10/2026.
+ */
+public class ReportPipelineTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<List<String>> batches = new CopyOnWriteArrayList<>();
+
+    private final ReportSink memorySink = new ReportSink() {
+        @Override
+        public String getName() {
+            return "memory";
+        }
+
+        @Override
+        public void write(List<UnassignedPartitionReport> reports) {
+            List<String> batch = new ArrayList<>();
+            for (UnassignedPartitionReport report : reports) {
+                batch.add(report.getType() + " " + report.getGroup() + " " + report.getTopic());
+            }
+            batches.add(batch);
+        }
+    };
+
+
+    @Test
+    public void testReportsAreWrittenInBatchesAndInOrder() throws Exception {
+        ReportPipeline pipeline = new ReportPipeline(Collections.singletonList(memorySink), 10, 2, 50);
+        for (int group = 0; group < 5; group++) {
+            pipeline.onUnassigned("g" + group, "t1", partitions(1));
+        }
+        pipeline.onRecovered("g0", "t1", partitions(1));
+        // the pending reports are written when it's closed
+        pipeline.close();
+
+        List<String> reports = new ArrayList<>();
+        for (List<String> batch : batches) {
+            Assert.assertTrue(batch.size() <= 2);
+            reports.addAll(batch);
+        }
+        Assert.assertEquals(6, reports.size());
+        Assert.assertEquals("UNASSIGNED g0 t1", reports.get(0));
+        Assert.assertEquals("RECOVERED g0 t1", reports.get(5));
+        Assert.assertEquals(6, pipeline.getWritten("memory"));
+    }
+
+    @Test
+    public void testJsonLines() throws Exception {
+        File file = folder.newFile("reports.jsonl");
+        ReportPipeline pipeline = new ReportPipeline(
+                Collections.singletonList(new JsonLinesSink(new ObjectMapper(), file.getPath())), 10, 10, 50);
+        pipeline.publish(new UnassignedPartitionReport(UnassignedPartitionReport.Type.UNASSIGNED, "g1", "t1",
+                new int[]{1, 3}, 1000L));
+        pipeline.close();
+
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        Assert.assertEquals(1, lines.size());
+        Assert.assertEquals("{\"type\":\"UNASSIGNED\",\"group\":\"g1\",\"topic\":\"t1\",\"partitions\":[1,3]," +
+                "\"timestamp\":1000,\"severity\":\"WARNING\"}", lines.get(0));
+    }
+}
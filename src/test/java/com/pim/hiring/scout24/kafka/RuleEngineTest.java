@@ -0,0 +1,101 @@
+package com.pim.hiring.scout24.kafka;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pim.hiring.scout24.kafka.report.UnassignedPartitionReport;
+import com.pim.hiring.scout24.kafka.rules.RuleEngine;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static com.pim.hiring.scout24.kafka.BitSets.partitions;
+
+/**
+ * Created on 17/10/2026.
+ */
+public class RuleEngineTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path rulesPath;
+
+    private List<String> reports;
+
+    private RuleEngine engine;
+
+
+    @Before
+    public void setUp() throws Exception {
+        rulesPath = folder.getRoot().toPath().resolve("rules.json");
+        writeRules("[{\"group\": \"manual-.*\", \"allowMissing\": true, \"partitions\": [1]}," +
+                " {\"group\": \"slow\", \"minCycles\": 2}," +
+                " {\"group\": \".*\", \"criticalRatio\": 0.5}]", 1000);
+        reports = new ArrayList<>();
+        // every topic has 4 partitions
+        engine = new RuleEngine(rulesPath, new ObjectMapper(), topic -> 4, report -> reports.add(
+                report.getType() + " " + report.getSeverity() + " " + report.getGroup() + " " +
+                        Arrays.toString(report.getPartitions())));
+    }
+
+
+    @Test
+    public void testRulesDecideWhatIsReported() throws Exception {
+        // the allowed partition of the manual group is never reported
+        engine.onUnassigned("manual-1", "t1", partitions(1, 2));
+        Assert.assertEquals(Collections.singletonList("UNASSIGNED WARNING manual-1 [2]"), reports);
+
+        // critical when half of the partitions are missing
+        reports.clear();
+        engine.onUnassigned("g1", "t1", partitions(0));
+        engine.onUnassigned("g1", "t1", partitions(3));
+        Assert.assertEquals(Arrays.asList("UNASSIGNED WARNING g1 [0]", "UNASSIGNED CRITICAL g1 [3]"), reports);
+
+        // only the reported partitions recover
+        reports.clear();
+        engine.onRecovered("manual-1", "t1", partitions(1, 2));
+        Assert.assertEquals(Collections.singletonList("RECOVERED INFO manual-1 [2]"), reports);
+    }
+
+    @Test
+    public void testPartitionsAreHeldForSomeCycles() throws Exception {
+        engine.onUnassigned("slow", "t1", partitions(0, 1));
+        engine.onScanCompleted();
+        Assert.assertTrue(reports.isEmpty());
+
+        // the partition 1 recovers before being reported, the partition 0 is missing in the second scan
+        engine.onRecovered("slow", "t1", partitions(1));
+        engine.onScanCompleted();
+        Assert.assertEquals(Collections.singletonList("UNASSIGNED WARNING slow [0]"), reports);
+    }
+
+    @Test
+    public void testRulesAreReloadedWhenTheFileChanges() throws Exception {
+        writeRules("[{\"group\": \".*\", \"allowMissing\": true}]", 2000);
+        engine.onScanCompleted();
+        engine.onUnassigned("g1", "t1", partitions(0));
+        Assert.assertTrue(reports.isEmpty());
+
+        // an invalid file keeps the previous rules
+        writeRules("[{\"group\": \"(\"}]", 3000);
+        engine.onScanCompleted();
+        Assert.assertEquals(1, engine.getRules().size());
+        Assert.assertTrue(engine.getRules().getRules().get(0).isAllowMissing());
+    }
+
+
+    private void writeRules(String rules, long modified) throws Exception {
+        Files.write(rulesPath, rules.getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(rulesPath, FileTime.fromMillis(modified));
+    }
+}
@@ -0,0 +1,59 @@
+package com.pim.hiring.scout24.kafka;
+
+import com.pim.hiring.scout24.kafka.boot.ScanCadence;
+import com.pim.hiring.scout24.kafka.boot.ScanOutcome;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Created on 17/10/2026.
+ */
+public class ScanCadenceTest {
+
+    private ScanCadence cadence;
+
+
+    @Before
+    public void setUp() throws Exception {
+        cadence = new ScanCadence(1000, 5000);
+    }
+
+
+    @Test
+    public void testCleanScansKeepTheBaseDelay() throws Exception {
+        Assert.assertEquals(1000, cadence.nextDelayMs(new ScanOutcome(false, false, true, 100)));
+        Assert.assertEquals(1000, cadence.nextDelayMs(new ScanOutcome(false, false, true, 110)));
+        Assert.assertEquals(0, cadence.getLevel());
+    }
+
+    @Test
+    public void testErrorsBackOffUpToTheMaximum() throws Exception {
+        Assert.assertEquals(2000, cadence.nextDelayMs(ScanOutcome.failed(100)));
+        Assert.assertEquals(4000, cadence.nextDelayMs(ScanOutcome.failed(100)));
+        Assert.assertEquals(5000, cadence.nextDelayMs(ScanOutcome.failed(100)));
+        Assert.assertEquals(5000, cadence.nextDelayMs(ScanOutcome.failed(100)));
+
+        // back to the base delay after a clean scan
+        Assert.assertEquals(1000, cadence.nextDelayMs(new ScanOutcome(false, false, true, 100)));
+    }
+
+    @Test
+    public void testSlowerAndOverBudgetScansBackOff() throws Exception {
+        cadence.nextDelayMs(new ScanOutcome(false, false, true, 100));
+
+        Assert.assertEquals(2000, cadence.nextDelayMs(new ScanOutcome(false, false, true, 1000)));
+        Assert.assertEquals(4000, cadence.nextDelayMs(new ScanOutcome(false, true, true, 100)));
+    }
+
+    @Test
+    public void testQuietScansKeepTheBaseDelay() throws Exception {
+        Assert.assertEquals(1000, cadence.nextDelayMs(new ScanOutcome(false, false, false, 100)));
+        Assert.assertEquals(1000, cadence.nextDelayMs(new ScanOutcome(false, false, false, 100)));
+        Assert.assertEquals(0, cadence.getLevel());
+
+        // a quiet scan after a failure goes back to the base delay too
+        Assert.assertEquals(2000, cadence.nextDelayMs(ScanOutcome.failed(100)));
+        Assert.assertEquals(1000, cadence.nextDelayMs(new ScanOutcome(false, false, false, 100)));
+    }
+}
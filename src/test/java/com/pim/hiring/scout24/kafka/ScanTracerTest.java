@@ -0,0 +1,79 @@
+package com.pim.hiring.scout24.kafka;
+
+import com.pim.hiring.scout24.kafka.metrics.CheckerMetrics;
+import com.pim.hiring.scout24.kafka.trace.CycleTrace;
+import com.pim.hiring.scout24.kafka.trace.ScanTracer;
+import org.apache.kafka.common.Node;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created on 17/10/2026.
+ */
+public class ScanTracerTest {
+
+    private static final Node COORDINATOR = new Node(1, "broker-1", 9092);
+
+    private ScanTracer tracer;
+
+
+    @Before
+    public void setUp() throws Exception {
+        tracer = new ScanTracer(2, 3, 30000, null);
+    }
+
+
+    @Test
+    public void testACycleKeepsItsPhasesAndTheSlowestGroups() throws Exception {
+        tracer.beginCycle("full");
+        tracer.phase(CheckerMetrics.Phase.GROUP_LISTING, TimeUnit.MILLISECONDS.toNanos(5));
+        tracer.phase(CheckerMetrics.Phase.OFFSET_FETCH, TimeUnit.MILLISECONDS.toNanos(40));
+        long[] latenciesMs = {10, 2, 30, 7, 20, 1};
+        for (int i = 0; i < latenciesMs.length; i++) {
+            tracer.groupResponse("group-" + i, COORDINATOR, TimeUnit.MILLISECONDS.toNanos(latenciesMs[i]));
+        }
+        tracer.endCycle(TimeUnit.MILLISECONDS.toNanos(50), false);
+
+        List<CycleTrace> cycles = tracer.getCycles();
+        Assert.assertEquals(1, cycles.size());
+        CycleTrace cycle = cycles.get(0);
+        Assert.assertEquals("full", cycle.getType());
+        Assert.assertEquals(50.0, cycle.getDurationMs(), 0.0);
+        Assert.assertEquals(2, cycle.getPhasesMs().size());
+        Assert.assertEquals(40.0, cycle.getPhasesMs().get(CheckerMetrics.Phase.OFFSET_FETCH.getTag()), 0.0);
+        Assert.assertEquals(6, cycle.getGroupResponses());
+        Assert.assertEquals(30.0, cycle.getMaxResponseMs(), 0.0);
+        Assert.assertEquals(11.667, cycle.getMeanResponseMs(), 0.001);
+
+        // the slowest ones first
+        Assert.assertEquals(3, cycle.getSlowestGroups().size());
+        Assert.assertEquals("group-2", cycle.getSlowestGroups().get(0).getGroup());
+        Assert.assertEquals("group-4", cycle.getSlowestGroups().get(1).getGroup());
+        Assert.assertEquals("group-0", cycle.getSlowestGroups().get(2).getGroup());
+        Assert.assertEquals("broker-1:9092", cycle.getSlowestGroups().get(0).getCoordinator());
+    }
+
+    @Test
+    public void testTheOldestCyclesAreOverwritten() throws Exception {
+        for (int i = 1; i <= 3; i++) {
+            tracer.beginCycle(i == 3 ? "recheck" : "full");
+            tracer.groupResponse("group-" + i, COORDINATOR, i);
+            tracer.endCycle(i, false);
+        }
+        // responses outside a cycle are ignored
+        tracer.groupResponse("group-4", COORDINATOR, 4);
+
+        List<CycleTrace> cycles = tracer.getCycles();
+        Assert.assertEquals(2, cycles.size());
+        Assert.assertEquals(3, cycles.get(0).getSequence());
+        Assert.assertEquals("recheck", cycles.get(0).getType());
+        Assert.assertEquals(1, cycles.get(0).getGroupResponses());
+        Assert.assertEquals("group-3", cycles.get(0).getSlowestGroups().get(0).getGroup());
+        Assert.assertEquals(2, cycles.get(1).getSequence());
+        Assert.assertEquals("group-2", cycles.get(1).getSlowestGroups().get(0).getGroup());
+    }
+}
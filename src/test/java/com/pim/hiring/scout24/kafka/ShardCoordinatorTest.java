@@ -0,0 +1,160 @@
+package com.pim.hiring.scout24.kafka;
+
+import com.pim.hiring.scout24.kafka.checker.GroupFilter;
+import com.pim.hiring.scout24.kafka.shard.ShardCoordinator;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.test.rule.KafkaEmbedded;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+
+import java.util.BitSet;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Created on 17/10/2026.
+ */
+public class ShardCoordinatorTest {
+
+    private static String SHARD_TOPIC = "checker-shards";
+
+    private static int SHARD_COUNT = 4;
+
+    // Create 4 shards topic
+    @ClassRule
+    public static KafkaEmbedded embeddedKafka = new KafkaEmbedded(1, true, SHARD_COUNT, SHARD_TOPIC);
+
+    private ShardCoordinator first;
+
+    private ShardCoordinator second;
+
+    private Map<String, Object> consumerProps;
+
+
+    @Before
+    public void setUp() throws Exception {
+        consumerProps = KafkaTestUtils.consumerProps("checker-instances", "false", embeddedKafka);
+        consumerProps.put(ConsumerConfig.SESSION_TIMEOUT_MS_CONFIG, 6000);
+
+        first = new ShardCoordinator(new DefaultKafkaConsumerFactory<>(consumerProps), SHARD_TOPIC, 100);
+        second = new ShardCoordinator(new DefaultKafkaConsumerFactory<>(consumerProps), SHARD_TOPIC, 100);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        first.stop();
+        second.stop();
+    }
+
+
+    @Test
+    public void testEveryGroupIsCheckedByOneInstance() throws Exception {
+        first.start();
+        second.start();
+
+        for (int i = 0; i < 150 && !(owns(first) > 0 && owns(second) > 0 && owns(first) + owns(second) == SHARD_COUNT); i++) {
+            Thread.sleep(200);
+        }
+        Assert.assertTrue(owns(first) > 0 && owns(second) > 0);
+
+        for (int group = 0; group < 1000; group++) {
+            String groupId = "group-" + group;
+            Assert.assertTrue(groupId, first.accept(groupId) ^ second.accept(groupId));
+        }
+    }
+
+    @Test
+    public void testShardsAreTakenOverWhenAnInstanceStops() throws Exception {
+        Assert.assertFalse(first.isReady());
+        first.start();
+        second.start();
+        for (int i = 0; i < 150 && !(owns(first) > 0 && owns(second) > 0 && owns(first) + owns(second) == SHARD_COUNT);
+             i++) {
+            Thread.sleep(200);
+        }
+        GroupFilter before = first.snapshot();
+
+        second.stop();
+        Assert.assertFalse(second.isReady());
+        for (int i = 0; i < 150 && owns(first) < SHARD_COUNT; i++) {
+            Thread.sleep(200);
+        }
+        Assert.assertEquals(SHARD_COUNT, owns(first));
+        Assert.assertTrue(first.isReady());
+        Assert.assertFalse(second.accept("group-0"));
+        Assert.assertTrue(first.accept("group-0"));
+
+        // the snapshot keeps the shards owned before the rebalance
+        Assert.assertTrue(first.getGeneration() > before.getGeneration());
+        Assert.assertTrue(before.isReady());
+        boolean takenOver = false;
+        for (int group = 0; group < 1000; group++) {
+            String groupId = "group-" + group;
+            Assert.assertTrue(groupId, !before.accept(groupId) || first.accept(groupId));
+            takenOver |= first.accept(groupId) && !before.accept(groupId);
+        }
+        Assert.assertTrue(takenOver);
+    }
+
+    @Test
+    public void testTheShardGroupIsJoinedAgainWhenTheConsumerFails() throws Exception {
+        AtomicBoolean fail = new AtomicBoolean();
+        ConsumerFactory<String, String> failingFactory = new ConsumerFactory<String, String>() {
+            @Override
+            public Consumer<String, String> createConsumer() {
+                return new KafkaConsumer<String, String>(consumerProps) {
+                    @Override
+                    public ConsumerRecords<String, String> poll(long timeout) {
+                        if (fail.getAndSet(false)) {
+                            throw new IllegalStateException("Broken consumer");
+                        }
+                        return super.poll(timeout);
+                    }
+                };
+            }
+
+            @Override
+            public boolean isAutoCommit() {
+                return false;
+            }
+        };
+        first.stop();
+        first = new ShardCoordinator(failingFactory, SHARD_TOPIC, 100);
+        first.start();
+        for (int i = 0; i < 150 && owns(first) < SHARD_COUNT; i++) {
+            Thread.sleep(200);
+        }
+        Assert.assertEquals(SHARD_COUNT, owns(first));
+        long generation = first.getGeneration();
+
+        // the scans are held until the group is joined again
+        fail.set(true);
+        for (int i = 0; i < 50 && first.isReady(); i++) {
+            Thread.sleep(20);
+        }
+        Assert.assertFalse(first.isReady());
+        Assert.assertFalse(first.accept("group-0"));
+
+        for (int i = 0; i < 150 && owns(first) < SHARD_COUNT; i++) {
+            Thread.sleep(200);
+        }
+        Assert.assertEquals(SHARD_COUNT, owns(first));
+        Assert.assertTrue(first.isReady());
+        Assert.assertTrue(first.getGeneration() > generation);
+    }
+
+
+    private static int owns(ShardCoordinator coordinator) {
+        BitSet owned = coordinator.getOwnedShards();
+        return owned.cardinality();
+    }
+}
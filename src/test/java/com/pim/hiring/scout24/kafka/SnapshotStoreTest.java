@@ -0,0 +1,124 @@
+package com.pim.hiring.scout24.kafka;
+
+import com.pim.hiring.scout24.kafka.checker.IncrementalChecker;
+import com.pim.hiring.scout24.kafka.index.PartitionAssignmentIndex;
+import com.pim.hiring.scout24.kafka.snapshot.ClusterSnapshot;
+import com.pim.hiring.scout24.kafka.snapshot.SnapshotStore;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Created on 17/10/2026.
+ */
+public class SnapshotStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path path;
+
+    private List<String> transitions;
+
+    private IncrementalChecker.TransitionListener listener = new IncrementalChecker.TransitionListener() {
+        @Override
+        public void onUnassigned(String group, String topic, BitSet partitions) {
+            transitions.add("unassigned " + group + " " + topic + " " + partitions);
+        }
+
+        @Override
+        public void onRecovered(String group, String topic, BitSet partitions) {
+            transitions.add("recovered " + group + " " + topic + " " + partitions);
+        }
+    };
+
+
+    @Before
+    public void setUp() throws Exception {
+        path = folder.getRoot().toPath().resolve("snapshots.dat");
+        transitions = new ArrayList<>();
+    }
+
+
+    @Test
+    public void testSnapshotsSurviveARestart() throws Exception {
+        try (SnapshotStore store = new SnapshotStore(path, 2)) {
+            // g1 loses the partition 1 of t1 at 2000 and keeps it lost at 3000
+            store.append(snapshot(1000, 0, 1, 2));
+            store.append(snapshot(2000, 0, 2));
+            store.append(snapshot(3000, 0, 2));
+        }
+        // a torn record at the end of the file is dropped
+        Files.write(path, new byte[]{0x53, 0x4e, 0x41}, StandardOpenOption.APPEND);
+
+        try (SnapshotStore store = new SnapshotStore(path, 2)) {
+            Assert.assertEquals(2, store.getSnapshots().size());
+            Assert.assertEquals(3000, store.latest().getTimestamp());
+            Assert.assertEquals(2000, store.unassignedSince("g1", "t1", 1));
+            Assert.assertEquals(-1, store.unassignedSince("g1", "t1", 0));
+            Assert.assertEquals(-1, store.unassignedSince("other", "t1", 1));
+
+            // the file is compacted to the retained snapshots
+            store.append(snapshot(4000, 0, 1, 2));
+            Assert.assertEquals(-1, store.unassignedSince("g1", "t1", 1));
+        }
+        try (SnapshotStore store = new SnapshotStore(path, 2)) {
+            Assert.assertEquals(2, store.getSnapshots().size());
+            Assert.assertEquals(4000, store.latest().getTimestamp());
+        }
+    }
+
+    @Test
+    public void testRestoredCheckerOnlyReportsTheChanges() throws Exception {
+        try (SnapshotStore store = new SnapshotStore(path, 2)) {
+            store.append(snapshot(1000, 0, 2));
+        }
+
+        IncrementalChecker checker = new IncrementalChecker();
+        try (SnapshotStore store = new SnapshotStore(path, 2)) {
+            PartitionAssignmentIndex restored = checker.newIndex();
+            store.latest().restoreInto(restored);
+            checker.restore(restored, store.latest().getPartitionCounts(), listener);
+        }
+        Assert.assertEquals(Collections.singletonList("unassigned g1 t1 {1}"), transitions);
+
+        // the first scan after the restart only reports the recovered partition
+        transitions.clear();
+        PartitionAssignmentIndex index = checker.newIndex();
+        index.addGroup("g1", offsets(0, 1, 2));
+        IncrementalChecker.ScanDelta delta = checker.check(index, topicId -> 3, listener);
+        Assert.assertEquals(Collections.singletonList("recovered g1 t1 {1}"), transitions);
+        Assert.assertEquals(0, delta.getNewGroups());
+    }
+
+
+    /**
+     * g1 commits some partitions of t1, which has 3 partitions
+     */
+    private static ClusterSnapshot snapshot(long timestamp, int... partitions) {
+        PartitionAssignmentIndex index = new PartitionAssignmentIndex();
+        index.addGroup("g1", offsets(partitions));
+        return ClusterSnapshot.of(timestamp, index, Collections.singletonMap("t1", 3));
+    }
+
+    private static Map<TopicPartition, Long> offsets(int... partitions) {
+        Map<TopicPartition, Long> offsets = new HashMap<>();
+        for (int partition : partitions) {
+            offsets.put(new TopicPartition("t1", partition), 10L * partition);
+        }
+        return offsets;
+    }
+}
@@ -0,0 +1,114 @@
+package com.pim.hiring.scout24.kafka;
+
+import com.pim.hiring.scout24.kafka.admin.AdminClientPool;
+import com.pim.hiring.scout24.kafka.admin.ConsumerGroupOffsetsFetcher;
+import com.pim.hiring.scout24.kafka.checker.TopicMatcher;
+import com.pim.hiring.scout24.kafka.checker.TopicMetadataCache;
+import com.pim.hiring.scout24.kafka.checker.UnassignedTopicPartitions;
+import com.pim.hiring.scout24.kafka.index.PartitionAssignmentIndex;
+import kafka.coordinator.GroupOverview;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.springframework.kafka.test.rule.KafkaEmbedded;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Created on 17/10/2026.
+ */
+public class TopicFirstFetchTest {
+
+    // Create 2 partitions topics
+    @ClassRule
+    public static KafkaEmbedded embeddedKafka = new KafkaEmbedded(1, true, 2, "orders-eu", "orders-us", "payments");
+
+    private AdminClientPool pool;
+
+    private ExecutorService executor;
+
+    private UnassignedTopicPartitions checker;
+
+    private TopicMetadataCache cache;
+
+
+    @Before
+    public void setUp() throws Exception {
+        pool = new AdminClientPool(embeddedKafka.getBrokersAsString(), 2, 30000);
+        executor = Executors.newFixedThreadPool(2);
+        checker = new UnassignedTopicPartitions(pool, new ConsumerGroupOffsetsFetcher(pool, executor, 4, 10));
+
+        // wait until the broker publishes the topic metadata
+        cache = new TopicMetadataCache(KafkaTestUtils.consumerProps("metadata", "false", embeddedKafka), 0, 10);
+        for (int i = 0; i < 50 && cache.getPartitions("payments") == null; i++) {
+            Thread.sleep(200);
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        cache.close();
+        executor.shutdownNow();
+        pool.close();
+    }
+
+
+    @Test
+    public void testOnlyTheMonitoredPartitionsAreFetched() throws Exception {
+        commit("orders-group", new TopicPartition("orders-eu", 0), new TopicPartition("payments", 0));
+        commit("payments-group", new TopicPartition("payments", 0), new TopicPartition("payments", 1));
+
+        Map<String, List<Integer>> monitored = cache.refreshMatching(new TopicMatcher("orders-.*"));
+        Assert.assertEquals(2, monitored.size());
+        List<TopicPartition> partitions = new ArrayList<>();
+        for (Map.Entry<String, List<Integer>> topic : monitored.entrySet()) {
+            for (Integer partition : topic.getValue()) {
+                partitions.add(new TopicPartition(topic.getKey(), partition));
+            }
+        }
+
+        Map<Node, List<GroupOverview>> groups = waitForGroups(2);
+        PartitionAssignmentIndex index = new PartitionAssignmentIndex();
+        Assert.assertEquals(0, checker.fetchGroupOffsets(groups, partitions, index));
+
+        // the payments offsets and the group without monitored offsets are never added
+        Assert.assertEquals(1, index.size());
+        Assert.assertEquals(-1, index.getGroups().id("payments-group"));
+        int groupId = index.getGroups().id("orders-group");
+        Assert.assertNotNull(index.getAssignment(groupId, index.getTopics().id("orders-eu")));
+        Assert.assertEquals(-1, index.getTopics().id("payments"));
+        Assert.assertEquals(1, index.getMissingPartitions(groupId, index.getTopics().id("orders-eu"), 2).cardinality());
+    }
+
+
+    private void commit(String group, TopicPartition... partitions) {
+        try (KafkaConsumer<Integer, String> consumer = new KafkaConsumer<>(
+                KafkaTestUtils.consumerProps(group, "false", embeddedKafka))) {
+            for (TopicPartition partition : partitions) {
+                consumer.assign(Collections.singletonList(partition));
+                consumer.commitSync(Collections.singletonMap(partition, new OffsetAndMetadata(0)));
+            }
+        }
+    }
+
+    private Map<Node, List<GroupOverview>> waitForGroups(int count) throws InterruptedException {
+        Map<Node, List<GroupOverview>> groups = checker.listGroupsByCoordinator();
+        for (int i = 0; i < 50 && groups.values().stream().mapToInt(List::size).sum() < count; i++) {
+            Thread.sleep(200);
+            groups = checker.listGroupsByCoordinator();
+        }
+        return groups;
+    }
+}
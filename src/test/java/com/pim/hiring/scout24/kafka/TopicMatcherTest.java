@@ -0,0 +1,32 @@
+package com.pim.hiring.scout24.kafka;
+
+import com.pim.hiring.scout24.kafka.checker.TopicMatcher;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Created on 17/10/2026.
+ */
+public class TopicMatcherTest {
+
+    @Test
+    public void testNamesAndPatterns() throws Exception {
+        TopicMatcher matcher = new TopicMatcher("topic1", " orders-.* ", "my.topic");
+
+        Assert.assertTrue(matcher.matches("topic1"));
+        Assert.assertTrue(matcher.matches("orders-eu"));
+        Assert.assertTrue(matcher.matches("my.topic"));
+        Assert.assertFalse(matcher.matches("myXtopic"));
+        Assert.assertFalse(matcher.matches("topic2"));
+        Assert.assertFalse(matcher.isMatchAll());
+        Assert.assertFalse(matcher.isNamesOnly());
+    }
+
+    @Test
+    public void testEmptyMatcherMatchesEverything() throws Exception {
+        TopicMatcher matcher = new TopicMatcher();
+
+        Assert.assertTrue(matcher.isMatchAll());
+        Assert.assertTrue(matcher.matches("any-topic"));
+    }
+}
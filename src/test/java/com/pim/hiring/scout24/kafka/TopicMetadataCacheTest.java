@@ -0,0 +1,81 @@
+package com.pim.hiring.scout24.kafka;
+
+import com.pim.hiring.scout24.kafka.checker.TopicMetadataCache;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.springframework.kafka.test.rule.KafkaEmbedded;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Created on 17/10/2026.
+ */
+public class TopicMetadataCacheTest {
+
+    private static String TOPIC_NAME = "topic1";
+
+    // Create 2 partitions topic
+    @ClassRule
+    public static KafkaEmbedded embeddedKafka = new KafkaEmbedded(1, true, 2, TOPIC_NAME);
+
+    private TopicMetadataCache cache;
+
+
+    @Before
+    public void setUp() throws Exception {
+        Map<String, Object> consumerProps = KafkaTestUtils.consumerProps("metadata-cache", "false", embeddedKafka);
+
+        // wait until the broker publishes the topic metadata
+        try (TopicMetadataCache warmUpCache = new TopicMetadataCache(consumerProps, 0, 10)) {
+            for (int i = 0; i < 50 && warmUpCache.getPartitions(TOPIC_NAME) == null; i++) {
+                Thread.sleep(200);
+            }
+        }
+        cache = new TopicMetadataCache(consumerProps, 60000, 10);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        cache.close();
+    }
+
+
+    @Test
+    public void testTopicPartitionsAreCached() throws Exception {
+        cache.refresh(Collections.singleton(TOPIC_NAME));
+
+        Assert.assertEquals(Arrays.asList(0, 1), cache.getPartitions(TOPIC_NAME));
+        Assert.assertEquals(Arrays.asList(0, 1), cache.getPartitions(TOPIC_NAME));
+        // the refresh fetches the topic, the lookups are served by the cache
+        Assert.assertEquals(2, cache.getHitCount());
+        Assert.assertEquals(1, cache.getMissCount());
+
+        cache.refresh(Collections.singleton(TOPIC_NAME));
+        Assert.assertEquals(3, cache.getHitCount());
+        Assert.assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void testTopicIsInvalidatedWhenAConsumerUsesAnUnknownPartition() throws Exception {
+        cache.refresh(Collections.singleton(TOPIC_NAME));
+
+        Assert.assertFalse( cache.invalidateIfOutdated(TOPIC_NAME, Arrays.asList(0, 1)) );
+        Assert.assertTrue( cache.invalidateIfOutdated(TOPIC_NAME, Arrays.asList(0, 2)) );
+        Assert.assertEquals(0, cache.size());
+
+        // the next lookup fetches the topic again
+        Assert.assertEquals(Arrays.asList(0, 1), cache.getPartitions(TOPIC_NAME));
+        Assert.assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    public void testUnknownTopicHasNoPartitions() throws Exception {
+        Assert.assertNull( cache.getTopicPartitionsInfo("topic314") );
+    }
+}
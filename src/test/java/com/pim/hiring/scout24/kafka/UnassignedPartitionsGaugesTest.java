@@ -0,0 +1,73 @@
+package com.pim.hiring.scout24.kafka;
+
+import com.pim.hiring.scout24.kafka.metrics.CheckerMetrics;
+import com.pim.hiring.scout24.kafka.metrics.UnassignedPartitionsGauges;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.pim.hiring.scout24.kafka.BitSets.partitions;
+
+
+/**
+ * Created on 17/10/2026.
+ */
+public class UnassignedPartitionsGaugesTest {
+
+    private SimpleMeterRegistry registry;
+
+    private UnassignedPartitionsGauges gauges;
+
+
+    @Before
+    public void setUp() throws Exception {
+        registry = new SimpleMeterRegistry();
+        gauges = new UnassignedPartitionsGauges(registry);
+    }
+
+
+    @Test
+    public void testGaugeFollowsTheTransitions() throws Exception {
+        gauges.onUnassigned("g1", "t1", partitions(1, 2));
+        Assert.assertEquals(2.0, gauge("g1", "t1").value(), 0.0);
+
+        gauges.onUnassigned("g1", "t1", partitions(3));
+        gauges.onRecovered("g1", "t1", partitions(1));
+        Assert.assertEquals(2.0, gauge("g1", "t1").value(), 0.0);
+        Assert.assertEquals(1, gauges.size());
+    }
+
+    @Test
+    public void testGaugeIsRemovedWhenThePairRecovers() throws Exception {
+        gauges.onUnassigned("g1", "t1", partitions(0));
+        gauges.onUnassigned("g2", "t1", partitions(0));
+
+        gauges.onRecovered("g1", "t1", partitions(0));
+        Assert.assertNull(gauge("g1", "t1"));
+        Assert.assertNotNull(gauge("g2", "t1"));
+        Assert.assertEquals(1, gauges.size());
+
+        // the topic is not checked any more
+        gauges.onCleared("g2", "t1", partitions(0));
+        Assert.assertNull(gauge("g2", "t1"));
+        Assert.assertEquals(0, gauges.size());
+    }
+
+    @Test
+    public void testPhasesAreTimed() throws Exception {
+        CheckerMetrics metrics = new CheckerMetrics(registry);
+        metrics.recordPhase(CheckerMetrics.Phase.COMPARE, System.nanoTime());
+        metrics.adminClientErrors(CheckerMetrics.Phase.OFFSET_FETCH, 3);
+
+        Assert.assertEquals(1, metrics.getPhaseTimer(CheckerMetrics.Phase.COMPARE).count());
+        Assert.assertEquals(0, metrics.getPhaseTimer(CheckerMetrics.Phase.GROUP_LISTING).count());
+        Assert.assertEquals(3.0, metrics.getAdminClientErrors(CheckerMetrics.Phase.OFFSET_FETCH).count(), 0.0);
+    }
+
+
+    private Gauge gauge(String group, String topic) {
+        return registry.find(UnassignedPartitionsGauges.METRIC_NAME).tag("group", group).tag("topic", topic).gauge();
+    }
+}
@@ -0,0 +1,89 @@
+package com.pim.hiring.scout24.kafka;
+
+import com.pim.hiring.scout24.kafka.api.UnassignedQueryController;
+import com.pim.hiring.scout24.kafka.api.UnassignedStateView;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import static com.pim.hiring.scout24.kafka.BitSets.partitions;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Created on 17/10/2026.
+ */
+public class UnassignedQueryControllerTest {
+
+    private UnassignedStateView view;
+
+    private MockMvc mockMvc;
+
+
+    @Before
+    public void setUp() throws Exception {
+        view = new UnassignedStateView();
+        UnassignedQueryController controller = new UnassignedQueryController();
+        ReflectionTestUtils.setField(controller, "unassignedStateView", view);
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+    }
+
+
+    @Test
+    public void testLastCompletedScanIsServed() throws Exception {
+        view.onUnassigned("g1", "t1.events", partitions(1, 2));
+        view.onUnassigned("g2", "t1.events", partitions(0));
+        // not visible until the scan completes
+        mockMvc.perform(get("/unassigned")).andExpect(status().isOk()).andExpect(jsonPath("$.length()").value(0));
+
+        view.onScanCompleted();
+        mockMvc.perform(get("/unassigned")).andExpect(jsonPath("$.length()").value(2));
+        mockMvc.perform(get("/groups/g1"))
+                .andExpect(jsonPath("$[0].topic").value("t1.events"))
+                .andExpect(jsonPath("$[0].partitions[1]").value(2));
+        mockMvc.perform(get("/topics/t1.events")).andExpect(jsonPath("$.length()").value(2));
+        mockMvc.perform(get("/groups/other")).andExpect(jsonPath("$.length()").value(0));
+
+        view.onRecovered("g1", "t1.events", partitions(1, 2));
+        view.onScanCompleted();
+        mockMvc.perform(get("/groups/g1")).andExpect(jsonPath("$.length()").value(0));
+    }
+
+    @Test
+    public void testUnchangedStateIsNotModified() throws Exception {
+        String first = "\"" + view.getEpoch() + "-1\"";
+        view.onUnassigned("g1", "t1", partitions(0));
+        view.onScanCompleted();
+        mockMvc.perform(get("/unassigned")).andExpect(header().string(HttpHeaders.ETAG, first));
+
+        // a scan without changes keeps the version
+        view.onScanCompleted();
+        mockMvc.perform(get("/unassigned").header(HttpHeaders.IF_NONE_MATCH, first))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/unassigned").header(HttpHeaders.IF_NONE_MATCH, "\"other\", W/" + first))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/unassigned").header(HttpHeaders.IF_NONE_MATCH, "*"))
+                .andExpect(status().isNotModified());
+
+        view.onRecovered("g1", "t1", partitions(0));
+        view.onScanCompleted();
+        mockMvc.perform(get("/unassigned").header(HttpHeaders.IF_NONE_MATCH, first))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + view.getEpoch() + "-2\""));
+    }
+
+    @Test
+    public void testTheVersionsOfAnotherProcessAreNotMatched() throws Exception {
+        view.onUnassigned("g1", "t1", partitions(0));
+        view.onScanCompleted();
+
+        // the same version served before a restart
+        mockMvc.perform(get("/unassigned").header(HttpHeaders.IF_NONE_MATCH, "\"0-1\", \"1\""))
+                .andExpect(status().isOk());
+    }
+}